@@ -0,0 +1,231 @@
+package com.teneocast.media.audio;
+
+import com.teneocast.media.service.MediaProcessingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duration and bitrate extraction for a three-minute file of each format, read from disk:
+ * the header scan against the full parser it replaces. The files are synthetic (silent
+ * frames) but have the frame, page and box layout of real encoder output.
+ *
+ * <pre>./gradlew :media-service:jmh -Pjmh.includes=AudioScannerBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AudioScannerBenchmark {
+    
+    private static final int SECONDS = 180;
+    
+    @Param({"mp3-cbr", "mp3-vbr", "wav", "ogg", "m4a", "aac"})
+    private String format;
+    
+    private Path file;
+    private long fileSize;
+    private final MediaProcessingService mediaProcessingService = new MediaProcessingService();
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("audio-bench", "." + format.replace("-cbr", "").replace("-vbr", ""));
+        try (OutputStream out = Files.newOutputStream(file)) {
+            switch (format) {
+                case "mp3-cbr" -> writeMp3(out, false);
+                case "mp3-vbr" -> writeMp3(out, true);
+                case "wav" -> writeWav(out);
+                case "ogg" -> writeOgg(out);
+                case "m4a" -> writeM4a(out);
+                case "aac" -> writeAdts(out);
+                default -> throw new IllegalArgumentException(format);
+            }
+        }
+        fileSize = Files.size(file);
+    }
+    
+    @Benchmark
+    public Object scan() throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return mediaProcessingService.scanAudio(in, fileSize).orElseThrow();
+        }
+    }
+    
+    @Benchmark
+    public Object parse() throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return mediaProcessingService.parseMetadata(in, file.getFileName().toString());
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+    
+    /**
+     * MPEG-1 layer III at 32 kHz stereo; 128 kbit/s frames, or 96-160 kbit/s behind a Xing header
+     */
+    private void writeMp3(OutputStream out, boolean vbr) throws IOException {
+        int frames = SECONDS * 32000 / 1152;
+        int[] bitrateIndexes = vbr ? new int[] {7, 9, 10} : new int[] {9};
+        int[] kbps = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160};
+        if (vbr) {
+            byte[] xing = mp3Frame(9, 576);
+            ByteBuffer header = ByteBuffer.wrap(xing, 4 + 32, 12);
+            header.put("Xing".getBytes(StandardCharsets.ISO_8859_1)).putInt(1).putInt(frames);
+            out.write(xing);
+        }
+        for (int i = 0; i < frames; i++) {
+            int index = bitrateIndexes[i % bitrateIndexes.length];
+            out.write(mp3Frame(index, 144 * kbps[index] * 1000 / 32000));
+        }
+    }
+    
+    private byte[] mp3Frame(int bitrateIndex, int length) {
+        byte[] frame = new byte[length];
+        ByteBuffer.wrap(frame).putInt(0xfffb0000 | bitrateIndex << 12 | 2 << 10);
+        return frame;
+    }
+    
+    /**
+     * 44.1 kHz 16-bit stereo PCM
+     */
+    private void writeWav(OutputStream out) throws IOException {
+        int dataSize = SECONDS * 44100 * 4;
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(ascii("RIFF")).putInt(36 + dataSize).put(ascii("WAVE"))
+                .put(ascii("fmt ")).putInt(16).putShort((short) 1).putShort((short) 2)
+                .putInt(44100).putInt(44100 * 4).putShort((short) 4).putShort((short) 16)
+                .put(ascii("data")).putInt(dataSize);
+        out.write(header.array());
+        writeZeros(out, dataSize);
+    }
+    
+    /**
+     * Vorbis at 44.1 kHz stereo, about 128 kbit/s in 4KB pages
+     */
+    private void writeOgg(OutputStream out) throws IOException {
+        ByteBuffer id = ByteBuffer.allocate(30).order(ByteOrder.LITTLE_ENDIAN);
+        id.put((byte) 1).put(ascii("vorbis")).putInt(0).put((byte) 2).putInt(44100)
+                .putInt(0).putInt(128000).putInt(0).put((byte) 0xb8).put((byte) 1);
+        ByteBuffer comments = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+        comments.put((byte) 3).put(ascii("vorbis")).putInt(5).put(ascii("bench"))
+                .putInt(1).putInt(10).put(ascii("TITLE=Tone")).put((byte) 1);
+        writeOggPage(out, 0, 0, 2, id.array());
+        writeOggPage(out, 0, 1, 0, comments.array(), new byte[64]);
+        
+        int pageBytes = 4080;
+        long samplesPerPage = 44100L * pageBytes * 8 / 128000;
+        long granule = 0;
+        for (int sequence = 2; granule < SECONDS * 44100L; sequence++) {
+            granule += samplesPerPage;
+            writeOggPage(out, granule, sequence, 0, new byte[1020], new byte[1020], new byte[1020], new byte[1020]);
+        }
+    }
+    
+    private void writeOggPage(OutputStream out, long granule, int sequence, int type, byte[]... packets) throws IOException {
+        ByteArrayOutputStream lacing = new ByteArrayOutputStream();
+        for (byte[] packet : packets) {
+            for (int remaining = packet.length; ; remaining -= 255) {
+                lacing.write(Math.min(remaining, 255));
+                if (remaining < 255) {
+                    break;
+                }
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(27).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(ascii("OggS")).put((byte) 0).put((byte) type).putLong(granule)
+                .putInt(1).putInt(sequence).putInt(0).put((byte) lacing.size());
+        out.write(header.array());
+        lacing.writeTo(out);
+        for (byte[] packet : packets) {
+            out.write(packet);
+        }
+    }
+    
+    /**
+     * AAC in MP4 with the moov box after the media data, the layout that needs the longest skip
+     */
+    private void writeM4a(OutputStream out) throws IOException {
+        int mediaSize = SECONDS * 16000;
+        out.write(box("ftyp", concat(ascii("M4A "), new byte[4], ascii("M4A isom"))));
+        ByteBuffer mdat = ByteBuffer.allocate(8);
+        mdat.putInt(8 + mediaSize).put(ascii("mdat"));
+        out.write(mdat.array());
+        writeZeros(out, mediaSize);
+        
+        byte[] mvhd = fullBox("mvhd", ByteBuffer.allocate(96).putInt(0).putInt(0).putInt(1000).putInt(SECONDS * 1000).array());
+        byte[] mdhd = fullBox("mdhd", ByteBuffer.allocate(20).putInt(0).putInt(0).putInt(44100).putInt(SECONDS * 44100).array());
+        byte[] hdlr = fullBox("hdlr", concat(new byte[4], ascii("soun"), new byte[13]));
+        byte[] mp4a = box("mp4a", ByteBuffer.allocate(28).position(6).putShort((short) 1).position(16)
+                .putShort((short) 2).putShort((short) 16).position(24).putInt(44100 << 16).array());
+        byte[] stsd = fullBox("stsd", concat(ByteBuffer.allocate(4).putInt(1).array(), mp4a));
+        byte[] stbl = box("stbl", concat(stsd, fullBox("stts", new byte[4096]), fullBox("stsz", new byte[32768])));
+        byte[] mdia = box("mdia", concat(mdhd, hdlr, box("minf", stbl)));
+        out.write(box("moov", concat(mvhd, box("trak", concat(fullBox("tkhd", new byte[80]), mdia)))));
+    }
+    
+    /**
+     * AAC-LC at 44.1 kHz stereo in ADTS frames of about 128 kbit/s
+     */
+    private void writeAdts(OutputStream out) throws IOException {
+        int frames = SECONDS * 44100 / 1024;
+        for (int i = 0; i < frames; i++) {
+            int length = i % 2 == 0 ? 368 + 7 : 374 + 7;
+            byte[] frame = new byte[length];
+            frame[0] = (byte) 0xff;
+            frame[1] = (byte) 0xf1;
+            frame[2] = (byte) (1 << 6 | 4 << 2);
+            frame[3] = (byte) (2 << 6 | (length >> 11) & 0x3);
+            frame[4] = (byte) (length >> 3);
+            frame[5] = (byte) ((length & 0x7) << 5 | 0x1f);
+            frame[6] = (byte) 0xfc;
+            out.write(frame);
+        }
+    }
+    
+    private static byte[] box(String type, byte[] payload) {
+        return ByteBuffer.allocate(8 + payload.length).putInt(8 + payload.length).put(ascii(type)).put(payload).array();
+    }
+    
+    private static byte[] fullBox(String type, byte[] payload) {
+        return box(type, concat(new byte[4], payload));
+    }
+    
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+    
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+    
+    private static void writeZeros(OutputStream out, long count) throws IOException {
+        byte[] zeros = new byte[64 * 1024];
+        for (long remaining = count; remaining > 0; remaining -= zeros.length) {
+            out.write(zeros, 0, (int) Math.min(zeros.length, remaining));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.teneocast.media.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpRange;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves a local file to a loopback socket the way a response would be written:
+ * through the 64KB heap copy loop (the previous path) and zero-copy, via
+ * {@code transferTo} for large files and a cached mapping for small ones.
+ * Total CPU time of the serving thread (user + kernel) per GB is printed at teardown.
+ *
+ * <pre>./gradlew :media-service:jmh</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LocalFileServingBenchmark {
+    
+    private static final UUID TENANT = UUID.randomUUID();
+    
+    @Param({"262144", "67108864"})
+    private int fileSize;
+    
+    @Param({"false", "true"})
+    private boolean zeroCopy;
+    
+    @Param({"false", "true"})
+    private boolean ranged;
+    
+    private Path file;
+    private LocalFileStorageService storageService;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private Thread drain;
+    private OutputStream clientStream;
+    
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private long cpuNanos;
+    private long bytesServed;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("media-bench", ".mp3");
+        byte[] content = new byte[fileSize];
+        new Random(42).nextBytes(content);
+        Files.write(file, content);
+        
+        storageService = new LocalFileStorageService();
+        ReflectionTestUtils.setField(storageService, "zeroCopy", zeroCopy);
+        ReflectionTestUtils.setField(storageService, "mmapThreshold", 1024L * 1024);
+        ReflectionTestUtils.setField(storageService, "mmapCacheSize", 16);
+        
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel accepted = server.accept();
+        drain = new Thread(() -> {
+            ByteBuffer sink = ByteBuffer.allocateDirect(256 * 1024);
+            try {
+                while (accepted.read(sink.clear()) >= 0) {
+                    // discard
+                }
+            } catch (IOException ignored) {
+                // socket closed at teardown
+            }
+        }, "bench-drain");
+        drain.setDaemon(true);
+        drain.start();
+        clientStream = Channels.newOutputStream(client);
+    }
+    
+    @Benchmark
+    public long serve() throws IOException {
+        HttpRange range = ranged ? HttpRange.createByteRange(fileSize / 4, fileSize - 1) : null;
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        long written;
+        try (MediaStream stream = storageService.openStream(file.toString(), TENANT, range)) {
+            // writeTo(OutputStream) is what the servlet path does; transferTo is what sendfile does
+            written = zeroCopy ? stream.transferTo(client) : stream.writeTo(clientStream);
+        }
+        cpuNanos += threads.getCurrentThreadCpuTime() - cpuBefore;
+        bytesServed += written;
+        return written;
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (bytesServed > 0) {
+            double gigabytes = bytesServed / (1024.0 * 1024 * 1024);
+            System.out.printf("%nfileSize=%d zeroCopy=%s ranged=%s: %.1f ms CPU per GB served%n",
+                    fileSize, zeroCopy, ranged, cpuNanos / 1_000_000.0 / gigabytes);
+        }
+        client.close();
+        server.close();
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,65 @@
+package com.teneocast.media.audio;
+
+import java.io.IOException;
+
+/**
+ * Raw AAC in ADTS framing. There is no stream-level header, so every frame header is read
+ * and the frame bodies are skipped.
+ */
+final class AdtsScanner implements FormatScanner {
+    
+    private static final int[] SAMPLE_RATES = {
+            96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+    };
+    
+    private static final int SAMPLES_PER_BLOCK = 1024;
+    
+    @Override
+    public AudioInfo scan(ScanInput in, long fileSize) throws IOException {
+        int sampleRate = 0;
+        int channels = 0;
+        long samples = 0;
+        long bytes = 0;
+        int firstLength = -1;
+        boolean vbr = false;
+        
+        while (true) {
+            byte[] header = in.peek(7);
+            if (header.length < 7 || (header[0] & 0xff) != 0xff || (header[1] & 0xf6) != 0xf0) {
+                break;
+            }
+            int rateIndex = (header[2] >>> 2) & 0xf;
+            int frameLength = ((header[3] & 0x3) << 11) | ((header[4] & 0xff) << 3) | ((header[5] & 0xff) >>> 5);
+            int blocks = (header[6] & 0x3) + 1;
+            if (rateIndex >= SAMPLE_RATES.length || frameLength < 7) {
+                break;
+            }
+            if (sampleRate == 0) {
+                sampleRate = SAMPLE_RATES[rateIndex];
+                channels = ((header[2] & 0x1) << 2) | ((header[3] & 0xff) >>> 6);
+                firstLength = frameLength;
+            } else if (SAMPLE_RATES[rateIndex] != sampleRate) {
+                break;
+            }
+            if (in.skip(frameLength) < frameLength) {
+                break;
+            }
+            vbr |= frameLength != firstLength;
+            samples += (long) blocks * SAMPLES_PER_BLOCK;
+            bytes += frameLength;
+        }
+        
+        if (sampleRate == 0) {
+            return null;
+        }
+        long durationMillis = samples * 1000 / sampleRate;
+        return AudioInfo.builder()
+                .format("aac")
+                .durationMillis(durationMillis)
+                .bitrateKbps(AudioInfo.averageKbps(bytes, durationMillis))
+                .sampleRate(sampleRate)
+                .channels(channels > 0 ? channels : null)
+                .variableBitrate(vbr)
+                .build();
+    }
+}
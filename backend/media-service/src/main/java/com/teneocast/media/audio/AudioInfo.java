@@ -0,0 +1,47 @@
+package com.teneocast.media.audio;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * What the header scan learned about an audio file.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class AudioInfo {
+    
+    public static final String TITLE = "title";
+    public static final String ARTIST = "artist";
+    public static final String ALBUM = "album";
+    
+    /** Container or stream format, e.g. mp3, wav, vorbis, opus, mp4, aac */
+    private final String format;
+    
+    private final long durationMillis;
+    
+    /** Average bitrate over the whole file, in kbit/s */
+    private final Integer bitrateKbps;
+    
+    private final Integer sampleRate;
+    
+    private final Integer channels;
+    
+    private final boolean variableBitrate;
+    
+    /** Title, artist and album where the file carries them */
+    @Builder.Default
+    private final Map<String, String> tags = Map.of();
+    
+    public int getDurationSeconds() {
+        return (int) Math.round(durationMillis / 1000.0);
+    }
+    
+    static Integer averageKbps(long bytes, long durationMillis) {
+        if (bytes <= 0 || durationMillis <= 0) {
+            return null;
+        }
+        return (int) Math.round(bytes * 8.0 / durationMillis);
+    }
+}
@@ -0,0 +1,74 @@
+package com.teneocast.media.audio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads duration, bitrate and basic tags from MP3, WAV, Ogg Vorbis/Opus, MP4/M4A and ADTS AAC
+ * by walking their headers and frame headers. Audio data is skipped rather than decoded, so
+ * on a seekable stream only a few kilobytes are read whatever the file size.
+ */
+public class AudioScanner {
+    
+    private final FormatScanner mp3 = new Mp3Scanner();
+    private final FormatScanner wav = new WavScanner();
+    private final FormatScanner ogg = new OggScanner();
+    private final FormatScanner mp4 = new Mp4Scanner();
+    private final FormatScanner adts = new AdtsScanner();
+    
+    /**
+     * Scan an audio stream from its first byte. The stream is left part-way through and is
+     * not closed.
+     * @param stream The audio
+     * @param fileSize Size of the whole file, or -1 if unknown
+     * @return What was found, or empty if the format is not recognised or the file is truncated
+     * @throws IOException If reading the stream fails
+     */
+    public Optional<AudioInfo> scan(InputStream stream, long fileSize) throws IOException {
+        ScanInput in = new ScanInput(stream);
+        try {
+            Map<String, String> tags = Id3v2Reader.read(in);
+            FormatScanner scanner = detect(in.peek(12));
+            AudioInfo info = scanner != null ? scanner.scan(in, fileSize) : null;
+            if (info == null) {
+                return Optional.empty();
+            }
+            if (!tags.isEmpty()) {
+                Map<String, String> merged = new HashMap<>(info.getTags());
+                tags.forEach(merged::putIfAbsent);
+                info = info.toBuilder().tags(merged).build();
+            }
+            return Optional.of(info);
+        } catch (EOFException e) {
+            return Optional.empty();
+        }
+    }
+    
+    private FormatScanner detect(byte[] head) {
+        if (head.length < 4) {
+            return null;
+        }
+        String magic = new String(head, 0, 4, StandardCharsets.ISO_8859_1);
+        if ("RIFF".equals(magic)) {
+            return wav;
+        }
+        if ("OggS".equals(magic)) {
+            return ogg;
+        }
+        if ("fLaC".equals(magic)) {
+            return null;
+        }
+        if (head.length >= 8 && "ftyp".equals(new String(head, 4, 4, StandardCharsets.ISO_8859_1))) {
+            return mp4;
+        }
+        if ((head[0] & 0xff) == 0xff && (head[1] & 0xf6) == 0xf0) {
+            return adts;
+        }
+        return mp3;
+    }
+}
@@ -0,0 +1,17 @@
+package com.teneocast.media.audio;
+
+import java.io.IOException;
+
+/**
+ * Reads the headers of one audio format, skipping over everything it does not need.
+ */
+interface FormatScanner {
+    
+    /**
+     * @param in The stream, positioned at the start of the format's data
+     * @param fileSize Size of the whole file, or -1 if unknown
+     * @return What was found, or null if the data is not in this format
+     * @throws java.io.EOFException If the file is truncated
+     */
+    AudioInfo scan(ScanInput in, long fileSize) throws IOException;
+}
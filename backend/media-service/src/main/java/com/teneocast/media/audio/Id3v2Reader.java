@@ -0,0 +1,106 @@
+package com.teneocast.media.audio;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ID3v2.2-2.4 tags in front of MPEG and ADTS streams. Only the title, artist and album text
+ * frames are read; every other frame, including pictures, is skipped.
+ */
+final class Id3v2Reader {
+    
+    private static final Map<String, String> TEXT_FRAMES = Map.of(
+            "TIT2", AudioInfo.TITLE, "TT2", AudioInfo.TITLE,
+            "TPE1", AudioInfo.ARTIST, "TP1", AudioInfo.ARTIST,
+            "TALB", AudioInfo.ALBUM, "TAL", AudioInfo.ALBUM);
+    
+    private static final int MAX_TEXT_FRAME = 4096;
+    
+    private Id3v2Reader() {
+    }
+    
+    /**
+     * Consume any ID3v2 tags at the current position
+     * @return The text frames found, empty if there was no tag
+     */
+    static Map<String, String> read(ScanInput in) throws IOException {
+        Map<String, String> tags = new HashMap<>();
+        while (isTag(in.peek(3))) {
+            in.skipFully(3);
+            int major = in.u8();
+            in.u8();
+            int flags = in.u8();
+            long end = in.position() + syncsafe(in.u32be()) + ((flags & 0x10) != 0 ? 10 : 0);
+            
+            // Unsynchronised tags would need every frame decoded byte by byte; their tags are not worth it
+            if (major >= 2 && major <= 4 && (flags & 0x80) == 0) {
+                if ((flags & 0x40) != 0 && major > 2) {
+                    long size = in.u32be();
+                    in.skipFully(major == 4 ? syncsafe(size) - 4 : size);
+                }
+                readFrames(in, major, end, tags);
+            }
+            if (in.position() < end) {
+                in.skipFully(end - in.position());
+            }
+        }
+        return tags;
+    }
+    
+    private static void readFrames(ScanInput in, int major, long end, Map<String, String> tags) throws IOException {
+        int headerLength = major == 2 ? 6 : 10;
+        while (in.position() + headerLength <= end) {
+            byte[] first = in.peek(1);
+            if (first.length == 0 || first[0] == 0) {
+                // Padding
+                return;
+            }
+            String id;
+            long size;
+            if (major == 2) {
+                id = new String(in.readBytes(3), StandardCharsets.ISO_8859_1);
+                size = ((long) in.u8() << 16) | in.u16be();
+            } else {
+                id = in.fourCc();
+                size = major == 4 ? syncsafe(in.u32be()) : in.u32be();
+                in.skipFully(2);
+            }
+            if (in.position() + size > end) {
+                return;
+            }
+            String key = TEXT_FRAMES.get(id);
+            if (key != null && size > 1 && size <= MAX_TEXT_FRAME) {
+                String text = decodeText(in.readBytes((int) size));
+                if (!text.isEmpty()) {
+                    tags.putIfAbsent(key, text);
+                }
+            } else {
+                in.skipFully(size);
+            }
+        }
+    }
+    
+    private static String decodeText(byte[] frame) {
+        Charset charset = switch (frame[0]) {
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+        String text = new String(frame, 1, frame.length - 1, charset);
+        // v2.4 separates multiple values with NUL; keep the first
+        int nul = text.indexOf('\0');
+        return (nul >= 0 ? text.substring(0, nul) : text).trim();
+    }
+    
+    private static boolean isTag(byte[] head) {
+        return head.length == 3 && head[0] == 'I' && head[1] == 'D' && head[2] == '3';
+    }
+    
+    private static long syncsafe(long value) {
+        return (value & 0x7f) | ((value >> 8) & 0x7f) << 7 | ((value >> 16) & 0x7f) << 14 | ((value >> 24) & 0x7f) << 21;
+    }
+}
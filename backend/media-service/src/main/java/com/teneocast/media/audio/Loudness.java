@@ -0,0 +1,21 @@
+package com.teneocast.media.audio;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Loudness of a whole file and the gain that normalises it.
+ */
+@Getter
+@AllArgsConstructor
+public class Loudness {
+    
+    /** Integrated loudness in LUFS; null when nothing is above the -70 LUFS gate */
+    private final Double integratedLufs;
+    
+    /** True peak in dBTP; null for digital silence */
+    private final Double truePeakDbtp;
+    
+    /** Gain in dB to play the file at, null when the loudness is unknown */
+    private final Double gainDb;
+}
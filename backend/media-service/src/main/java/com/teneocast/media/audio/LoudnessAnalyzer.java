@@ -0,0 +1,152 @@
+package com.teneocast.media.audio;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Decodes a file to PCM through the installed Java Sound providers and runs it through a
+ * {@link LoudnessMeter} a buffer at a time. The gain brings the file to the target loudness,
+ * reduced where needed to keep the true peak under the ceiling.
+ */
+@Slf4j
+public class LoudnessAnalyzer {
+    
+    private static final int FRAMES_PER_READ = 4096;
+    
+    /** Java Sound needs mark/reset while it probes the format */
+    private static final int PROBE_BUFFER = 64 * 1024;
+    
+    private final double targetLufs;
+    private final double peakCeilingDbtp;
+    
+    public LoudnessAnalyzer(double targetLufs, double peakCeilingDbtp) {
+        this.targetLufs = targetLufs;
+        this.peakCeilingDbtp = peakCeilingDbtp;
+    }
+    
+    /**
+     * Measure a file from its first byte. The stream is not closed.
+     * @param stream The encoded audio
+     * @return The loudness, or empty if no installed decoder reads the file
+     * @throws IOException If reading the stream fails
+     */
+    public Optional<Loudness> analyse(InputStream stream) throws IOException {
+        SourceStream source = new SourceStream(stream);
+        try {
+            return Optional.ofNullable(measure(source));
+        } catch (IOException | RuntimeException e) {
+            // Decoders fail in all sorts of ways on data they half recognise; only storage failures count
+            if (source.failure != null) {
+                throw source.failure;
+            }
+            log.debug("Could not decode audio for loudness: {}", e.toString());
+            return Optional.empty();
+        }
+    }
+    
+    private Loudness measure(InputStream stream) throws IOException {
+        AudioInputStream decoded;
+        try {
+            decoded = toPcm(AudioSystem.getAudioInputStream(new BufferedInputStream(stream, PROBE_BUFFER)));
+        } catch (UnsupportedAudioFileException e) {
+            return null;
+        }
+        
+        AudioFormat format = decoded.getFormat();
+        int channels = format.getChannels();
+        int frameSize = format.getFrameSize();
+        LoudnessMeter meter = new LoudnessMeter(Math.round(format.getSampleRate()), channels);
+        byte[] bytes = new byte[FRAMES_PER_READ * frameSize];
+        float[] samples = new float[FRAMES_PER_READ * channels];
+        int pending = 0;
+        int read;
+        while ((read = decoded.read(bytes, pending, bytes.length - pending)) >= 0) {
+            int available = pending + read;
+            int frames = available / frameSize;
+            for (int i = 0; i < frames * channels; i++) {
+                samples[i] = (short) ((bytes[2 * i] & 0xff) | (bytes[2 * i + 1] << 8)) / 32768f;
+            }
+            meter.process(samples, frames);
+            // Keep a partial frame for the next read
+            pending = available - frames * frameSize;
+            System.arraycopy(bytes, frames * frameSize, bytes, 0, pending);
+        }
+        
+        Double integrated = meter.getIntegratedLoudness();
+        Double truePeak = meter.getTruePeak();
+        return new Loudness(round(integrated), round(truePeak), round(gain(integrated, truePeak)));
+    }
+    
+    private Double gain(Double integrated, Double truePeak) {
+        if (integrated == null) {
+            return null;
+        }
+        double gain = targetLufs - integrated;
+        if (truePeak != null) {
+            gain = Math.min(gain, peakCeilingDbtp - truePeak);
+        }
+        return gain;
+    }
+    
+    /**
+     * Convert to 16-bit signed little-endian PCM, decoding compressed formats on the way
+     * @throws IllegalArgumentException If no installed converter handles the format
+     */
+    private AudioInputStream toPcm(AudioInputStream source) {
+        AudioFormat format = source.getFormat();
+        if (format.getSampleRate() <= 0 || format.getChannels() <= 0) {
+            throw new IllegalArgumentException("Unknown sample rate or channel count: " + format);
+        }
+        AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+                format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+        if (format.matches(pcm)) {
+            return source;
+        }
+        return AudioSystem.getAudioInputStream(pcm, source);
+    }
+    
+    private static Double round(Double value) {
+        return value == null ? null : Math.round(value * 100) / 100.0;
+    }
+    
+    /**
+     * Remembers a failure of the underlying stream, which decoders may wrap or swallow
+     */
+    private static final class SourceStream extends FilterInputStream {
+        
+        private IOException failure;
+        
+        SourceStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.teneocast.media.audio;
+
+/**
+ * Streaming ITU-R BS.1770 / EBU R128 meter: K-weighted integrated loudness with absolute and
+ * relative gating, and true peak from 4x oversampling. Gating blocks are kept as a histogram
+ * rather than a list, so memory stays constant whatever the duration.
+ */
+public class LoudnessMeter {
+    
+    private static final double ABSOLUTE_GATE = -70.0;
+    private static final double RELATIVE_GATE = -10.0;
+    private static final double HISTOGRAM_TOP = 5.0;
+    private static final int BINS_PER_LU = 10;
+    private static final int BINS = (int) ((HISTOGRAM_TOP - ABSOLUTE_GATE) * BINS_PER_LU);
+    
+    /** 400 ms blocks overlapping by 75%: four 100 ms steps per block */
+    private static final int STEPS_PER_BLOCK = 4;
+    
+    private static final int OVERSAMPLING = 4;
+    private static final int TAPS_PER_PHASE = 12;
+    private static final double[][] INTERPOLATION = interpolationFilter();
+    
+    private final int channels;
+    private final double[] weights;
+    private final Biquad[] shelf;
+    private final Biquad[] highPass;
+    private final int samplesPerStep;
+    private final boolean oversample;
+    
+    private final double[] stepEnergies = new double[STEPS_PER_BLOCK];
+    private int steps;
+    private double stepEnergy;
+    private int stepSamples;
+    
+    private final long[] binCounts = new long[BINS];
+    private final double[] binEnergies = new double[BINS];
+    
+    private final double[][] history;
+    private int historyIndex;
+    private double peak;
+    
+    public LoudnessMeter(int sampleRate, int channels) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("Unsupported format: " + sampleRate + " Hz, " + channels + " channels");
+        }
+        this.channels = channels;
+        this.weights = channelWeights(channels);
+        this.shelf = new Biquad[channels];
+        this.highPass = new Biquad[channels];
+        for (int c = 0; c < channels; c++) {
+            shelf[c] = Biquad.highShelf(sampleRate);
+            highPass[c] = Biquad.highPass(sampleRate);
+        }
+        this.samplesPerStep = Math.max(1, Math.round(sampleRate / 10f));
+        // At 96 kHz and above the sample peak is already within a fraction of a dB
+        this.oversample = sampleRate < 96000;
+        this.history = new double[channels][TAPS_PER_PHASE];
+    }
+    
+    /**
+     * Feed interleaved samples in the range -1..1
+     * @param samples Interleaved samples
+     * @param frames Number of frames (samples per channel) to read from the array
+     */
+    public void process(float[] samples, int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            int base = frame * channels;
+            double energy = 0;
+            for (int c = 0; c < channels; c++) {
+                double sample = samples[base + c];
+                trackPeak(c, sample);
+                if (weights[c] != 0) {
+                    double weighted = highPass[c].apply(shelf[c].apply(sample));
+                    energy += weights[c] * weighted * weighted;
+                }
+            }
+            historyIndex = (historyIndex + 1) % TAPS_PER_PHASE;
+            
+            stepEnergy += energy;
+            if (++stepSamples == samplesPerStep) {
+                endStep();
+            }
+        }
+    }
+    
+    /**
+     * @return Integrated loudness in LUFS, or null if no block was above the absolute gate
+     */
+    public Double getIntegratedLoudness() {
+        long count = 0;
+        double energy = 0;
+        for (int bin = 0; bin < BINS; bin++) {
+            count += binCounts[bin];
+            energy += binEnergies[bin];
+        }
+        if (count == 0) {
+            return null;
+        }
+        
+        double threshold = loudness(energy / count) + RELATIVE_GATE;
+        count = 0;
+        energy = 0;
+        for (int bin = 0; bin < BINS; bin++) {
+            double binCentre = ABSOLUTE_GATE + (bin + 0.5) / BINS_PER_LU;
+            if (binCentre >= threshold) {
+                count += binCounts[bin];
+                energy += binEnergies[bin];
+            }
+        }
+        return count == 0 ? null : loudness(energy / count);
+    }
+    
+    /**
+     * @return True peak in dBTP, or null if every sample was zero
+     */
+    public Double getTruePeak() {
+        return peak > 0 ? 20 * Math.log10(peak) : null;
+    }
+    
+    private void endStep() {
+        stepEnergies[steps % STEPS_PER_BLOCK] = stepEnergy;
+        steps++;
+        stepEnergy = 0;
+        stepSamples = 0;
+        if (steps < STEPS_PER_BLOCK) {
+            return;
+        }
+        
+        double blockEnergy = 0;
+        for (double step : stepEnergies) {
+            blockEnergy += step;
+        }
+        blockEnergy /= (double) STEPS_PER_BLOCK * samplesPerStep;
+        double blockLoudness = loudness(blockEnergy);
+        if (blockLoudness < ABSOLUTE_GATE) {
+            return;
+        }
+        int bin = Math.min(BINS - 1, (int) ((blockLoudness - ABSOLUTE_GATE) * BINS_PER_LU));
+        binCounts[bin]++;
+        binEnergies[bin] += blockEnergy;
+    }
+    
+    private void trackPeak(int channel, double sample) {
+        double magnitude = Math.abs(sample);
+        if (magnitude > peak) {
+            peak = magnitude;
+        }
+        if (!oversample) {
+            return;
+        }
+        double[] past = history[channel];
+        past[historyIndex] = sample;
+        for (int phase = 0; phase < OVERSAMPLING; phase++) {
+            double[] taps = INTERPOLATION[phase];
+            double value = 0;
+            for (int k = 0; k < TAPS_PER_PHASE; k++) {
+                value += taps[k] * past[(historyIndex - k + TAPS_PER_PHASE) % TAPS_PER_PHASE];
+            }
+            magnitude = Math.abs(value);
+            if (magnitude > peak) {
+                peak = magnitude;
+            }
+        }
+    }
+    
+    private static double loudness(double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+    
+    /**
+     * BS.1770 weights: left, right and centre 1.0, LFE excluded, surrounds +1.5 dB (5.1 order)
+     */
+    private static double[] channelWeights(int channels) {
+        double[] weights = new double[channels];
+        for (int c = 0; c < channels; c++) {
+            if (channels < 6 || c < 3) {
+                weights[c] = 1.0;
+            } else if (c == 3) {
+                weights[c] = 0.0;
+            } else {
+                weights[c] = 1.41;
+            }
+        }
+        return weights;
+    }
+    
+    /**
+     * Hann-windowed sinc low-pass at the original Nyquist frequency, split into polyphase taps
+     */
+    private static double[][] interpolationFilter() {
+        int length = OVERSAMPLING * TAPS_PER_PHASE;
+        double centre = (length - 1) / 2.0;
+        double[][] phases = new double[OVERSAMPLING][TAPS_PER_PHASE];
+        for (int n = 0; n < length; n++) {
+            double x = (n - centre) / OVERSAMPLING;
+            double sinc = x == 0 ? 1.0 : Math.sin(Math.PI * x) / (Math.PI * x);
+            double window = 0.5 - 0.5 * Math.cos(2 * Math.PI * (n + 0.5) / length);
+            phases[n % OVERSAMPLING][n / OVERSAMPLING] = sinc * window;
+        }
+        // Unity gain at DC for every phase
+        for (double[] taps : phases) {
+            double sum = 0;
+            for (double tap : taps) {
+                sum += tap;
+            }
+            for (int k = 0; k < taps.length; k++) {
+                taps[k] /= sum;
+            }
+        }
+        return phases;
+    }
+    
+    /**
+     * Second-order IIR section, transposed direct form II
+     */
+    private static final class Biquad {
+        
+        private final double b0;
+        private final double b1;
+        private final double b2;
+        private final double a1;
+        private final double a2;
+        private double z1;
+        private double z2;
+        
+        private Biquad(double b0, double b1, double b2, double a1, double a2) {
+            this.b0 = b0;
+            this.b1 = b1;
+            this.b2 = b2;
+            this.a1 = a1;
+            this.a2 = a2;
+        }
+        
+        /** Stage 1 of the K-weighting: the head's acoustic effect, a +4 dB shelf above ~1.5 kHz */
+        static Biquad highShelf(int sampleRate) {
+            double f0 = 1681.974450955533;
+            double gain = 3.999843853973347;
+            double q = 0.7071752369554196;
+            double k = Math.tan(Math.PI * f0 / sampleRate);
+            double vh = Math.pow(10, gain / 20);
+            double vb = Math.pow(vh, 0.4996667741545416);
+            double a0 = 1 + k / q + k * k;
+            return new Biquad(
+                    (vh + vb * k / q + k * k) / a0,
+                    2 * (k * k - vh) / a0,
+                    (vh - vb * k / q + k * k) / a0,
+                    2 * (k * k - 1) / a0,
+                    (1 - k / q + k * k) / a0);
+        }
+        
+        /** Stage 2: the RLB high-pass at ~38 Hz */
+        static Biquad highPass(int sampleRate) {
+            double f0 = 38.13547087602444;
+            double q = 0.5003270373238773;
+            double k = Math.tan(Math.PI * f0 / sampleRate);
+            double a0 = 1 + k / q + k * k;
+            return new Biquad(1, -2, 1, 2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0);
+        }
+        
+        double apply(double x) {
+            double y = b0 * x + z1;
+            z1 = b1 * x - a1 * y + z2;
+            z2 = b2 * x - a2 * y;
+            return y;
+        }
+    }
+}
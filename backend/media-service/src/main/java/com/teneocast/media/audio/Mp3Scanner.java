@@ -0,0 +1,224 @@
+package com.teneocast.media.audio;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MPEG audio (MP3, and layers I/II). The first frame is checked for a Xing/Info or VBRI
+ * header, which gives the frame count directly; without one every frame header is read
+ * and the frame bodies are skipped.
+ */
+final class Mp3Scanner implements FormatScanner {
+    
+    /** How far past the tags a first frame is looked for */
+    static final int SYNC_SEARCH_LIMIT = 64 * 1024;
+    
+    private static final int[][] BITRATES = {
+            // MPEG-1 layer I, II, III
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+            // MPEG-2/2.5 layer I, II and III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+    
+    private static final int[] SAMPLE_RATES = {44100, 48000, 32000};
+    
+    @Override
+    public AudioInfo scan(ScanInput in, long fileSize) throws IOException {
+        Frame first = findFirstFrame(in);
+        if (first == null) {
+            return null;
+        }
+        long audioStart = in.position() - 4;
+        
+        byte[] body = in.readBytes(first.length - 4);
+        AudioInfo fromHeader = readVbrHeader(first, body, fileSize, audioStart);
+        if (fromHeader != null) {
+            return fromHeader;
+        }
+        return walkFrames(in, first);
+    }
+    
+    private Frame findFirstFrame(ScanInput in) throws IOException {
+        int header = 0;
+        for (int scanned = 0; scanned < SYNC_SEARCH_LIMIT; scanned++) {
+            int b = in.read();
+            if (b < 0) {
+                return null;
+            }
+            header = (header << 8) | b;
+            if (scanned >= 3) {
+                Frame frame = Frame.parse(header);
+                if (frame != null) {
+                    return frame;
+                }
+            }
+        }
+        return null;
+    }
+    
+    private AudioInfo readVbrHeader(Frame first, byte[] body, long fileSize, long audioStart) {
+        // Offsets below are into the frame body, which starts after the 4-byte frame header
+        int xing = first.sideInfoLength();
+        if (matches(body, xing, "Xing") || matches(body, xing, "Info")) {
+            int flags = readInt(body, xing + 4);
+            int offset = xing + 8;
+            long frames = -1;
+            long bytes = -1;
+            if ((flags & 0x1) != 0) {
+                frames = readInt(body, offset) & 0xffffffffL;
+                offset += 4;
+            }
+            if ((flags & 0x2) != 0) {
+                bytes = readInt(body, offset) & 0xffffffffL;
+            }
+            if (frames > 0) {
+                return fromFrameCount(first, frames, bytes, fileSize, audioStart, matches(body, xing, "Xing"));
+            }
+        }
+        if (matches(body, 32, "VBRI")) {
+            long bytes = readInt(body, 32 + 10) & 0xffffffffL;
+            long frames = readInt(body, 32 + 14) & 0xffffffffL;
+            if (frames > 0) {
+                return fromFrameCount(first, frames, bytes, fileSize, audioStart, true);
+            }
+        }
+        return null;
+    }
+    
+    private AudioInfo fromFrameCount(Frame first, long frames, long bytes, long fileSize, long audioStart, boolean vbr) {
+        long durationMillis = frames * first.samples * 1000 / first.sampleRate;
+        if (bytes <= 0 && fileSize > 0) {
+            bytes = fileSize - audioStart;
+        }
+        return AudioInfo.builder()
+                .format("mp3")
+                .durationMillis(durationMillis)
+                .bitrateKbps(AudioInfo.averageKbps(bytes, durationMillis))
+                .sampleRate(first.sampleRate)
+                .channels(first.channels)
+                .variableBitrate(vbr)
+                .build();
+    }
+    
+    private AudioInfo walkFrames(ScanInput in, Frame first) throws IOException {
+        long samples = first.samples;
+        long bytes = first.length;
+        int frames = 1;
+        boolean vbr = false;
+        
+        while (true) {
+            byte[] head = in.peek(4);
+            if (head.length < 4) {
+                break;
+            }
+            Frame frame = Frame.parse(readInt(head, 0));
+            // Trailing ID3v1/APE tags or junk end the walk
+            if (frame == null || frame.sampleRate != first.sampleRate || in.skip(frame.length) < frame.length) {
+                break;
+            }
+            vbr |= frame.bitrate != first.bitrate;
+            frames++;
+            samples += frame.samples;
+            bytes += frame.length;
+        }
+        if (frames == 1) {
+            // A lone sync pattern is far more likely to be noise in some other format
+            return null;
+        }
+        
+        long durationMillis = samples * 1000 / first.sampleRate;
+        return AudioInfo.builder()
+                .format("mp3")
+                .durationMillis(durationMillis)
+                .bitrateKbps(vbr ? AudioInfo.averageKbps(bytes, durationMillis) : Integer.valueOf(first.bitrate))
+                .sampleRate(first.sampleRate)
+                .channels(first.channels)
+                .variableBitrate(vbr)
+                .build();
+    }
+    
+    private static boolean matches(byte[] body, int offset, String tag) {
+        return offset >= 0 && offset + 4 <= body.length
+                && new String(body, offset, 4, StandardCharsets.ISO_8859_1).equals(tag);
+    }
+    
+    private static int readInt(byte[] body, int offset) {
+        if (offset + 4 > body.length) {
+            return 0;
+        }
+        return ((body[offset] & 0xff) << 24) | ((body[offset + 1] & 0xff) << 16)
+                | ((body[offset + 2] & 0xff) << 8) | (body[offset + 3] & 0xff);
+    }
+    
+    /**
+     * One decoded frame header
+     */
+    static final class Frame {
+        
+        /** 1 for MPEG-1, 2 for MPEG-2 and MPEG-2.5 */
+        final int version;
+        final int layer;
+        final int bitrate;
+        final int sampleRate;
+        final int channels;
+        final int samples;
+        final int length;
+        
+        private Frame(int version, int layer, int bitrate, int sampleRate, int channels, int samples, int length) {
+            this.version = version;
+            this.layer = layer;
+            this.bitrate = bitrate;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.samples = samples;
+            this.length = length;
+        }
+        
+        /**
+         * @return The frame, or null if the four bytes are not a valid MPEG audio header
+         */
+        static Frame parse(int header) {
+            if ((header & 0xffe00000) != 0xffe00000) {
+                return null;
+            }
+            int versionBits = (header >>> 19) & 0x3;
+            int layerBits = (header >>> 17) & 0x3;
+            int bitrateIndex = (header >>> 12) & 0xf;
+            int sampleRateIndex = (header >>> 10) & 0x3;
+            if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+                // Reserved values, or free format which cannot be walked
+                return null;
+            }
+            
+            int version = versionBits == 3 ? 1 : 2;
+            int layer = 4 - layerBits;
+            int[] table = version == 1 ? BITRATES[layer - 1] : BITRATES[layer == 1 ? 3 : 4];
+            int bitrate = table[bitrateIndex];
+            int sampleRate = SAMPLE_RATES[sampleRateIndex] >> (versionBits == 3 ? 0 : versionBits == 2 ? 1 : 2);
+            int padding = (header >>> 9) & 0x1;
+            int channels = ((header >>> 6) & 0x3) == 3 ? 1 : 2;
+            
+            int samples;
+            int length;
+            if (layer == 1) {
+                samples = 384;
+                length = (12 * bitrate * 1000 / sampleRate + padding) * 4;
+            } else {
+                samples = layer == 3 && version == 2 ? 576 : 1152;
+                length = samples / 8 * bitrate * 1000 / sampleRate + padding;
+            }
+            return new Frame(version, layer, bitrate, sampleRate, channels, samples, length);
+        }
+        
+        /** Bytes of layer III side information between the header and a Xing/Info tag */
+        int sideInfoLength() {
+            if (version == 1) {
+                return channels == 1 ? 17 : 32;
+            }
+            return channels == 1 ? 9 : 17;
+        }
+    }
+}
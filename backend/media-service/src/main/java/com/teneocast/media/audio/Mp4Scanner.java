@@ -0,0 +1,199 @@
+package com.teneocast.media.audio;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MP4/M4A. Walks the box tree down to the movie and track headers, the sample description
+ * and the iTunes tag list; media data is skipped and the walk stops once the moov box is read.
+ */
+final class Mp4Scanner implements FormatScanner {
+    
+    private static final Set<String> CONTAINERS = Set.of("moov", "trak", "mdia", "minf", "stbl", "udta", "ilst");
+    
+    private static final Map<String, String> ILST_TAGS = Map.of(
+            "\u00a9nam", AudioInfo.TITLE,
+            "\u00a9ART", AudioInfo.ARTIST,
+            "\u00a9alb", AudioInfo.ALBUM);
+    
+    /** Tag values larger than this are skipped */
+    private static final long MAX_TAG_SIZE = 64 * 1024;
+    
+    @Override
+    public AudioInfo scan(ScanInput in, long fileSize) throws IOException {
+        byte[] head = in.peek(8);
+        if (head.length < 8 || !"ftyp".equals(new String(head, 4, 4, StandardCharsets.ISO_8859_1))) {
+            return null;
+        }
+        
+        Movie movie = new Movie();
+        walk(in, -1, movie, null);
+        Track audio = movie.audio;
+        if (!movie.complete || audio == null) {
+            return null;
+        }
+        
+        long durationMillis = audio.timescale > 0
+                ? audio.duration * 1000 / audio.timescale
+                : movie.timescale > 0 ? movie.duration * 1000 / movie.timescale : 0;
+        long bytes = fileSize > 0 ? fileSize : movie.mediaBytes;
+        return AudioInfo.builder()
+                .format("mp4")
+                .durationMillis(durationMillis)
+                .bitrateKbps(AudioInfo.averageKbps(bytes, durationMillis))
+                .sampleRate(audio.sampleRate > 0 ? audio.sampleRate : null)
+                .channels(audio.channels > 0 ? audio.channels : null)
+                .tags(movie.tags)
+                .build();
+    }
+    
+    /**
+     * Read the boxes up to {@code end}, or to the end of the stream when {@code end} is -1
+     */
+    private void walk(ScanInput in, long end, Movie movie, String parent) throws IOException {
+        while (end < 0 || in.position() + 8 <= end) {
+            if (end < 0 && in.peek(8).length < 8) {
+                return;
+            }
+            long start = in.position();
+            long size = in.u32be();
+            String type = in.fourCc();
+            if (size == 1) {
+                size = in.u64be();
+            } else if (size == 0) {
+                // Box runs to the end of its parent
+                size = end < 0 ? -1 : end - start;
+            }
+            if (size >= 0 && size < in.position() - start) {
+                return;
+            }
+            long boxEnd = size < 0 ? -1 : start + size;
+            
+            read(in, type, boxEnd, movie, parent);
+            if (boxEnd < 0) {
+                return;
+            }
+            if (in.position() < boxEnd) {
+                in.skipFully(boxEnd - in.position());
+            }
+            if (end < 0 && movie.complete) {
+                return;
+            }
+        }
+    }
+    
+    private void read(ScanInput in, String type, long boxEnd, Movie movie, String parent) throws IOException {
+        if ("ilst".equals(parent)) {
+            walk(in, boxEnd, movie, type);
+            return;
+        }
+        switch (type) {
+            case "mdat" -> movie.mediaBytes += boxEnd > 0 ? boxEnd - in.position() : 0;
+            case "trak" -> {
+                movie.track = new Track();
+                walk(in, boxEnd, movie, type);
+                if (movie.track.audio && movie.audio == null) {
+                    movie.audio = movie.track;
+                }
+                movie.track = null;
+            }
+            case "moov" -> {
+                walk(in, boxEnd, movie, type);
+                movie.complete = true;
+            }
+            case "meta" -> {
+                // ISO meta is a full box; QuickTime's goes straight to its children
+                byte[] head = in.peek(8);
+                if (head.length < 8 || !"hdlr".equals(new String(head, 4, 4, StandardCharsets.ISO_8859_1))) {
+                    in.skipFully(4);
+                }
+                walk(in, boxEnd, movie, type);
+            }
+            case "mvhd" -> {
+                long[] header = readMediaHeader(in);
+                movie.timescale = header[0];
+                movie.duration = header[1];
+            }
+            case "mdhd" -> {
+                if (movie.track != null) {
+                    long[] header = readMediaHeader(in);
+                    movie.track.timescale = header[0];
+                    movie.track.duration = header[1];
+                }
+            }
+            case "hdlr" -> {
+                if (movie.track != null) {
+                    in.skipFully(8);
+                    movie.track.audio = "soun".equals(in.fourCc());
+                }
+            }
+            case "stsd" -> {
+                if (movie.track != null && movie.track.audio) {
+                    readSampleDescription(in, movie.track);
+                }
+            }
+            case "data" -> {
+                String key = ILST_TAGS.get(parent);
+                long length = boxEnd - in.position() - 8;
+                if (key != null && length >= 0 && length <= MAX_TAG_SIZE) {
+                    in.skipFully(8);
+                    movie.tags.putIfAbsent(key, new String(in.readBytes((int) length), StandardCharsets.UTF_8));
+                }
+            }
+            default -> {
+                if (CONTAINERS.contains(type)) {
+                    walk(in, boxEnd, movie, type);
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return Timescale and duration from an mvhd or mdhd box
+     */
+    private long[] readMediaHeader(ScanInput in) throws IOException {
+        int version = in.u8();
+        in.skipFully(3);
+        if (version == 1) {
+            in.skipFully(16);
+            return new long[] {in.u32be(), in.u64be()};
+        }
+        in.skipFully(8);
+        return new long[] {in.u32be(), in.u32be()};
+    }
+    
+    private void readSampleDescription(ScanInput in, Track track) throws IOException {
+        in.skipFully(4);
+        if (in.u32be() == 0) {
+            return;
+        }
+        // Sample entry: size, format, 6 reserved, data reference index, 8 reserved (version, revision, vendor)
+        in.skipFully(4 + 4 + 6 + 2 + 8);
+        track.channels = in.u16be();
+        in.skipFully(6);
+        track.sampleRate = (int) (in.u32be() >>> 16);
+    }
+    
+    private static final class Movie {
+        
+        private long timescale;
+        private long duration;
+        private long mediaBytes;
+        private boolean complete;
+        private Track track;
+        private Track audio;
+        private final Map<String, String> tags = new HashMap<>();
+    }
+    
+    private static final class Track {
+        
+        private boolean audio;
+        private long timescale;
+        private long duration;
+        private int channels;
+        private int sampleRate;
+    }
+}
@@ -0,0 +1,187 @@
+package com.teneocast.media.audio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ogg Vorbis and Ogg Opus. The identification and comment packets are read from the first
+ * pages; after that only page headers are read, for the granule position of the last page.
+ */
+final class OggScanner implements FormatScanner {
+    
+    private static final int OPUS_GRANULE_RATE = 48000;
+    
+    /** Comment packets larger than this (embedded cover art) are skipped */
+    private static final int MAX_HEADER_PACKET = 256 * 1024;
+    
+    private static final Map<String, String> COMMENT_TAGS = Map.of(
+            "TITLE", AudioInfo.TITLE,
+            "ARTIST", AudioInfo.ARTIST,
+            "ALBUM", AudioInfo.ALBUM);
+    
+    @Override
+    public AudioInfo scan(ScanInput in, long fileSize) throws IOException {
+        Stream stream = new Stream();
+        ByteArrayOutputStream packet = new ByteArrayOutputStream();
+        long serial = -1;
+        long lastGranule = -1;
+        
+        while (true) {
+            byte[] capture = in.peek(4);
+            if (capture.length < 4 || !"OggS".equals(new String(capture, StandardCharsets.ISO_8859_1))) {
+                break;
+            }
+            in.skipFully(6);
+            long granule = in.u64le();
+            long pageSerial = in.u32le();
+            in.skipFully(8);
+            int[] lacing = new int[in.u8()];
+            int bodyLength = 0;
+            for (int i = 0; i < lacing.length; i++) {
+                lacing[i] = in.u8();
+                bodyLength += lacing[i];
+            }
+            
+            if (serial < 0) {
+                serial = pageSerial;
+            }
+            if (pageSerial != serial) {
+                // Other logical streams (e.g. a skeleton track) do not count
+                in.skipFully(bodyLength);
+                continue;
+            }
+            if (granule != -1) {
+                lastGranule = granule;
+            }
+            
+            if (stream.packets >= 2) {
+                in.skipFully(bodyLength);
+                continue;
+            }
+            byte[] body = in.readBytes(bodyLength);
+            int offset = 0;
+            for (int segment : lacing) {
+                if (packet.size() < MAX_HEADER_PACKET) {
+                    packet.write(body, offset, segment);
+                }
+                offset += segment;
+                if (segment < 255) {
+                    if (!stream.accept(packet.toByteArray())) {
+                        return null;
+                    }
+                    packet.reset();
+                    if (stream.packets >= 2) {
+                        break;
+                    }
+                }
+            }
+        }
+        
+        if (stream.granuleRate <= 0 || lastGranule < 0) {
+            return null;
+        }
+        long durationMillis = Math.max(0, lastGranule - stream.preSkip) * 1000 / stream.granuleRate;
+        long bytes = fileSize > 0 ? fileSize : in.position();
+        return AudioInfo.builder()
+                .format(stream.codec)
+                .durationMillis(durationMillis)
+                .bitrateKbps(AudioInfo.averageKbps(bytes, durationMillis))
+                .sampleRate(stream.sampleRate)
+                .channels(stream.channels)
+                .variableBitrate(true)
+                .tags(stream.tags)
+                .build();
+    }
+    
+    /**
+     * Header state of the first logical stream
+     */
+    private static final class Stream {
+        
+        private int packets;
+        private String codec;
+        private int channels;
+        private int sampleRate;
+        private int granuleRate;
+        private int preSkip;
+        private final Map<String, String> tags = new HashMap<>();
+        
+        /**
+         * @return False if the first packet is not a codec we read
+         */
+        boolean accept(byte[] packet) {
+            int index = packets++;
+            if (index == 0) {
+                return identify(packet);
+            }
+            if ("vorbis".equals(codec) && startsWith(packet, 1, "vorbis") && packet[0] == 3) {
+                readComments(packet, 7);
+            } else if ("opus".equals(codec) && startsWith(packet, 0, "OpusTags")) {
+                readComments(packet, 8);
+            }
+            return true;
+        }
+        
+        private boolean identify(byte[] packet) {
+            if (packet.length >= 30 && packet[0] == 1 && startsWith(packet, 1, "vorbis")) {
+                codec = "vorbis";
+                channels = packet[11] & 0xff;
+                sampleRate = (int) le32(packet, 12);
+                granuleRate = sampleRate;
+                return true;
+            }
+            if (packet.length >= 19 && startsWith(packet, 0, "OpusHead")) {
+                codec = "opus";
+                channels = packet[9] & 0xff;
+                preSkip = (packet[10] & 0xff) | (packet[11] & 0xff) << 8;
+                long inputRate = le32(packet, 12);
+                sampleRate = inputRate > 0 ? (int) inputRate : OPUS_GRANULE_RATE;
+                granuleRate = OPUS_GRANULE_RATE;
+                return true;
+            }
+            return false;
+        }
+        
+        private void readComments(byte[] packet, int offset) {
+            if (offset + 4 > packet.length) {
+                return;
+            }
+            long vendorLength = le32(packet, offset);
+            offset += 4 + (int) Math.min(vendorLength, packet.length);
+            if (offset + 4 > packet.length) {
+                return;
+            }
+            long count = le32(packet, offset);
+            offset += 4;
+            for (long i = 0; i < count && offset + 4 <= packet.length; i++) {
+                long length = le32(packet, offset);
+                offset += 4;
+                if (length > packet.length - offset) {
+                    return;
+                }
+                String comment = new String(packet, offset, (int) length, StandardCharsets.UTF_8);
+                offset += (int) length;
+                int equals = comment.indexOf('=');
+                if (equals > 0) {
+                    String key = COMMENT_TAGS.get(comment.substring(0, equals).toUpperCase());
+                    if (key != null && !tags.containsKey(key)) {
+                        tags.put(key, comment.substring(equals + 1));
+                    }
+                }
+            }
+        }
+        
+        private static boolean startsWith(byte[] packet, int offset, String magic) {
+            return packet.length >= offset + magic.length()
+                    && new String(packet, offset, magic.length(), StandardCharsets.ISO_8859_1).equals(magic);
+        }
+        
+        private static long le32(byte[] bytes, int offset) {
+            return (bytes[offset] & 0xffL) | (bytes[offset + 1] & 0xffL) << 8
+                    | (bytes[offset + 2] & 0xffL) << 16 | (bytes[offset + 3] & 0xffL) << 24;
+        }
+    }
+}
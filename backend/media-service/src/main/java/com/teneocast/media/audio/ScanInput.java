@@ -0,0 +1,137 @@
+package com.teneocast.media.audio;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Forward-only reader over an audio stream that tracks its position. Truncation surfaces as
+ * {@link EOFException}; any other exception comes from the underlying stream.
+ */
+final class ScanInput {
+    
+    private static final int PEEK_LIMIT = 16;
+    
+    /** Frame walks read a few bytes per frame; skips past the buffer still seek */
+    private static final int BUFFER_SIZE = 8192;
+    
+    private final PushbackInputStream in;
+    private final byte[] skipBuffer = new byte[8192];
+    private long position;
+    
+    ScanInput(InputStream in) {
+        this.in = new PushbackInputStream(new BufferedInputStream(in, BUFFER_SIZE), PEEK_LIMIT);
+    }
+    
+    long position() {
+        return position;
+    }
+    
+    /**
+     * Look at the next bytes without consuming them
+     * @return Up to {@code length} bytes; fewer at the end of the stream
+     */
+    byte[] peek(int length) throws IOException {
+        byte[] bytes = new byte[Math.min(length, PEEK_LIMIT)];
+        int read = in.readNBytes(bytes, 0, bytes.length);
+        in.unread(bytes, 0, read);
+        if (read < bytes.length) {
+            byte[] shorter = new byte[read];
+            System.arraycopy(bytes, 0, shorter, 0, read);
+            return shorter;
+        }
+        return bytes;
+    }
+    
+    /**
+     * @return The next byte, or -1 at the end of the stream
+     */
+    int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            position++;
+        }
+        return b;
+    }
+    
+    byte[] readBytes(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        readFully(bytes, 0, length);
+        return bytes;
+    }
+    
+    void readFully(byte[] bytes, int offset, int length) throws IOException {
+        int read = in.readNBytes(bytes, offset, length);
+        position += read;
+        if (read < length) {
+            throw new EOFException("Audio stream ended at byte " + position);
+        }
+    }
+    
+    /**
+     * Skip forward, seeking where the stream supports it
+     * @return Bytes actually skipped; less than requested only at the end of the stream
+     */
+    long skip(long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                // skip() may refuse near the end; reading tells end of stream apart from that
+                int read = in.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                skipped = read;
+            }
+            remaining -= skipped;
+            position += skipped;
+        }
+        return length - remaining;
+    }
+    
+    void skipFully(long length) throws IOException {
+        if (skip(length) < length) {
+            throw new EOFException("Audio stream ended at byte " + position);
+        }
+    }
+    
+    int u8() throws IOException {
+        int b = read();
+        if (b < 0) {
+            throw new EOFException("Audio stream ended at byte " + position);
+        }
+        return b;
+    }
+    
+    int u16be() throws IOException {
+        return (u8() << 8) | u8();
+    }
+    
+    int u16le() throws IOException {
+        return u8() | (u8() << 8);
+    }
+    
+    long u32be() throws IOException {
+        return ((long) u16be() << 16) | u16be();
+    }
+    
+    long u32le() throws IOException {
+        return u16le() | ((long) u16le() << 16);
+    }
+    
+    long u64be() throws IOException {
+        return (u32be() << 32) | u32be();
+    }
+    
+    long u64le() throws IOException {
+        return u32le() | (u32le() << 32);
+    }
+    
+    String fourCc() throws IOException {
+        return new String(readBytes(4), StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,103 @@
+package com.teneocast.media.audio;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RIFF/WAVE. Duration is the data chunk size over the byte rate from the fmt chunk; the
+ * scan stops at the data chunk, so only the chunk headers in front of it are read.
+ */
+final class WavScanner implements FormatScanner {
+    
+    private static final Map<String, String> INFO_TAGS = Map.of(
+            "INAM", AudioInfo.TITLE,
+            "IART", AudioInfo.ARTIST,
+            "IPRD", AudioInfo.ALBUM);
+    
+    /** LIST chunks larger than this are skipped rather than read for tags */
+    private static final long MAX_LIST_SIZE = 64 * 1024;
+    
+    @Override
+    public AudioInfo scan(ScanInput in, long fileSize) throws IOException {
+        if (!"RIFF".equals(in.fourCc())) {
+            return null;
+        }
+        in.u32le();
+        if (!"WAVE".equals(in.fourCc())) {
+            return null;
+        }
+        
+        Integer channels = null;
+        Integer sampleRate = null;
+        long byteRate = 0;
+        Map<String, String> tags = new HashMap<>();
+        
+        while (true) {
+            String id = in.fourCc();
+            long size = in.u32le();
+            long padded = size + (size & 1);
+            switch (id) {
+                case "fmt " -> {
+                    in.u16le();
+                    channels = in.u16le();
+                    sampleRate = (int) in.u32le();
+                    byteRate = in.u32le();
+                    in.skipFully(padded - 12);
+                }
+                case "LIST" -> {
+                    if (size <= MAX_LIST_SIZE) {
+                        readInfo(in.readBytes((int) padded), tags);
+                    } else {
+                        in.skipFully(padded);
+                    }
+                }
+                case "data" -> {
+                    if (byteRate <= 0) {
+                        return null;
+                    }
+                    long dataSize = size;
+                    // Streaming writers leave the size unset; the rest of the file is data then
+                    if ((size == 0 || size == 0xffffffffL) && fileSize > 0) {
+                        dataSize = fileSize - in.position();
+                    }
+                    long durationMillis = dataSize * 1000 / byteRate;
+                    return AudioInfo.builder()
+                            .format("wav")
+                            .durationMillis(durationMillis)
+                            .bitrateKbps((int) Math.round(byteRate * 8 / 1000.0))
+                            .sampleRate(sampleRate)
+                            .channels(channels)
+                            .tags(tags)
+                            .build();
+                }
+                default -> in.skipFully(padded);
+            }
+        }
+    }
+    
+    private void readInfo(byte[] list, Map<String, String> tags) {
+        if (list.length < 4 || !"INFO".equals(new String(list, 0, 4, StandardCharsets.ISO_8859_1))) {
+            return;
+        }
+        int offset = 4;
+        while (offset + 8 <= list.length) {
+            String id = new String(list, offset, 4, StandardCharsets.ISO_8859_1);
+            int size = (list[offset + 4] & 0xff) | (list[offset + 5] & 0xff) << 8
+                    | (list[offset + 6] & 0xff) << 16 | (list[offset + 7] & 0xff) << 24;
+            offset += 8;
+            if (size < 0 || offset + size > list.length) {
+                return;
+            }
+            String key = INFO_TAGS.get(id);
+            if (key != null) {
+                String value = new String(list, offset, size, StandardCharsets.UTF_8).replace("\0", "").trim();
+                if (!value.isEmpty()) {
+                    tags.put(key, value);
+                }
+            }
+            offset += size + (size & 1);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.teneocast.media.controller;
+
+import com.teneocast.media.dto.ApiResponse;
+import com.teneocast.media.dto.DedupReportDto;
+import com.teneocast.media.service.ContentStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/media/admin/storage")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminStorageController {
+    
+    private final ContentStore contentStore;
+    
+    /**
+     * Storage saved by content deduplication, overall and per tenant
+     */
+    @GetMapping("/dedup")
+    public ResponseEntity<ApiResponse<DedupReportDto>> getDedupReport() {
+        return ResponseEntity.ok(ApiResponse.success(contentStore.getDedupReport()));
+    }
+}
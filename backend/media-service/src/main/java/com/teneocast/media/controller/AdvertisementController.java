@@ -3,17 +3,24 @@ package com.teneocast.media.controller;
 import com.teneocast.media.dto.ApiResponse;
 import com.teneocast.media.dto.AdvertisementDto;
 import com.teneocast.media.dto.AdTypeDto;
+import com.teneocast.media.dto.CursorPage;
 import com.teneocast.media.dto.UploadAdvertisementRequest;
 import com.teneocast.media.service.AdvertisementService;
+import com.teneocast.media.service.CatalogExportService;
+import com.teneocast.media.service.MediaStream;
+import com.teneocast.media.service.RangeNotSatisfiableException;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.List;
@@ -26,6 +33,7 @@ import java.util.UUID;
 public class AdvertisementController {
     
     private final AdvertisementService advertisementService;
+    private final CatalogExportService catalogExportService;
     
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<ApiResponse<AdvertisementDto>> uploadAdvertisement(
@@ -97,6 +105,46 @@ public class AdvertisementController {
         }
     }
     
+    @GetMapping("/list")
+    public ResponseEntity<ApiResponse<CursorPage<AdvertisementDto>>> listAdvertisements(
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) Long adTypeId) {
+        
+        try {
+            return ResponseEntity.ok(ApiResponse.success(advertisementService.listAdvertisements(tenantId, adTypeId, cursor, limit)));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid advertisement listing: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<CursorPage<AdvertisementDto>>> searchAdvertisements(
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestParam("q") String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        
+        try {
+            return ResponseEntity.ok(ApiResponse.success(advertisementService.searchAdvertisements(tenantId, query, cursor, limit)));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid advertisement search: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAdvertisements(
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        
+        // One DTO per line, written as the rows are read; gzip when the client accepts it
+        return ExportResponses.ndjson(acceptEncoding, "advertisements.ndjson",
+                out -> catalogExportService.exportAdvertisements(tenantId, out));
+    }
+    
     @GetMapping("/all")
     public ResponseEntity<ApiResponse<List<AdvertisementDto>>> getAllAdvertisementsByTenant(
             @RequestHeader("X-Tenant-ID") UUID tenantId) {
@@ -139,4 +187,53 @@ public class AdvertisementController {
             return ResponseEntity.internalServerError().body(ApiResponse.error("Failed to retrieve ad types"));
         }
     }
+    
+    @GetMapping("/{id}/download")
+    public ResponseEntity<StreamingResponseBody> downloadAdvertisement(
+            @PathVariable Long id,
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            HttpServletRequest request) {
+        
+        try {
+            AdvertisementDto advertisement = advertisementService.getAdvertisementById(id, tenantId);
+            MediaStream stream = advertisementService.openAdvertisementStream(advertisement, MediaStreamResponses.parseRange(rangeHeader));
+            
+            return MediaStreamResponses.stream(request, stream, "audio/" + advertisement.getFileFormat(),
+                    "attachment; filename=\"" + advertisement.getName() + "." + advertisement.getFileFormat() + "\"");
+            
+        } catch (IllegalArgumentException e) {
+            log.error("Error downloading advertisement: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (RangeNotSatisfiableException e) {
+            return MediaStreamResponses.rangeNotSatisfiable(e.getTotalLength());
+        } catch (IOException e) {
+            log.error("IO error during advertisement download: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    @GetMapping("/{id}/stream")
+    public ResponseEntity<StreamingResponseBody> streamAdvertisement(
+            @PathVariable Long id,
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            HttpServletRequest request) {
+        
+        try {
+            AdvertisementDto advertisement = advertisementService.getAdvertisementById(id, tenantId);
+            MediaStream stream = advertisementService.openAdvertisementStream(advertisement, MediaStreamResponses.parseRange(rangeHeader));
+            
+            return MediaStreamResponses.stream(request, stream, "audio/" + advertisement.getFileFormat(), null);
+            
+        } catch (IllegalArgumentException e) {
+            log.error("Error streaming advertisement: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (RangeNotSatisfiableException e) {
+            return MediaStreamResponses.rangeNotSatisfiable(e.getTotalLength());
+        } catch (IOException e) {
+            log.error("IO error during advertisement streaming: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 }
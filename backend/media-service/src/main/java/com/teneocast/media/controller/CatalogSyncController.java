@@ -0,0 +1,42 @@
+package com.teneocast.media.controller;
+
+import com.teneocast.media.dto.ApiResponse;
+import com.teneocast.media.dto.CatalogSyncDto;
+import com.teneocast.media.service.CatalogSyncService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/media/sync")
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogSyncController {
+    
+    private final CatalogSyncService catalogSyncService;
+    
+    /**
+     * Music and advertisements changed since the player's last sync; call again with the
+     * returned version, straight away while {@code hasMore} is set
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<CatalogSyncDto>> sync(
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit) {
+        
+        try {
+            return ResponseEntity.ok(ApiResponse.success(catalogSyncService.sync(tenantId, since, limit)));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid catalogue sync: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.teneocast.media.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds streamed NDJSON export responses, gzip-compressed when the client accepts it.
+ */
+final class ExportResponses {
+    
+    static final String NDJSON = "application/x-ndjson";
+    
+    private ExportResponses() {
+    }
+    
+    /**
+     * Body writer for an export
+     */
+    @FunctionalInterface
+    interface Export {
+        void writeTo(OutputStream out) throws IOException;
+    }
+    
+    static ResponseEntity<StreamingResponseBody> ndjson(String acceptEncoding, String filename, Export export) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(export::writeTo);
+        }
+        return response
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(out -> {
+                    // Finishing writes the gzip trailer; the servlet stream itself is closed by the container
+                    GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                    export.writeTo(compressed);
+                    compressed.finish();
+                });
+    }
+    
+    /**
+     * @return Whether gzip is listed in an Accept-Encoding header without q=0
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        return Arrays.stream(acceptEncoding.split(","))
+                .map(coding -> coding.replace(" ", "").toLowerCase())
+                .anyMatch(coding -> (coding.equals("gzip") || coding.startsWith("gzip;"))
+                        && !coding.matches("gzip;q=0(\\.0*)?"));
+    }
+}
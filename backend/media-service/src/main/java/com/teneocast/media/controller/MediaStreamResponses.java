@@ -0,0 +1,96 @@
+package com.teneocast.media.controller;
+
+import com.teneocast.media.service.MediaStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Builds 200/206/416 responses for media streams shared by the music and advertisement endpoints.
+ */
+final class MediaStreamResponses {
+    
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    
+    private MediaStreamResponses() {
+    }
+    
+    /**
+     * Parse a Range header into the single range this service serves
+     * @param rangeHeader The Range header value, may be null
+     * @return The requested range, or null to serve the whole file
+     */
+    static HttpRange parseRange(String rangeHeader) {
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            // multipart/byteranges is not supported; several ranges get the whole file
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored, as RFC 9110 allows
+            return null;
+        }
+    }
+    
+    /**
+     * Build the response for an open stream. Local files are handed to Tomcat's sendfile
+     * when the connector supports it, so the body never passes through the JVM.
+     * @param request The current request
+     * @param stream The opened file or range
+     * @param contentType Response content type
+     * @param contentDisposition Content-Disposition header, or null for inline playback
+     * @return 200 or 206 response
+     * @throws IOException If the stream cannot be released before a sendfile response
+     */
+    static ResponseEntity<StreamingResponseBody> stream(HttpServletRequest request, MediaStream stream,
+                                                        String contentType, String contentDisposition) throws IOException {
+        ResponseEntity.BodyBuilder response = ResponseEntity
+                .status(stream.isPartial() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_TYPE, contentType)
+                .contentLength(stream.getContentLength());
+        
+        if (stream.isPartial()) {
+            response.header(HttpHeaders.CONTENT_RANGE, stream.getContentRange());
+        }
+        if (stream.getETag() != null) {
+            response.eTag(stream.getETag());
+        }
+        if (contentDisposition != null) {
+            response.header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        }
+        
+        if (stream.getFile() != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, stream.getFile().toString());
+            request.setAttribute(SENDFILE_START, stream.getStart());
+            // Tomcat's end is exclusive
+            request.setAttribute(SENDFILE_END, stream.getEnd() + 1);
+            stream.close();
+            return response.build();
+        }
+        
+        return response.body(out -> {
+            try (stream) {
+                stream.writeTo(out);
+            }
+        });
+    }
+    
+    static <T> ResponseEntity<T> rangeNotSatisfiable(long totalLength) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + totalLength)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .build();
+    }
+}
@@ -1,22 +1,32 @@
 package com.teneocast.media.controller;
 
 import com.teneocast.media.dto.ApiResponse;
+import com.teneocast.media.dto.CursorPage;
 import com.teneocast.media.dto.MusicDto;
 import com.teneocast.media.dto.MusicGenreDto;
+import com.teneocast.media.dto.MusicImportDto;
 import com.teneocast.media.dto.UploadMusicRequest;
+import com.teneocast.media.service.CatalogExportService;
+import com.teneocast.media.service.MediaStream;
+import com.teneocast.media.service.MusicImportService;
 import com.teneocast.media.service.MusicService;
+import com.teneocast.media.service.RangeNotSatisfiableException;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 import jakarta.validation.Valid;
@@ -31,6 +41,8 @@ import jakarta.validation.constraints.Positive;
 public class MusicController {
     
     private final MusicService musicService;
+    private final MusicImportService musicImportService;
+    private final CatalogExportService catalogExportService;
     
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<ApiResponse<MusicDto>> uploadMusic(
@@ -63,6 +75,41 @@ public class MusicController {
         }
     }
     
+    /**
+     * The archive is the raw request body rather than a multipart part, so it is spooled to disk
+     * as it arrives and the servlet multipart limits for single uploads do not have to fit it.
+     */
+    @PostMapping(value = "/import", consumes = {"application/zip", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<ApiResponse<MusicImportDto>> importMusic(
+            HttpServletRequest request,
+            @RequestParam("genreId") @NotNull(message = "Genre ID is required") @Positive(message = "Genre ID must be positive") Long genreId,
+            @RequestHeader("X-Tenant-ID") @NotNull(message = "Tenant ID is required") UUID tenantId) {
+        
+        try (InputStream archive = request.getInputStream()) {
+            MusicImportDto job = musicImportService.startImport(archive, genreId, tenantId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(job, "Music import started"));
+        } catch (IllegalArgumentException e) {
+            log.error("Validation error during music import: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (IOException e) {
+            log.error("IO error during music import: {}", e.getMessage());
+            return ResponseEntity.internalServerError().body(ApiResponse.error("Failed to read import archive"));
+        }
+    }
+    
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ApiResponse<MusicImportDto>> getImport(
+            @PathVariable UUID jobId,
+            @RequestHeader("X-Tenant-ID") UUID tenantId) {
+        
+        try {
+            return ResponseEntity.ok(ApiResponse.success(musicImportService.getImport(jobId, tenantId)));
+        } catch (IllegalArgumentException e) {
+            log.error("Error getting music import: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<MusicDto>> getMusicById(
             @PathVariable Long id,
@@ -104,6 +151,46 @@ public class MusicController {
         }
     }
     
+    @GetMapping("/list")
+    public ResponseEntity<ApiResponse<CursorPage<MusicDto>>> listMusic(
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) Long genreId) {
+        
+        try {
+            return ResponseEntity.ok(ApiResponse.success(musicService.listMusic(tenantId, genreId, cursor, limit)));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid music listing: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<CursorPage<MusicDto>>> searchMusic(
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestParam("q") String query,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit) {
+        
+        try {
+            return ResponseEntity.ok(ApiResponse.success(musicService.searchMusic(tenantId, query, cursor, limit)));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid music search: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMusic(
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        
+        // One DTO per line, written as the rows are read; gzip when the client accepts it
+        return ExportResponses.ndjson(acceptEncoding, "music.ndjson",
+                out -> catalogExportService.exportMusic(tenantId, out));
+    }
+    
     @GetMapping("/all")
     public ResponseEntity<ApiResponse<List<MusicDto>>> getAllMusicByTenant(
             @RequestHeader("X-Tenant-ID") UUID tenantId) {
@@ -146,24 +233,26 @@ public class MusicController {
     }
 
     @GetMapping("/{id}/download")
-    public ResponseEntity<Resource> downloadMusic(
+    public ResponseEntity<StreamingResponseBody> downloadMusic(
             @PathVariable Long id,
-            @RequestHeader("X-Tenant-ID") UUID tenantId) {
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            HttpServletRequest request) {
         
         try {
             MusicDto music = musicService.getMusicById(id, tenantId);
             
-            // Get the file from storage
-            Resource fileResource = musicService.downloadMusicFile(id, tenantId);
+            // Get the requested part of the file from storage
+            MediaStream stream = musicService.openMusicStream(music, MediaStreamResponses.parseRange(rangeHeader));
             
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=\"" + music.getTitle() + "." + music.getFileFormat() + "\"")
-                    .header("Content-Type", "audio/" + music.getFileFormat())
-                    .body(fileResource);
+            return MediaStreamResponses.stream(request, stream, "audio/" + music.getFileFormat(),
+                    "attachment; filename=\"" + music.getTitle() + "." + music.getFileFormat() + "\"");
                     
         } catch (IllegalArgumentException e) {
             log.error("Error downloading music: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
+        } catch (RangeNotSatisfiableException e) {
+            return MediaStreamResponses.rangeNotSatisfiable(e.getTotalLength());
         } catch (IOException e) {
             log.error("IO error during music download: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -171,24 +260,25 @@ public class MusicController {
     }
 
     @GetMapping("/{id}/stream")
-    public ResponseEntity<Resource> streamMusic(
+    public ResponseEntity<StreamingResponseBody> streamMusic(
             @PathVariable Long id,
-            @RequestHeader("X-Tenant-ID") UUID tenantId) {
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            HttpServletRequest request) {
         
         try {
             MusicDto music = musicService.getMusicById(id, tenantId);
             
-            // Get the file from storage for streaming
-            Resource fileResource = musicService.downloadMusicFile(id, tenantId);
+            // Get the requested part of the file from storage for streaming
+            MediaStream stream = musicService.openMusicStream(music, MediaStreamResponses.parseRange(rangeHeader));
             
-            return ResponseEntity.ok()
-                    .header("Content-Type", "audio/" + music.getFileFormat())
-                    .header("Accept-Ranges", "bytes")
-                    .body(fileResource);
+            return MediaStreamResponses.stream(request, stream, "audio/" + music.getFileFormat(), null);
                     
         } catch (IllegalArgumentException e) {
             log.error("Error streaming music: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
+        } catch (RangeNotSatisfiableException e) {
+            return MediaStreamResponses.rangeNotSatisfiable(e.getTotalLength());
         } catch (IOException e) {
             log.error("IO error during music streaming: {}", e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -0,0 +1,72 @@
+package com.teneocast.media.controller;
+
+import com.teneocast.media.service.OfflineManifestService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/media/manifest")
+@RequiredArgsConstructor
+@Slf4j
+public class OfflineManifestController {
+    
+    private final OfflineManifestService offlineManifestService;
+    
+    /**
+     * Everything a player needs to cache for offline playback. Poll with the last ETag in
+     * If-None-Match; an unchanged manifest is a 304 with no body.
+     */
+    @GetMapping
+    public ResponseEntity<byte[]> getManifest(
+            @RequestHeader("X-Tenant-ID") UUID tenantId,
+            @RequestParam(required = false) Long genreId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        
+        OfflineManifestService.Manifest manifest = offlineManifestService.getManifest(tenantId, genreId);
+        if (matches(ifNoneMatch, manifest.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(manifest.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(manifest.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header("X-Catalog-Version", Long.toString(manifest.version()));
+        if (ExportResponses.acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(manifest.gzip());
+        }
+        return response.body(manifest.json());
+    }
+    
+    /**
+     * @return Whether an If-None-Match header names the ETag; weak comparison, since proxies
+     *         that re-encode the body weaken the tag
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+}
@@ -1,10 +1,12 @@
 package com.teneocast.media.dto;
 
+import com.teneocast.media.entity.ProcessingStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -24,7 +26,15 @@ public class AdvertisementDto {
     private Long fileSize;
     private String fileFormat;
     private String targetAudience;
+    private Integer bitrate;
     private String metadata;
+    private Double loudnessLufs;
+    private Double truePeakDbtp;
+    private Double gainDb;
+    private ProcessingStatus processingStatus;
+    private String processingError;
+    private String audioUrl;
+    private Instant audioUrlExpiresAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
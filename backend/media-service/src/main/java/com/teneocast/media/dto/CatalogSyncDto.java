@@ -0,0 +1,28 @@
+package com.teneocast.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogSyncDto {
+    /** Pass back as {@code since} on the next sync */
+    private long version;
+    
+    /** More changes are waiting; sync again straight away */
+    private boolean hasMore;
+    
+    /** The player's version is unknown here; drop the local catalogue and sync from 0 */
+    private boolean reset;
+    
+    private List<MusicDto> music;
+    private List<AdvertisementDto> advertisements;
+    private List<Long> deletedMusicIds;
+    private List<Long> deletedAdvertisementIds;
+}
@@ -0,0 +1,19 @@
+package com.teneocast.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    
+    /** Pass back as {@code cursor} for the next page; null on the last page */
+    private String nextCursor;
+}
@@ -0,0 +1,35 @@
+package com.teneocast.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DedupReportDto {
+    private long storedObjects;
+    private long references;
+    private long storedBytes;
+    private long logicalBytes;
+    private long bytesSaved;
+    private List<TenantUsage> tenants;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TenantUsage {
+        private UUID tenantId;
+        private long storedObjects;
+        private long references;
+        private long storedBytes;
+        private long logicalBytes;
+        private long bytesSaved;
+    }
+}
@@ -1,10 +1,12 @@
 package com.teneocast.media.dto;
 
+import com.teneocast.media.entity.ProcessingStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -26,6 +28,13 @@ public class MusicDto {
     private String fileFormat;
     private Integer bitrate;
     private String metadata;
+    private Double loudnessLufs;
+    private Double truePeakDbtp;
+    private Double gainDb;
+    private ProcessingStatus processingStatus;
+    private String processingError;
+    private String audioUrl;
+    private Instant audioUrlExpiresAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
@@ -0,0 +1,36 @@
+package com.teneocast.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MusicImportDto {
+    private UUID jobId;
+    private String status;
+    private int total;
+    private int processed;
+    private int imported;
+    private int duplicates;
+    private int failed;
+    private List<EntryError> errors;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EntryError {
+        private String file;
+        private String error;
+    }
+}
@@ -0,0 +1,67 @@
+package com.teneocast.media.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OfflineManifestDto {
+    private UUID tenantId;
+    
+    /** Only tracks of this genre, or null for the whole catalogue */
+    private Long genreId;
+    
+    /** Catalogue version the content was built from; see {@code /api/media/sync} */
+    private long version;
+    
+    /** Hash of the tracks and ads, also sent as the ETag */
+    private String contentHash;
+    
+    private LocalDateTime generatedAt;
+    private List<Track> music;
+    private List<Ad> advertisements;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Track {
+        private Long id;
+        private Long genreId;
+        private String title;
+        private String artist;
+        private String album;
+        private Integer durationSeconds;
+        private Long fileSize;
+        private String fileFormat;
+        private String contentSha256;
+        private Double gainDb;
+        /** Relative to the service's base URL; stable, unlike presigned delivery URLs */
+        private String path;
+    }
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Ad {
+        private Long id;
+        private Long adTypeId;
+        private String name;
+        private String targetAudience;
+        private Integer durationSeconds;
+        private Long fileSize;
+        private String fileFormat;
+        private String contentSha256;
+        private Double gainDb;
+        private String path;
+    }
+}
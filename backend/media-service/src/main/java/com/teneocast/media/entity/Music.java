@@ -19,7 +19,7 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @EntityListeners(AuditingEntityListener.class)
-public class Music {
+public class Music implements ProcessableMedia {
     
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -59,6 +59,30 @@ public class Music {
     @Column(columnDefinition = "JSONB")
     private String metadata;
     
+    @Column(name = "loudness_lufs")
+    private Double loudnessLufs;
+    
+    @Column(name = "true_peak_dbtp")
+    private Double truePeakDbtp;
+    
+    @Column(name = "gain_db")
+    private Double gainDb;
+    
+    @Column(name = "content_sha256", length = 64)
+    private String contentSha256;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "processing_status", nullable = false, length = 20)
+    @Builder.Default
+    private ProcessingStatus processingStatus = ProcessingStatus.COMPLETED;
+    
+    @Column(name = "processing_attempts", nullable = false)
+    @Builder.Default
+    private Integer processingAttempts = 0;
+    
+    @Column(name = "processing_error", columnDefinition = "TEXT")
+    private String processingError;
+    
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     @Builder.Default
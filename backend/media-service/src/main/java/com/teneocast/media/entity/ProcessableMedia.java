@@ -0,0 +1,35 @@
+package com.teneocast.media.entity;
+
+import java.util.UUID;
+
+/**
+ * A stored audio file whose duration, bitrate, tags and loudness are filled in by the processing queue.
+ */
+public interface ProcessableMedia {
+    
+    Long getId();
+    
+    UUID getTenantId();
+    
+    String getFilePath();
+    
+    Long getFileSize();
+    
+    void setDurationSeconds(Integer durationSeconds);
+    
+    void setBitrate(Integer bitrate);
+    
+    void setMetadata(String metadata);
+    
+    void setLoudnessLufs(Double loudnessLufs);
+    
+    void setTruePeakDbtp(Double truePeakDbtp);
+    
+    void setGainDb(Double gainDb);
+    
+    void setProcessingStatus(ProcessingStatus processingStatus);
+    
+    void setProcessingAttempts(Integer processingAttempts);
+    
+    void setProcessingError(String processingError);
+}
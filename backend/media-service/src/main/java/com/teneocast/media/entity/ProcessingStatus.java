@@ -0,0 +1,10 @@
+package com.teneocast.media.entity;
+
+/**
+ * Progress of the asynchronous audio analysis that follows an upload.
+ */
+public enum ProcessingStatus {
+    PENDING,
+    COMPLETED,
+    FAILED
+}
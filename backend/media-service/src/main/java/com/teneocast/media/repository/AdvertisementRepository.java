@@ -1,30 +1,55 @@
 package com.teneocast.media.repository;
 
 import com.teneocast.media.entity.Advertisement;
+import com.teneocast.media.entity.ProcessingStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface AdvertisementRepository extends JpaRepository<Advertisement, Long> {
     
+    String SELECT_SUMMARY = "SELECT new com.teneocast.media.repository.AdvertisementSummary(a.id, a.tenantId, t.id, t.name, "
+            + "a.name, a.description, a.durationSeconds, a.filePath, a.fileSize, a.fileFormat, a.targetAudience, a.bitrate, "
+            + "a.loudnessLufs, a.truePeakDbtp, a.gainDb, a.processingStatus, a.processingError, a.createdAt, a.updatedAt) "
+            + "FROM Advertisement a LEFT JOIN a.adType t ";
+    
+    @EntityGraph(attributePaths = "adType")
     @Query("SELECT a FROM Advertisement a WHERE a.tenantId = :tenantId")
     Page<Advertisement> findByTenantId(@Param("tenantId") UUID tenantId, Pageable pageable);
     
+    @EntityGraph(attributePaths = "adType")
     @Query("SELECT a FROM Advertisement a WHERE a.tenantId = :tenantId AND a.adType.id = :adTypeId")
     Page<Advertisement> findByTenantIdAndAdTypeId(@Param("tenantId") UUID tenantId, @Param("adTypeId") Long adTypeId, Pageable pageable);
     
+    @EntityGraph(attributePaths = "adType")
     @Query("SELECT a FROM Advertisement a WHERE a.tenantId = :tenantId AND LOWER(a.name) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     Page<Advertisement> findByTenantIdAndSearchTerm(@Param("tenantId") UUID tenantId, @Param("searchTerm") String searchTerm, Pageable pageable);
     
+    @Query("SELECT a FROM Advertisement a LEFT JOIN FETCH a.adType WHERE a.id IN :ids")
+    List<Advertisement> findAllWithAdTypeByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @EntityGraph(attributePaths = "adType")
     @Query("SELECT a FROM Advertisement a WHERE a.tenantId = :tenantId")
     List<Advertisement> findAllByTenantId(@Param("tenantId") UUID tenantId);
     
+    @Query(SELECT_SUMMARY + "WHERE a.tenantId = :tenantId AND a.id < :beforeId ORDER BY a.id DESC")
+    List<AdvertisementSummary> findSummariesByTenantId(@Param("tenantId") UUID tenantId, @Param("beforeId") long beforeId, Pageable pageable);
+    
+    @Query(SELECT_SUMMARY + "WHERE a.tenantId = :tenantId AND t.id = :adTypeId AND a.id < :beforeId ORDER BY a.id DESC")
+    List<AdvertisementSummary> findSummariesByTenantIdAndAdTypeId(@Param("tenantId") UUID tenantId, @Param("adTypeId") Long adTypeId,
+                                                                  @Param("beforeId") long beforeId, Pageable pageable);
+    
     boolean existsByTenantIdAndName(UUID tenantId, String name);
+    
+    @Query("SELECT a.id FROM Advertisement a WHERE a.processingStatus = :status ORDER BY a.id")
+    List<Long> findIdsByProcessingStatus(@Param("status") ProcessingStatus status, Pageable pageable);
 }
@@ -0,0 +1,30 @@
+package com.teneocast.media.repository;
+
+import com.teneocast.media.entity.ProcessingStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An advertisement row as listed: selected in one query with its ad type name, without the metadata JSON.
+ */
+public record AdvertisementSummary(Long id,
+                                   UUID tenantId,
+                                   Long adTypeId,
+                                   String adTypeName,
+                                   String name,
+                                   String description,
+                                   Integer durationSeconds,
+                                   String filePath,
+                                   Long fileSize,
+                                   String fileFormat,
+                                   String targetAudience,
+                                   Integer bitrate,
+                                   Double loudnessLufs,
+                                   Double truePeakDbtp,
+                                   Double gainDb,
+                                   ProcessingStatus processingStatus,
+                                   String processingError,
+                                   LocalDateTime createdAt,
+                                   LocalDateTime updatedAt) {
+}
@@ -1,30 +1,58 @@
 package com.teneocast.media.repository;
 
 import com.teneocast.media.entity.Music;
+import com.teneocast.media.entity.ProcessingStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface MusicRepository extends JpaRepository<Music, Long> {
     
+    String SELECT_SUMMARY = "SELECT new com.teneocast.media.repository.MusicSummary(m.id, m.tenantId, g.id, g.name, "
+            + "m.title, m.artist, m.album, m.durationSeconds, m.filePath, m.fileSize, m.fileFormat, m.bitrate, "
+            + "m.loudnessLufs, m.truePeakDbtp, m.gainDb, m.processingStatus, m.processingError, m.createdAt, m.updatedAt) "
+            + "FROM Music m LEFT JOIN m.genre g ";
+    
+    @EntityGraph(attributePaths = "genre")
     @Query("SELECT m FROM Music m WHERE m.tenantId = :tenantId")
     Page<Music> findByTenantId(@Param("tenantId") UUID tenantId, Pageable pageable);
     
+    @EntityGraph(attributePaths = "genre")
     @Query("SELECT m FROM Music m WHERE m.tenantId = :tenantId AND m.genre.id = :genreId")
     Page<Music> findByTenantIdAndGenreId(@Param("tenantId") UUID tenantId, @Param("genreId") Long genreId, Pageable pageable);
     
+    @EntityGraph(attributePaths = "genre")
     @Query("SELECT m FROM Music m WHERE m.tenantId = :tenantId AND (LOWER(m.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR LOWER(m.artist) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
     Page<Music> findByTenantIdAndSearchTerm(@Param("tenantId") UUID tenantId, @Param("searchTerm") String searchTerm, Pageable pageable);
     
+    @Query("SELECT m FROM Music m LEFT JOIN FETCH m.genre WHERE m.id IN :ids")
+    List<Music> findAllWithGenreByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @EntityGraph(attributePaths = "genre")
     @Query("SELECT m FROM Music m WHERE m.tenantId = :tenantId")
     List<Music> findAllByTenantId(@Param("tenantId") UUID tenantId);
     
+    @Query(SELECT_SUMMARY + "WHERE m.tenantId = :tenantId AND m.id < :beforeId ORDER BY m.id DESC")
+    List<MusicSummary> findSummariesByTenantId(@Param("tenantId") UUID tenantId, @Param("beforeId") long beforeId, Pageable pageable);
+    
+    @Query(SELECT_SUMMARY + "WHERE m.tenantId = :tenantId AND g.id = :genreId AND m.id < :beforeId ORDER BY m.id DESC")
+    List<MusicSummary> findSummariesByTenantIdAndGenreId(@Param("tenantId") UUID tenantId, @Param("genreId") Long genreId,
+                                                         @Param("beforeId") long beforeId, Pageable pageable);
+    
     boolean existsByTenantIdAndTitleAndArtist(UUID tenantId, String title, String artist);
+    
+    @Query("SELECT m.title, m.artist FROM Music m WHERE m.tenantId = :tenantId")
+    List<Object[]> findTitlesAndArtistsByTenantId(@Param("tenantId") UUID tenantId);
+    
+    @Query("SELECT m.id FROM Music m WHERE m.processingStatus = :status ORDER BY m.id")
+    List<Long> findIdsByProcessingStatus(@Param("status") ProcessingStatus status, Pageable pageable);
 }
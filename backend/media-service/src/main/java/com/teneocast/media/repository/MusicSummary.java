@@ -0,0 +1,30 @@
+package com.teneocast.media.repository;
+
+import com.teneocast.media.entity.ProcessingStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A music row as listed: selected in one query with its genre name, without the metadata JSON.
+ */
+public record MusicSummary(Long id,
+                           UUID tenantId,
+                           Long genreId,
+                           String genreName,
+                           String title,
+                           String artist,
+                           String album,
+                           Integer durationSeconds,
+                           String filePath,
+                           Long fileSize,
+                           String fileFormat,
+                           Integer bitrate,
+                           Double loudnessLufs,
+                           Double truePeakDbtp,
+                           Double gainDb,
+                           ProcessingStatus processingStatus,
+                           String processingError,
+                           LocalDateTime createdAt,
+                           LocalDateTime updatedAt) {
+}
@@ -0,0 +1,38 @@
+package com.teneocast.media.repository;
+
+import com.teneocast.media.entity.StoredObject;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StoredObjectRepository extends JpaRepository<StoredObject, Long> {
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StoredObject s WHERE s.tenantId = :tenantId AND s.sha256 = :sha256")
+    Optional<StoredObject> findForUpdate(@Param("tenantId") UUID tenantId, @Param("sha256") String sha256);
+    
+    @Query("SELECT s.tenantId AS tenantId, COUNT(s) AS storedObjects, SUM(s.refCount) AS refs, " +
+           "SUM(s.fileSize) AS storedBytes, SUM(s.fileSize * s.refCount) AS logicalBytes " +
+           "FROM StoredObject s GROUP BY s.tenantId")
+    List<TenantUsage> summarizeByTenant();
+    
+    interface TenantUsage {
+        UUID getTenantId();
+        
+        Long getStoredObjects();
+        
+        Long getRefs();
+        
+        Long getStoredBytes();
+        
+        Long getLogicalBytes();
+    }
+}
@@ -2,22 +2,31 @@ package com.teneocast.media.service;
 
 import com.teneocast.media.dto.AdvertisementDto;
 import com.teneocast.media.dto.AdTypeDto;
+import com.teneocast.media.dto.CursorPage;
 import com.teneocast.media.dto.UploadAdvertisementRequest;
 import com.teneocast.media.entity.Advertisement;
 import com.teneocast.media.entity.AdType;
 import com.teneocast.media.repository.AdTypeRepository;
 import com.teneocast.media.repository.AdvertisementRepository;
+import com.teneocast.media.repository.AdvertisementSummary;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,7 +37,10 @@ public class AdvertisementService {
     private final AdvertisementRepository advertisementRepository;
     private final AdTypeRepository adTypeRepository;
     private final StorageService storageService;
-    private final MediaProcessingService mediaProcessingService;
+    private final UploadPipeline uploadPipeline;
+    private final ContentStore contentStore;
+    private final MediaProcessingQueue mediaProcessingQueue;
+    private final CatalogSearchService catalogSearchService;
     
     /**
      * Upload advertisement file
@@ -38,13 +50,9 @@ public class AdvertisementService {
      * @return The created advertisement DTO
      * @throws IOException If upload fails
      */
-    @Transactional
     public AdvertisementDto uploadAdvertisement(MultipartFile file, UploadAdvertisementRequest request, UUID tenantId) throws IOException {
         log.info("Uploading advertisement file: name={}, tenant={}", file.getOriginalFilename(), tenantId);
         
-        // Validate file
-        mediaProcessingService.validateFile(file);
-        
         // Check if advertisement already exists
         if (advertisementRepository.existsByTenantIdAndName(tenantId, request.getName())) {
             throw new IllegalArgumentException("Advertisement with this name already exists for this tenant");
@@ -54,12 +62,8 @@ public class AdvertisementService {
         AdType adType = adTypeRepository.findById(request.getAdTypeId())
                 .orElseThrow(() -> new IllegalArgumentException("Invalid ad type ID: " + request.getAdTypeId()));
         
-        // Upload file to storage
-        String filePath = storageService.uploadFile(file, tenantId, "advertisements");
-        
-        // Extract metadata
-        String metadata = mediaProcessingService.extractMetadata(file);
-        Integer duration = mediaProcessingService.getFileDuration(file);
+        // Validate, hash and store the file; no transaction is open while it goes to storage
+        ProcessedUpload upload = uploadPipeline.upload(file, tenantId, "advertisements");
         
         // Create advertisement entity
         Advertisement advertisement = Advertisement.builder()
@@ -67,16 +71,26 @@ public class AdvertisementService {
                 .adType(adType)
                 .name(request.getName())
                 .description(request.getDescription())
-                .durationSeconds(duration)
-                .filePath(filePath)
-                .fileSize(file.getSize())
+                .filePath(upload.getFilePath())
+                .fileSize(upload.getSize())
+                .contentSha256(upload.getSha256())
                 .fileFormat(getFileExtension(file.getOriginalFilename()))
                 .targetAudience(request.getTargetAudience())
-                .metadata(metadata)
+                .processingStatus(mediaProcessingQueue.initialStatus())
                 .build();
         
         // Save to database
-        Advertisement savedAdvertisement = advertisementRepository.save(advertisement);
+        Advertisement savedAdvertisement;
+        try {
+            savedAdvertisement = advertisementRepository.save(advertisement);
+        } catch (RuntimeException e) {
+            // Nothing references the stored content yet
+            contentStore.release(tenantId, upload.getFilePath(), upload.getSha256());
+            throw e;
+        }
+        
+        // Duration, bitrate and tags are filled in by the processing workers
+        mediaProcessingQueue.enqueue(MediaProcessingQueue.Kind.ADVERTISEMENT, savedAdvertisement.getId());
         
         log.info("Advertisement uploaded successfully: id={}, name={}", 
                 savedAdvertisement.getId(), savedAdvertisement.getName());
@@ -124,6 +138,35 @@ public class AdvertisementService {
         return advertisementPage.map(this::mapToDto);
     }
     
+    /**
+     * List a tenant's advertisements newest first, a page at a time. Each page is one indexed
+     * query below the previous page's last ID, with the ad type name joined in, and nothing is counted.
+     * @param tenantId Tenant ID
+     * @param adTypeId Only this ad type, or null for all
+     * @param cursor Cursor from the previous page, or null for the first
+     * @param limit Page size
+     * @return Advertisement DTOs without metadata, with the cursor for the next page
+     */
+    public CursorPage<AdvertisementDto> listAdvertisements(UUID tenantId, Long adTypeId, String cursor, int limit) {
+        long beforeId = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(limit);
+        // One extra row tells whether there is another page
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<AdvertisementSummary> rows = adTypeId != null
+                ? advertisementRepository.findSummariesByTenantIdAndAdTypeId(tenantId, adTypeId, beforeId, page)
+                : advertisementRepository.findSummariesByTenantId(tenantId, beforeId, page);
+        
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = KeysetCursor.encode(rows.get(pageSize - 1).id());
+        }
+        return CursorPage.<AdvertisementDto>builder()
+                .items(rows.stream().map(this::mapSummaryToDto).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+    
     /**
      * Search advertisements by tenant and search term
      * @param tenantId Tenant ID
@@ -136,6 +179,27 @@ public class AdvertisementService {
         return advertisementPage.map(this::mapToDto);
     }
     
+    /**
+     * Ranked, indexed search of a tenant's advertisements by name and description
+     * @param tenantId Tenant ID
+     * @param query Words to search for; each matches as a prefix, and near misses still match
+     * @param cursor Cursor from the previous page, or null for the first
+     * @param limit Page size
+     * @return Best matches first, with the cursor for the next page
+     */
+    public CursorPage<AdvertisementDto> searchAdvertisements(UUID tenantId, String query, String cursor, int limit) {
+        CatalogSearchService.Hits hits = catalogSearchService.search(
+                CatalogSearchService.Catalog.ADVERTISEMENT, tenantId, query, cursor, limit);
+        Map<Long, Advertisement> rows = advertisementRepository.findAllWithAdTypeByIdIn(hits.ids()).stream()
+                .collect(Collectors.toMap(Advertisement::getId, Function.identity()));
+        List<AdvertisementDto> items = hits.ids().stream()
+                .map(rows::get)
+                .filter(Objects::nonNull)
+                .map(this::mapToDto)
+                .toList();
+        return CursorPage.<AdvertisementDto>builder().items(items).nextCursor(hits.nextCursor()).build();
+    }
+    
     /**
      * Get all advertisements for tenant (for player service)
      * @param tenantId Tenant ID
@@ -148,6 +212,23 @@ public class AdvertisementService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Get advertisements by ID for a tenant, e.g. the rows a sync reports as changed
+     * @param tenantId Tenant ID
+     * @param ids IDs to load; IDs of other tenants or deleted rows are left out
+     * @return Advertisements DTOs in ascending ID order
+     */
+    public List<AdvertisementDto> getAdvertisementsByIds(UUID tenantId, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return advertisementRepository.findAllWithAdTypeByIdIn(ids).stream()
+                .filter(row -> tenantId.equals(row.getTenantId()))
+                .sorted(Comparator.comparing(Advertisement::getId))
+                .map(this::mapToDto)
+                .toList();
+    }
+    
     /**
      * Delete advertisement file
      * @param id Advertisement ID
@@ -163,8 +244,8 @@ public class AdvertisementService {
             throw new IllegalArgumentException("Access denied to advertisement from different tenant");
         }
         
-        // Delete from storage
-        storageService.deleteFile(advertisement.getFilePath(), tenantId);
+        // Drop our reference; the file goes with the last one
+        contentStore.release(tenantId, advertisement.getFilePath(), advertisement.getContentSha256());
         
         // Delete from database
         advertisementRepository.delete(advertisement);
@@ -184,7 +265,19 @@ public class AdvertisementService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Open an advertisement file, or one byte range of it, for streaming
+     * @param advertisement Advertisement already resolved for the calling tenant
+     * @param range Requested byte range, or null for the whole file
+     * @return Open media stream; the caller must close it
+     * @throws IOException If the file cannot be opened
+     */
+    public MediaStream openAdvertisementStream(AdvertisementDto advertisement, HttpRange range) throws IOException {
+        return storageService.openStream(advertisement.getFilePath(), advertisement.getTenantId(), range);
+    }
+    
     private AdvertisementDto mapToDto(Advertisement advertisement) {
+        DeliveryUrl deliveryUrl = storageService.getDeliveryUrl(advertisement.getFilePath(), advertisement.getTenantId());
         return AdvertisementDto.builder()
                 .id(advertisement.getId())
                 .tenantId(advertisement.getTenantId())
@@ -197,9 +290,17 @@ public class AdvertisementService {
                 .fileSize(advertisement.getFileSize())
                 .fileFormat(advertisement.getFileFormat())
                 .targetAudience(advertisement.getTargetAudience())
+                .bitrate(advertisement.getBitrate())
                 .metadata(advertisement.getMetadata())
+                .loudnessLufs(advertisement.getLoudnessLufs())
+                .truePeakDbtp(advertisement.getTruePeakDbtp())
+                .gainDb(advertisement.getGainDb())
+                .processingStatus(advertisement.getProcessingStatus())
+                .processingError(advertisement.getProcessingError())
                 .createdAt(advertisement.getCreatedAt())
                 .updatedAt(advertisement.getUpdatedAt())
+                .audioUrl(deliveryUrl != null ? deliveryUrl.url() : null)
+                .audioUrlExpiresAt(deliveryUrl != null ? deliveryUrl.expiresAt() : null)
                 .build();
     }
     
@@ -223,4 +324,31 @@ public class AdvertisementService {
         }
         return filename.substring(filename.lastIndexOf(".") + 1);
     }
+    
+    AdvertisementDto mapSummaryToDto(AdvertisementSummary advertisement) {
+        DeliveryUrl deliveryUrl = storageService.getDeliveryUrl(advertisement.filePath(), advertisement.tenantId());
+        return AdvertisementDto.builder()
+                .id(advertisement.id())
+                .tenantId(advertisement.tenantId())
+                .adTypeId(advertisement.adTypeId())
+                .adTypeName(advertisement.adTypeName())
+                .name(advertisement.name())
+                .description(advertisement.description())
+                .durationSeconds(advertisement.durationSeconds())
+                .filePath(advertisement.filePath())
+                .fileSize(advertisement.fileSize())
+                .fileFormat(advertisement.fileFormat())
+                .targetAudience(advertisement.targetAudience())
+                .bitrate(advertisement.bitrate())
+                .loudnessLufs(advertisement.loudnessLufs())
+                .truePeakDbtp(advertisement.truePeakDbtp())
+                .gainDb(advertisement.gainDb())
+                .processingStatus(advertisement.processingStatus())
+                .processingError(advertisement.processingError())
+                .createdAt(advertisement.createdAt())
+                .updatedAt(advertisement.updatedAt())
+                .audioUrl(deliveryUrl != null ? deliveryUrl.url() : null)
+                .audioUrlExpiresAt(deliveryUrl != null ? deliveryUrl.expiresAt() : null)
+                .build();
+    }
 }
@@ -0,0 +1,301 @@
+package com.teneocast.media.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.teneocast.media.config.S3EnabledCondition;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through disk cache in front of S3. Objects are downloaded once into a local
+ * directory and served from there, while S3 stays the source of truth: entries older
+ * than {@code media.cache.revalidate-after} are checked against the object's ETag.
+ * Concurrent misses for the same object share a single download, so a campaign that
+ * starts in every store at once costs one GET per replica.
+ */
+@Service
+@Primary
+@Slf4j
+@Conditional(S3EnabledCondition.class)
+@ConditionalOnProperty(name = "media.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingStorageService implements StorageService {
+    
+    private static final String FILE_SUFFIX = ".media";
+    
+    private final S3StorageService delegate;
+    private final MeterRegistry meterRegistry;
+    private final Path directory;
+    private final long revalidateAfterMillis;
+    private final ExecutorService fetchExecutor;
+    private final AsyncCache<String, CachedObject> cache;
+    
+    private final Counter fetchedBytes;
+    private final Counter evictedBytes;
+    private final Counter revalidationsUnchanged;
+    private final Counter revalidationsChanged;
+    private final Counter revalidationsFailed;
+    
+    public CachingStorageService(S3StorageService delegate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${media.cache.directory:/var/cache/teneocast-media}") String directory,
+                                 @Value("${media.cache.max-size:20GB}") DataSize maxSize,
+                                 @Value("${media.cache.revalidate-after:60s}") Duration revalidateAfter,
+                                 @Value("${media.cache.fetch-threads:8}") int fetchThreads) throws IOException {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.directory = Paths.get(directory);
+        this.revalidateAfterMillis = revalidateAfter.toMillis();
+        
+        // The index lives in memory, so copies left by a previous run are unknown to it.
+        // Only this cache's own files are removed; the directory is configurable and may be shared.
+        Files.createDirectories(this.directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + FILE_SUFFIX)) {
+            files.forEach(this::deleteQuietly);
+        }
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fetchExecutor = Executors.newFixedThreadPool(fetchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "media-cache-fetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedObject cached) -> (int) Math.min(cached.size(), Integer.MAX_VALUE))
+                .evictionListener((String key, CachedObject cached, RemovalCause cause) -> evicted(cached, cause))
+                .recordStats()
+                .buildAsync();
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "media.storage.cache");
+        Gauge.builder("media.storage.cache.size.bytes", cache, c -> c.synchronous().policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0L))
+                        .orElse(0L))
+                .register(meterRegistry);
+        this.fetchedBytes = meterRegistry.counter("media.storage.cache.fetched.bytes");
+        this.evictedBytes = meterRegistry.counter("media.storage.cache.evicted.bytes");
+        this.revalidationsUnchanged = meterRegistry.counter("media.storage.cache.revalidations", "result", "unchanged");
+        this.revalidationsChanged = meterRegistry.counter("media.storage.cache.revalidations", "result", "changed");
+        this.revalidationsFailed = meterRegistry.counter("media.storage.cache.revalidations", "result", "failed");
+        
+        log.info("Media cache initialized at {} with max size {}", this.directory, maxSize);
+    }
+    
+    @Override
+    public String uploadFile(MultipartFile file, UUID tenantId, String folder) throws IOException {
+        return delegate.uploadFile(file, tenantId, folder);
+    }
+    
+    @Override
+    public UploadSink openUpload(UUID tenantId, String folder, String originalFilename, String contentType) throws IOException {
+        return delegate.openUpload(tenantId, folder, originalFilename, contentType);
+    }
+    
+    @Override
+    public void deleteFile(String filePath, UUID tenantId) throws IOException {
+        delegate.deleteFile(filePath, tenantId);
+        
+        String key = cacheKey(filePath, tenantId);
+        CompletableFuture<CachedObject> future = cache.getIfPresent(key);
+        if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+            invalidate(key, future.join());
+        }
+    }
+    
+    @Override
+    public String getFileUrl(String filePath) {
+        return delegate.getFileUrl(filePath);
+    }
+    
+    @Override
+    public DeliveryUrl getDeliveryUrl(String filePath, UUID tenantId) {
+        return delegate.getDeliveryUrl(filePath, tenantId);
+    }
+    
+    @Override
+    public boolean fileExists(String filePath) {
+        return delegate.fileExists(filePath);
+    }
+    
+    @Override
+    public long getFileSize(String filePath) {
+        return delegate.getFileSize(filePath);
+    }
+    
+    @Override
+    public Resource getFileAsResource(String filePath, UUID tenantId) throws IOException {
+        MediaStream stream = openStream(filePath, tenantId, null);
+        return new InputStreamResource(stream.getInputStream()) {
+            @Override
+            public long contentLength() {
+                return stream.getTotalLength();
+            }
+        };
+    }
+    
+    @Override
+    public MediaStream openStream(String filePath, UUID tenantId, HttpRange range) throws IOException {
+        String key = cacheKey(filePath, tenantId);
+        CompletableFuture<CachedObject> present = cache.getIfPresent(key);
+        if (range != null && (present == null || !present.isDone())) {
+            // A seek into a cold object is answered by a ranged GET instead of waiting for the
+            // whole download; the copy is filled in the background for the requests after it
+            load(key, filePath, tenantId);
+            return delegate.openStream(filePath, tenantId, range);
+        }
+        
+        CachedObject cached = revalidate(key, get(key, filePath, tenantId), filePath, tenantId);
+        try {
+            return open(cached, filePath, range);
+        } catch (NoSuchFileException e) {
+            // Removed underneath the index; fetch it again
+            invalidate(key, cached);
+            return open(get(key, filePath, tenantId), filePath, range);
+        }
+    }
+    
+    void cleanUp() {
+        cache.synchronous().cleanUp();
+    }
+    
+    private CachedObject get(String key, String filePath, UUID tenantId) throws IOException {
+        try {
+            return load(key, filePath, tenantId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Failed to fetch " + filePath + ": " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    private CompletableFuture<CachedObject> load(String key, String filePath, UUID tenantId) {
+        // Concurrent callers for one key all wait on the same download
+        return cache.get(key, (k, executor) ->
+                CompletableFuture.supplyAsync(() -> fetch(filePath, tenantId), fetchExecutor));
+    }
+    
+    private CachedObject fetch(String filePath, UUID tenantId) {
+        Path target = directory.resolve(UUID.randomUUID() + FILE_SUFFIX);
+        try (MediaStream stream = delegate.openStream(filePath, tenantId, null)) {
+            long size = Files.copy(stream.getInputStream(), target);
+            fetchedBytes.increment(size);
+            log.debug("Cached {} ({} bytes) as {}", filePath, size, target.getFileName());
+            return new CachedObject(target, size, stream.getETag(), new AtomicLong(System.currentTimeMillis()));
+        } catch (IOException e) {
+            deleteQuietly(target);
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private CachedObject revalidate(String key, CachedObject cached, String filePath, UUID tenantId) throws IOException {
+        long validatedAt = cached.validatedAt().get();
+        long now = System.currentTimeMillis();
+        // One request revalidates; the others keep serving the cached copy meanwhile
+        if (now - validatedAt < revalidateAfterMillis || !cached.validatedAt().compareAndSet(validatedAt, now)) {
+            return cached;
+        }
+        
+        String currentETag;
+        try {
+            currentETag = delegate.getETag(filePath, tenantId);
+        } catch (IOException e) {
+            revalidationsFailed.increment();
+            log.warn("Could not revalidate cached {}, serving cached copy: {}", filePath, e.getMessage());
+            return cached;
+        }
+        
+        if (Objects.equals(currentETag, cached.eTag())) {
+            revalidationsUnchanged.increment();
+            return cached;
+        }
+        revalidationsChanged.increment();
+        log.debug("Cached {} changed in S3, fetching again", filePath);
+        invalidate(key, cached);
+        return get(key, filePath, tenantId);
+    }
+    
+    private MediaStream open(CachedObject cached, String filePath, HttpRange range) throws IOException {
+        long[] bounds = MediaStream.resolveRange(range, cached.size(), filePath);
+        // No file path is exposed for the container's sendfile: it would reopen the file by name
+        // after eviction or invalidation may have deleted it. The descriptor opened here keeps
+        // the bytes readable until the response has been written from it.
+        FileChannel channel = FileChannel.open(cached.file(), StandardOpenOption.READ);
+        return MediaStream.builder()
+                .channel(channel)
+                .start(bounds[0])
+                .end(bounds[1])
+                .totalLength(cached.size())
+                .partial(range != null)
+                .eTag(cached.eTag())
+                .build();
+    }
+    
+    private void invalidate(String key, CachedObject cached) {
+        CompletableFuture<CachedObject> future = cache.getIfPresent(key);
+        if (future != null && future.getNow(null) == cached && cache.asMap().remove(key, future)) {
+            // Open readers keep their descriptor; the space is freed when they finish
+            deleteQuietly(cached.file());
+        }
+    }
+    
+    private void evicted(CachedObject cached, RemovalCause cause) {
+        deleteQuietly(cached.file());
+        evictedBytes.increment(cached.size());
+        meterRegistry.counter("media.storage.cache.evictions", "cause", cause.name().toLowerCase()).increment();
+    }
+    
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached file {}: {}", file, e.getMessage());
+        }
+    }
+    
+    private String cacheKey(String filePath, UUID tenantId) {
+        return tenantId + "/" + filePath;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+    
+    private record CachedObject(Path file, long size, String eTag, AtomicLong validatedAt) {
+    }
+}
@@ -0,0 +1,186 @@
+package com.teneocast.media.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.teneocast.media.entity.ProcessingStatus;
+import com.teneocast.media.repository.AdvertisementSummary;
+import com.teneocast.media.repository.MusicSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes a tenant's whole catalogue as NDJSON, one DTO per line, straight from a JDBC cursor:
+ * rows are fetched {@code media.export.fetch-size} at a time and each is serialised as soon as
+ * it is read, so memory use does not grow with the catalogue.
+ */
+@Service
+@Slf4j
+public class CatalogExportService {
+    
+    private static final String MUSIC_ROWS = "SELECT m.id, m.tenant_id, m.genre_id, g.name AS genre_name, m.title, "
+            + "m.artist, m.album, m.duration_seconds, m.file_path, m.file_size, m.file_format, m.bitrate, "
+            + "m.loudness_lufs, m.true_peak_dbtp, m.gain_db, m.processing_status, m.processing_error, "
+            + "m.created_at, m.updated_at "
+            + "FROM media.music m LEFT JOIN media.music_genres g ON g.id = m.genre_id "
+            + "WHERE m.tenant_id = ? ORDER BY m.id";
+    
+    private static final String ADVERTISEMENT_ROWS = "SELECT a.id, a.tenant_id, a.ad_type_id, t.name AS ad_type_name, "
+            + "a.name, a.description, a.duration_seconds, a.file_path, a.file_size, a.file_format, a.target_audience, "
+            + "a.bitrate, a.loudness_lufs, a.true_peak_dbtp, a.gain_db, a.processing_status, a.processing_error, "
+            + "a.created_at, a.updated_at "
+            + "FROM media.advertisements a LEFT JOIN media.ad_types t ON t.id = a.ad_type_id "
+            + "WHERE a.tenant_id = ? ORDER BY a.id";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MusicService musicService;
+    private final AdvertisementService advertisementService;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+    
+    /** A flush per row would send every line as its own chunk */
+    private final ObjectWriter rowWriter;
+    
+    public CatalogExportService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                MusicService musicService,
+                                AdvertisementService advertisementService,
+                                MeterRegistry meterRegistry,
+                                ObjectMapper objectMapper,
+                                @Value("${media.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Postgres only streams a result set with a cursor inside a transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.musicService = musicService;
+        this.advertisementService = advertisementService;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+    
+    /**
+     * Write every music row of a tenant as one NDJSON line each, oldest first
+     * @param tenantId The tenant ID
+     * @param out Where to write; flushed but not closed
+     * @return The number of rows written
+     * @throws IOException If writing fails
+     */
+    public long exportMusic(UUID tenantId, OutputStream out) throws IOException {
+        return export("music", MUSIC_ROWS, tenantId, out,
+                (rs, rowNum) -> musicService.mapSummaryToDto(new MusicSummary(
+                        rs.getLong("id"),
+                        rs.getObject("tenant_id", UUID.class),
+                        rs.getObject("genre_id", Long.class),
+                        rs.getString("genre_name"),
+                        rs.getString("title"),
+                        rs.getString("artist"),
+                        rs.getString("album"),
+                        rs.getObject("duration_seconds", Integer.class),
+                        rs.getString("file_path"),
+                        rs.getObject("file_size", Long.class),
+                        rs.getString("file_format"),
+                        rs.getObject("bitrate", Integer.class),
+                        rs.getObject("loudness_lufs", Double.class),
+                        rs.getObject("true_peak_dbtp", Double.class),
+                        rs.getObject("gain_db", Double.class),
+                        processingStatus(rs),
+                        rs.getString("processing_error"),
+                        rs.getObject("created_at", LocalDateTime.class),
+                        rs.getObject("updated_at", LocalDateTime.class))));
+    }
+    
+    /**
+     * Write every advertisement of a tenant as one NDJSON line each, oldest first
+     * @param tenantId The tenant ID
+     * @param out Where to write; flushed but not closed
+     * @return The number of rows written
+     * @throws IOException If writing fails
+     */
+    public long exportAdvertisements(UUID tenantId, OutputStream out) throws IOException {
+        return export("advertisement", ADVERTISEMENT_ROWS, tenantId, out,
+                (rs, rowNum) -> advertisementService.mapSummaryToDto(new AdvertisementSummary(
+                        rs.getLong("id"),
+                        rs.getObject("tenant_id", UUID.class),
+                        rs.getObject("ad_type_id", Long.class),
+                        rs.getString("ad_type_name"),
+                        rs.getString("name"),
+                        rs.getString("description"),
+                        rs.getObject("duration_seconds", Integer.class),
+                        rs.getString("file_path"),
+                        rs.getObject("file_size", Long.class),
+                        rs.getString("file_format"),
+                        rs.getString("target_audience"),
+                        rs.getObject("bitrate", Integer.class),
+                        rs.getObject("loudness_lufs", Double.class),
+                        rs.getObject("true_peak_dbtp", Double.class),
+                        rs.getObject("gain_db", Double.class),
+                        processingStatus(rs),
+                        rs.getString("processing_error"),
+                        rs.getObject("created_at", LocalDateTime.class),
+                        rs.getObject("updated_at", LocalDateTime.class))));
+    }
+    
+    private long export(String catalog, String sql, UUID tenantId, OutputStream out, RowMapper<?> mapper) throws IOException {
+        long started = System.nanoTime();
+        AtomicLong rows = new AtomicLong();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                statement.setObject(1, tenantId);
+                return statement;
+            }, resultSet -> {
+                try {
+                    rowWriter.writeValue(generator, mapper.mapRow(resultSet, (int) rows.get()));
+                } catch (IOException e) {
+                    // Usually the client going away; stops the query
+                    throw new UncheckedIOException(e);
+                }
+                rows.incrementAndGet();
+            }));
+            if (rows.get() > 0) {
+                generator.writeRaw('\n');
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        
+        meterRegistry.counter("media.export.rows", "catalog", catalog).increment(rows.get());
+        meterRegistry.timer("media.export", "catalog", catalog).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        log.info("Exported {} {} rows: tenant={}", rows.get(), catalog, tenantId);
+        return rows.get();
+    }
+    
+    private static ProcessingStatus processingStatus(ResultSet rs) throws SQLException {
+        String status = rs.getString("processing_status");
+        return status != null ? ProcessingStatus.valueOf(status) : null;
+    }
+}
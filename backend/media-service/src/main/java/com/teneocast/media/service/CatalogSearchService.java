@@ -0,0 +1,184 @@
+package com.teneocast.media.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Ranked catalogue search over the generated {@code search_vector} and {@code search_text}
+ * columns (V8). Every query word matches as a prefix, and text that misses the prefixes can
+ * still match on trigram similarity, so "beatls" finds "Beatles". Results are ordered by rank
+ * and paged with a (rank, id) keyset cursor, so a deep page costs the same as the first.
+ * Databases without those columns, such as H2 in tests, get a substring match ordered by ID.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CatalogSearchService {
+    
+    public static final int MAX_LIMIT = 100;
+    
+    /** Further words add little to the ranking and only slow the query down */
+    static final int MAX_WORDS = 8;
+    
+    public enum Catalog {
+        MUSIC("media.music", "title", "artist", "album"),
+        ADVERTISEMENT("media.advertisements", "name", "description");
+        
+        private final String table;
+        private final String[] columns;
+        
+        Catalog(String table, String... columns) {
+            this.table = table;
+            this.columns = columns;
+        }
+    }
+    
+    /**
+     * One page of matches
+     * @param ids Matching row IDs, best first
+     * @param nextCursor Cursor for the following page, or null if this is the last
+     */
+    public record Hits(List<Long> ids, String nextCursor) {
+    }
+    
+    record Hit(long id, double rank) {
+    }
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    private volatile Boolean indexed;
+    
+    /**
+     * Search one tenant's catalogue
+     * @param catalog Music or advertisements
+     * @param tenantId The tenant ID
+     * @param query Words to look for, in any order
+     * @param cursor Cursor from the previous page, or null for the first
+     * @param limit Page size, capped at {@link #MAX_LIMIT}
+     * @return Matching IDs, best first
+     * @throws IllegalArgumentException If the cursor is not one this service issued
+     */
+    public Hits search(Catalog catalog, UUID tenantId, String query, String cursor, int limit) {
+        List<String> words = words(query);
+        if (words.isEmpty()) {
+            return new Hits(List.of(), null);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        Hit after = cursor != null && !cursor.isBlank() ? decodeCursor(cursor) : null;
+        
+        long started = System.nanoTime();
+        // One extra row tells whether there is another page
+        List<Hit> hits = isIndexed()
+                ? rankedSearch(catalog, tenantId, words, after, pageSize + 1)
+                : substringSearch(catalog, tenantId, String.join(" ", words), after, pageSize + 1);
+        meterRegistry.timer("media.search", "catalog", catalog.name().toLowerCase(Locale.ROOT))
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        
+        String nextCursor = null;
+        if (hits.size() > pageSize) {
+            hits = hits.subList(0, pageSize);
+            nextCursor = encodeCursor(hits.get(pageSize - 1));
+        }
+        return new Hits(hits.stream().map(Hit::id).toList(), nextCursor);
+    }
+    
+    private List<Hit> rankedSearch(Catalog catalog, UUID tenantId, List<String> words, Hit after, int limit) {
+        String text = String.join(" ", words);
+        List<Object> args = new ArrayList<>(List.of(text, prefixQuery(words), tenantId, text));
+        String sql = "SELECT id, rank FROM ("
+                + "SELECT c.id, (ts_rank_cd(c.search_vector, q.query) + word_similarity(?, c.search_text))::float8 AS rank "
+                + "FROM " + catalog.table + " c, to_tsquery('simple', ?) AS q(query) "
+                + "WHERE c.tenant_id = ? AND (c.search_vector @@ q.query OR ? <% c.search_text)"
+                + ") hits ";
+        if (after != null) {
+            sql += "WHERE rank < ? OR (rank = ? AND id < ?) ";
+            args.addAll(List.of(after.rank(), after.rank(), after.id()));
+        }
+        sql += "ORDER BY rank DESC, id DESC LIMIT ?";
+        args.add(limit);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Hit(rs.getLong("id"), rs.getDouble("rank")), args.toArray());
+    }
+    
+    private List<Hit> substringSearch(Catalog catalog, UUID tenantId, String text, Hit after, int limit) {
+        String pattern = "%" + text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        List<Object> args = new ArrayList<>();
+        args.add(tenantId);
+        String matches = Arrays.stream(catalog.columns)
+                .map(column -> {
+                    args.add(pattern);
+                    return "LOWER(" + column + ") LIKE ?";
+                })
+                .collect(Collectors.joining(" OR "));
+        String sql = "SELECT id FROM " + catalog.table + " WHERE tenant_id = ? AND (" + matches + ") ";
+        if (after != null) {
+            sql += "AND id < ? ";
+            args.add(after.id());
+        }
+        sql += "ORDER BY id DESC LIMIT ?";
+        args.add(limit);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Hit(rs.getLong("id"), 0), args.toArray());
+    }
+    
+    private boolean isIndexed() {
+        Boolean known = indexed;
+        if (known == null) {
+            Integer columns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                    + "WHERE LOWER(table_schema) = 'media' AND LOWER(table_name) = 'music' "
+                    + "AND LOWER(column_name) = 'search_vector'", Integer.class);
+            known = columns != null && columns > 0;
+            indexed = known;
+            if (!known) {
+                log.warn("Catalogue search columns are missing; searching by substring match");
+            }
+        }
+        return known;
+    }
+    
+    /**
+     * Lower-case letter and digit runs of a query; everything else separates words, so nothing
+     * the user types can reach the tsquery syntax
+     */
+    static List<String> words(String query) {
+        if (query == null) {
+            return List.of();
+        }
+        return Arrays.stream(query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .limit(MAX_WORDS)
+                .toList();
+    }
+    
+    static String prefixQuery(List<String> words) {
+        return words.stream().map(word -> word + ":*").collect(Collectors.joining(" & "));
+    }
+    
+    static String encodeCursor(Hit hit) {
+        String cursor = hit.rank() + ":" + hit.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    static Hit decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf(':');
+            return new Hit(Long.parseLong(decoded.substring(separator + 1)),
+                    Double.parseDouble(decoded.substring(0, separator)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
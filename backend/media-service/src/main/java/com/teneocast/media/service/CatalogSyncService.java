@@ -0,0 +1,140 @@
+package com.teneocast.media.service;
+
+import com.teneocast.media.dto.CatalogSyncDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalogue deltas for offline players, read from the change log that triggers keep in
+ * {@code media.catalog_changes} (V10). Every insert, update and delete of a tenant's music or
+ * advertisements takes the tenant's next version, and a player that last saw version N gets
+ * only the rows changed after N, in version order, found through the (tenant_id, version) index.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CatalogSyncService {
+    
+    public static final int MAX_LIMIT = 1000;
+    
+    static final String CURRENT_VERSION = "SELECT version FROM media.catalog_versions WHERE tenant_id = ?";
+    
+    static final String ALL_VERSIONS = "SELECT tenant_id, version FROM media.catalog_versions";
+    
+    static final String CHANGES_SINCE = "SELECT catalog, item_id, version, deleted FROM media.catalog_changes "
+            + "WHERE tenant_id = ? AND version > ? ORDER BY version LIMIT ?";
+    
+    record Change(CatalogSearchService.Catalog catalog, long itemId, long version, boolean deleted) {
+    }
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final MusicService musicService;
+    private final AdvertisementService advertisementService;
+    private final MeterRegistry meterRegistry;
+    
+    /**
+     * Changes to a tenant's catalogue after a version the player already has
+     * @param tenantId The tenant ID
+     * @param since Version from the player's last sync, or 0 for everything
+     * @param limit Most changes to return, capped at {@link #MAX_LIMIT}
+     * @return Current rows of everything inserted or updated, IDs of everything deleted, and the
+     *         version to sync from next
+     * @throws IllegalArgumentException If the version is negative
+     */
+    public CatalogSyncDto sync(UUID tenantId, long since, int limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("Version must not be negative");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_LIMIT));
+        long started = System.nanoTime();
+        
+        long currentVersion = currentVersion(tenantId);
+        if (since > currentVersion) {
+            // Versions never go back, so the player's came from another database
+            log.warn("Sync from unknown version, resetting player: tenant={}, since={}, current={}",
+                    tenantId, since, currentVersion);
+            return CatalogSyncDto.builder()
+                    .version(0)
+                    .reset(true)
+                    .music(List.of())
+                    .advertisements(List.of())
+                    .deletedMusicIds(List.of())
+                    .deletedAdvertisementIds(List.of())
+                    .build();
+        }
+        
+        // One extra row tells whether there is more to fetch
+        List<Change> changes = changesSince(tenantId, since, pageSize + 1);
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
+        }
+        
+        List<Long> changedMusic = new ArrayList<>();
+        List<Long> changedAdvertisements = new ArrayList<>();
+        List<Long> deletedMusic = new ArrayList<>();
+        List<Long> deletedAdvertisements = new ArrayList<>();
+        for (Change change : changes) {
+            boolean music = change.catalog() == CatalogSearchService.Catalog.MUSIC;
+            if (change.deleted()) {
+                (music ? deletedMusic : deletedAdvertisements).add(change.itemId());
+            } else {
+                (music ? changedMusic : changedAdvertisements).add(change.itemId());
+            }
+        }
+        
+        // A row deleted since the log was read is left out here; its tombstone has a later version
+        CatalogSyncDto delta = CatalogSyncDto.builder()
+                .version(changes.isEmpty() ? since : changes.get(changes.size() - 1).version())
+                .hasMore(hasMore)
+                .music(musicService.getMusicByIds(tenantId, changedMusic))
+                .advertisements(advertisementService.getAdvertisementsByIds(tenantId, changedAdvertisements))
+                .deletedMusicIds(deletedMusic)
+                .deletedAdvertisementIds(deletedAdvertisements)
+                .build();
+        
+        meterRegistry.counter("media.sync.changes").increment(changes.size());
+        meterRegistry.timer("media.sync").record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return delta;
+    }
+    
+    /**
+     * @return The tenant's latest version, or 0 if its catalogue never changed
+     */
+    long currentVersion(UUID tenantId) {
+        List<Long> current = jdbcTemplate.queryForList(CURRENT_VERSION, Long.class, tenantId);
+        return current.isEmpty() ? 0 : current.get(0);
+    }
+    
+    /**
+     * @return Every tenant's latest version, in one query
+     */
+    Map<UUID, Long> currentVersions() {
+        Map<UUID, Long> versions = new HashMap<>();
+        jdbcTemplate.query(ALL_VERSIONS, (RowCallbackHandler) rs ->
+                versions.put(rs.getObject("tenant_id", UUID.class), rs.getLong("version")));
+        return versions;
+    }
+    
+    /**
+     * @return Up to {@code limit} of the tenant's changes after {@code since}, oldest first
+     */
+    List<Change> changesSince(UUID tenantId, long since, int limit) {
+        return jdbcTemplate.query(CHANGES_SINCE, (rs, rowNum) -> new Change(
+                CatalogSearchService.Catalog.valueOf(rs.getString("catalog")),
+                rs.getLong("item_id"),
+                rs.getLong("version"),
+                rs.getBoolean("deleted")), tenantId, since, limit);
+    }
+}
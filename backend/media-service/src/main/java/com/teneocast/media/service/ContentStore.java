@@ -0,0 +1,160 @@
+package com.teneocast.media.service;
+
+import com.teneocast.media.dto.DedupReportDto;
+import com.teneocast.media.entity.StoredObject;
+import com.teneocast.media.repository.StoredObjectRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Content-addressed view of media storage. Each tenant keeps one stored object per SHA-256,
+ * shared by every music and advertisement row with the same bytes and reference counted, so
+ * re-uploads of an existing file cost a database row instead of another copy in storage.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ContentStore {
+    
+    private final StoredObjectRepository storedObjectRepository;
+    private final StorageService storageService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    /**
+     * Keep an upload, or discard it in favour of identical content the tenant already stored.
+     * Completing the upload can be a network round trip, so no transaction or row lock is held
+     * across it; only the short reference-count updates run in transactions.
+     * @param tenantId The tenant ID for isolation
+     * @param sha256 Hex SHA-256 of the uploaded content
+     * @param size Content length in bytes
+     * @param sink The open upload holding the content; completed or left to abort on close
+     * @return The storage path to reference and whether the upload was a duplicate
+     * @throws IOException If completing the upload fails
+     */
+    public StoredContent store(UUID tenantId, String sha256, long size, UploadSink sink) throws IOException {
+        StoredObject existing = transactionTemplate.execute(status -> addReference(tenantId, sha256).orElse(null));
+        if (existing != null) {
+            // Not completing the sink discards what was uploaded so far
+            return deduplicated(existing, size);
+        }
+        
+        String filePath = sink.complete();
+        try {
+            StoredObject raced = transactionTemplate.execute(status -> addReference(tenantId, sha256).orElseGet(() -> {
+                storedObjectRepository.saveAndFlush(StoredObject.builder()
+                        .tenantId(tenantId)
+                        .sha256(sha256)
+                        .filePath(filePath)
+                        .fileSize(size)
+                        .refCount(1)
+                        .build());
+                return null;
+            }));
+            if (raced == null) {
+                meterRegistry.counter("media.dedup.misses").increment();
+                return new StoredContent(filePath, false);
+            }
+            storageService.deleteFile(filePath, tenantId);
+            return deduplicated(raced, size);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent upload of the same content inserted first; share its copy
+            StoredObject winner = transactionTemplate.execute(status -> addReference(tenantId, sha256)
+                    .orElseThrow(() -> new IllegalStateException("Stored object vanished for " + sha256, e)));
+            storageService.deleteFile(filePath, tenantId);
+            return deduplicated(winner, size);
+        }
+    }
+    
+    /**
+     * Drop one reference to stored content, deleting it from storage with the last one
+     * @param tenantId The tenant ID for isolation
+     * @param filePath The referenced storage path
+     * @param sha256 Hex SHA-256 of the content, or null for files stored before deduplication
+     * @throws IOException If deleting from storage fails
+     */
+    public void release(UUID tenantId, String filePath, String sha256) throws IOException {
+        if (sha256 == null) {
+            storageService.deleteFile(filePath, tenantId);
+            return;
+        }
+        
+        String unreferenced = transactionTemplate.execute(status -> {
+            Optional<StoredObject> existing = storedObjectRepository.findForUpdate(tenantId, sha256);
+            if (existing.isEmpty()) {
+                log.warn("No stored object for tenant={}, sha256={}; deleting {} directly", tenantId, sha256, filePath);
+                return filePath;
+            }
+            StoredObject storedObject = existing.get();
+            if (storedObject.getRefCount() > 1) {
+                storedObject.setRefCount(storedObject.getRefCount() - 1);
+                storedObjectRepository.save(storedObject);
+                log.debug("Released reference to {}: {} remaining", filePath, storedObject.getRefCount());
+                return null;
+            }
+            storedObjectRepository.delete(storedObject);
+            return storedObject.getFilePath();
+        });
+        
+        if (unreferenced != null) {
+            storageService.deleteFile(unreferenced, tenantId);
+            log.info("Deleted stored object: tenant={}, sha256={}", tenantId, sha256);
+        }
+    }
+    
+    private Optional<StoredObject> addReference(UUID tenantId, String sha256) {
+        // The row lock serializes this against a concurrent release of the same content
+        return storedObjectRepository.findForUpdate(tenantId, sha256).map(storedObject -> {
+            storedObject.setRefCount(storedObject.getRefCount() + 1);
+            return storedObjectRepository.save(storedObject);
+        });
+    }
+    
+    private StoredContent deduplicated(StoredObject storedObject, long size) {
+        meterRegistry.counter("media.dedup.hits").increment();
+        meterRegistry.counter("media.dedup.bytes-saved").increment(size);
+        log.info("Upload deduplicated: tenant={}, sha256={}, refs={}",
+                storedObject.getTenantId(), storedObject.getSha256(), storedObject.getRefCount());
+        return new StoredContent(storedObject.getFilePath(), true);
+    }
+    
+    /**
+     * Summarize what deduplication saves: logical bytes are what storage would hold with one
+     * copy per reference, stored bytes what it actually holds
+     * @return Totals and per-tenant figures, largest savings first
+     */
+    @Transactional(readOnly = true)
+    public DedupReportDto getDedupReport() {
+        List<DedupReportDto.TenantUsage> tenants = storedObjectRepository.summarizeByTenant().stream()
+                .map(usage -> DedupReportDto.TenantUsage.builder()
+                        .tenantId(usage.getTenantId())
+                        .storedObjects(usage.getStoredObjects())
+                        .references(usage.getRefs())
+                        .storedBytes(usage.getStoredBytes())
+                        .logicalBytes(usage.getLogicalBytes())
+                        .bytesSaved(usage.getLogicalBytes() - usage.getStoredBytes())
+                        .build())
+                .sorted(Comparator.comparingLong(DedupReportDto.TenantUsage::getBytesSaved).reversed())
+                .toList();
+        
+        return DedupReportDto.builder()
+                .storedObjects(tenants.stream().mapToLong(DedupReportDto.TenantUsage::getStoredObjects).sum())
+                .references(tenants.stream().mapToLong(DedupReportDto.TenantUsage::getReferences).sum())
+                .storedBytes(tenants.stream().mapToLong(DedupReportDto.TenantUsage::getStoredBytes).sum())
+                .logicalBytes(tenants.stream().mapToLong(DedupReportDto.TenantUsage::getLogicalBytes).sum())
+                .bytesSaved(tenants.stream().mapToLong(DedupReportDto.TenantUsage::getBytesSaved).sum())
+                .tenants(tenants)
+                .build();
+    }
+}
@@ -0,0 +1,12 @@
+package com.teneocast.media.service;
+
+import java.time.Instant;
+
+/**
+ * A short-lived URL players fetch a file from directly, without going through this service.
+ *
+ * @param url The URL to GET
+ * @param expiresAt When the URL stops working
+ */
+public record DeliveryUrl(String url, Instant expiresAt) {
+}
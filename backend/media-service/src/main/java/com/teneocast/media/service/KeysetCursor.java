@@ -0,0 +1,40 @@
+package com.teneocast.media.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for listings ordered by descending ID: the next page starts below the last ID
+ * returned, so it is found through the index however deep it is, and no rows are counted.
+ */
+final class KeysetCursor {
+    
+    static final int MAX_PAGE_SIZE = 100;
+    
+    private KeysetCursor() {
+    }
+    
+    static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+    
+    static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * @return IDs the next page must stay below; everything for a null or blank cursor
+     * @throws IllegalArgumentException If the cursor was not issued by {@link #encode}
+     */
+    static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -8,11 +8,23 @@ import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import com.teneocast.media.config.S3DisabledCondition;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.http.HttpRange;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -23,6 +35,23 @@ public class LocalFileStorageService implements StorageService {
     @Value("${media.upload.storage-path:/tmp/teneocast-media}")
     private String storagePath;
     
+    @Value("${media.local.zero-copy:true}")
+    private boolean zeroCopy;
+    
+    @Value("${media.local.mmap-threshold:1048576}")
+    private long mmapThreshold;
+    
+    @Value("${media.local.mmap-cache-size:256}")
+    private int mmapCacheSize;
+    
+    private final Map<Path, MappedFile> mappedFiles = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, MappedFile> eldest) {
+                    return size() > mmapCacheSize;
+                }
+            });
+    
     @Override
     public String uploadFile(MultipartFile file, UUID tenantId, String folder) throws IOException {
         try {
@@ -45,11 +74,40 @@ public class LocalFileStorageService implements StorageService {
         }
     }
     
+    @Override
+    public UploadSink openUpload(UUID tenantId, String folder, String originalFilename, String contentType) throws IOException {
+        Path tenantPath = Paths.get(storagePath, tenantId.toString(), folder);
+        Files.createDirectories(tenantPath);
+        Path filePath = tenantPath.resolve(generateFileName(originalFilename));
+        OutputStream out = Files.newOutputStream(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        
+        return new UploadSink() {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+            
+            @Override
+            protected String commit() throws IOException {
+                out.close();
+                log.info("File uploaded successfully to local storage: {}", filePath);
+                return filePath.toString();
+            }
+            
+            @Override
+            protected void abort() throws IOException {
+                out.close();
+                Files.deleteIfExists(filePath);
+            }
+        };
+    }
+    
     @Override
     public void deleteFile(String filePath, UUID tenantId) throws IOException {
         try {
             Path path = Paths.get(filePath);
             if (Files.exists(path)) {
+                mappedFiles.remove(path.toAbsolutePath());
                 Files.delete(path);
                 log.info("File deleted successfully from local storage: {}", filePath);
             }
@@ -64,6 +122,12 @@ public class LocalFileStorageService implements StorageService {
         return "file://" + filePath;
     }
     
+    @Override
+    public DeliveryUrl getDeliveryUrl(String filePath, UUID tenantId) {
+        // Local files are only reachable through the stream endpoints
+        return null;
+    }
+    
     @Override
     public boolean fileExists(String filePath) {
         return Files.exists(Paths.get(filePath));
@@ -91,6 +155,59 @@ public class LocalFileStorageService implements StorageService {
         throw new IOException("File not found: " + filePath);
     }
     
+    @Override
+    public MediaStream openStream(String filePath, UUID tenantId, HttpRange range) throws IOException {
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            throw new IOException("File not found: " + filePath);
+        }
+        
+        long size = Files.size(path);
+        long[] bounds = MediaStream.resolveRange(range, size, filePath);
+        long start = bounds[0];
+        long end = bounds[1];
+        
+        long length = end - start + 1;
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        MediaStream.MediaStreamBuilder stream = MediaStream.builder()
+                .start(start)
+                .end(end)
+                .totalLength(size)
+                .partial(range != null)
+                .eTag("\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"");
+        
+        if (zeroCopy && size > 0 && size <= mmapThreshold) {
+            // Small hot files stay mapped; a request is served straight from the page cache
+            ByteBuffer mapped = mappedFile(path, size, lastModified).slice((int) start, (int) length);
+            return stream.mapped(mapped).build();
+        }
+        
+        // Positioned channel read: only the requested bytes are touched
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        channel.position(start);
+        stream.inputStream(new BoundedInputStream(Channels.newInputStream(channel), length));
+        if (zeroCopy) {
+            stream.channel(channel).file(path.toAbsolutePath());
+        }
+        return stream.build();
+    }
+    
+    private ByteBuffer mappedFile(Path path, long size, long lastModified) throws IOException {
+        Path key = path.toAbsolutePath();
+        MappedFile mappedFile = mappedFiles.get(key);
+        if (mappedFile == null || mappedFile.size() != size || mappedFile.lastModified() != lastModified) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // The mapping outlives the channel; it is released when the buffer is collected
+                mappedFile = new MappedFile(size, lastModified, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            mappedFiles.put(key, mappedFile);
+        }
+        return mappedFile.buffer();
+    }
+    
+    private record MappedFile(long size, long lastModified, MappedByteBuffer buffer) {
+    }
+    
     private String generateFileName(String originalFilename) {
         if (originalFilename == null || originalFilename.isEmpty()) {
             return "file_" + System.currentTimeMillis();
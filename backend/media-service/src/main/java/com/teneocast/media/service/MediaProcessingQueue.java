@@ -0,0 +1,525 @@
+package com.teneocast.media.service;
+
+import com.teneocast.media.audio.AudioInfo;
+import com.teneocast.media.audio.Loudness;
+import com.teneocast.media.entity.ProcessableMedia;
+import com.teneocast.media.entity.ProcessingStatus;
+import com.teneocast.media.repository.AdvertisementRepository;
+import com.teneocast.media.repository.MusicRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Asynchronous audio analysis. Uploads only store the file and enqueue the new row; a bounded
+ * pool of workers reads the stored file back, extracts duration, bitrate and tags, decodes it
+ * to measure loudness, and the results are written in batches. Failed jobs are retried with exponential backoff.
+ * <p>
+ * The PENDING status on the row is the durable record of outstanding work: rows left pending
+ * by a restart, or not queued because the queue was full, are picked up by a periodic sweep.
+ */
+@Service
+@Slf4j
+public class MediaProcessingQueue {
+    
+    public enum Kind {
+        MUSIC,
+        ADVERTISEMENT
+    }
+    
+    private final MusicRepository musicRepository;
+    private final AdvertisementRepository advertisementRepository;
+    private final StorageService storageService;
+    private final MediaProcessingService mediaProcessingService;
+    private final TransactionTemplate transactionTemplate;
+    
+    private final boolean enabled;
+    private final int workers;
+    private final int capacity;
+    private final int maxAttempts;
+    private final long retryBackoffNanos;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration sweepInterval;
+    
+    /** Delayed so retries wait out their backoff in the queue instead of on a worker */
+    private final DelayQueue<Job> queue = new DelayQueue<>();
+    /** Jobs queued, running or waiting to be persisted; keeps the sweep from queueing them twice */
+    private final Set<Key> tracked = ConcurrentHashMap.newKeySet();
+    private final LinkedBlockingQueue<Result> results = new LinkedBlockingQueue<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    private final Counter completed;
+    private final Counter retried;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Timer queuedTime;
+    private final Timer analyseTime;
+    private final Timer loudnessTime;
+    private final Timer persistTime;
+    private final DistributionSummary batchSizes;
+    
+    private ExecutorService workerPool;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+    
+    public MediaProcessingQueue(MusicRepository musicRepository,
+                                AdvertisementRepository advertisementRepository,
+                                StorageService storageService,
+                                MediaProcessingService mediaProcessingService,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${media.processing.extract-metadata:true}") boolean enabled,
+                                @Value("${media.processing.workers:0}") int workers,
+                                @Value("${media.processing.queue-capacity:10000}") int capacity,
+                                @Value("${media.processing.max-attempts:3}") int maxAttempts,
+                                @Value("${media.processing.retry-backoff:5s}") Duration retryBackoff,
+                                @Value("${media.processing.batch-size:50}") int batchSize,
+                                @Value("${media.processing.flush-interval:1s}") Duration flushInterval,
+                                @Value("${media.processing.sweep-interval:1m}") Duration sweepInterval) {
+        this.musicRepository = musicRepository;
+        this.advertisementRepository = advertisementRepository;
+        this.storageService = storageService;
+        this.mediaProcessingService = mediaProcessingService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        // Loudness analysis decodes every file, so by default there is a worker per core
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffNanos = retryBackoff.toNanos();
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.sweepInterval = sweepInterval;
+        
+        this.completed = meterRegistry.counter("media.processing.jobs", "outcome", "completed");
+        this.retried = meterRegistry.counter("media.processing.jobs", "outcome", "retried");
+        this.failed = meterRegistry.counter("media.processing.jobs", "outcome", "failed");
+        this.rejected = meterRegistry.counter("media.processing.jobs", "outcome", "rejected");
+        this.queuedTime = meterRegistry.timer("media.processing.stage", "stage", "queued");
+        this.analyseTime = meterRegistry.timer("media.processing.stage", "stage", "analyse");
+        this.loudnessTime = meterRegistry.timer("media.processing.stage", "stage", "loudness");
+        this.persistTime = meterRegistry.timer("media.processing.stage", "stage", "persist");
+        this.batchSizes = meterRegistry.summary("media.processing.batch.size");
+        Gauge.builder("media.processing.queue.depth", queue, DelayQueue::size).register(meterRegistry);
+        Gauge.builder("media.processing.results.pending", results, LinkedBlockingQueue::size).register(meterRegistry);
+    }
+    
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "media-processing-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::work);
+        }
+        
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "media-processing-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly,
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        // The first sweep picks up whatever was pending when the service last stopped
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly,
+                0, sweepInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Status a freshly uploaded row starts in
+     * @return PENDING when uploads are analysed, COMPLETED when analysis is switched off
+     */
+    public ProcessingStatus initialStatus() {
+        return enabled ? ProcessingStatus.PENDING : ProcessingStatus.COMPLETED;
+    }
+    
+    /**
+     * Queue a stored row for analysis. Inside a transaction the row is queued after commit,
+     * so workers never look for a row they cannot see yet.
+     * @param kind Which table the row is in
+     * @param id The row ID
+     */
+    public void enqueue(Kind kind, long id) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(kind, id);
+                }
+            });
+        } else {
+            submit(kind, id);
+        }
+    }
+    
+    /**
+     * Look for PENDING rows now rather than at the next scheduled sweep, for rows inserted
+     * without going through {@link #enqueue}
+     */
+    public void requestSweep() {
+        if (scheduler != null && running) {
+            scheduler.execute(this::sweepQuietly);
+        }
+    }
+    
+    public int getQueueDepth() {
+        return queue.size();
+    }
+    
+    boolean submit(Kind kind, long id) {
+        Key key = new Key(kind, id);
+        if (!tracked.add(key)) {
+            return false;
+        }
+        if (queue.size() >= capacity) {
+            // Stays PENDING in the database; the sweep queues it once there is room
+            tracked.remove(key);
+            rejected.increment();
+            log.debug("Processing queue full, deferring {} {}", kind, id);
+            return false;
+        }
+        queue.add(new Job(key, 1, System.nanoTime()));
+        return true;
+    }
+    
+    /**
+     * Run every job that is ready now on the calling thread, then persist the results
+     */
+    void processReady() {
+        Job job;
+        while ((job = queue.poll()) != null) {
+            process(job);
+        }
+        flush();
+    }
+    
+    private void work() {
+        while (running) {
+            try {
+                process(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Media processing worker error", e);
+            }
+        }
+    }
+    
+    private void process(Job job) {
+        queuedTime.record(System.nanoTime() - job.readyAt(), TimeUnit.NANOSECONDS);
+        long started = System.nanoTime();
+        try {
+            Optional<? extends ProcessableMedia> media = load(job.key());
+            if (media.isEmpty()) {
+                // Deleted since it was queued
+                tracked.remove(job.key());
+                return;
+            }
+            results.add(analyse(job, media.get()));
+            completed.increment();
+        } catch (Exception e) {
+            if (job.attempt() < maxAttempts) {
+                long backoff = retryBackoffNanos << (job.attempt() - 1);
+                log.warn("Processing {} {} failed (attempt {}), retrying: {}",
+                        job.key().kind(), job.key().id(), job.attempt(), e.getMessage());
+                queue.add(job.retry(System.nanoTime() + backoff));
+                retried.increment();
+            } else {
+                log.error("Processing {} {} failed after {} attempts",
+                        job.key().kind(), job.key().id(), job.attempt(), e);
+                results.add(Result.failure(job, e.getMessage()));
+                failed.increment();
+            }
+        } finally {
+            analyseTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        
+        if (results.size() >= batchSize) {
+            flush();
+        }
+    }
+    
+    private Optional<? extends ProcessableMedia> load(Key key) {
+        return switch (key.kind()) {
+            case MUSIC -> musicRepository.findById(key.id());
+            case ADVERTISEMENT -> advertisementRepository.findById(key.id());
+        };
+    }
+    
+    private Result analyse(Job job, ProcessableMedia media) throws IOException {
+        Result result = describe(job, media);
+        if (!mediaProcessingService.isLoudnessEnabled()) {
+            return result;
+        }
+        long started = System.nanoTime();
+        try (MediaStream stream = storageService.openStream(media.getFilePath(), media.getTenantId(), null)) {
+            return result.withLoudness(mediaProcessingService.measureLoudness(stream.getInputStream()).orElse(null));
+        } finally {
+            loudnessTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    private Result describe(Job job, ProcessableMedia media) throws IOException {
+        Optional<AudioInfo> scanned;
+        try (MediaStream stream = storageService.openStream(media.getFilePath(), media.getTenantId(), null)) {
+            scanned = mediaProcessingService.scanAudio(stream.getInputStream(), media.getFileSize());
+        }
+        if (scanned.isPresent()) {
+            AudioInfo info = scanned.get();
+            Integer bitrate = info.getBitrateKbps() != null
+                    ? info.getBitrateKbps()
+                    : mediaProcessingService.getBitrate(media.getFileSize(), info.getDurationSeconds());
+            return new Result(job.key(), job.attempt(), info.getDurationSeconds(), bitrate,
+                    mediaProcessingService.toMetadataJson(mediaProcessingService.toMetadata(info)), null, null);
+        }
+        
+        // Formats the header scan does not read go through the full parser
+        IOException[] readFailure = new IOException[1];
+        Metadata metadata;
+        try (MediaStream stream = storageService.openStream(media.getFilePath(), media.getTenantId(), null)) {
+            // The parser swallows its input's exceptions; storage failures must still be retried
+            InputStream input = new ProxyInputStream(stream.getInputStream()) {
+                @Override
+                protected void handleIOException(IOException e) throws IOException {
+                    readFailure[0] = e;
+                    throw e;
+                }
+            };
+            metadata = mediaProcessingService.parseMetadata(input, media.getFilePath());
+        }
+        if (readFailure[0] != null) {
+            throw readFailure[0];
+        }
+        
+        Integer duration = mediaProcessingService.getDuration(metadata);
+        return new Result(job.key(), job.attempt(), duration,
+                mediaProcessingService.getBitrate(media.getFileSize(), duration),
+                mediaProcessingService.toMetadataJson(metadata), null, null);
+    }
+    
+    /**
+     * Persist finished results, a batch per transaction
+     */
+    void flush() {
+        // A flush already running drains whatever arrives meanwhile
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Result> batch = new ArrayList<>(batchSize);
+            while (results.drainTo(batch, batchSize) > 0) {
+                persist(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    private void persist(List<Result> batch) {
+        long started = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch));
+        } catch (RuntimeException e) {
+            // One bad row must not hold back the rest of the batch
+            log.warn("Persisting {} processing results failed, retrying one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::persistOne);
+        } finally {
+            batch.forEach(result -> tracked.remove(result.key()));
+            persistTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            batchSizes.record(batch.size());
+        }
+    }
+    
+    private void persistOne(Result result) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(List.of(result)));
+        } catch (RuntimeException e) {
+            try {
+                // Record why, so the sweep does not pick the row up again
+                transactionTemplate.executeWithoutResult(status -> apply(List.of(result.withError(e.getMessage()))));
+            } catch (RuntimeException again) {
+                log.error("Could not persist processing result for {} {}; it stays pending",
+                        result.key().kind(), result.key().id(), again);
+            }
+        }
+    }
+    
+    private void apply(List<Result> batch) {
+        // Entities stay managed, so the updates go out as one JDBC batch at commit
+        Map<Long, Result> music = byId(batch, Kind.MUSIC);
+        if (!music.isEmpty()) {
+            musicRepository.findAllById(music.keySet()).forEach(row -> music.get(row.getId()).applyTo(row));
+        }
+        Map<Long, Result> advertisements = byId(batch, Kind.ADVERTISEMENT);
+        if (!advertisements.isEmpty()) {
+            advertisementRepository.findAllById(advertisements.keySet()).forEach(row -> advertisements.get(row.getId()).applyTo(row));
+        }
+    }
+    
+    private static Map<Long, Result> byId(List<Result> batch, Kind kind) {
+        return batch.stream()
+                .filter(result -> result.key().kind() == kind)
+                .collect(Collectors.toMap(result -> result.key().id(), Function.identity(), (a, b) -> b));
+    }
+    
+    /**
+     * Queue rows left PENDING, as far as the queue has room
+     */
+    void sweep() {
+        for (Kind kind : Kind.values()) {
+            int room = capacity - queue.size();
+            if (room <= 0) {
+                return;
+            }
+            // Tracked rows are still PENDING too, so look past them
+            PageRequest page = PageRequest.of(0, room + tracked.size());
+            List<Long> ids = switch (kind) {
+                case MUSIC -> musicRepository.findIdsByProcessingStatus(ProcessingStatus.PENDING, page);
+                case ADVERTISEMENT -> advertisementRepository.findIdsByProcessingStatus(ProcessingStatus.PENDING, page);
+            };
+            int queued = 0;
+            for (Long id : ids) {
+                if (submit(kind, id)) {
+                    queued++;
+                }
+            }
+            if (queued > 0) {
+                log.info("Queued {} pending {} rows for processing", queued, kind);
+            }
+        }
+    }
+    
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Flushing processing results failed", e);
+        }
+    }
+    
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Sweeping pending media failed: {}", e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        // Unflushed work is lost here but stays PENDING, so the next start picks it up
+        flushQuietly();
+    }
+    
+    record Key(Kind kind, long id) {
+    }
+    
+    private record Job(Key key, int attempt, long readyAt) implements Delayed {
+        
+        Job retry(long readyAt) {
+            return new Job(key, attempt + 1, readyAt);
+        }
+        
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(readyAt, ((Job) other).readyAt);
+        }
+    }
+    
+    private record Result(Key key, int attempts, Integer durationSeconds, Integer bitrate, String metadata,
+                          Loudness loudness, String error) {
+        
+        static Result failure(Job job, String error) {
+            return new Result(job.key(), job.attempt(), null, null, null, null, error);
+        }
+        
+        Result withError(String error) {
+            return new Result(key, attempts, null, null, null, null, error);
+        }
+        
+        Result withLoudness(Loudness loudness) {
+            return new Result(key, attempts, durationSeconds, bitrate, metadata, loudness, error);
+        }
+        
+        void applyTo(ProcessableMedia media) {
+            media.setProcessingAttempts(attempts);
+            if (error != null) {
+                media.setProcessingStatus(ProcessingStatus.FAILED);
+                media.setProcessingError(error);
+                return;
+            }
+            if (durationSeconds != null) {
+                media.setDurationSeconds(durationSeconds);
+            }
+            media.setBitrate(bitrate);
+            media.setMetadata(metadata);
+            if (loudness != null) {
+                media.setLoudnessLufs(loudness.getIntegratedLufs());
+                media.setTruePeakDbtp(loudness.getTruePeakDbtp());
+                media.setGainDb(loudness.getGainDb());
+            }
+            media.setProcessingStatus(ProcessingStatus.COMPLETED);
+            media.setProcessingError(null);
+        }
+    }
+}
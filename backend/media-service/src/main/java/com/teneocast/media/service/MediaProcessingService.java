@@ -1,15 +1,25 @@
 package com.teneocast.media.service;
 
+import com.teneocast.media.audio.AudioInfo;
+import com.teneocast.media.audio.AudioScanner;
+import com.teneocast.media.audio.Loudness;
+import com.teneocast.media.audio.LoudnessAnalyzer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.Tika;
 import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.metadata.XMPDM;
+import org.apache.tika.parser.ParseContext;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -17,12 +27,23 @@ public class MediaProcessingService {
     
     private final Tika tika;
     
+    private final AudioScanner audioScanner = new AudioScanner();
+    
     @Value("${media.upload.allowed-audio-formats}")
     private String allowedAudioFormats;
     
     @Value("${media.upload.max-file-size}")
     private String maxFileSize;
     
+    @Value("${media.processing.loudness.enabled:true}")
+    private boolean loudnessEnabled = true;
+    
+    @Value("${media.processing.loudness.target-lufs:-18}")
+    private double loudnessTarget = -18;
+    
+    @Value("${media.processing.loudness.peak-ceiling-dbtp:-1}")
+    private double peakCeiling = -1;
+    
     public MediaProcessingService() {
         this.tika = new Tika();
     }
@@ -38,30 +59,162 @@ public class MediaProcessingService {
      * @throws IllegalArgumentException If validation fails
      */
     public void validateFile(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
+        validateSize(file);
+        
+        // Check file format and extension
+        String detectedType = detectFileType(file);
+        validateType(file.getOriginalFilename(), detectedType);
+        
+        log.info("File validation passed: name={}, size={}, type={}", 
+                file.getOriginalFilename(), file.getSize(), detectedType);
+    }
+    
+    /**
+     * Validate that an upload is present and within the size limit, before reading it
+     * @param file The file to validate
+     * @throws IllegalArgumentException If validation fails
+     */
+    public void validateSize(MultipartFile file) {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be empty");
+        }
+        validateSize(file.getSize());
+    }
+    
+    /**
+     * Validate the size of a file read from somewhere other than a multipart upload
+     * @param size The file size in bytes
+     * @throws IllegalArgumentException If the file is empty or too large
+     */
+    public void validateSize(long size) {
+        if (size <= 0) {
             throw new IllegalArgumentException("File cannot be empty");
         }
         
-        // Check file size
         long maxSize = parseFileSize(maxFileSize);
-        if (file.getSize() > maxSize) {
+        if (size > maxSize) {
             throw new IllegalArgumentException("File size exceeds maximum allowed size: " + maxFileSize);
         }
-        
-        // Check file format
-        String detectedType = detectFileType(file);
+    }
+    
+    /**
+     * Validate a detected content type and the file extension
+     * @param originalFilename The uploaded file name
+     * @param detectedType The sniffed MIME type
+     * @throws IllegalArgumentException If validation fails
+     */
+    public void validateType(String originalFilename, String detectedType) {
         if (!isAudioFile(detectedType)) {
             throw new IllegalArgumentException("Invalid file type. Only audio files are allowed. Detected: " + detectedType);
         }
         
-        // Check file extension
-        String originalFilename = file.getOriginalFilename();
         if (originalFilename != null && !hasValidExtension(originalFilename)) {
             throw new IllegalArgumentException("Invalid file extension. Allowed: " + allowedAudioFormats);
         }
-        
-        log.info("File validation passed: name={}, size={}, type={}", 
-                originalFilename, file.getSize(), detectedType);
+    }
+    
+    /**
+     * Detect the MIME type from the first bytes of a file
+     * @param head Leading bytes of the file
+     * @param originalFilename The file name, used as a hint
+     * @return Detected MIME type
+     */
+    public String detectFileType(byte[] head, String originalFilename) {
+        return tika.detect(head, originalFilename);
+    }
+    
+    /**
+     * Parse audio metadata from a stream in the calling thread. The parser reads as far as
+     * it needs to; parse failures leave whatever metadata was found before them.
+     * @param inputStream The audio stream
+     * @param originalFilename The file name, used as a hint
+     * @return Extracted metadata
+     */
+    public Metadata parseMetadata(InputStream inputStream, String originalFilename) {
+        Metadata metadata = new Metadata();
+        if (originalFilename != null) {
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, originalFilename);
+        }
+        try {
+            tika.getParser().parse(inputStream, new DefaultHandler(), metadata, new ParseContext());
+        } catch (Exception e) {
+            log.warn("Failed to extract metadata from file: {}", originalFilename, e);
+        }
+        return metadata;
+    }
+    
+    /**
+     * Read duration, bitrate and tags from the audio headers, skipping the audio itself
+     * @param inputStream The audio stream, from its first byte
+     * @param fileSize Size of the file in bytes, or -1 if unknown
+     * @return What was found, or empty if the format is not one the scanner reads
+     * @throws IOException If reading the stream fails
+     */
+    public Optional<AudioInfo> scanAudio(InputStream inputStream, long fileSize) throws IOException {
+        return audioScanner.scan(inputStream, fileSize);
+    }
+    
+    /**
+     * Measure integrated loudness and true peak by decoding the whole file, a buffer at a time
+     * @param inputStream The audio stream, from its first byte
+     * @return Loudness and normalisation gain, or empty if disabled or the format cannot be decoded
+     * @throws IOException If reading the stream fails
+     */
+    public Optional<Loudness> measureLoudness(InputStream inputStream) throws IOException {
+        if (!loudnessEnabled) {
+            return Optional.empty();
+        }
+        return new LoudnessAnalyzer(loudnessTarget, peakCeiling).analyse(inputStream);
+    }
+    
+    /**
+     * @return Whether {@link #measureLoudness} decodes files at all
+     */
+    public boolean isLoudnessEnabled() {
+        return loudnessEnabled;
+    }
+    
+    /**
+     * Express a header scan as parser metadata, so both render the same way
+     * @param info The scan result
+     * @return Metadata under the same names the parser uses
+     */
+    public Metadata toMetadata(AudioInfo info) {
+        Metadata metadata = new Metadata();
+        metadata.set(XMPDM.DURATION, String.valueOf(info.getDurationMillis() / 1000.0));
+        metadata.set("format", info.getFormat());
+        if (info.getSampleRate() != null) {
+            metadata.set(XMPDM.AUDIO_SAMPLE_RATE, info.getSampleRate());
+        }
+        if (info.getChannels() != null) {
+            metadata.set("channels", String.valueOf(info.getChannels()));
+        }
+        if (info.getBitrateKbps() != null) {
+            metadata.set("bitrate", String.valueOf(info.getBitrateKbps()));
+            metadata.set("bitrateMode", info.isVariableBitrate() ? "VBR" : "CBR");
+        }
+        setTag(metadata, TikaCoreProperties.TITLE.getName(), info.getTags().get(AudioInfo.TITLE));
+        setTag(metadata, XMPDM.ARTIST.getName(), info.getTags().get(AudioInfo.ARTIST));
+        setTag(metadata, XMPDM.ALBUM.getName(), info.getTags().get(AudioInfo.ALBUM));
+        return metadata;
+    }
+    
+    /**
+     * Read the duration reported by the parser
+     * @param metadata Parsed metadata
+     * @return Duration in whole seconds, or null if unknown
+     */
+    public Integer getDuration(Metadata metadata) {
+        String duration = metadata.get(XMPDM.DURATION);
+        if (duration == null) {
+            return null;
+        }
+        try {
+            // Tika 2.x reports xmpDM:duration in seconds
+            return (int) Math.round(Double.parseDouble(duration));
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
     
     /**
@@ -73,28 +226,8 @@ public class MediaProcessingService {
         try {
             Metadata metadata = new Metadata();
             tika.parse(file.getInputStream(), metadata);
-            
-            // Extract relevant audio metadata
-            StringBuilder jsonBuilder = new StringBuilder();
-            jsonBuilder.append("{");
-            
-            String[] names = metadata.names();
-            boolean first = true;
-            
-            for (String name : names) {
-                if (isRelevantMetadata(name)) {
-                    if (!first) {
-                        jsonBuilder.append(",");
-                    }
-                    jsonBuilder.append("\"").append(name).append("\":\"")
-                             .append(metadata.get(name)).append("\"");
-                    first = false;
-                }
-            }
-            
-            jsonBuilder.append("}");
-            return jsonBuilder.toString();
-            
+            return toMetadataJson(metadata);
+        
         } catch (Exception e) {
             log.warn("Failed to extract metadata from file: {}", file.getOriginalFilename(), e);
             return "{}";
@@ -102,23 +235,67 @@ public class MediaProcessingService {
     }
     
     /**
-     * Get file duration in seconds (placeholder implementation)
+     * Render the relevant audio metadata as a JSON object
+     * @param metadata Parsed metadata
+     * @return Metadata as JSON string
+     */
+    public String toMetadataJson(Metadata metadata) {
+        StringBuilder jsonBuilder = new StringBuilder();
+        jsonBuilder.append("{");
+        
+        String[] names = metadata.names();
+        boolean first = true;
+        
+        for (String name : names) {
+            if (isRelevantMetadata(name)) {
+                if (!first) {
+                    jsonBuilder.append(",");
+                }
+                jsonBuilder.append("\"").append(jsonEscape(name)).append("\":\"")
+                         .append(jsonEscape(metadata.get(name))).append("\"");
+                first = false;
+            }
+        }
+        
+        jsonBuilder.append("}");
+        return jsonBuilder.toString();
+    }
+    
+    /**
+     * Get file duration in seconds by parsing the file
      * @param file The audio file
      * @return Duration in seconds, or null if cannot determine
      */
     public Integer getFileDuration(MultipartFile file) {
-        // This is a placeholder implementation
-        // In a real implementation, you would use a library like FFmpeg or JavaZoom
-        // to extract actual audio duration
         try {
-            // For now, return null - duration will need to be set manually or via external processing
-            return null;
-        } catch (Exception e) {
+            try (InputStream inputStream = file.getInputStream()) {
+                Optional<AudioInfo> info = scanAudio(inputStream, file.getSize());
+                if (info.isPresent()) {
+                    return info.get().getDurationSeconds();
+                }
+            }
+            try (InputStream inputStream = file.getInputStream()) {
+                return getDuration(parseMetadata(inputStream, file.getOriginalFilename()));
+            }
+        } catch (IOException e) {
             log.warn("Failed to get file duration: {}", file.getOriginalFilename(), e);
             return null;
         }
     }
     
+    /**
+     * Average bitrate over the whole file, which also covers VBR files whose frames disagree
+     * @param fileSize File size in bytes
+     * @param durationSeconds Duration in seconds
+     * @return Bitrate in kbit/s, or null if the duration is unknown
+     */
+    public Integer getBitrate(long fileSize, Integer durationSeconds) {
+        if (durationSeconds == null || durationSeconds <= 0) {
+            return null;
+        }
+        return (int) Math.round(fileSize * 8.0 / durationSeconds / 1000);
+    }
+    
     private String detectFileType(MultipartFile file) {
         try {
             return tika.detect(file.getInputStream(), file.getOriginalFilename());
@@ -159,6 +336,34 @@ public class MediaProcessingService {
         }
     }
     
+    private void setTag(Metadata metadata, String name, String value) {
+        if (value != null && !value.isBlank()) {
+            metadata.set(name, value);
+        }
+    }
+    
+    private String jsonEscape(String value) {
+        // Tags come from the uploaded file and may contain anything
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> escaped.append("\\\"");
+                case '\\' -> escaped.append("\\\\");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                case '\t' -> escaped.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+                }
+            }
+        }
+        return escaped.toString();
+    }
+    
     private boolean isRelevantMetadata(String metadataName) {
         // Filter for relevant audio metadata
         String lowerName = metadataName.toLowerCase();
@@ -0,0 +1,212 @@
+package com.teneocast.media.service;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.http.HttpRange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * An open read of a stored file, or of one byte range of it. The stream is consumed
+ * once and must be closed by whoever writes it out.
+ * <p>
+ * Local files may be backed by a {@link FileChannel} or a memory-mapped buffer instead
+ * of a plain input stream, so they can be written without a user-space copy loop.
+ */
+@Getter
+@Builder
+public class MediaStream implements Closeable {
+    
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    
+    private final InputStream inputStream;
+    
+    /** Open channel positioned anywhere; reads always use absolute positions */
+    private final FileChannel channel;
+    
+    /** Mapped bytes of exactly the served range */
+    private final ByteBuffer mapped;
+    
+    /** Local file behind the stream, set when the container may send it directly */
+    private final Path file;
+    
+    /** First byte served, inclusive */
+    private final long start;
+    
+    /** Last byte served, inclusive */
+    private final long end;
+    
+    /** Size of the whole stored file */
+    private final long totalLength;
+    
+    /** True when only the requested range is served */
+    private final boolean partial;
+    
+    private final String eTag;
+    
+    /**
+     * Resolve a requested range against the size of a file
+     * @param range The requested range, or null for the whole file
+     * @param size File size in bytes
+     * @param filePath The file path, for the error
+     * @return First and last byte to serve, both inclusive
+     * @throws RangeNotSatisfiableException If the range lies outside the file
+     */
+    static long[] resolveRange(HttpRange range, long size, String filePath) throws RangeNotSatisfiableException {
+        if (range == null) {
+            return new long[] {0, size - 1};
+        }
+        try {
+            long start = range.getRangeStart(size);
+            long end = range.getRangeEnd(size);
+            if (size > 0 && start <= end) {
+                return new long[] {start, end};
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through
+        }
+        throw new RangeNotSatisfiableException(filePath, size);
+    }
+    
+    public long getContentLength() {
+        return end - start + 1;
+    }
+    
+    public String getContentRange() {
+        return "bytes " + start + "-" + end + "/" + totalLength;
+    }
+    
+    public InputStream getInputStream() {
+        if (inputStream == null && mapped != null) {
+            return new ByteBufferBackedInputStream(mapped.duplicate());
+        }
+        if (inputStream == null && channel != null) {
+            return new ChannelRangeInputStream(channel, start, end + 1);
+        }
+        return inputStream;
+    }
+    
+    /**
+     * Write the stream to the client. Channel and mapped sources skip the heap copy loop.
+     * @param out The response output stream
+     * @return Bytes written
+     * @throws IOException If reading or writing fails
+     */
+    public long writeTo(OutputStream out) throws IOException {
+        if (mapped != null || channel != null) {
+            return transferTo(Channels.newChannel(out));
+        }
+        
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long written = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            written += read;
+        }
+        return written;
+    }
+    
+    /**
+     * Write the stream to a channel. For a file channel writing to a socket this is
+     * {@code sendfile(2)}: the bytes go from page cache to the socket inside the kernel.
+     * @param target The channel to write to
+     * @return Bytes written
+     * @throws IOException If reading or writing fails
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        if (mapped != null) {
+            ByteBuffer buffer = mapped.duplicate();
+            long written = 0;
+            while (buffer.hasRemaining()) {
+                written += target.write(buffer);
+            }
+            return written;
+        }
+        if (channel == null) {
+            return writeTo(Channels.newOutputStream(target));
+        }
+        
+        long position = start;
+        long remaining = getContentLength();
+        while (remaining > 0) {
+            long sent = channel.transferTo(position, remaining, target);
+            if (sent <= 0) {
+                // The file shrank underneath us
+                throw new IOException("Unexpected end of file at byte " + position);
+            }
+            position += sent;
+            remaining -= sent;
+        }
+        return getContentLength();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (inputStream != null) {
+            inputStream.close();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Reads one range of a channel with absolute positions, for callers that need a plain stream
+     */
+    private static final class ChannelRangeInputStream extends InputStream {
+        
+        private final FileChannel channel;
+        private final long limit;
+        private long position;
+        
+        private ChannelRangeInputStream(FileChannel channel, long position, long limit) {
+            this.channel = channel;
+            this.position = position;
+            this.limit = limit;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= limit) {
+                return -1;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, (int) Math.min(length, limit - position));
+            int read = channel.read(buffer, position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+        
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, limit - position));
+            position += skipped;
+            return skipped;
+        }
+        
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, limit - position);
+        }
+    }
+}
@@ -0,0 +1,590 @@
+package com.teneocast.media.service;
+
+import com.teneocast.media.audio.AudioInfo;
+import com.teneocast.media.dto.MusicImportDto;
+import com.teneocast.media.entity.Music;
+import com.teneocast.media.entity.MusicGenre;
+import com.teneocast.media.repository.MusicGenreRepository;
+import com.teneocast.media.repository.MusicRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Bulk import of a music library from a ZIP archive. Entries are stored in parallel, at most
+ * {@code media.import.concurrency} at a time across all imports, checked against a genre map and
+ * the tenant's existing title/artist pairs loaded once per import, and written with JDBC batch
+ * inserts. Progress is kept in memory by job ID. Duration, bitrate and loudness are filled in
+ * afterwards by {@link MediaProcessingQueue}.
+ * <p>
+ * An optional {@code manifest.csv} at the root of the archive, with a header row naming any of
+ * the columns {@code file,title,artist,album,genre}, supplies metadata per entry. Anything it
+ * leaves out comes from the file's tags, then from an "Artist - Title" file name.
+ */
+@Service
+@Slf4j
+public class MusicImportService {
+    
+    static final String MANIFEST = "manifest.csv";
+    
+    /** Failed entries reported back in full; the rest are only counted */
+    static final int MAX_REPORTED_ERRORS = 100;
+    
+    private static final String INSERT_MUSIC = "INSERT INTO media.music (tenant_id, genre_id, title, artist, album, "
+            + "file_path, file_size, file_format, content_sha256, processing_status, processing_attempts, "
+            + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+    
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+    
+    private final MusicRepository musicRepository;
+    private final MusicGenreRepository musicGenreRepository;
+    private final UploadPipeline uploadPipeline;
+    private final ContentStore contentStore;
+    private final MediaProcessingService mediaProcessingService;
+    private final MediaProcessingQueue mediaProcessingQueue;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration jobRetention;
+    private final long maxArchiveBytes;
+    
+    private final Counter importedCounter;
+    private final Counter duplicateCounter;
+    private final Counter failedCounter;
+    private final Timer insertTime;
+    
+    private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService importPool;
+    
+    public MusicImportService(MusicRepository musicRepository,
+                              MusicGenreRepository musicGenreRepository,
+                              UploadPipeline uploadPipeline,
+                              ContentStore contentStore,
+                              MediaProcessingService mediaProcessingService,
+                              MediaProcessingQueue mediaProcessingQueue,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${media.import.concurrency:8}") int concurrency,
+                              @Value("${media.import.batch-size:200}") int batchSize,
+                              @Value("${media.import.job-retention:1h}") Duration jobRetention,
+                              @Value("${media.import.max-archive-size:10GB}") DataSize maxArchiveSize) {
+        this.musicRepository = musicRepository;
+        this.musicGenreRepository = musicGenreRepository;
+        this.uploadPipeline = uploadPipeline;
+        this.contentStore = contentStore;
+        this.mediaProcessingService = mediaProcessingService;
+        this.mediaProcessingQueue = mediaProcessingQueue;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.jobRetention = jobRetention;
+        this.maxArchiveBytes = maxArchiveSize.toBytes();
+        
+        this.importedCounter = meterRegistry.counter("media.import.entries", "outcome", "imported");
+        this.duplicateCounter = meterRegistry.counter("media.import.entries", "outcome", "duplicate");
+        this.failedCounter = meterRegistry.counter("media.import.entries", "outcome", "failed");
+        this.insertTime = meterRegistry.timer("media.import.insert");
+        
+        AtomicInteger threadCount = new AtomicInteger();
+        this.importPool = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "media-import-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Start importing every audio file in a ZIP archive. The archive is read and checked before
+     * this returns; the entries are then stored in the background.
+     * @param archive The ZIP archive as sent, spooled to disk up to {@code media.import.max-archive-size}
+     * @param defaultGenreId Genre for entries the manifest gives none for
+     * @param tenantId The tenant ID
+     * @return The new job, with its total entry count
+     * @throws IllegalArgumentException If the archive, its manifest or the genre is invalid
+     * @throws IOException If the archive cannot be spooled to disk
+     */
+    public MusicImportDto startImport(InputStream archive, Long defaultGenreId, UUID tenantId) throws IOException {
+        if (archive == null) {
+            throw new IllegalArgumentException("Import archive cannot be empty");
+        }
+        expireJobs();
+        
+        // One query each for the genres and the tenant's existing tracks, instead of one per file
+        Map<Long, MusicGenre> genresById = new HashMap<>();
+        Map<String, MusicGenre> genresByName = new HashMap<>();
+        for (MusicGenre genre : musicGenreRepository.findAll()) {
+            genresById.put(genre.getId(), genre);
+            genresByName.put(genre.getName().toLowerCase(Locale.ROOT), genre);
+        }
+        MusicGenre defaultGenre = genresById.get(defaultGenreId);
+        if (defaultGenre == null) {
+            throw new IllegalArgumentException("Invalid genre ID: " + defaultGenreId);
+        }
+        
+        Path spooled = Files.createTempFile("music-import", ".zip");
+        ZipFile zip = null;
+        try {
+            // One byte past the limit is read to tell an archive of exactly the limit from a larger one
+            long size = Files.copy(new BoundedInputStream(archive, maxArchiveBytes + 1), spooled,
+                    StandardCopyOption.REPLACE_EXISTING);
+            if (size == 0) {
+                throw new IllegalArgumentException("Import archive cannot be empty");
+            }
+            if (size > maxArchiveBytes) {
+                throw new IllegalArgumentException("Import archive exceeds " + DataSize.ofBytes(maxArchiveBytes));
+            }
+            zip = new ZipFile(spooled.toFile());
+            Map<String, ManifestRow> manifest = readManifest(zip);
+            List<ZipEntry> entries = zip.stream()
+                    .filter(entry -> !entry.isDirectory() && !isIgnored(entry.getName()))
+                    .map(ZipEntry.class::cast)
+                    .toList();
+            if (entries.isEmpty()) {
+                throw new IllegalArgumentException("Import archive contains no files");
+            }
+            
+            Set<String> seen = ConcurrentHashMap.newKeySet();
+            for (Object[] existing : musicRepository.findTitlesAndArtistsByTenantId(tenantId)) {
+                seen.add(key((String) existing[0], (String) existing[1]));
+            }
+            
+            ImportJob job = new ImportJob(tenantId, spooled, zip, manifest, genresByName, defaultGenre, seen, entries.size());
+            jobs.put(job.id, job);
+            log.info("Importing music archive: job={}, tenant={}, entries={}, existing={}",
+                    job.id, tenantId, entries.size(), seen.size());
+            
+            List<CompletableFuture<Void>> tasks = entries.stream()
+                    .map(entry -> CompletableFuture.runAsync(() -> importEntry(job, entry), importPool))
+                    .toList();
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                    .whenComplete((ignored, error) -> finish(job, error));
+            return toDto(job);
+        
+        } catch (ZipException e) {
+            closeQuietly(zip, spooled);
+            throw new IllegalArgumentException("Import archive is not a valid ZIP file");
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(zip, spooled);
+            throw e;
+        }
+    }
+    
+    /**
+     * Get the progress of an import
+     * @param jobId The job ID returned when the import started
+     * @param tenantId Tenant ID for validation
+     * @return Counts so far, and the first failed entries
+     */
+    public MusicImportDto getImport(UUID jobId, UUID tenantId) {
+        expireJobs();
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Import not found with ID: " + jobId);
+        }
+        if (!job.tenantId.equals(tenantId)) {
+            throw new IllegalArgumentException("Access denied to import from different tenant");
+        }
+        return toDto(job);
+    }
+    
+    private void importEntry(ImportJob job, ZipEntry entry) {
+        try {
+            Music music = prepare(job, entry);
+            if (music == null) {
+                job.duplicates.incrementAndGet();
+                duplicateCounter.increment();
+            } else {
+                add(job, new PendingRow(entry.getName(), music));
+            }
+        } catch (IllegalArgumentException e) {
+            fail(job, entry.getName(), e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Importing {} failed: job={}, error={}", entry.getName(), job.id, e.getMessage());
+            fail(job, entry.getName(), "Failed to store file");
+        } finally {
+            job.processed.incrementAndGet();
+        }
+    }
+    
+    /**
+     * @return The row to insert, or null if the tenant already has a track with this title and artist
+     */
+    private Music prepare(ImportJob job, ZipEntry entry) throws IOException {
+        String filename = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+        ManifestRow row = job.manifest.getOrDefault(entry.getName(), ManifestRow.EMPTY);
+        Map<String, String> tags = row.title() != null && row.artist() != null ? Map.of() : readTags(job, entry);
+        
+        String baseName = filename.contains(".") ? filename.substring(0, filename.lastIndexOf('.')) : filename;
+        int separator = baseName.indexOf(" - ");
+        String nameArtist = separator > 0 ? baseName.substring(0, separator).trim() : null;
+        String nameTitle = separator > 0 ? baseName.substring(separator + 3).trim() : baseName.trim();
+        
+        String title = firstNonBlank(row.title(), tags.get(AudioInfo.TITLE), nameTitle);
+        String artist = firstNonBlank(row.artist(), tags.get(AudioInfo.ARTIST), nameArtist);
+        if (title == null || artist == null) {
+            throw new IllegalArgumentException("No title and artist in the manifest, tags or file name");
+        }
+        MusicGenre genre = job.defaultGenre;
+        if (row.genre() != null) {
+            genre = job.genresByName.get(row.genre().toLowerCase(Locale.ROOT));
+            if (genre == null) {
+                throw new IllegalArgumentException("Unknown genre: " + row.genre());
+            }
+        }
+        
+        String key = key(title, artist);
+        if (!job.seen.add(key)) {
+            return null;
+        }
+        ProcessedUpload upload;
+        try (InputStream in = job.zip.getInputStream(entry)) {
+            upload = uploadPipeline.upload(in, filename, entry.getSize(), job.tenantId, "music");
+        } catch (IOException | RuntimeException e) {
+            // Another entry, or a later import, may still use this title and artist
+            job.seen.remove(key);
+            throw e;
+        }
+        
+        return Music.builder()
+                .tenantId(job.tenantId)
+                .genre(genre)
+                .title(title)
+                .artist(artist)
+                .album(firstNonBlank(row.album(), tags.get(AudioInfo.ALBUM)))
+                .filePath(upload.getFilePath())
+                .fileSize(upload.getSize())
+                .contentSha256(upload.getSha256())
+                .fileFormat(filename.contains(".") ? filename.substring(filename.lastIndexOf('.') + 1) : "")
+                .processingStatus(mediaProcessingQueue.initialStatus())
+                .build();
+    }
+    
+    private Map<String, String> readTags(ImportJob job, ZipEntry entry) {
+        try (InputStream in = job.zip.getInputStream(entry)) {
+            return mediaProcessingService.scanAudio(in, entry.getSize())
+                    .map(AudioInfo::getTags)
+                    .orElse(Map.of());
+        } catch (IOException | RuntimeException e) {
+            return Map.of();
+        }
+    }
+    
+    private void add(ImportJob job, PendingRow row) {
+        List<PendingRow> batch = null;
+        synchronized (job.pending) {
+            job.pending.add(row);
+            if (job.pending.size() >= batchSize) {
+                batch = new ArrayList<>(job.pending);
+                job.pending.clear();
+            }
+        }
+        if (batch != null) {
+            insert(job, batch);
+        }
+    }
+    
+    /**
+     * Insert a batch of rows in one statement batch and one transaction. If the batch fails each
+     * row is retried alone, so one bad row costs only itself.
+     */
+    private void insert(ImportJob job, List<PendingRow> rows) {
+        long started = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_MUSIC, rows, rows.size(), this::bind));
+            job.imported.addAndGet(rows.size());
+            importedCounter.increment(rows.size());
+        } catch (RuntimeException e) {
+            log.warn("Batch insert of {} imported tracks failed, inserting one at a time: {}", rows.size(), e.getMessage());
+            for (PendingRow row : rows) {
+                try {
+                    transactionTemplate.executeWithoutResult(status ->
+                            jdbcTemplate.batchUpdate(INSERT_MUSIC, List.of(row), 1, this::bind));
+                    job.imported.incrementAndGet();
+                    importedCounter.increment();
+                } catch (RuntimeException rowError) {
+                    Music music = row.music();
+                    job.seen.remove(key(music.getTitle(), music.getArtist()));
+                    releaseQuietly(music);
+                    fail(job, row.entryName(), "Failed to save track");
+                }
+            }
+        }
+        insertTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        // Batch inserts return no IDs to enqueue, so the rows are found by their PENDING status
+        mediaProcessingQueue.requestSweep();
+    }
+    
+    private void bind(PreparedStatement statement, PendingRow row) throws SQLException {
+        Music music = row.music();
+        statement.setObject(1, music.getTenantId());
+        statement.setLong(2, music.getGenre().getId());
+        statement.setString(3, music.getTitle());
+        statement.setString(4, music.getArtist());
+        statement.setString(5, music.getAlbum());
+        statement.setString(6, music.getFilePath());
+        statement.setLong(7, music.getFileSize());
+        statement.setString(8, music.getFileFormat());
+        statement.setString(9, music.getContentSha256());
+        statement.setString(10, music.getProcessingStatus().name());
+        statement.setTimestamp(11, Timestamp.valueOf(music.getCreatedAt()));
+        statement.setTimestamp(12, Timestamp.valueOf(music.getUpdatedAt()));
+    }
+    
+    private void finish(ImportJob job, Throwable error) {
+        Status outcome = Status.FAILED;
+        try {
+            List<PendingRow> rest;
+            synchronized (job.pending) {
+                rest = new ArrayList<>(job.pending);
+                job.pending.clear();
+            }
+            if (!rest.isEmpty()) {
+                insert(job, rest);
+            }
+            outcome = error == null ? Status.COMPLETED : Status.FAILED;
+        } catch (RuntimeException e) {
+            log.error("Finishing music import failed: job={}", job.id, e);
+        } finally {
+            closeQuietly(job.zip, job.spooled);
+            job.finishedAt = LocalDateTime.now();
+            // Published last: whoever reads a final status also reads finishedAt and the counts
+            job.status = outcome;
+            log.info("Music import finished: job={}, status={}, imported={}, duplicates={}, failed={}",
+                    job.id, job.status, job.imported.get(), job.duplicates.get(), job.failed.get());
+        }
+    }
+    
+    private void fail(ImportJob job, String entryName, String error) {
+        job.failed.incrementAndGet();
+        failedCounter.increment();
+        if (job.errorCount.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+            job.errors.add(MusicImportDto.EntryError.builder().file(entryName).error(error).build());
+        }
+    }
+    
+    private void releaseQuietly(Music music) {
+        try {
+            contentStore.release(music.getTenantId(), music.getFilePath(), music.getContentSha256());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to release stored content {}: {}", music.getFilePath(), e.getMessage());
+        }
+    }
+    
+    private Map<String, ManifestRow> readManifest(ZipFile zip) throws IOException {
+        ZipEntry entry = zip.getEntry(MANIFEST);
+        if (entry == null) {
+            return Map.of();
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null) {
+                return Map.of();
+            }
+            List<String> columns = parseCsvLine(header.replace("\uFEFF", "")).stream()
+                    .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                    .toList();
+            int file = columns.indexOf("file");
+            if (file < 0) {
+                throw new IllegalArgumentException("Manifest has no file column");
+            }
+            
+            Map<String, ManifestRow> rows = new HashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                List<String> values = parseCsvLine(line);
+                String name = column(values, file);
+                if (name != null) {
+                    rows.put(name, new ManifestRow(
+                            column(values, columns.indexOf("title")),
+                            column(values, columns.indexOf("artist")),
+                            column(values, columns.indexOf("album")),
+                            column(values, columns.indexOf("genre"))));
+                }
+            }
+            return rows;
+        }
+    }
+    
+    /**
+     * Split one CSV line, honouring double-quoted values with doubled quotes inside
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+    
+    private static String column(List<String> values, int index) {
+        return index >= 0 && index < values.size() ? firstNonBlank(values.get(index)) : null;
+    }
+    
+    private static String firstNonBlank(String... values) {
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
+    
+    private static boolean isIgnored(String name) {
+        String filename = name.substring(name.lastIndexOf('/') + 1);
+        // The manifest, and the resource forks and dotfiles archivers add
+        return name.equals(MANIFEST) || name.startsWith("__MACOSX/") || filename.startsWith(".");
+    }
+    
+    private static String key(String title, String artist) {
+        return title + '\u0000' + artist;
+    }
+    
+    private MusicImportDto toDto(ImportJob job) {
+        return MusicImportDto.builder()
+                .jobId(job.id)
+                .status(job.status.name())
+                .total(job.total)
+                .processed(job.processed.get())
+                .imported(job.imported.get())
+                .duplicates(job.duplicates.get())
+                .failed(job.failed.get())
+                .errors(List.copyOf(job.errors))
+                .startedAt(job.startedAt)
+                .finishedAt(job.finishedAt)
+                .build();
+    }
+    
+    private void expireJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+    
+    private static void closeQuietly(ZipFile zip, Path spooled) {
+        try {
+            if (zip != null) {
+                zip.close();
+            }
+            Files.deleteIfExists(spooled);
+        } catch (IOException e) {
+            log.warn("Failed to remove import archive {}: {}", spooled, e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        importPool.shutdownNow();
+    }
+    
+    private record ManifestRow(String title, String artist, String album, String genre) {
+        static final ManifestRow EMPTY = new ManifestRow(null, null, null, null);
+    }
+    
+    private record PendingRow(String entryName, Music music) {
+    }
+    
+    private static final class ImportJob {
+        
+        final UUID id = UUID.randomUUID();
+        final UUID tenantId;
+        final Path spooled;
+        final ZipFile zip;
+        final Map<String, ManifestRow> manifest;
+        final Map<String, MusicGenre> genresByName;
+        final MusicGenre defaultGenre;
+        /** Title/artist pairs already stored or claimed by an entry of this import */
+        final Set<String> seen;
+        final int total;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        
+        final List<PendingRow> pending = new ArrayList<>();
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger imported = new AtomicInteger();
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger errorCount = new AtomicInteger();
+        final Queue<MusicImportDto.EntryError> errors = new ConcurrentLinkedQueue<>();
+        
+        volatile Status status = Status.RUNNING;
+        volatile LocalDateTime finishedAt;
+        
+        ImportJob(UUID tenantId, Path spooled, ZipFile zip, Map<String, ManifestRow> manifest,
+                  Map<String, MusicGenre> genresByName, MusicGenre defaultGenre, Set<String> seen, int total) {
+            this.tenantId = tenantId;
+            this.spooled = spooled;
+            this.zip = zip;
+            this.manifest = manifest;
+            this.genresByName = genresByName;
+            this.defaultGenre = defaultGenre;
+            this.seen = seen;
+            this.total = total;
+        }
+    }
+}
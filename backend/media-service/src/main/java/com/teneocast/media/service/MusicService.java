@@ -1,5 +1,6 @@
 package com.teneocast.media.service;
 
+import com.teneocast.media.dto.CursorPage;
 import com.teneocast.media.dto.MusicDto;
 import com.teneocast.media.dto.MusicGenreDto;
 import com.teneocast.media.dto.UploadMusicRequest;
@@ -7,9 +8,11 @@ import com.teneocast.media.entity.Music;
 import com.teneocast.media.entity.MusicGenre;
 import com.teneocast.media.repository.MusicGenreRepository;
 import com.teneocast.media.repository.MusicRepository;
+import com.teneocast.media.repository.MusicSummary;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,10 +20,16 @@ import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpRange;
 import io.micrometer.core.annotation.Timed;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Counter;
@@ -33,7 +42,10 @@ public class MusicService {
     private final MusicRepository musicRepository;
     private final MusicGenreRepository musicGenreRepository;
     private final StorageService storageService;
-    private final MediaProcessingService mediaProcessingService;
+    private final UploadPipeline uploadPipeline;
+    private final ContentStore contentStore;
+    private final MediaProcessingQueue mediaProcessingQueue;
+    private final CatalogSearchService catalogSearchService;
     private final MeterRegistry meterRegistry;
     
     private Counter musicUploadCounter;
@@ -62,14 +74,10 @@ public class MusicService {
      * @return The created music DTO
      * @throws IOException If upload fails
      */
-    @Transactional
     @Timed(value = "music.upload", longTask = true)
     public MusicDto uploadMusic(MultipartFile file, UploadMusicRequest request, UUID tenantId) throws IOException {
         log.info("Uploading music file: name={}, tenant={}", file.getOriginalFilename(), tenantId);
         
-        // Validate file
-        mediaProcessingService.validateFile(file);
-        
         // Check if music already exists
         if (musicRepository.existsByTenantIdAndTitleAndArtist(tenantId, request.getTitle(), request.getArtist())) {
             throw new IllegalArgumentException("Music with this title and artist already exists for this tenant");
@@ -79,12 +87,8 @@ public class MusicService {
         MusicGenre genre = musicGenreRepository.findById(request.getGenreId())
                 .orElseThrow(() -> new IllegalArgumentException("Invalid genre ID: " + request.getGenreId()));
         
-        // Upload file to storage
-        String filePath = storageService.uploadFile(file, tenantId, "music");
-        
-        // Extract metadata
-        String metadata = mediaProcessingService.extractMetadata(file);
-        Integer duration = mediaProcessingService.getFileDuration(file);
+        // Validate, hash and store the file; no transaction is open while it goes to storage
+        ProcessedUpload upload = uploadPipeline.upload(file, tenantId, "music");
         
         // Create music entity
         Music music = Music.builder()
@@ -93,15 +97,25 @@ public class MusicService {
                 .title(request.getTitle())
                 .artist(request.getArtist())
                 .album(request.getAlbum())
-                .durationSeconds(duration)
-                .filePath(filePath)
-                .fileSize(file.getSize())
+                .filePath(upload.getFilePath())
+                .fileSize(upload.getSize())
+                .contentSha256(upload.getSha256())
                 .fileFormat(getFileExtension(file.getOriginalFilename()))
-                .metadata(metadata)
+                .processingStatus(mediaProcessingQueue.initialStatus())
                 .build();
         
         // Save to database
-        Music savedMusic = musicRepository.save(music);
+        Music savedMusic;
+        try {
+            savedMusic = musicRepository.save(music);
+        } catch (RuntimeException e) {
+            // Nothing references the stored content yet
+            contentStore.release(tenantId, upload.getFilePath(), upload.getSha256());
+            throw e;
+        }
+        
+        // Duration, bitrate and tags are filled in by the processing workers
+        mediaProcessingQueue.enqueue(MediaProcessingQueue.Kind.MUSIC, savedMusic.getId());
         
         // Increment metrics
         musicUploadCounter.increment();
@@ -152,6 +166,35 @@ public class MusicService {
         return musicPage.map(this::mapToDto);
     }
     
+    /**
+     * List a tenant's music newest first, a page at a time. Each page is one indexed query
+     * below the previous page's last ID, with the genre name joined in, and nothing is counted.
+     * @param tenantId Tenant ID
+     * @param genreId Only this genre, or null for all
+     * @param cursor Cursor from the previous page, or null for the first
+     * @param limit Page size
+     * @return Music DTOs without metadata, with the cursor for the next page
+     */
+    public CursorPage<MusicDto> listMusic(UUID tenantId, Long genreId, String cursor, int limit) {
+        long beforeId = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.pageSize(limit);
+        // One extra row tells whether there is another page
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<MusicSummary> rows = genreId != null
+                ? musicRepository.findSummariesByTenantIdAndGenreId(tenantId, genreId, beforeId, page)
+                : musicRepository.findSummariesByTenantId(tenantId, beforeId, page);
+        
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = KeysetCursor.encode(rows.get(pageSize - 1).id());
+        }
+        return CursorPage.<MusicDto>builder()
+                .items(rows.stream().map(this::mapSummaryToDto).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+    
     /**
      * Search music by tenant and search term
      * @param tenantId Tenant ID
@@ -164,6 +207,27 @@ public class MusicService {
         return musicPage.map(this::mapToDto);
     }
     
+    /**
+     * Ranked, indexed search of a tenant's music by title, artist and album
+     * @param tenantId Tenant ID
+     * @param query Words to search for; each matches as a prefix, and near misses still match
+     * @param cursor Cursor from the previous page, or null for the first
+     * @param limit Page size
+     * @return Best matches first, with the cursor for the next page
+     */
+    public CursorPage<MusicDto> searchMusic(UUID tenantId, String query, String cursor, int limit) {
+        CatalogSearchService.Hits hits = catalogSearchService.search(
+                CatalogSearchService.Catalog.MUSIC, tenantId, query, cursor, limit);
+        Map<Long, Music> rows = musicRepository.findAllWithGenreByIdIn(hits.ids()).stream()
+                .collect(Collectors.toMap(Music::getId, Function.identity()));
+        List<MusicDto> items = hits.ids().stream()
+                .map(rows::get)
+                .filter(Objects::nonNull)
+                .map(this::mapToDto)
+                .toList();
+        return CursorPage.<MusicDto>builder().items(items).nextCursor(hits.nextCursor()).build();
+    }
+    
     /**
      * Get all music for tenant (for player service)
      * @param tenantId Tenant ID
@@ -176,6 +240,23 @@ public class MusicService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Get music by ID for a tenant, e.g. the rows a sync reports as changed
+     * @param tenantId Tenant ID
+     * @param ids IDs to load; IDs of other tenants or deleted rows are left out
+     * @return Music DTOs in ascending ID order
+     */
+    public List<MusicDto> getMusicByIds(UUID tenantId, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return musicRepository.findAllWithGenreByIdIn(ids).stream()
+                .filter(row -> tenantId.equals(row.getTenantId()))
+                .sorted(Comparator.comparing(Music::getId))
+                .map(this::mapToDto)
+                .toList();
+    }
+    
     /**
      * Delete music file
      * @param id Music ID
@@ -192,8 +273,8 @@ public class MusicService {
             throw new IllegalArgumentException("Access denied to music from different tenant");
         }
         
-        // Delete from storage
-        storageService.deleteFile(music.getFilePath(), tenantId);
+        // Drop our reference; the file goes with the last one
+        contentStore.release(tenantId, music.getFilePath(), music.getContentSha256());
         
         // Delete from database
         musicRepository.delete(music);
@@ -238,7 +319,25 @@ public class MusicService {
         return storageService.getFileAsResource(music.getFilePath(), tenantId);
     }
     
+    /**
+     * Open a music file, or one byte range of it, for streaming
+     * @param music Music already resolved for the calling tenant
+     * @param range Requested byte range, or null for the whole file
+     * @return Open media stream; the caller must close it
+     * @throws IOException If the file cannot be opened
+     */
+    public MediaStream openMusicStream(MusicDto music, HttpRange range) throws IOException {
+        MediaStream stream = storageService.openStream(music.getFilePath(), music.getTenantId(), range);
+        
+        // Seeks and resumes are not counted as new downloads
+        if (stream.getStart() == 0) {
+            musicDownloadCounter.increment();
+        }
+        return stream;
+    }
+    
     private MusicDto mapToDto(Music music) {
+        DeliveryUrl deliveryUrl = storageService.getDeliveryUrl(music.getFilePath(), music.getTenantId());
         return MusicDto.builder()
                 .id(music.getId())
                 .tenantId(music.getTenantId())
@@ -253,8 +352,42 @@ public class MusicService {
                 .fileFormat(music.getFileFormat())
                 .bitrate(music.getBitrate())
                 .metadata(music.getMetadata())
+                .loudnessLufs(music.getLoudnessLufs())
+                .truePeakDbtp(music.getTruePeakDbtp())
+                .gainDb(music.getGainDb())
+                .processingStatus(music.getProcessingStatus())
+                .processingError(music.getProcessingError())
                 .createdAt(music.getCreatedAt())
                 .updatedAt(music.getUpdatedAt())
+                .audioUrl(deliveryUrl != null ? deliveryUrl.url() : null)
+                .audioUrlExpiresAt(deliveryUrl != null ? deliveryUrl.expiresAt() : null)
+                .build();
+    }
+    
+    MusicDto mapSummaryToDto(MusicSummary music) {
+        DeliveryUrl deliveryUrl = storageService.getDeliveryUrl(music.filePath(), music.tenantId());
+        return MusicDto.builder()
+                .id(music.id())
+                .tenantId(music.tenantId())
+                .genreId(music.genreId())
+                .genreName(music.genreName())
+                .title(music.title())
+                .artist(music.artist())
+                .album(music.album())
+                .durationSeconds(music.durationSeconds())
+                .filePath(music.filePath())
+                .fileSize(music.fileSize())
+                .fileFormat(music.fileFormat())
+                .bitrate(music.bitrate())
+                .loudnessLufs(music.loudnessLufs())
+                .truePeakDbtp(music.truePeakDbtp())
+                .gainDb(music.gainDb())
+                .processingStatus(music.processingStatus())
+                .processingError(music.processingError())
+                .createdAt(music.createdAt())
+                .updatedAt(music.updatedAt())
+                .audioUrl(deliveryUrl != null ? deliveryUrl.url() : null)
+                .audioUrlExpiresAt(deliveryUrl != null ? deliveryUrl.expiresAt() : null)
                 .build();
     }
     
@@ -0,0 +1,344 @@
+package com.teneocast.media.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.teneocast.media.dto.OfflineManifestDto;
+import com.teneocast.media.entity.Advertisement;
+import com.teneocast.media.entity.Music;
+import com.teneocast.media.entity.ProcessingStatus;
+import com.teneocast.media.repository.AdvertisementRepository;
+import com.teneocast.media.repository.MusicGenreRepository;
+import com.teneocast.media.repository.MusicRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Offline manifests: every playable track and ad of a tenant, optionally one genre's tracks only,
+ * with stable stream paths, serialised once and handed to every player of the tenant. Each
+ * manifest's ETag is a hash of its content, so polls are answered from memory and a player only
+ * downloads a manifest whose tracks or ads actually changed. A tenant's catalogue is read in full
+ * once; after that a scheduled refresh applies only the change log entries (V10) newer than the
+ * version it was built from, and re-renders the tenant's manifests.
+ */
+@Service
+@Slf4j
+public class OfflineManifestService {
+    
+    /** Manifests are keyed by genre; IDs start at 1, so this stands for the whole catalogue */
+    static final long ALL_GENRES = 0L;
+    
+    /** Changes read from the log per round trip while catching up */
+    static final int CHANGE_BATCH = 1000;
+    
+    /**
+     * A rendered manifest
+     * @param version Catalogue version it was built from
+     * @param etag Quoted content hash
+     * @param json The manifest as JSON
+     * @param gzip The same JSON, gzip-compressed
+     */
+    public record Manifest(long version, String etag, byte[] json, byte[] gzip) {
+    }
+    
+    private final CatalogSyncService catalogSyncService;
+    private final MusicRepository musicRepository;
+    private final AdvertisementRepository advertisementRepository;
+    private final MusicGenreRepository musicGenreRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration refreshInterval;
+    
+    private final Cache<UUID, TenantCatalog> tenants;
+    private final Timer buildTime;
+    private final Timer refreshTime;
+    
+    private ScheduledExecutorService scheduler;
+    
+    public OfflineManifestService(CatalogSyncService catalogSyncService,
+                                  MusicRepository musicRepository,
+                                  AdvertisementRepository advertisementRepository,
+                                  MusicGenreRepository musicGenreRepository,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${media.manifest.refresh-interval:5s}") Duration refreshInterval,
+                                  @Value("${media.manifest.idle-expiry:1h}") Duration idleExpiry,
+                                  @Value("${media.manifest.max-tenants:10000}") long maxTenants) {
+        this.catalogSyncService = catalogSyncService;
+        this.musicRepository = musicRepository;
+        this.advertisementRepository = advertisementRepository;
+        this.musicGenreRepository = musicGenreRepository;
+        this.objectMapper = objectMapper;
+        this.refreshInterval = refreshInterval;
+        // Tenants whose players stop polling are dropped and read in full again when they return
+        this.tenants = Caffeine.newBuilder()
+                .expireAfterAccess(idleExpiry)
+                .maximumSize(maxTenants)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, tenants, "media.manifest.tenants");
+        this.buildTime = meterRegistry.timer("media.manifest.build");
+        this.refreshTime = meterRegistry.timer("media.manifest.refresh");
+    }
+    
+    @PostConstruct
+    public void start() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "media-manifest-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly,
+                refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+    
+    /**
+     * The current manifest for a tenant, built on first request and kept up to date afterwards
+     * @param tenantId The tenant ID
+     * @param genreId Only tracks of this genre, or null for all
+     * @return The rendered manifest; identical content always has the same ETag
+     * @throws IllegalArgumentException If the genre does not exist
+     */
+    public Manifest getManifest(UUID tenantId, Long genreId) {
+        TenantCatalog catalog = tenants.get(tenantId, this::load);
+        long key = genreId != null ? genreId : ALL_GENRES;
+        Manifest manifest = catalog.manifests.get(key);
+        if (manifest == null) {
+            // Manifests are kept and refreshed per genre, so only real genres may add one
+            if (genreId != null && !musicGenreRepository.existsById(genreId)) {
+                throw new IllegalArgumentException("Invalid genre ID: " + genreId);
+            }
+            synchronized (catalog) {
+                manifest = catalog.manifests.computeIfAbsent(key, k -> render(catalog, genreId, null));
+            }
+        }
+        return manifest;
+    }
+    
+    /**
+     * Bring every cached tenant up to its latest catalogue version. One query finds the tenants
+     * that changed; each of those reads only its new change log entries.
+     */
+    void refresh() {
+        if (tenants.estimatedSize() == 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        Map<UUID, Long> versions = catalogSyncService.currentVersions();
+        for (TenantCatalog catalog : tenants.asMap().values()) {
+            long current = versions.getOrDefault(catalog.tenantId, 0L);
+            if (current == catalog.version) {
+                continue;
+            }
+            try {
+                update(catalog, current);
+            } catch (RuntimeException e) {
+                log.warn("Refreshing offline manifests failed: tenant={}, error={}", catalog.tenantId, e.getMessage());
+            }
+        }
+        refreshTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+    
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Refreshing offline manifests failed: {}", e.getMessage());
+        }
+    }
+    
+    private TenantCatalog load(UUID tenantId) {
+        long started = System.nanoTime();
+        TenantCatalog catalog = new TenantCatalog(tenantId);
+        synchronized (catalog) {
+            catchUp(catalog);
+        }
+        buildTime.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        log.info("Loaded offline manifest catalogue: tenant={}, version={}, music={}, advertisements={}",
+                tenantId, catalog.version, catalog.music.size(), catalog.advertisements.size());
+        return catalog;
+    }
+    
+    private void update(TenantCatalog catalog, long current) {
+        synchronized (catalog) {
+            if (current < catalog.version) {
+                // Versions never go back, so the database was replaced; start over
+                catalog.music.clear();
+                catalog.advertisements.clear();
+                catalog.version = 0;
+            }
+            catchUp(catalog);
+            catalog.manifests.replaceAll((key, previous) ->
+                    render(catalog, key == ALL_GENRES ? null : key, previous));
+        }
+    }
+    
+    /** Apply every change after the catalogue's version; the caller holds its lock */
+    private void catchUp(TenantCatalog catalog) {
+        List<CatalogSyncService.Change> changes;
+        do {
+            changes = catalogSyncService.changesSince(catalog.tenantId, catalog.version, CHANGE_BATCH);
+            if (changes.isEmpty()) {
+                break;
+            }
+            apply(catalog, changes);
+            catalog.version = changes.get(changes.size() - 1).version();
+        } while (changes.size() == CHANGE_BATCH);
+    }
+    
+    private void apply(TenantCatalog catalog, List<CatalogSyncService.Change> changes) {
+        Set<Long> changedMusic = new HashSet<>();
+        Set<Long> changedAdvertisements = new HashSet<>();
+        for (CatalogSyncService.Change change : changes) {
+            boolean music = change.catalog() == CatalogSearchService.Catalog.MUSIC;
+            // Everything changed is dropped first; what is still there is put back
+            (music ? catalog.music : catalog.advertisements).remove(change.itemId());
+            if (!change.deleted()) {
+                (music ? changedMusic : changedAdvertisements).add(change.itemId());
+            }
+        }
+        // Analysis only adds duration, tags and loudness; pending and failed files still play
+        if (!changedMusic.isEmpty()) {
+            for (Music music : musicRepository.findAllWithGenreByIdIn(changedMusic)) {
+                if (catalog.tenantId.equals(music.getTenantId())) {
+                    catalog.music.put(music.getId(), track(music));
+                }
+            }
+        }
+        if (!changedAdvertisements.isEmpty()) {
+            for (Advertisement advertisement : advertisementRepository.findAllWithAdTypeByIdIn(changedAdvertisements)) {
+                if (catalog.tenantId.equals(advertisement.getTenantId())) {
+                    catalog.advertisements.put(advertisement.getId(), ad(advertisement));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Serialise one manifest. If its tracks and ads hash the same as before, the previous
+     * rendering is kept, so players polling it keep getting 304s.
+     */
+    private Manifest render(TenantCatalog catalog, Long genreId, Manifest previous) {
+        List<OfflineManifestDto.Track> music = catalog.music.values().stream()
+                .filter(track -> genreId == null || genreId.equals(track.getGenreId()))
+                .toList();
+        List<OfflineManifestDto.Ad> advertisements = new ArrayList<>(catalog.advertisements.values());
+        try {
+            String contentHash = sha256(objectMapper.writeValueAsBytes(List.of(music, advertisements)));
+            String etag = "\"" + contentHash + "\"";
+            if (previous != null && previous.etag().equals(etag)) {
+                return previous;
+            }
+            byte[] json = objectMapper.writeValueAsBytes(OfflineManifestDto.builder()
+                    .tenantId(catalog.tenantId)
+                    .genreId(genreId)
+                    .version(catalog.version)
+                    .contentHash(contentHash)
+                    .generatedAt(LocalDateTime.now())
+                    .music(music)
+                    .advertisements(advertisements)
+                    .build());
+            return new Manifest(catalog.version, etag, json, gzip(json));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to render offline manifest", e);
+        }
+    }
+    
+    private static OfflineManifestDto.Track track(Music music) {
+        return OfflineManifestDto.Track.builder()
+                .id(music.getId())
+                .genreId(music.getGenre() != null ? music.getGenre().getId() : null)
+                .title(music.getTitle())
+                .artist(music.getArtist())
+                .album(music.getAlbum())
+                .durationSeconds(music.getDurationSeconds())
+                .fileSize(music.getFileSize())
+                .fileFormat(music.getFileFormat())
+                .contentSha256(music.getContentSha256())
+                .gainDb(music.getProcessingStatus() == ProcessingStatus.COMPLETED ? music.getGainDb() : null)
+                .path("/api/media/music/" + music.getId() + "/stream")
+                .build();
+    }
+    
+    private static OfflineManifestDto.Ad ad(Advertisement advertisement) {
+        return OfflineManifestDto.Ad.builder()
+                .id(advertisement.getId())
+                .adTypeId(advertisement.getAdType() != null ? advertisement.getAdType().getId() : null)
+                .name(advertisement.getName())
+                .targetAudience(advertisement.getTargetAudience())
+                .durationSeconds(advertisement.getDurationSeconds())
+                .fileSize(advertisement.getFileSize())
+                .fileFormat(advertisement.getFileFormat())
+                .contentSha256(advertisement.getContentSha256())
+                .gainDb(advertisement.getProcessingStatus() == ProcessingStatus.COMPLETED ? advertisement.getGainDb() : null)
+                .path("/api/media/ad/" + advertisement.getId() + "/stream")
+                .build();
+    }
+    
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            // 128 bits is plenty to tell one version of a manifest from another
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        }
+        return compressed.toByteArray();
+    }
+    
+    /** A tenant's playable catalogue as of {@link #version}; changed only under its own lock */
+    private static final class TenantCatalog {
+        
+        final UUID tenantId;
+        final NavigableMap<Long, OfflineManifestDto.Track> music = new TreeMap<>();
+        final NavigableMap<Long, OfflineManifestDto.Ad> advertisements = new TreeMap<>();
+        /** Rendered manifests by genre; read without the lock */
+        final Map<Long, Manifest> manifests = new ConcurrentHashMap<>();
+        volatile long version;
+        
+        TenantCatalog(UUID tenantId) {
+            this.tenantId = tenantId;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.teneocast.media.service;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Everything learned about an uploaded file in its single pass through the upload pipeline.
+ * Duration and tags come later, from {@link MediaProcessingQueue}.
+ */
+@Getter
+@Builder
+public class ProcessedUpload {
+    
+    private final String filePath;
+    
+    /** The tenant already had this content; filePath points at the existing copy */
+    private final boolean deduplicated;
+    
+    private final long size;
+    
+    /** Hex SHA-256 of the file content */
+    private final String sha256;
+    
+    private final String contentType;
+}
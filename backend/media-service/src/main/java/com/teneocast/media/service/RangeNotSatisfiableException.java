@@ -0,0 +1,19 @@
+package com.teneocast.media.service;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * The requested byte range does not overlap the stored file.
+ */
+@Getter
+public class RangeNotSatisfiableException extends IOException {
+    
+    private final long totalLength;
+    
+    public RangeNotSatisfiableException(String filePath, long totalLength) {
+        super("Requested range not satisfiable for " + filePath + " of " + totalLength + " bytes");
+        this.totalLength = totalLength;
+    }
+}
@@ -0,0 +1,178 @@
+package com.teneocast.media.service;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Streams an upload to S3 as a multipart upload, sending full parts in parallel while the
+ * next part fills. Memory stays at most {@code maxPartsInFlight + 1} part buffers whatever
+ * the file size. Objects smaller than one part go up as a single PutObject.
+ */
+@Slf4j
+class S3MultipartUploadSink extends UploadSink {
+    
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String key;
+    private final String contentType;
+    private final int partSize;
+    private final Executor executor;
+    private final Semaphore partsInFlight;
+    private final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+    
+    private byte[] buffer;
+    private int position;
+    private String uploadId;
+    
+    S3MultipartUploadSink(S3Client s3Client, String bucket, String key, String contentType,
+                          int partSize, int maxPartsInFlight, Executor executor) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.key = key;
+        this.contentType = contentType;
+        this.partSize = partSize;
+        this.executor = executor;
+        this.partsInFlight = new Semaphore(maxPartsInFlight);
+    }
+    
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (buffer == null) {
+                buffer = new byte[partSize];
+            }
+            int copied = Math.min(length, partSize - position);
+            System.arraycopy(bytes, offset, buffer, position, copied);
+            position += copied;
+            offset += copied;
+            length -= copied;
+            if (position == partSize) {
+                sendPart();
+            }
+        }
+    }
+    
+    @Override
+    protected String commit() throws IOException {
+        try {
+            if (uploadId == null) {
+                byte[] content = buffer != null ? buffer : new byte[0];
+                s3Client.putObject(PutObjectRequest.builder()
+                                .bucket(bucket)
+                                .key(key)
+                                .contentType(contentType)
+                                .contentLength((long) position)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(content, 0, position), position));
+                return key;
+            }
+            
+            if (position > 0) {
+                sendPart();
+            }
+            List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completedParts.add(part.join());
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+            log.debug("Completed multipart upload of {} in {} parts", key, completedParts.size());
+            return key;
+        } catch (CompletionException e) {
+            throw new IOException("Failed to upload part: " + e.getCause().getMessage(), e.getCause());
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to complete upload: " + e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    protected void abort() {
+        parts.forEach(part -> part.cancel(false));
+        if (uploadId != null) {
+            try {
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .build());
+            } catch (RuntimeException e) {
+                log.warn("Failed to abort multipart upload of {}: {}", key, e.getMessage());
+            }
+        }
+    }
+    
+    private void sendPart() throws IOException {
+        failIfAnyPartFailed();
+        if (uploadId == null) {
+            uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .contentType(contentType)
+                    .build()).uploadId();
+        }
+        
+        try {
+            // Backpressure: the reader waits here once enough parts are on the wire
+            partsInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading " + key);
+        }
+        
+        int partNumber = parts.size() + 1;
+        byte[] content = buffer;
+        int length = position;
+        buffer = null;
+        position = 0;
+        
+        parts.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) length)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(content, 0, length), length)).eTag();
+                return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+            } finally {
+                partsInFlight.release();
+            }
+        }, executor));
+    }
+    
+    private void failIfAnyPartFailed() throws IOException {
+        for (CompletableFuture<CompletedPart> part : parts) {
+            if (part.isCompletedExceptionally()) {
+                try {
+                    part.join();
+                } catch (CompletionException e) {
+                    throw new IOException("Failed to upload part: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        }
+    }
+}
@@ -10,12 +10,26 @@ import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpRange;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.util.unit.DataSize;
 import java.util.UUID;
 import com.teneocast.media.config.S3EnabledCondition;
 
@@ -25,6 +39,10 @@ import com.teneocast.media.config.S3EnabledCondition;
 public class S3StorageService implements StorageService {
     
     private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
+    private final boolean presignedDelivery;
+    private final Duration urlTtl;
+    private final Cache<String, DeliveryUrl> deliveryUrls;
     
     @Value("${aws.s3.bucket-prefix}")
     private String bucketPrefix;
@@ -32,8 +50,32 @@ public class S3StorageService implements StorageService {
     @Value("${aws.s3.endpoint}")
     private String endpoint;
     
-    public S3StorageService(S3Client s3Client) {
+    @Value("${media.upload.part-size:8MB}")
+    private DataSize partSize;
+    
+    @Value("${media.upload.parts-in-flight:4}")
+    private int partsInFlight;
+    
+    @Value("${media.upload.part-threads:16}")
+    private int partThreads;
+    
+    private ExecutorService partExecutor;
+    
+    public S3StorageService(S3Client s3Client,
+                            S3Presigner s3Presigner,
+                            @Value("${media.delivery.mode:presigned}") String deliveryMode,
+                            @Value("${media.delivery.url-ttl:15m}") Duration urlTtl,
+                            @Value("${media.delivery.refresh-before-expiry:2m}") Duration refreshBeforeExpiry,
+                            @Value("${media.delivery.max-cached-urls:100000}") long maxCachedUrls) {
         this.s3Client = s3Client;
+        this.s3Presigner = s3Presigner;
+        this.presignedDelivery = "presigned".equalsIgnoreCase(deliveryMode);
+        this.urlTtl = urlTtl;
+        // A URL is handed out again until shortly before it expires, so a player always gets time to use it
+        this.deliveryUrls = Caffeine.newBuilder()
+                .expireAfterWrite(urlTtl.minus(refreshBeforeExpiry))
+                .maximumSize(maxCachedUrls)
+                .build();
     }
     
     @Override
@@ -66,6 +108,35 @@ public class S3StorageService implements StorageService {
         }
     }
     
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.partExecutor = Executors.newFixedThreadPool(partThreads, runnable -> {
+            Thread thread = new Thread(runnable, "s3-upload-part-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (partExecutor != null) {
+            partExecutor.shutdown();
+        }
+    }
+    
+    @Override
+    public UploadSink openUpload(UUID tenantId, String folder, String originalFilename, String contentType) throws IOException {
+        try {
+            String bucketName = getBucketName(tenantId);
+            ensureBucketExists(bucketName);
+            return new S3MultipartUploadSink(s3Client, bucketName, generateFileKey(tenantId, folder, originalFilename),
+                    contentType, (int) partSize.toBytes(), partsInFlight, partExecutor);
+        } catch (Exception e) {
+            throw new IOException("Failed to start upload: " + e.getMessage(), e);
+        }
+    }
+    
     @Override
     public void deleteFile(String filePath, UUID tenantId) throws IOException {
         try {
@@ -77,6 +148,7 @@ public class S3StorageService implements StorageService {
                     .build();
             
             s3Client.deleteObject(deleteObjectRequest);
+            deliveryUrls.invalidate(tenantId + "/" + filePath);
             log.info("File deleted successfully: bucket={}, key={}", bucketName, filePath);
             
         } catch (Exception e) {
@@ -87,8 +159,34 @@ public class S3StorageService implements StorageService {
     
     @Override
     public String getFileUrl(String filePath) {
-        // For MinIO, construct the URL manually
-        return endpoint + "/" + bucketPrefix + "/" + filePath;
+        // Keys start with the tenant ID, which selects the tenant bucket
+        int separator = filePath.indexOf('/');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("File path does not start with a tenant ID: " + filePath);
+        }
+        String tenantId = filePath.substring(0, separator);
+        return endpoint + "/" + bucketPrefix + "-" + tenantId + "/" + filePath;
+    }
+    
+    @Override
+    public DeliveryUrl getDeliveryUrl(String filePath, UUID tenantId) {
+        if (!presignedDelivery || filePath == null) {
+            return null;
+        }
+        return deliveryUrls.get(tenantId + "/" + filePath, key -> presign(filePath, tenantId));
+    }
+    
+    private DeliveryUrl presign(String filePath, UUID tenantId) {
+        // Signing is local: no request to S3 is made
+        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+                .signatureDuration(urlTtl)
+                .getObjectRequest(GetObjectRequest.builder()
+                        .bucket(getBucketName(tenantId))
+                        .key(filePath)
+                        .build())
+                .build();
+        PresignedGetObjectRequest presigned = s3Presigner.presignGetObject(presignRequest);
+        return new DeliveryUrl(presigned.url().toString(), presigned.expiration());
     }
     
     @Override
@@ -135,22 +233,89 @@ public class S3StorageService implements StorageService {
 
     @Override
     public Resource getFileAsResource(String filePath, UUID tenantId) throws IOException {
+        MediaStream stream = openStream(filePath, tenantId, null);
+        return new InputStreamResource(stream.getInputStream()) {
+            @Override
+            public long contentLength() {
+                return stream.getTotalLength();
+            }
+        };
+    }
+    
+    @Override
+    public MediaStream openStream(String filePath, UUID tenantId, HttpRange range) throws IOException {
+        String bucketName = getBucketName(tenantId);
         try {
-            String bucketName = getBucketName(tenantId);
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+            GetObjectRequest.Builder getObjectRequest = GetObjectRequest.builder()
                     .bucket(bucketName)
-                    .key(filePath)
-                    .build();
-
-            ResponseInputStream<GetObjectResponse> responseInputStream = s3Client.getObject(getObjectRequest);
-            byte[] content = responseInputStream.readAllBytes();
-            return new ByteArrayResource(content);
+                    .key(filePath);
+            if (range != null) {
+                // HttpRange renders as "first-last", "first-" or "-suffix", the same syntax S3 accepts
+                getObjectRequest.range("bytes=" + range);
+            }
+            
+            ResponseInputStream<GetObjectResponse> responseInputStream = s3Client.getObject(getObjectRequest.build());
+            GetObjectResponse response = responseInputStream.response();
+            
+            MediaStream.MediaStreamBuilder stream = MediaStream.builder()
+                    .inputStream(responseInputStream)
+                    .eTag(response.eTag());
+            
+            String contentRange = response.contentRange();
+            if (contentRange != null && contentRange.startsWith("bytes ")) {
+                // bytes <first>-<last>/<total>
+                String[] parts = contentRange.substring("bytes ".length()).split("[-/]");
+                stream.start(Long.parseLong(parts[0]))
+                        .end(Long.parseLong(parts[1]))
+                        .totalLength(Long.parseLong(parts[2]))
+                        .partial(true);
+            } else {
+                long length = response.contentLength();
+                stream.start(0).end(length - 1).totalLength(length).partial(false);
+            }
+            return stream.build();
+            
+        } catch (S3Exception e) {
+            if (e.statusCode() == 416) {
+                throw new RangeNotSatisfiableException(filePath, headObject(bucketName, filePath).contentLength());
+            }
+            log.error("Error opening file stream: {}", filePath, e);
+            throw new IOException("Failed to open file stream: " + e.getMessage(), e);
+        } catch (Exception e) {
+            log.error("Error opening file stream: {}", filePath, e);
+            throw new IOException("Failed to open file stream: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Get the current ETag of an object without downloading it
+     * @param filePath The object key
+     * @param tenantId The tenant ID for bucket resolution
+     * @return The ETag, or null if the object no longer exists
+     * @throws IOException If S3 cannot be reached
+     */
+    public String getETag(String filePath, UUID tenantId) throws IOException {
+        try {
+            return headObject(getBucketName(tenantId), filePath).eTag();
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw new IOException("Failed to read object metadata: " + e.getMessage(), e);
         } catch (Exception e) {
-            log.error("Error getting file as resource: {}", filePath, e);
-            throw new IOException("Failed to get file as resource: " + e.getMessage(), e);
+            throw new IOException("Failed to read object metadata: " + e.getMessage(), e);
         }
     }
     
+    private HeadObjectResponse headObject(String bucketName, String key) {
+        return s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+    
     private String getBucketName(UUID tenantId) {
         return bucketPrefix + "-" + tenantId.toString();
     }
@@ -5,6 +5,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.util.UUID;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpRange;
 
 public interface StorageService {
     
@@ -18,6 +19,17 @@ public interface StorageService {
      */
     String uploadFile(MultipartFile file, UUID tenantId, String folder) throws IOException;
     
+    /**
+     * Start a streaming upload; nothing is buffered beyond what the storage needs per request
+     * @param tenantId The tenant ID for isolation
+     * @param folder The folder path within tenant storage
+     * @param originalFilename The uploaded file name, used to name the stored file
+     * @param contentType The content type to store
+     * @return Sink to write the file to; complete it to commit, close it to discard
+     * @throws IOException If the upload cannot be started
+     */
+    UploadSink openUpload(UUID tenantId, String folder, String originalFilename, String contentType) throws IOException;
+    
     /**
      * Delete a file from storage
      * @param filePath The file path to delete
@@ -55,4 +67,23 @@ public interface StorageService {
      * @throws IOException If retrieval fails
      */
     Resource getFileAsResource(String filePath, UUID tenantId) throws IOException;
+    
+    /**
+     * Open a file, or one byte range of it, for streaming without buffering it in memory
+     * @param filePath The file path
+     * @param tenantId The tenant ID for validation
+     * @param range The requested byte range, or null for the whole file
+     * @return Open stream positioned at the start of the range; the caller must close it
+     * @throws RangeNotSatisfiableException If the range lies outside the file
+     * @throws IOException If retrieval fails
+     */
+    MediaStream openStream(String filePath, UUID tenantId, HttpRange range) throws IOException;
+    
+    /**
+     * Get a URL players can fetch the file from directly, taking this service out of the data path
+     * @param filePath The file path
+     * @param tenantId The tenant ID for bucket resolution
+     * @return Direct delivery URL, or null when files must be streamed through this service
+     */
+    DeliveryUrl getDeliveryUrl(String filePath, UUID tenantId);
 }
@@ -0,0 +1,10 @@
+package com.teneocast.media.service;
+
+/**
+ * Where uploaded content ended up in storage.
+ *
+ * @param filePath Storage path shared by every reference to the same content
+ * @param deduplicated Whether the content was already stored for the tenant and the upload was discarded
+ */
+public record StoredContent(String filePath, boolean deduplicated) {
+}
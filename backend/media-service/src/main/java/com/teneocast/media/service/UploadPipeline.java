@@ -0,0 +1,105 @@
+package com.teneocast.media.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-pass upload: the request body is read once, and every byte is hashed on its way to
+ * storage. Only the type-sniffing head is held in memory, so the file is rejected before
+ * anything is stored. Audio analysis happens afterwards, in {@link MediaProcessingQueue}.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UploadPipeline {
+    
+    /** Enough for Tika's magic-byte detection of every audio format we accept */
+    static final int SNIFF_BYTES = 64 * 1024;
+    
+    private final StorageService storageService;
+    private final ContentStore contentStore;
+    private final MediaProcessingService mediaProcessingService;
+    private final MeterRegistry meterRegistry;
+    
+    /**
+     * Validate, hash and store an uploaded file in one read of its content
+     * @param file The uploaded file
+     * @param tenantId The tenant ID for isolation
+     * @param folder The folder path within tenant storage
+     * @return Stored path, size and hash; the path is shared if the tenant already stored the same content
+     * @throws IllegalArgumentException If the file is empty, too large or not audio
+     * @throws IOException If reading or storing fails
+     */
+    public ProcessedUpload upload(MultipartFile file, UUID tenantId, String folder) throws IOException {
+        mediaProcessingService.validateSize(file);
+        try (InputStream source = file.getInputStream()) {
+            return store(source, file.getOriginalFilename(), tenantId, folder);
+        }
+    }
+    
+    /**
+     * Validate, hash and store a file that did not arrive as a multipart upload, such as an
+     * entry of an import archive
+     * @param source The file content, from its first byte; not closed
+     * @param filename The file name, used for type detection and the stored extension
+     * @param size The declared file size
+     * @param tenantId The tenant ID for isolation
+     * @param folder The folder path within tenant storage
+     * @return Stored path, size and hash; the path is shared if the tenant already stored the same content
+     * @throws IllegalArgumentException If the file is empty, too large or not audio
+     * @throws IOException If reading or storing fails
+     */
+    public ProcessedUpload upload(InputStream source, String filename, long size, UUID tenantId, String folder) throws IOException {
+        mediaProcessingService.validateSize(size);
+        return store(source, filename, tenantId, folder);
+    }
+    
+    private ProcessedUpload store(InputStream source, String filename, UUID tenantId, String folder) throws IOException {
+        long started = System.nanoTime();
+        byte[] head = source.readNBytes(SNIFF_BYTES);
+        String contentType = mediaProcessingService.detectFileType(head, filename);
+        mediaProcessingService.validateType(filename, contentType);
+        
+        MessageDigest sha256 = sha256();
+        try (UploadSink sink = storageService.openUpload(tenantId, folder, filename, contentType)) {
+            InputStream content = new SequenceInputStream(new ByteArrayInputStream(head), source);
+            long size = new DigestInputStream(content, sha256).transferTo(sink);
+            
+            String sha256Hex = HexFormat.of().formatHex(sha256.digest());
+            StoredContent stored = contentStore.store(tenantId, sha256Hex, size, sink);
+            meterRegistry.timer("media.upload.pipeline", "folder", folder)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            meterRegistry.counter("media.upload.bytes", "folder", folder).increment(size);
+            
+            return ProcessedUpload.builder()
+                    .filePath(stored.filePath())
+                    .deduplicated(stored.deduplicated())
+                    .size(size)
+                    .sha256(sha256Hex)
+                    .contentType(contentType)
+                    .build();
+        }
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
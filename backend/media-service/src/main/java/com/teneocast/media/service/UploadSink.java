@@ -0,0 +1,41 @@
+package com.teneocast.media.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Destination of a streaming upload. Bytes are passed on to storage as they are written;
+ * {@link #complete()} commits the object, and closing an uncompleted sink discards it.
+ */
+public abstract class UploadSink extends OutputStream {
+    
+    private boolean completed;
+    
+    /**
+     * Commit everything written so far as the stored object
+     * @return The file path in storage
+     * @throws IOException If the object cannot be committed
+     */
+    public final String complete() throws IOException {
+        String filePath = commit();
+        completed = true;
+        return filePath;
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+    
+    @Override
+    public final void close() throws IOException {
+        if (!completed) {
+            completed = true;
+            abort();
+        }
+    }
+    
+    protected abstract String commit() throws IOException;
+    
+    protected abstract void abort() throws IOException;
+}
@@ -0,0 +1,18 @@
+-- Content-addressed storage: one stored object per tenant and SHA-256, shared by
+-- every music and advertisement row with the same bytes
+CREATE TABLE media.stored_objects (
+    id BIGSERIAL PRIMARY KEY,
+    tenant_id UUID NOT NULL,
+    sha256 VARCHAR(64) NOT NULL,
+    file_path VARCHAR(500) NOT NULL,
+    file_size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL DEFAULT 1,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uq_media_stored_objects_tenant_sha256 UNIQUE (tenant_id, sha256)
+);
+
+CREATE INDEX idx_media_stored_objects_tenant_file_path ON media.stored_objects(tenant_id, file_path);
+
+ALTER TABLE media.music ADD COLUMN content_sha256 VARCHAR(64);
+ALTER TABLE media.advertisements ADD COLUMN content_sha256 VARCHAR(64);
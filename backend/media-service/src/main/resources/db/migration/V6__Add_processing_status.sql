@@ -0,0 +1,12 @@
+-- Audio analysis runs asynchronously after upload; rows uploaded before this are already analysed
+ALTER TABLE media.music ADD COLUMN processing_status VARCHAR(20) NOT NULL DEFAULT 'COMPLETED';
+ALTER TABLE media.music ADD COLUMN processing_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE media.music ADD COLUMN processing_error TEXT;
+
+ALTER TABLE media.advertisements ADD COLUMN bitrate INTEGER;
+ALTER TABLE media.advertisements ADD COLUMN processing_status VARCHAR(20) NOT NULL DEFAULT 'COMPLETED';
+ALTER TABLE media.advertisements ADD COLUMN processing_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE media.advertisements ADD COLUMN processing_error TEXT;
+
+CREATE INDEX idx_media_music_processing_status ON media.music(processing_status);
+CREATE INDEX idx_media_advertisements_processing_status ON media.advertisements(processing_status);
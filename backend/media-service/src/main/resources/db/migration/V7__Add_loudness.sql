@@ -0,0 +1,12 @@
+-- EBU R128 integrated loudness, true peak and the normalisation gain, measured by the processing workers
+ALTER TABLE media.music ADD COLUMN loudness_lufs DOUBLE PRECISION;
+ALTER TABLE media.music ADD COLUMN true_peak_dbtp DOUBLE PRECISION;
+ALTER TABLE media.music ADD COLUMN gain_db DOUBLE PRECISION;
+
+ALTER TABLE media.advertisements ADD COLUMN loudness_lufs DOUBLE PRECISION;
+ALTER TABLE media.advertisements ADD COLUMN true_peak_dbtp DOUBLE PRECISION;
+ALTER TABLE media.advertisements ADD COLUMN gain_db DOUBLE PRECISION;
+
+-- Queue the existing catalogue; the sweep feeds it to the workers as the queue has room
+UPDATE media.music SET processing_status = 'PENDING' WHERE processing_status = 'COMPLETED';
+UPDATE media.advertisements SET processing_status = 'PENDING' WHERE processing_status = 'COMPLETED';
@@ -0,0 +1,9 @@
+-- Cursor-paged listings walk these newest first and stop after one page, however deep it is
+CREATE INDEX idx_media_music_tenant_id_id ON media.music(tenant_id, id DESC);
+CREATE INDEX idx_media_music_tenant_genre_id ON media.music(tenant_id, genre_id, id DESC);
+CREATE INDEX idx_media_advertisements_tenant_id_id ON media.advertisements(tenant_id, id DESC);
+CREATE INDEX idx_media_advertisements_tenant_type_id ON media.advertisements(tenant_id, ad_type_id, id DESC);
+
+-- Superseded by the composite indexes above, which lead with the same column
+DROP INDEX IF EXISTS media.idx_media_music_tenant_id;
+DROP INDEX IF EXISTS media.idx_media_advertisements_tenant_id;
@@ -0,0 +1,78 @@
+-- Change log for offline players: one row per music or advertisement row, carrying the tenant
+-- version of its latest insert, update or delete. Players ask for versions above the last one
+-- they saw, so a reconnect reads only what changed through (tenant_id, version).
+CREATE TABLE media.catalog_versions (
+    tenant_id UUID PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+CREATE TABLE media.catalog_changes (
+    tenant_id UUID NOT NULL,
+    catalog VARCHAR(20) NOT NULL,
+    item_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    changed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (tenant_id, catalog, item_id)
+);
+
+CREATE INDEX idx_media_catalog_changes_tenant_version ON media.catalog_changes(tenant_id, version);
+
+-- Rows that exist already are the first versions of each tenant
+INSERT INTO media.catalog_changes (tenant_id, catalog, item_id, version, deleted, changed_at)
+SELECT tenant_id, catalog, id,
+       ROW_NUMBER() OVER (PARTITION BY tenant_id ORDER BY changed_at, catalog, id),
+       FALSE, changed_at
+FROM (
+    SELECT tenant_id, 'MUSIC' AS catalog, id, COALESCE(updated_at, created_at, CURRENT_TIMESTAMP) AS changed_at FROM media.music
+    UNION ALL
+    SELECT tenant_id, 'ADVERTISEMENT', id, COALESCE(updated_at, created_at, CURRENT_TIMESTAMP) FROM media.advertisements
+) existing;
+
+INSERT INTO media.catalog_versions (tenant_id, version)
+SELECT tenant_id, MAX(version) FROM media.catalog_changes GROUP BY tenant_id;
+
+-- A trigger rather than application code, so JPA saves, batch imports and manual fixes are all logged
+CREATE OR REPLACE FUNCTION media.record_catalog_change() RETURNS TRIGGER AS $$
+DECLARE
+    row_tenant UUID;
+    row_id BIGINT;
+    next_version BIGINT;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        row_tenant := OLD.tenant_id;
+        row_id := OLD.id;
+    ELSE
+        row_tenant := NEW.tenant_id;
+        row_id := NEW.id;
+    END IF;
+
+    -- The counter row stays locked until commit, so a tenant's versions become visible in
+    -- order and a player never skips past a version that commits later
+    INSERT INTO media.catalog_versions AS v (tenant_id, version) VALUES (row_tenant, 1)
+    ON CONFLICT (tenant_id) DO UPDATE SET version = v.version + 1
+    RETURNING v.version INTO next_version;
+
+    -- Only the latest change per row is kept, so the log never outgrows the catalogue plus tombstones
+    INSERT INTO media.catalog_changes AS c (tenant_id, catalog, item_id, version, deleted, changed_at)
+    VALUES (row_tenant, TG_ARGV[0], row_id, next_version, TG_OP = 'DELETE', CURRENT_TIMESTAMP)
+    ON CONFLICT (tenant_id, catalog, item_id) DO UPDATE
+        SET version = EXCLUDED.version, deleted = EXCLUDED.deleted, changed_at = EXCLUDED.changed_at;
+
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_media_music_changes
+    AFTER INSERT OR DELETE ON media.music
+    FOR EACH ROW EXECUTE FUNCTION media.record_catalog_change('MUSIC');
+CREATE TRIGGER trg_media_music_updates
+    AFTER UPDATE ON media.music
+    FOR EACH ROW WHEN (OLD.* IS DISTINCT FROM NEW.*) EXECUTE FUNCTION media.record_catalog_change('MUSIC');
+
+CREATE TRIGGER trg_media_advertisements_changes
+    AFTER INSERT OR DELETE ON media.advertisements
+    FOR EACH ROW EXECUTE FUNCTION media.record_catalog_change('ADVERTISEMENT');
+CREATE TRIGGER trg_media_advertisements_updates
+    AFTER UPDATE ON media.advertisements
+    FOR EACH ROW WHEN (OLD.* IS DISTINCT FROM NEW.*) EXECUTE FUNCTION media.record_catalog_change('ADVERTISEMENT');
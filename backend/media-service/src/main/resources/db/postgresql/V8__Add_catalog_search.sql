@@ -0,0 +1,28 @@
+-- Indexed catalogue search: word prefixes through tsvector, typos through trigrams
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+-- Lets tenant_id lead the GIN indexes, so each search only touches one tenant's entries
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+-- Generated columns stay in step with every insert, update and delete without application code
+ALTER TABLE media.music ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(artist, '')), 'B') ||
+    setweight(to_tsvector('simple', coalesce(album, '')), 'C')) STORED;
+ALTER TABLE media.music ADD COLUMN search_text TEXT GENERATED ALWAYS AS (
+    lower(title || ' ' || coalesce(artist, '') || ' ' || coalesce(album, ''))) STORED;
+
+ALTER TABLE media.advertisements ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(description, '')), 'C')) STORED;
+ALTER TABLE media.advertisements ADD COLUMN search_text TEXT GENERATED ALWAYS AS (
+    lower(name || ' ' || coalesce(description, ''))) STORED;
+
+CREATE INDEX idx_media_music_search_vector ON media.music USING GIN (tenant_id, search_vector);
+CREATE INDEX idx_media_music_search_text ON media.music USING GIN (tenant_id, search_text gin_trgm_ops);
+CREATE INDEX idx_media_advertisements_search_vector ON media.advertisements USING GIN (tenant_id, search_vector);
+CREATE INDEX idx_media_advertisements_search_text ON media.advertisements USING GIN (tenant_id, search_text gin_trgm_ops);
+
+-- The list endpoints' LOWER(...) LIKE '%term%' filters can use these instead of scanning
+CREATE INDEX idx_media_music_title_trgm ON media.music USING GIN (tenant_id, lower(title) gin_trgm_ops);
+CREATE INDEX idx_media_music_artist_trgm ON media.music USING GIN (tenant_id, lower(artist) gin_trgm_ops);
+CREATE INDEX idx_media_advertisements_name_trgm ON media.advertisements USING GIN (tenant_id, lower(name) gin_trgm_ops);
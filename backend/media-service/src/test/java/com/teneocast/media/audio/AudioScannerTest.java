@@ -0,0 +1,219 @@
+package com.teneocast.media.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioScannerTest {
+
+    private final AudioScanner scanner = new AudioScanner();
+
+    @Test
+    void testCbrMp3IsWalkedFrameByFrame() throws Exception {
+        // When
+        AudioInfo info = scan("cbr.mp3");
+
+        // Then
+        assertEquals("mp3", info.getFormat());
+        assertEquals(3600, info.getDurationMillis());
+        assertEquals(32, info.getBitrateKbps());
+        assertEquals(32000, info.getSampleRate());
+        assertEquals(1, info.getChannels());
+        assertFalse(info.isVariableBitrate());
+        assertEquals("Morning Jingle", info.getTags().get(AudioInfo.TITLE));
+        assertEquals("Studio Band", info.getTags().get(AudioInfo.ARTIST));
+        assertEquals("Idents", info.getTags().get(AudioInfo.ALBUM));
+    }
+
+    @Test
+    void testVbrMp3UsesXingFrameCount() throws Exception {
+        // When
+        AudioInfo info = scan("vbr-xing.mp3");
+
+        // Then
+        assertEquals(1800, info.getDurationMillis());
+        assertEquals(49, info.getBitrateKbps());
+        assertTrue(info.isVariableBitrate());
+    }
+
+    @Test
+    void testVbrMp3UsesVbriFrameCount() throws Exception {
+        // When
+        AudioInfo info = scan("vbr-vbri.mp3");
+
+        // Then
+        assertEquals(1440, info.getDurationMillis());
+        assertEquals(64, info.getBitrateKbps());
+    }
+
+    @Test
+    void testWavDurationComesFromDataChunk() throws Exception {
+        // When
+        AudioInfo info = scan("tone.wav");
+
+        // Then
+        assertEquals("wav", info.getFormat());
+        assertEquals(2000, info.getDurationMillis());
+        assertEquals(64, info.getBitrateKbps());
+        assertEquals(8000, info.getSampleRate());
+        assertEquals("Station ID", info.getTags().get(AudioInfo.TITLE));
+    }
+
+    @Test
+    void testOggVorbisDurationComesFromLastGranule() throws Exception {
+        // When
+        AudioInfo info = scan("tone.ogg");
+
+        // Then
+        assertEquals("vorbis", info.getFormat());
+        assertEquals(3000, info.getDurationMillis());
+        assertEquals(44100, info.getSampleRate());
+        assertEquals(2, info.getChannels());
+        assertEquals("Ad Break", info.getTags().get(AudioInfo.TITLE));
+        assertEquals("Teneo", info.getTags().get(AudioInfo.ARTIST));
+    }
+
+    @Test
+    void testOpusDurationAccountsForPreSkip() throws Exception {
+        // When
+        AudioInfo info = scan("tone.opus");
+
+        // Then
+        assertEquals("opus", info.getFormat());
+        assertEquals(2500, info.getDurationMillis());
+        assertEquals("Promo", info.getTags().get(AudioInfo.TITLE));
+        assertEquals("Spots", info.getTags().get(AudioInfo.ALBUM));
+    }
+
+    @Test
+    void testM4aDurationComesFromAudioTrackHeader() throws Exception {
+        // When
+        AudioInfo info = scan("tone.m4a");
+
+        // Then
+        assertEquals("mp4", info.getFormat());
+        assertEquals(4000, info.getDurationMillis());
+        assertEquals(44100, info.getSampleRate());
+        assertEquals(2, info.getChannels());
+        assertEquals("Jingle Long", info.getTags().get(AudioInfo.TITLE));
+        assertEquals("Teneo Studio", info.getTags().get(AudioInfo.ARTIST));
+    }
+
+    @Test
+    void testM4aWithMoovAfterMediaDataIsFound() throws Exception {
+        // When
+        AudioInfo info = scan("moov-at-end.m4a");
+
+        // Then
+        assertEquals(4000, info.getDurationMillis());
+        assertEquals("Jingle Long", info.getTags().get(AudioInfo.TITLE));
+    }
+
+    @Test
+    void testAdtsFramesAreCounted() throws Exception {
+        // When
+        AudioInfo info = scan("tone.aac");
+
+        // Then
+        assertEquals("aac", info.getFormat());
+        assertEquals(1996, info.getDurationMillis());
+        assertEquals(2, info.getDurationSeconds());
+        assertEquals(44100, info.getSampleRate());
+        assertEquals(2, info.getChannels());
+    }
+
+    @Test
+    void testMediaDataIsSkippedNotRead() throws Exception {
+        // Given
+        byte[] bytes = fixture("moov-at-end.m4a");
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(bytes));
+
+        // When
+        Optional<AudioInfo> info = scanner.scan(in, bytes.length);
+
+        // Then
+        assertTrue(info.isPresent());
+        assertTrue(in.read < 16 * 1024, "read " + in.read + " of " + bytes.length + " bytes");
+    }
+
+    @Test
+    void testTruncatedFileIsNotRecognised() throws Exception {
+        // Given
+        byte[] bytes = Arrays.copyOf(fixture("tone.m4a"), 100);
+
+        // When
+        Optional<AudioInfo> info = scanner.scan(new ByteArrayInputStream(bytes), 64542);
+
+        // Then
+        assertTrue(info.isEmpty());
+    }
+
+    @Test
+    void testUnknownDataIsNotRecognised() throws Exception {
+        // When
+        Optional<AudioInfo> info = scanner.scan(new ByteArrayInputStream("test audio content".getBytes()), 18);
+
+        // Then
+        assertTrue(info.isEmpty());
+    }
+
+    @Test
+    void testReadFailurePropagates() {
+        // Given
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        };
+
+        // When / Then
+        assertThrows(IOException.class, () -> scanner.scan(failing, 1000));
+    }
+
+    private AudioInfo scan(String name) throws IOException {
+        byte[] bytes = fixture(name);
+        return scanner.scan(new ByteArrayInputStream(bytes), bytes.length).orElseThrow();
+    }
+
+    private byte[] fixture(String name) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/audio/" + name)) {
+            assertNotNull(in, name);
+            return in.readAllBytes();
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long read;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                read++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.teneocast.media.audio;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoudnessAnalyzerTest {
+
+    private final LoudnessAnalyzer analyzer = new LoudnessAnalyzer(-18, -1);
+
+    @Test
+    void testWavIsDecodedAndNormalisedToTarget() throws Exception {
+        // Given
+        byte[] wav = sineWav(-23, 5);
+
+        // When
+        Loudness loudness = analyzer.analyse(new ByteArrayInputStream(wav)).orElseThrow();
+
+        // Then
+        assertEquals(-23.0, loudness.getIntegratedLufs(), 0.1);
+        assertEquals(-23.0, loudness.getTruePeakDbtp(), 0.2);
+        assertEquals(5.0, loudness.getGainDb(), 0.1);
+    }
+
+    @Test
+    void testGainIsCappedByPeakCeiling() throws Exception {
+        // Given
+        LoudnessAnalyzer loudTarget = new LoudnessAnalyzer(0, -1);
+        byte[] wav = sineWav(-6, 2);
+
+        // When
+        Loudness loudness = loudTarget.analyse(new ByteArrayInputStream(wav)).orElseThrow();
+
+        // Then
+        // Reaching 0 LUFS takes +6 dB, but the peak may only rise from -6 to -1 dBTP
+        assertEquals(-6.0, loudness.getIntegratedLufs(), 0.1);
+        assertEquals(5.0, loudness.getGainDb(), 0.2);
+    }
+
+    @Test
+    void testSilentFileHasNoGain() throws Exception {
+        // Given
+        try (InputStream fixture = getClass().getResourceAsStream("/audio/tone.wav")) {
+            // When
+            Loudness loudness = analyzer.analyse(fixture).orElseThrow();
+
+            // Then
+            assertNull(loudness.getIntegratedLufs());
+            assertNull(loudness.getGainDb());
+        }
+    }
+
+    @Test
+    void testUndecodableDataIsNotMeasured() throws Exception {
+        // When
+        Optional<Loudness> loudness = analyzer.analyse(new ByteArrayInputStream(new byte[256 * 1024]));
+
+        // Then
+        assertTrue(loudness.isEmpty());
+    }
+
+    @Test
+    void testReadFailurePropagates() throws Exception {
+        // Given
+        InputStream failing = new SequenceInputStream(new ByteArrayInputStream(sineWav(-23, 1), 0, 1000), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+
+        // When / Then
+        assertThrows(IOException.class, () -> analyzer.analyse(failing));
+    }
+
+    private byte[] sineWav(double dbfs, int seconds) throws IOException {
+        int rate = 44100;
+        int frames = rate * seconds;
+        double amplitude = Math.pow(10, dbfs / 20) * 32767;
+        byte[] pcm = new byte[frames * 4];
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) Math.round(amplitude * Math.sin(2 * Math.PI * 1000 * i / rate));
+            for (int channel = 0; channel < 2; channel++) {
+                pcm[4 * i + 2 * channel] = (byte) sample;
+                pcm[4 * i + 2 * channel + 1] = (byte) (sample >> 8);
+            }
+        }
+        AudioFormat format = new AudioFormat(rate, 16, 2, true, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, frames), AudioFileFormat.Type.WAVE, out);
+        return out.toByteArray();
+    }
+}
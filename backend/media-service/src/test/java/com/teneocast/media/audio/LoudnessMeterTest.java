@@ -0,0 +1,99 @@
+package com.teneocast.media.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cases from EBU Tech 3341, which allow ±0.1 LU.
+ */
+class LoudnessMeterTest {
+
+    private static final int RATE = 48000;
+
+    @Test
+    void testSineAtMinus23dbfsMeasuresMinus23Lufs() {
+        // Given
+        LoudnessMeter meter = new LoudnessMeter(RATE, 2);
+
+        // When
+        sine(meter, 1000, -23, 20, 0);
+
+        // Then
+        assertEquals(-23.0, meter.getIntegratedLoudness(), 0.1);
+        assertEquals(-23.0, meter.getTruePeak(), 0.2);
+    }
+
+    @Test
+    void testQuietPassagesAreGatedOut() {
+        // Given
+        LoudnessMeter meter = new LoudnessMeter(RATE, 2);
+
+        // When
+        sine(meter, 1000, -72, 10, 0);
+        sine(meter, 1000, -36, 10, 0);
+        sine(meter, 1000, -23, 60, 0);
+        sine(meter, 1000, -36, 10, 0);
+        sine(meter, 1000, -72, 10, 0);
+
+        // Then
+        assertEquals(-23.0, meter.getIntegratedLoudness(), 0.1);
+    }
+
+    @Test
+    void testRelativeGateKeepsPassagesWithin10Lu() {
+        // Given
+        LoudnessMeter meter = new LoudnessMeter(RATE, 2);
+
+        // When
+        sine(meter, 1000, -26, 20, 0);
+        sine(meter, 1000, -20, 20.1, 0);
+        sine(meter, 1000, -26, 20, 0);
+
+        // Then
+        assertEquals(-23.0, meter.getIntegratedLoudness(), 0.1);
+    }
+
+    @Test
+    void testTruePeakFindsInterSamplePeaks() {
+        // Given
+        LoudnessMeter meter = new LoudnessMeter(RATE, 2);
+
+        // When
+        // Samples of a quarter-rate sine at 45° land at ±0.707 of its amplitude
+        sine(meter, RATE / 4.0, 0, 1, Math.PI / 4);
+
+        // Then
+        assertEquals(0.0, meter.getTruePeak(), 0.2);
+    }
+
+    @Test
+    void testSilenceHasNoLoudness() {
+        // Given
+        LoudnessMeter meter = new LoudnessMeter(RATE, 2);
+
+        // When
+        meter.process(new float[2 * RATE], RATE);
+
+        // Then
+        assertNull(meter.getIntegratedLoudness());
+        assertNull(meter.getTruePeak());
+    }
+
+    private void sine(LoudnessMeter meter, double frequency, double dbfs, double seconds, double phase) {
+        double amplitude = Math.pow(10, dbfs / 20);
+        int total = (int) (RATE * seconds);
+        float[] buffer = new float[2 * 1024];
+        int frames = 0;
+        for (int i = 0; i < total; i++) {
+            float sample = (float) (amplitude * Math.sin(2 * Math.PI * frequency * i / RATE + phase));
+            buffer[2 * frames] = sample;
+            buffer[2 * frames + 1] = sample;
+            if (++frames == 1024) {
+                meter.process(buffer, frames);
+                frames = 0;
+            }
+        }
+        meter.process(buffer, frames);
+    }
+}
@@ -0,0 +1,59 @@
+package com.teneocast.media.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportResponsesTest {
+
+    @Test
+    void testAcceptsGzip() {
+        assertFalse(ExportResponses.acceptsGzip(null));
+        assertFalse(ExportResponses.acceptsGzip("br, deflate"));
+        assertFalse(ExportResponses.acceptsGzip("gzip;q=0, br"));
+        assertTrue(ExportResponses.acceptsGzip("deflate, GZIP"));
+        assertTrue(ExportResponses.acceptsGzip("br;q=1.0, gzip; q=0.8"));
+    }
+
+    @Test
+    void testGzipExportResponse() throws IOException {
+        // Given
+        String lines = "{\"id\":1}\n{\"id\":2}\n";
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = ExportResponses.ndjson("gzip", "music.ndjson",
+                out -> out.write(lines.getBytes(StandardCharsets.UTF_8)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Then
+        assertEquals(ExportResponses.NDJSON, response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaders().getFirst(HttpHeaders.VARY));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(lines, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testPlainExportResponse() throws IOException {
+        // When
+        ResponseEntity<StreamingResponseBody> response = ExportResponses.ndjson(null, "music.ndjson",
+                out -> out.write('x'));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Then
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("x", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,82 @@
+package com.teneocast.media.controller;
+
+import com.teneocast.media.service.MediaStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaStreamResponsesTest {
+
+    @Test
+    void testParseRange() {
+        assertNull(MediaStreamResponses.parseRange(null));
+        assertNull(MediaStreamResponses.parseRange("bytes=oops"));
+        assertNull(MediaStreamResponses.parseRange("bytes=0-1,5-6"));
+        assertEquals(HttpRange.createByteRange(5, 9), MediaStreamResponses.parseRange("bytes=5-9"));
+    }
+
+    @Test
+    void testPartialStreamResponse() throws IOException {
+        // Given
+        MediaStream stream = MediaStream.builder()
+                .inputStream(new ByteArrayInputStream("2345".getBytes()))
+                .start(2).end(5).totalLength(10).partial(true).eTag("\"a-1\"")
+                .build();
+        
+        // When
+        ResponseEntity<StreamingResponseBody> response =
+                MediaStreamResponses.stream(new MockHttpServletRequest(), stream, "audio/mp3", null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 2-5/10", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getHeaders().getContentLength());
+        assertEquals("\"a-1\"", response.getHeaders().getETag());
+        assertEquals("2345", out.toString());
+    }
+
+    @Test
+    void testLocalFileIsHandedToSendfileWhenSupported() throws IOException {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(MediaStreamResponses.SENDFILE_SUPPORT, Boolean.TRUE);
+        MediaStream stream = MediaStream.builder()
+                .inputStream(new ByteArrayInputStream(new byte[0]))
+                .file(Path.of("/media/track.mp3"))
+                .start(100).end(199).totalLength(1000).partial(true)
+                .build();
+        
+        // When
+        ResponseEntity<StreamingResponseBody> response = MediaStreamResponses.stream(request, stream, "audio/mp3", null);
+        
+        // Then
+        assertNull(response.getBody());
+        assertEquals(100, response.getHeaders().getContentLength());
+        assertEquals("/media/track.mp3", request.getAttribute(MediaStreamResponses.SENDFILE_FILENAME));
+        assertEquals(100L, request.getAttribute(MediaStreamResponses.SENDFILE_START));
+        assertEquals(200L, request.getAttribute(MediaStreamResponses.SENDFILE_END));
+    }
+
+    @Test
+    void testRangeNotSatisfiable() {
+        // When
+        ResponseEntity<Void> response = MediaStreamResponses.rangeNotSatisfiable(1000);
+        
+        // Then
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+}
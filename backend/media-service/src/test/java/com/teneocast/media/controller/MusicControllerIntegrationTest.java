@@ -2,6 +2,7 @@ package com.teneocast.media.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.teneocast.media.dto.MusicDto;
+import com.teneocast.media.entity.Music;
 import com.teneocast.media.entity.MusicGenre;
 import com.teneocast.media.repository.MusicGenreRepository;
 import com.teneocast.media.repository.MusicRepository;
@@ -14,12 +15,14 @@ import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
@@ -109,6 +112,112 @@ class MusicControllerIntegrationTest {
                 .andExpect(jsonPath("$.success").value(true));
     }
 
+    @Test
+    void testListMusic_PagesNewestFirstWithCursor() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            musicRepository.save(Music.builder()
+                    .tenantId(testTenantId)
+                    .genre(testGenre)
+                    .title("Track " + i)
+                    .artist("The Band")
+                    .filePath("music/track-" + i + ".mp3")
+                    .fileSize(1024L)
+                    .metadata("{}")
+                    .build());
+        }
+
+        String firstPage = mockMvc.perform(get("/api/media/music/list")
+                .header("X-Tenant-ID", testTenantId.toString())
+                .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items.length()").value(2))
+                .andExpect(jsonPath("$.data.items[0].title").value("Track 3"))
+                .andExpect(jsonPath("$.data.items[1].title").value("Track 2"))
+                .andExpect(jsonPath("$.data.items[0].genreName").value(testGenre.getName()))
+                .andExpect(jsonPath("$.data.items[0].metadata").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(firstPage).path("data").path("nextCursor").asText();
+
+        mockMvc.perform(get("/api/media/music/list")
+                .header("X-Tenant-ID", testTenantId.toString())
+                .param("limit", "2")
+                .param("genreId", testGenre.getId().toString())
+                .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items.length()").value(1))
+                .andExpect(jsonPath("$.data.items[0].title").value("Track 1"))
+                .andExpect(jsonPath("$.data.nextCursor").doesNotExist());
+
+        mockMvc.perform(get("/api/media/music/list")
+                .header("X-Tenant-ID", testTenantId.toString())
+                .param("cursor", "%%%"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testSearchMusic_PagesWithCursor() throws Exception {
+        for (String title : new String[]{"Sunrise", "Sunset Drive", "Midnight"}) {
+            musicRepository.save(Music.builder()
+                    .tenantId(testTenantId)
+                    .genre(testGenre)
+                    .title(title)
+                    .artist("The Band")
+                    .filePath("music/" + title + ".mp3")
+                    .fileSize(1024L)
+                    .build());
+        }
+
+        String firstPage = mockMvc.perform(get("/api/media/music/search")
+                .header("X-Tenant-ID", testTenantId.toString())
+                .param("q", "SUN")
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items.length()").value(1))
+                .andExpect(jsonPath("$.data.items[0].title").value("Sunset Drive"))
+                .andExpect(jsonPath("$.data.items[0].genreName").value(testGenre.getName()))
+                .andExpect(jsonPath("$.data.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(firstPage).path("data").path("nextCursor").asText();
+
+        mockMvc.perform(get("/api/media/music/search")
+                .header("X-Tenant-ID", testTenantId.toString())
+                .param("q", "SUN")
+                .param("limit", "1")
+                .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.items[0].title").value("Sunrise"))
+                .andExpect(jsonPath("$.data.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void testExportMusic_WritesOneLinePerTrack() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            musicRepository.save(Music.builder()
+                    .tenantId(testTenantId)
+                    .genre(testGenre)
+                    .title("Track " + i)
+                    .artist("The Band")
+                    .filePath("music/track-" + i + ".mp3")
+                    .fileSize(1024L)
+                    .build());
+        }
+
+        MvcResult started = mockMvc.perform(get("/api/media/music/export")
+                .header("X-Tenant-ID", testTenantId.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("Track 1", objectMapper.readTree(lines[0]).path("title").asText());
+        assertEquals(testGenre.getName(), objectMapper.readTree(lines[2]).path("genreName").asText());
+        assertEquals("Track 3", objectMapper.readTree(lines[2]).path("title").asText());
+    }
+
     @Test
     void testGetAllMusicByTenant_Empty() throws Exception {
         mockMvc.perform(get("/api/media/music/all")
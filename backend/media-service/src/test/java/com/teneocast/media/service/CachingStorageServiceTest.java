@@ -0,0 +1,269 @@
+package com.teneocast.media.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpRange;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CachingStorageServiceTest {
+
+    @Mock
+    private S3StorageService s3StorageService;
+
+    @TempDir
+    Path cacheDir;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CachingStorageService cachingStorageService;
+
+    private final UUID tenantId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        cachingStorageService = create(DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+        when(s3StorageService.openStream(anyString(), eq(tenantId), isNull()))
+                .thenAnswer(invocation -> s3Object("0123456789", "\"v1\""));
+        when(s3StorageService.getETag(anyString(), eq(tenantId))).thenReturn("\"v1\"");
+    }
+
+    @AfterEach
+    void tearDown() {
+        cachingStorageService.shutdown();
+    }
+
+    @Test
+    void testMissFetchesOnceAndHitsServeFromDisk() throws IOException {
+        // When
+        String first = read(cachingStorageService.openStream("music/a.mp3", tenantId, null));
+        String second = read(cachingStorageService.openStream("music/a.mp3", tenantId, null));
+
+        // Then
+        assertEquals("0123456789", first);
+        assertEquals("0123456789", second);
+        verify(s3StorageService, times(1)).openStream("music/a.mp3", tenantId, null);
+        assertEquals(10.0, meterRegistry.counter("media.storage.cache.fetched.bytes").count());
+    }
+
+    @Test
+    void testRangeIsServedFromCachedCopy() throws IOException {
+        // Given
+        read(cachingStorageService.openStream("music/a.mp3", tenantId, null));
+
+        // When
+        MediaStream stream = cachingStorageService.openStream("music/a.mp3", tenantId, HttpRange.createByteRange(4, 6));
+
+        // Then
+        assertTrue(stream.isPartial());
+        assertEquals("bytes 4-6/10", stream.getContentRange());
+        assertEquals("\"v1\"", stream.getETag());
+        assertNull(stream.getFile());
+        assertEquals("456", read(stream));
+        verify(s3StorageService, never()).openStream(anyString(), eq(tenantId), notNull());
+    }
+
+    @Test
+    void testColdRangeIsServedFromS3WhileCopyIsFilled() throws IOException {
+        // Given
+        HttpRange range = HttpRange.createByteRange(4, 6);
+        when(s3StorageService.openStream("music/a.mp3", tenantId, range)).thenReturn(MediaStream.builder()
+                .inputStream(new ByteArrayInputStream("456".getBytes()))
+                .start(4)
+                .end(6)
+                .totalLength(10)
+                .partial(true)
+                .build());
+
+        // When
+        String ranged = read(cachingStorageService.openStream("music/a.mp3", tenantId, range));
+
+        // Then
+        assertEquals("456", ranged);
+        verify(s3StorageService, timeout(5000)).openStream("music/a.mp3", tenantId, null);
+        assertEquals("0123456789", read(cachingStorageService.openStream("music/a.mp3", tenantId, null)));
+        assertEquals("456", read(cachingStorageService.openStream("music/a.mp3", tenantId, range)));
+        verify(s3StorageService, times(1)).openStream("music/a.mp3", tenantId, range);
+        verify(s3StorageService, times(1)).openStream("music/a.mp3", tenantId, null);
+    }
+
+    @Test
+    void testStartupRemovesOnlyCachedFiles() throws IOException {
+        // Given
+        cachingStorageService.shutdown();
+        Files.writeString(cacheDir.resolve("stale.media"), "old");
+        Files.writeString(cacheDir.resolve("unrelated.txt"), "keep");
+
+        // When
+        cachingStorageService = create(DataSize.ofMegabytes(1), Duration.ofMinutes(1));
+
+        // Then
+        assertFalse(Files.exists(cacheDir.resolve("stale.media")));
+        assertTrue(Files.exists(cacheDir.resolve("unrelated.txt")));
+    }
+
+    @Test
+    void testOpenStreamSurvivesEvictionOfItsFile() throws IOException {
+        // Given
+        read(cachingStorageService.openStream("music/a.mp3", tenantId, null));
+        MediaStream stream = cachingStorageService.openStream("music/a.mp3", tenantId, null);
+
+        // When
+        cachingStorageService.deleteFile("music/a.mp3", tenantId);
+
+        // Then
+        assertEquals(0, cachedFiles());
+        assertEquals("0123456789", read(stream));
+    }
+
+    @Test
+    void testConcurrentMissesShareOneDownload() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        when(s3StorageService.openStream(eq("ads/campaign.mp3"), eq(tenantId), isNull())).thenAnswer(invocation -> {
+            release.await();
+            return s3Object("campaign", "\"c1\"");
+        });
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 8; i++) {
+            results.add(clients.submit(() -> read(cachingStorageService.openStream("ads/campaign.mp3", tenantId, null))));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        // Then
+        for (Future<String> result : results) {
+            assertEquals("campaign", result.get());
+        }
+        verify(s3StorageService, times(1)).openStream("ads/campaign.mp3", tenantId, null);
+        clients.shutdown();
+    }
+
+    @Test
+    void testChangedETagFetchesAgain() throws IOException {
+        // Given
+        cachingStorageService.shutdown();
+        cachingStorageService = create(DataSize.ofMegabytes(1), Duration.ZERO);
+        read(cachingStorageService.openStream("music/a.mp3", tenantId, null));
+        when(s3StorageService.getETag("music/a.mp3", tenantId)).thenReturn("\"v2\"");
+        when(s3StorageService.openStream(eq("music/a.mp3"), eq(tenantId), isNull()))
+                .thenAnswer(invocation -> s3Object("new content", "\"v2\""));
+
+        // When
+        MediaStream stream = cachingStorageService.openStream("music/a.mp3", tenantId, null);
+
+        // Then
+        assertEquals("\"v2\"", stream.getETag());
+        assertEquals("new content", read(stream));
+        assertEquals(1.0, meterRegistry.counter("media.storage.cache.revalidations", "result", "changed").count());
+        assertEquals(1, cachedFiles());
+    }
+
+    @Test
+    void testUnreachableS3ServesCachedCopy() throws IOException {
+        // Given
+        cachingStorageService.shutdown();
+        cachingStorageService = create(DataSize.ofMegabytes(1), Duration.ZERO);
+        read(cachingStorageService.openStream("music/a.mp3", tenantId, null));
+        when(s3StorageService.getETag("music/a.mp3", tenantId)).thenThrow(new IOException("connection refused"));
+
+        // When
+        String content = read(cachingStorageService.openStream("music/a.mp3", tenantId, null));
+
+        // Then
+        assertEquals("0123456789", content);
+        assertEquals(1.0, meterRegistry.counter("media.storage.cache.revalidations", "result", "failed").count());
+    }
+
+    @Test
+    void testSizeBoundEvictsAndDeletesFiles() throws IOException {
+        // Given
+        cachingStorageService.shutdown();
+        cachingStorageService = create(DataSize.ofBytes(25), Duration.ofMinutes(1));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            read(cachingStorageService.openStream("music/" + i + ".mp3", tenantId, null));
+        }
+        cachingStorageService.cleanUp();
+
+        // Then
+        assertTrue(cachedFiles() <= 2);
+        assertTrue(meterRegistry.counter("media.storage.cache.evictions", "cause", "size").count() >= 3);
+        assertTrue(meterRegistry.counter("media.storage.cache.evicted.bytes").count() >= 30);
+    }
+
+    @Test
+    void testDeleteFileRemovesCachedCopy() throws IOException {
+        // Given
+        read(cachingStorageService.openStream("music/a.mp3", tenantId, null));
+
+        // When
+        cachingStorageService.deleteFile("music/a.mp3", tenantId);
+
+        // Then
+        verify(s3StorageService).deleteFile("music/a.mp3", tenantId);
+        assertEquals(0, cachedFiles());
+    }
+
+    private CachingStorageService create(DataSize maxSize, Duration revalidateAfter) throws IOException {
+        return new CachingStorageService(s3StorageService, meterRegistry, cacheDir.toString(), maxSize, revalidateAfter, 4);
+    }
+
+    private MediaStream s3Object(String content, String eTag) {
+        byte[] bytes = content.getBytes();
+        return MediaStream.builder()
+                .inputStream(new ByteArrayInputStream(bytes))
+                .start(0)
+                .end(bytes.length - 1)
+                .totalLength(bytes.length)
+                .eTag(eTag)
+                .build();
+    }
+
+    private long cachedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            return files.count();
+        }
+    }
+
+    private String read(MediaStream stream) throws IOException {
+        try (stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            stream.writeTo(out);
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.teneocast.media.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the Postgres-only migrations and exercises the change log backfill and triggers (V10)
+ * for real; skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CatalogChangeLogPostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private CatalogSyncService syncService;
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final UUID otherTenantId = UUID.randomUUID();
+
+    @BeforeAll
+    static void migrateAll() {
+        migrate(POSTGRES.getJdbcUrl(), null);
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+    }
+
+    @BeforeEach
+    void setUp() {
+        syncService = new CatalogSyncService(jdbcTemplate, mock(MusicService.class),
+                mock(AdvertisementService.class), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testInsertsUpdatesAndDeletesTakeTheTenantsNextVersion() {
+        // Given
+        long first = insertMusic(tenantId, "Sunrise");
+        long second = insertMusic(tenantId, "Moonlight");
+        insertMusic(otherTenantId, "Elsewhere");
+
+        // When
+        jdbcTemplate.update("UPDATE media.music SET title = 'Sunrise (Live)' WHERE id = ?", first);
+        jdbcTemplate.update("UPDATE media.music SET title = title WHERE id = ?", second);
+        jdbcTemplate.update("DELETE FROM media.music WHERE id = ?", second);
+
+        // Then
+        assertEquals(4L, syncService.currentVersion(tenantId));
+        assertEquals(1L, syncService.currentVersion(otherTenantId));
+        assertEquals(4L, syncService.currentVersions().get(tenantId));
+
+        List<CatalogSyncService.Change> changes = syncService.changesSince(tenantId, 0, 100);
+        assertEquals(2, changes.size());
+        assertEquals(new CatalogSyncService.Change(CatalogSearchService.Catalog.MUSIC, first, 3, false), changes.get(0));
+        assertEquals(new CatalogSyncService.Change(CatalogSearchService.Catalog.MUSIC, second, 4, true), changes.get(1));
+        assertEquals(List.of(changes.get(1)), syncService.changesSince(tenantId, 3, 100));
+    }
+
+    @Test
+    void testAdvertisementsShareTheTenantsVersions() {
+        // Given
+        long music = insertMusic(tenantId, "Jingle Bed");
+
+        // When
+        Long ad = jdbcTemplate.queryForObject("INSERT INTO media.advertisements (tenant_id, name, file_path, file_size) "
+                + "VALUES (?, 'Spring Sale', 'ads/sale.mp3', 1024) RETURNING id", Long.class, tenantId);
+
+        // Then
+        List<CatalogSyncService.Change> changes = syncService.changesSince(tenantId, 0, 100);
+        assertEquals(List.of(
+                new CatalogSyncService.Change(CatalogSearchService.Catalog.MUSIC, music, 1, false),
+                new CatalogSyncService.Change(CatalogSearchService.Catalog.ADVERTISEMENT, ad, 2, false)), changes);
+    }
+
+    @Test
+    void testExistingRowsAreBackfilledAsFirstVersions() {
+        // Given: a catalogue that predates the change log
+        jdbcTemplate.execute("CREATE DATABASE backfill");
+        String url = jdbcUrl("backfill");
+        migrate(url, "9");
+        JdbcTemplate backfill = new JdbcTemplate(new DriverManagerDataSource(url, POSTGRES.getUsername(), POSTGRES.getPassword()));
+        backfill.update("INSERT INTO media.music (tenant_id, title, file_path, file_size, updated_at) "
+                + "VALUES (?, 'Old', 'music/old.mp3', 1, TIMESTAMP '2020-01-01 00:00:00')", tenantId);
+        backfill.update("INSERT INTO media.advertisements (tenant_id, name, file_path, file_size, updated_at) "
+                + "VALUES (?, 'Older Ad', 'ads/old.mp3', 1, TIMESTAMP '2019-01-01 00:00:00')", tenantId);
+        backfill.update("INSERT INTO media.music (tenant_id, title, file_path, file_size) "
+                + "VALUES (?, 'Elsewhere', 'music/elsewhere.mp3', 1)", otherTenantId);
+
+        // When
+        migrate(url, null);
+        CatalogSyncService backfilled = new CatalogSyncService(backfill, mock(MusicService.class),
+                mock(AdvertisementService.class), new SimpleMeterRegistry());
+        backfill.update("UPDATE media.music SET title = 'Old (Remastered)' WHERE tenant_id = ?", tenantId);
+
+        // Then
+        List<CatalogSyncService.Change> changes = backfilled.changesSince(tenantId, 0, 100);
+        assertEquals(2, changes.size());
+        assertEquals(CatalogSearchService.Catalog.ADVERTISEMENT, changes.get(0).catalog());
+        assertEquals(1L, changes.get(0).version());
+        assertEquals(CatalogSearchService.Catalog.MUSIC, changes.get(1).catalog());
+        assertEquals(3L, changes.get(1).version());
+        assertEquals(3L, backfilled.currentVersion(tenantId));
+        assertEquals(1L, backfilled.currentVersion(otherTenantId));
+    }
+
+    private static void migrate(String url, String target) {
+        var configuration = Flyway.configure()
+                .dataSource(url, POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration", "classpath:db/postgresql");
+        if (target != null) {
+            configuration.target(target);
+        }
+        configuration.load().migrate();
+    }
+
+    private static String jdbcUrl(String database) {
+        return "jdbc:postgresql://" + POSTGRES.getHost() + ":"
+                + POSTGRES.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + database;
+    }
+
+    private long insertMusic(UUID tenant, String title) {
+        return jdbcTemplate.queryForObject("INSERT INTO media.music (tenant_id, title, file_path, file_size) "
+                + "VALUES (?, ?, ?, 2048) RETURNING id", Long.class, tenant, title, "music/" + title + ".mp3");
+    }
+}
@@ -0,0 +1,141 @@
+package com.teneocast.media.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Postgres-only migrations and searches through the generated columns and
+ * indexes of V8 for real; skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CatalogSearchPostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15");
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private CatalogSearchService searchService;
+
+    private final UUID tenantId = UUID.randomUUID();
+    private final UUID otherTenantId = UUID.randomUUID();
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration", "classpath:db/postgresql")
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword()));
+    }
+
+    @BeforeEach
+    void setUp() {
+        searchService = new CatalogSearchService(jdbcTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testPrefixesMatchAnyColumnAndTitlesRankFirst() {
+        // Given
+        long title = insertMusic(tenantId, "Dancing Queen", "ABBA", "Arrival");
+        long artist = insertMusic(tenantId, "Bohemian Rhapsody", "Queen", "A Night at the Opera");
+        insertMusic(tenantId, "Waterloo", "ABBA", "Waterloo");
+        insertMusic(otherTenantId, "Killer Queen", "Queen", "Sheer Heart Attack");
+
+        // When
+        CatalogSearchService.Hits hits = searchService.search(CatalogSearchService.Catalog.MUSIC, tenantId, "que", null, 10);
+        CatalogSearchService.Hits words = searchService.search(CatalogSearchService.Catalog.MUSIC, tenantId, "queen danc", null, 10);
+
+        // Then
+        assertEquals(List.of(title, artist), hits.ids());
+        assertNull(hits.nextCursor());
+        assertEquals(List.of(title), words.ids());
+    }
+
+    @Test
+    void testTyposMatchOnTrigramSimilarity() {
+        // Given
+        long beatles = insertMusic(tenantId, "Let It Be", "The Beatles", "Let It Be");
+        insertMusic(tenantId, "Heroes", "David Bowie", "Heroes");
+
+        // When
+        CatalogSearchService.Hits hits = searchService.search(CatalogSearchService.Catalog.MUSIC, tenantId, "beatls", null, 10);
+
+        // Then
+        assertEquals(List.of(beatles), hits.ids());
+    }
+
+    @Test
+    void testGeneratedColumnsFollowUpdates() {
+        // Given
+        long id = insertMusic(tenantId, "Untitled", "Unknown", null);
+
+        // When
+        jdbcTemplate.update("UPDATE media.music SET title = 'Midnight City', artist = 'M83' WHERE id = ?", id);
+
+        // Then
+        assertEquals(List.of(id), searchService.search(CatalogSearchService.Catalog.MUSIC, tenantId, "midnight", null, 10).ids());
+        assertTrue(searchService.search(CatalogSearchService.Catalog.MUSIC, tenantId, "untitled", null, 10).ids().isEmpty());
+    }
+
+    @Test
+    void testCursorPagesThroughEqualRanksWithoutRepeats() {
+        // Given
+        List<Long> inserted = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            inserted.add(insertMusic(tenantId, "Summer Mix", "DJ", null));
+        }
+
+        // When
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CatalogSearchService.Hits page = searchService.search(CatalogSearchService.Catalog.MUSIC, tenantId, "summer", cursor, 2);
+            seen.addAll(page.ids());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        Collections.reverse(inserted);
+        assertEquals(3, pages);
+        assertEquals(inserted, seen);
+    }
+
+    @Test
+    void testAdvertisementsSearchNameAndDescription() {
+        // Given
+        Long ad = jdbcTemplate.queryForObject("INSERT INTO media.advertisements (tenant_id, name, description, file_path, file_size) "
+                + "VALUES (?, 'Spring Sale', 'Half price garden furniture', 'ads/sale.mp3', 1024) RETURNING id", Long.class, tenantId);
+
+        // When
+        CatalogSearchService.Hits hits = searchService.search(CatalogSearchService.Catalog.ADVERTISEMENT, tenantId, "garden", null, 10);
+
+        // Then
+        assertEquals(List.of(ad), hits.ids());
+    }
+
+    private long insertMusic(UUID tenant, String title, String artist, String album) {
+        return jdbcTemplate.queryForObject("INSERT INTO media.music (tenant_id, title, artist, album, file_path, file_size) "
+                + "VALUES (?, ?, ?, ?, ?, 2048) RETURNING id", Long.class, tenant, title, artist, album,
+                "music/" + UUID.randomUUID() + ".mp3");
+    }
+}
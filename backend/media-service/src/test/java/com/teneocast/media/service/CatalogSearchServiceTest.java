@@ -0,0 +1,128 @@
+package com.teneocast.media.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CatalogSearchServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private CatalogSearchService searchService;
+
+    private final UUID tenantId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        searchService = new CatalogSearchService(jdbcTemplate, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testQueryWordsBecomeSanitisedPrefixes() {
+        // Given
+        List<String> words = CatalogSearchService.words("  Dancing QUEEN's (live) & 'remix':* | !");
+
+        // When
+        String query = CatalogSearchService.prefixQuery(words);
+
+        // Then
+        assertEquals(List.of("dancing", "queen", "s", "live", "remix"), words);
+        assertEquals("dancing:* & queen:* & s:* & live:* & remix:*", query);
+        assertTrue(CatalogSearchService.words(" ?! ").isEmpty());
+    }
+
+    @Test
+    void testRankedSearchPagesByRankAndId() throws Exception {
+        // Given
+        indexed(true);
+        rows(List.of(new long[]{9, 75}, new long[]{4, 75}, new long[]{12, 50}));
+
+        // When
+        CatalogSearchService.Hits first = searchService.search(CatalogSearchService.Catalog.MUSIC, tenantId, "sun", null, 2);
+        searchService.search(CatalogSearchService.Catalog.MUSIC, tenantId, "sun", first.nextCursor(), 2);
+
+        // Then
+        assertEquals(List.of(9L, 4L), first.ids());
+        CatalogSearchService.Hit cursor = CatalogSearchService.decodeCursor(first.nextCursor());
+        assertEquals(4L, cursor.id());
+        assertEquals(0.75, cursor.rank());
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(2)).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertTrue(sql.getAllValues().get(0).contains("search_vector @@"));
+        assertFalse(sql.getAllValues().get(0).contains("rank < ?"));
+        assertArrayEquals(new Object[]{"sun", "sun:*", tenantId, "sun", 3}, args.getAllValues().get(0));
+        assertTrue(sql.getAllValues().get(1).contains("WHERE rank < ? OR (rank = ? AND id < ?)"));
+        assertArrayEquals(new Object[]{"sun", "sun:*", tenantId, "sun", 0.75, 0.75, 4L, 3}, args.getAllValues().get(1));
+    }
+
+    @Test
+    void testWithoutSearchColumnsFallsBackToSubstringMatch() throws Exception {
+        // Given
+        indexed(false);
+        rows(List.of(new long[]{3, 0}));
+
+        // When
+        CatalogSearchService.Hits hits = searchService.search(CatalogSearchService.Catalog.ADVERTISEMENT, tenantId, "50%", null, 20);
+
+        // Then
+        assertEquals(List.of(3L), hits.ids());
+        assertNull(hits.nextCursor());
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), args.capture());
+        assertTrue(sql.getValue().contains("LOWER(name) LIKE ? OR LOWER(description) LIKE ?"));
+        assertArrayEquals(new Object[]{tenantId, "%50%", "%50%", 21}, args.getValue());
+    }
+
+    @Test
+    void testBlankQueryAndBadCursor() {
+        // When / Then
+        assertTrue(searchService.search(CatalogSearchService.Catalog.MUSIC, tenantId, " ", null, 20).ids().isEmpty());
+        verifyNoInteractions(jdbcTemplate);
+        assertThrows(IllegalArgumentException.class,
+                () -> searchService.search(CatalogSearchService.Catalog.MUSIC, tenantId, "sun", "not-a-cursor", 20));
+    }
+
+    private void indexed(boolean indexed) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(indexed ? 1 : 0);
+    }
+
+    private void rows(List<long[]> rows) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+            RowMapper<?> mapper = invocation.getArgument(1);
+            // Varargs arrive expanded; the page limit is always the last argument
+            Object[] args = invocation.getArguments();
+            int limit = (Integer) args[args.length - 1];
+            List<Object> mapped = new ArrayList<>();
+            for (long[] row : rows.subList(0, Math.min(limit, rows.size()))) {
+                ResultSet resultSet = mock(ResultSet.class);
+                when(resultSet.getLong("id")).thenReturn(row[0]);
+                when(resultSet.getDouble("rank")).thenReturn(row[1] / 100.0);
+                mapped.add(mapper.mapRow(resultSet, mapped.size()));
+            }
+            return mapped;
+        });
+    }
+}
@@ -0,0 +1,162 @@
+package com.teneocast.media.service;
+
+import com.teneocast.media.dto.AdvertisementDto;
+import com.teneocast.media.dto.CatalogSyncDto;
+import com.teneocast.media.dto.MusicDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CatalogSyncServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private MusicService musicService;
+
+    @Mock
+    private AdvertisementService advertisementService;
+
+    private CatalogSyncService syncService;
+
+    private final UUID tenantId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        syncService = new CatalogSyncService(jdbcTemplate, musicService, advertisementService, new SimpleMeterRegistry());
+        when(musicService.getMusicByIds(any(), anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(1);
+            return ids.stream().map(id -> MusicDto.builder().id(id).build()).toList();
+        });
+        when(advertisementService.getAdvertisementsByIds(any(), anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(1);
+            return ids.stream().map(id -> AdvertisementDto.builder().id(id).build()).toList();
+        });
+    }
+
+    @Test
+    void testReturnsChangesAfterVersionSplitByCatalogue() throws Exception {
+        // Given
+        currentVersion(12L);
+        changes(List.of(
+                new Object[]{"MUSIC", 4L, 9L, false},
+                new Object[]{"ADVERTISEMENT", 2L, 10L, false},
+                new Object[]{"MUSIC", 7L, 11L, true},
+                new Object[]{"ADVERTISEMENT", 3L, 12L, true}));
+
+        // When
+        CatalogSyncDto delta = syncService.sync(tenantId, 8, 100);
+
+        // Then
+        assertEquals(12L, delta.getVersion());
+        assertFalse(delta.isHasMore());
+        assertFalse(delta.isReset());
+        assertEquals(List.of(4L), delta.getMusic().stream().map(MusicDto::getId).toList());
+        assertEquals(List.of(2L), delta.getAdvertisements().stream().map(AdvertisementDto::getId).toList());
+        assertEquals(List.of(7L), delta.getDeletedMusicIds());
+        assertEquals(List.of(3L), delta.getDeletedAdvertisementIds());
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(eq(CatalogSyncService.CHANGES_SINCE), any(RowMapper.class), args.capture());
+        assertArrayEquals(new Object[]{tenantId, 8L, 101}, args.getValue());
+    }
+
+    @Test
+    void testFullPageReportsMoreAndLastVersionReturned() throws Exception {
+        // Given
+        currentVersion(3L);
+        changes(List.of(
+                new Object[]{"MUSIC", 1L, 1L, false},
+                new Object[]{"MUSIC", 2L, 2L, false},
+                new Object[]{"MUSIC", 3L, 3L, false}));
+
+        // When
+        CatalogSyncDto first = syncService.sync(tenantId, 0, 2);
+
+        // Then
+        assertTrue(first.isHasMore());
+        assertEquals(2L, first.getVersion());
+        assertEquals(List.of(1L, 2L), first.getMusic().stream().map(MusicDto::getId).toList());
+    }
+
+    @Test
+    void testUpToDatePlayerKeepsItsVersion() throws Exception {
+        // Given
+        currentVersion(5L);
+        changes(List.of());
+
+        // When
+        CatalogSyncDto delta = syncService.sync(tenantId, 5, 100);
+
+        // Then
+        assertEquals(5L, delta.getVersion());
+        assertFalse(delta.isHasMore());
+        assertTrue(delta.getMusic().isEmpty());
+        assertTrue(delta.getDeletedMusicIds().isEmpty());
+    }
+
+    @Test
+    void testVersionAheadOfServerResetsPlayer() {
+        // Given
+        currentVersion();
+
+        // When
+        CatalogSyncDto delta = syncService.sync(tenantId, 40, 100);
+
+        // Then
+        assertTrue(delta.isReset());
+        assertEquals(0L, delta.getVersion());
+        verify(jdbcTemplate, never()).query(eq(CatalogSyncService.CHANGES_SINCE), any(RowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    void testNegativeVersionIsRejected() {
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> syncService.sync(tenantId, -1, 100));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void currentVersion(Long... version) {
+        when(jdbcTemplate.queryForList(eq(CatalogSyncService.CURRENT_VERSION), eq(Long.class), any(Object[].class)))
+                .thenReturn(List.of(version));
+    }
+
+    private void changes(List<Object[]> rows) {
+        when(jdbcTemplate.query(eq(CatalogSyncService.CHANGES_SINCE), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+            RowMapper<?> mapper = invocation.getArgument(1);
+            // Varargs arrive expanded; the limit is always the last argument
+            Object[] args = invocation.getArguments();
+            int limit = (Integer) args[args.length - 1];
+            List<Object> mapped = new ArrayList<>();
+            for (Object[] row : rows.subList(0, Math.min(limit, rows.size()))) {
+                ResultSet resultSet = mock(ResultSet.class);
+                when(resultSet.getString("catalog")).thenReturn((String) row[0]);
+                when(resultSet.getLong("item_id")).thenReturn((Long) row[1]);
+                when(resultSet.getLong("version")).thenReturn((Long) row[2]);
+                when(resultSet.getBoolean("deleted")).thenReturn((Boolean) row[3]);
+                mapped.add(mapper.mapRow(resultSet, mapped.size()));
+            }
+            return mapped;
+        });
+    }
+}
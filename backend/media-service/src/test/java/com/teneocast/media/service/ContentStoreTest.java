@@ -0,0 +1,208 @@
+package com.teneocast.media.service;
+
+import com.teneocast.media.dto.DedupReportDto;
+import com.teneocast.media.entity.StoredObject;
+import com.teneocast.media.repository.StoredObjectRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ContentStoreTest {
+
+    private static final String SHA = "ab".repeat(32);
+
+    @Mock
+    private StoredObjectRepository storedObjectRepository;
+
+    @Mock
+    private StorageService storageService;
+
+    @Mock
+    private UploadSink sink;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ContentStore contentStore;
+
+    private final UUID tenantId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        contentStore = new ContentStore(storedObjectRepository, storageService,
+                new TransactionTemplate(transactionManager), meterRegistry);
+        when(storedObjectRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void testNewContentIsCommittedWithOneReference() throws Exception {
+        // Given
+        when(storedObjectRepository.findForUpdate(tenantId, SHA)).thenReturn(Optional.empty());
+        when(sink.complete()).thenReturn("tenant/music/new.mp3");
+
+        // When
+        StoredContent stored = contentStore.store(tenantId, SHA, 1000, sink);
+
+        // Then
+        assertEquals("tenant/music/new.mp3", stored.filePath());
+        assertFalse(stored.deduplicated());
+        ArgumentCaptor<StoredObject> captor = ArgumentCaptor.forClass(StoredObject.class);
+        verify(storedObjectRepository).saveAndFlush(captor.capture());
+        assertEquals(1, captor.getValue().getRefCount());
+        assertEquals(1000L, captor.getValue().getFileSize());
+    }
+
+    @Test
+    void testKnownContentReusesExistingObjectWithoutCommitting() throws Exception {
+        // Given
+        StoredObject existing = storedObject("tenant/music/first.mp3", 1);
+        when(storedObjectRepository.findForUpdate(tenantId, SHA)).thenReturn(Optional.of(existing));
+
+        // When
+        StoredContent stored = contentStore.store(tenantId, SHA, 1000, sink);
+
+        // Then
+        assertEquals("tenant/music/first.mp3", stored.filePath());
+        assertTrue(stored.deduplicated());
+        assertEquals(2, existing.getRefCount());
+        verify(sink, never()).complete();
+        assertEquals(1000.0, meterRegistry.counter("media.dedup.bytes-saved").count());
+    }
+
+    @Test
+    void testLosingConcurrentInsertSharesWinnersCopy() throws Exception {
+        // Given
+        StoredObject winner = storedObject("tenant/music/first.mp3", 1);
+        when(storedObjectRepository.findForUpdate(tenantId, SHA))
+                .thenReturn(Optional.empty(), Optional.empty(), Optional.of(winner));
+        when(sink.complete()).thenReturn("tenant/music/late.mp3");
+        when(storedObjectRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        // When
+        StoredContent stored = contentStore.store(tenantId, SHA, 1000, sink);
+
+        // Then
+        assertEquals("tenant/music/first.mp3", stored.filePath());
+        assertTrue(stored.deduplicated());
+        assertEquals(2, winner.getRefCount());
+        verify(storageService).deleteFile("tenant/music/late.mp3", tenantId);
+        verify(transactionManager, atLeastOnce()).rollback(any());
+    }
+
+    @Test
+    void testNoTransactionIsOpenWhileUploadCompletes() throws Exception {
+        // Given
+        when(storedObjectRepository.findForUpdate(tenantId, SHA)).thenReturn(Optional.empty());
+        when(sink.complete()).thenAnswer(invocation -> {
+            verify(transactionManager, times(1)).commit(any());
+            return "tenant/music/new.mp3";
+        });
+
+        // When
+        contentStore.store(tenantId, SHA, 1000, sink);
+
+        // Then
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void testReleaseKeepsFileWhileReferenced() throws Exception {
+        // Given
+        StoredObject existing = storedObject("tenant/music/first.mp3", 2);
+        when(storedObjectRepository.findForUpdate(tenantId, SHA)).thenReturn(Optional.of(existing));
+
+        // When
+        contentStore.release(tenantId, "tenant/music/first.mp3", SHA);
+
+        // Then
+        assertEquals(1, existing.getRefCount());
+        verify(storageService, never()).deleteFile(anyString(), any());
+    }
+
+    @Test
+    void testReleaseOfLastReferenceDeletesFile() throws Exception {
+        // Given
+        StoredObject existing = storedObject("tenant/music/first.mp3", 1);
+        when(storedObjectRepository.findForUpdate(tenantId, SHA)).thenReturn(Optional.of(existing));
+
+        // When
+        contentStore.release(tenantId, "tenant/music/first.mp3", SHA);
+
+        // Then
+        verify(storedObjectRepository).delete(existing);
+        verify(storageService).deleteFile("tenant/music/first.mp3", tenantId);
+    }
+
+    @Test
+    void testReleaseWithoutHashDeletesLegacyFile() throws Exception {
+        // When
+        contentStore.release(tenantId, "tenant/music/old.mp3", null);
+
+        // Then
+        verify(storageService).deleteFile("tenant/music/old.mp3", tenantId);
+        verifyNoInteractions(storedObjectRepository);
+    }
+
+    @Test
+    void testDedupReportTotalsTenants() {
+        // Given
+        UUID otherTenant = UUID.randomUUID();
+        StoredObjectRepository.TenantUsage first = usage(tenantId, 2, 5, 300, 900);
+        StoredObjectRepository.TenantUsage second = usage(otherTenant, 1, 1, 100, 100);
+        when(storedObjectRepository.summarizeByTenant()).thenReturn(List.of(first, second));
+
+        // When
+        DedupReportDto report = contentStore.getDedupReport();
+
+        // Then
+        assertEquals(3, report.getStoredObjects());
+        assertEquals(6, report.getReferences());
+        assertEquals(400, report.getStoredBytes());
+        assertEquals(1000, report.getLogicalBytes());
+        assertEquals(600, report.getBytesSaved());
+        assertEquals(tenantId, report.getTenants().get(0).getTenantId());
+    }
+
+    private StoredObject storedObject(String filePath, int refCount) {
+        return StoredObject.builder()
+                .id(1L)
+                .tenantId(tenantId)
+                .sha256(SHA)
+                .filePath(filePath)
+                .fileSize(1000L)
+                .refCount(refCount)
+                .build();
+    }
+
+    private StoredObjectRepository.TenantUsage usage(UUID tenant, long objects, long refs, long stored, long logical) {
+        StoredObjectRepository.TenantUsage usage = mock(StoredObjectRepository.TenantUsage.class);
+        when(usage.getTenantId()).thenReturn(tenant);
+        when(usage.getStoredObjects()).thenReturn(objects);
+        when(usage.getRefs()).thenReturn(refs);
+        when(usage.getStoredBytes()).thenReturn(stored);
+        when(usage.getLogicalBytes()).thenReturn(logical);
+        return usage;
+    }
+}
@@ -0,0 +1,166 @@
+package com.teneocast.media.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpRange;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalFileStorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private LocalFileStorageService storageService;
+    
+    private String filePath;
+    
+    private final UUID tenantId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storageService = new LocalFileStorageService();
+        Path file = tempDir.resolve("track.mp3");
+        Files.write(file, "0123456789".getBytes());
+        filePath = file.toString();
+    }
+
+    @Test
+    void testOpenStreamWithoutRange() throws IOException {
+        // When
+        try (MediaStream stream = storageService.openStream(filePath, tenantId, null)) {
+            // Then
+            assertFalse(stream.isPartial());
+            assertEquals(10, stream.getContentLength());
+            assertNotNull(stream.getETag());
+            assertEquals("0123456789", read(stream));
+        }
+    }
+
+    @Test
+    void testOpenStreamWithByteRange() throws IOException {
+        // When
+        try (MediaStream stream = storageService.openStream(filePath, tenantId, HttpRange.createByteRange(2, 5))) {
+            // Then
+            assertTrue(stream.isPartial());
+            assertEquals(4, stream.getContentLength());
+            assertEquals("bytes 2-5/10", stream.getContentRange());
+            assertEquals("2345", read(stream));
+        }
+    }
+
+    @Test
+    void testOpenStreamWithOpenEndedAndSuffixRanges() throws IOException {
+        // When
+        try (MediaStream openEnded = storageService.openStream(filePath, tenantId, HttpRange.createByteRange(7));
+             MediaStream suffix = storageService.openStream(filePath, tenantId, HttpRange.createSuffixRange(3))) {
+            // Then
+            assertEquals("789", read(openEnded));
+            assertEquals("bytes 7-9/10", suffix.getContentRange());
+            assertEquals("789", read(suffix));
+        }
+    }
+
+    @Test
+    void testOpenStreamWithUnsatisfiableRange() {
+        // When
+        RangeNotSatisfiableException exception = assertThrows(RangeNotSatisfiableException.class,
+                () -> storageService.openStream(filePath, tenantId, HttpRange.createByteRange(10, 20)));
+        
+        // Then
+        assertEquals(10, exception.getTotalLength());
+    }
+
+    @Test
+    void testOpenStreamForMissingFile() {
+        // When & Then
+        assertThrows(IOException.class,
+                () -> storageService.openStream(tempDir.resolve("missing.mp3").toString(), tenantId, null));
+    }
+
+    @Test
+    void testZeroCopyServesSmallFilesFromMapping() throws IOException {
+        // Given
+        enableZeroCopy(1024);
+        
+        // When
+        try (MediaStream stream = storageService.openStream(filePath, tenantId, HttpRange.createByteRange(3, 6))) {
+            // Then
+            assertNotNull(stream.getMapped());
+            assertNull(stream.getFile());
+            assertEquals("3456", read(stream));
+            assertEquals("3456", new String(stream.getInputStream().readAllBytes()));
+        }
+    }
+
+    @Test
+    void testZeroCopyRemapsChangedFile() throws IOException {
+        // Given
+        enableZeroCopy(1024);
+        storageService.openStream(filePath, tenantId, null).close();
+        Path file = Path.of(filePath);
+        Files.write(file, "abcdefghijkl".getBytes());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        
+        // When
+        try (MediaStream stream = storageService.openStream(filePath, tenantId, null)) {
+            // Then
+            assertEquals("abcdefghijkl", read(stream));
+        }
+    }
+
+    @Test
+    void testZeroCopyTransfersLargeFilesFromChannel() throws IOException {
+        // Given
+        enableZeroCopy(4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        // When
+        try (MediaStream stream = storageService.openStream(filePath, tenantId, HttpRange.createByteRange(1, 8));
+             WritableByteChannel target = Channels.newChannel(out)) {
+            long written = stream.transferTo(target);
+            
+            // Then
+            assertNull(stream.getMapped());
+            assertEquals(Path.of(filePath).toAbsolutePath(), stream.getFile());
+            assertEquals(8, written);
+            assertEquals("12345678", out.toString());
+        }
+    }
+
+    @Test
+    void testChannelStreamReadsAsPlainInputStream() throws IOException {
+        // Given
+        enableZeroCopy(4);
+        
+        // When
+        try (MediaStream stream = storageService.openStream(filePath, tenantId, HttpRange.createByteRange(3, 6))) {
+            // Then
+            assertNotNull(stream.getChannel());
+            assertEquals("3456", new String(stream.getInputStream().readAllBytes()));
+        }
+    }
+
+    private void enableZeroCopy(long mmapThreshold) {
+        ReflectionTestUtils.setField(storageService, "zeroCopy", true);
+        ReflectionTestUtils.setField(storageService, "mmapThreshold", mmapThreshold);
+        ReflectionTestUtils.setField(storageService, "mmapCacheSize", 16);
+    }
+
+    private String read(MediaStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stream.writeTo(out);
+        return out.toString();
+    }
+}
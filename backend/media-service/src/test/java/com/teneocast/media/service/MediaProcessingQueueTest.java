@@ -0,0 +1,293 @@
+package com.teneocast.media.service;
+
+import com.teneocast.media.entity.Music;
+import com.teneocast.media.entity.ProcessingStatus;
+import com.teneocast.media.repository.AdvertisementRepository;
+import com.teneocast.media.repository.MusicRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.tika.Tika;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.XMPDM;
+import org.apache.tika.parser.Parser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class MediaProcessingQueueTest {
+
+    @Mock
+    private MusicRepository musicRepository;
+
+    @Mock
+    private AdvertisementRepository advertisementRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Tika tika;
+
+    @Mock
+    private Parser parser;
+
+    @TempDir
+    Path storageDir;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final UUID tenantId = UUID.randomUUID();
+
+    private final List<Music> music = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        when(tika.getParser()).thenReturn(parser);
+        doAnswer(invocation -> {
+            invocation.<InputStream>getArgument(0).readAllBytes();
+            invocation.<Metadata>getArgument(2).set(XMPDM.DURATION, "300.2");
+            return null;
+        }).when(parser).parse(any(), any(), any(), any());
+
+        when(musicRepository.findById(anyLong())).thenAnswer(invocation -> music.stream()
+                .filter(row -> row.getId().equals(invocation.getArgument(0)))
+                .findFirst());
+        when(musicRepository.findAllById(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return music.stream().filter(row -> ids.contains(row.getId())).toList();
+        });
+    }
+
+    @Test
+    void testProcessedResultsArePersistedInOneBatch() throws Exception {
+        // Given
+        MediaProcessingQueue queue = queue(3, 10);
+        Music first = music(1L, 4_800_000);
+        Music second = music(2L, 2_400_000);
+
+        // When
+        queue.enqueue(MediaProcessingQueue.Kind.MUSIC, 1L);
+        queue.enqueue(MediaProcessingQueue.Kind.MUSIC, 2L);
+        queue.processReady();
+
+        // Then
+        assertEquals(ProcessingStatus.COMPLETED, first.getProcessingStatus());
+        assertEquals(300, first.getDurationSeconds());
+        assertEquals(128, first.getBitrate());
+        assertTrue(first.getMetadata().contains("xmpDM:duration"));
+        assertEquals(64, second.getBitrate());
+        verify(musicRepository, times(1)).findAllById(any());
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(2.0, meterRegistry.counter("media.processing.jobs", "outcome", "completed").count());
+    }
+
+    @Test
+    void testStorageFailureIsRetriedThenMarkedFailed() throws Exception {
+        // Given
+        MediaProcessingQueue queue = queue(2, 10);
+        Music missing = music(1L, 1000);
+        Files.delete(Path.of(missing.getFilePath()));
+
+        // When
+        queue.enqueue(MediaProcessingQueue.Kind.MUSIC, 1L);
+        queue.processReady();
+
+        // Then
+        assertEquals(ProcessingStatus.FAILED, missing.getProcessingStatus());
+        assertEquals(2, missing.getProcessingAttempts());
+        assertNotNull(missing.getProcessingError());
+        assertEquals(1.0, meterRegistry.counter("media.processing.jobs", "outcome", "retried").count());
+        assertEquals(1.0, meterRegistry.counter("media.processing.jobs", "outcome", "failed").count());
+    }
+
+    @Test
+    void testUnparseableAudioStillCompletes() throws Exception {
+        // Given
+        MediaProcessingQueue queue = queue(3, 10);
+        Music row = music(1L, 1000);
+        doThrow(new RuntimeException("corrupt frame")).when(parser).parse(any(), any(), any(), any());
+
+        // When
+        queue.enqueue(MediaProcessingQueue.Kind.MUSIC, 1L);
+        queue.processReady();
+
+        // Then
+        assertEquals(ProcessingStatus.COMPLETED, row.getProcessingStatus());
+        assertNull(row.getDurationSeconds());
+        assertEquals("{}", row.getMetadata());
+    }
+
+    @Test
+    void testRecognisedAudioIsScannedWithoutTheParser() throws Exception {
+        // Given
+        MediaProcessingQueue queue = queue(3, 10);
+        Music row = music(1L, 0);
+        try (InputStream fixture = getClass().getResourceAsStream("/audio/cbr.mp3")) {
+            Files.write(Path.of(row.getFilePath()), fixture.readAllBytes());
+        }
+        row.setFileSize(Files.size(Path.of(row.getFilePath())));
+
+        // When
+        queue.enqueue(MediaProcessingQueue.Kind.MUSIC, 1L);
+        queue.processReady();
+
+        // Then
+        assertEquals(ProcessingStatus.COMPLETED, row.getProcessingStatus());
+        assertEquals(4, row.getDurationSeconds());
+        assertEquals(32, row.getBitrate());
+        assertTrue(row.getMetadata().contains("\"dc:title\":\"Morning Jingle\""));
+        verify(parser, never()).parse(any(), any(), any(), any());
+    }
+
+    @Test
+    void testLoudnessIsMeasuredAndStored() throws Exception {
+        // Given
+        MediaProcessingQueue queue = queue(3, 10);
+        Music row = music(1L, 0);
+        try (InputStream fixture = getClass().getResourceAsStream("/audio/sine.wav")) {
+            Files.write(Path.of(row.getFilePath()), fixture.readAllBytes());
+        }
+        row.setFileSize(Files.size(Path.of(row.getFilePath())));
+
+        // When
+        queue.enqueue(MediaProcessingQueue.Kind.MUSIC, 1L);
+        queue.processReady();
+
+        // Then
+        assertEquals(3, row.getDurationSeconds());
+        assertEquals(-23.0, row.getLoudnessLufs(), 0.1);
+        assertEquals(-20.0, row.getTruePeakDbtp(), 0.2);
+        // Normalised to the -18 LUFS default target
+        assertEquals(5.0, row.getGainDb(), 0.1);
+    }
+
+    @Test
+    void testUndecodableAudioHasNoLoudness() throws Exception {
+        // Given
+        MediaProcessingQueue queue = queue(3, 10);
+        Music row = music(1L, 1000);
+
+        // When
+        queue.enqueue(MediaProcessingQueue.Kind.MUSIC, 1L);
+        queue.processReady();
+
+        // Then
+        assertEquals(ProcessingStatus.COMPLETED, row.getProcessingStatus());
+        assertNull(row.getLoudnessLufs());
+        assertNull(row.getGainDb());
+    }
+
+    @Test
+    void testFailedBatchFallsBackToOneTransactionPerRow() throws Exception {
+        // Given
+        MediaProcessingQueue queue = queue(3, 10);
+        Music first = music(1L, 1000);
+        Music second = music(2L, 1000);
+        doThrow(new RuntimeException("batch update failed"))
+                .when(musicRepository).findAllById(argThat(ids -> ((Collection<?>) ids).size() == 2));
+
+        // When
+        queue.enqueue(MediaProcessingQueue.Kind.MUSIC, 1L);
+        queue.enqueue(MediaProcessingQueue.Kind.MUSIC, 2L);
+        queue.processReady();
+
+        // Then
+        assertEquals(ProcessingStatus.COMPLETED, first.getProcessingStatus());
+        assertEquals(ProcessingStatus.COMPLETED, second.getProcessingStatus());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    void testQueueSkipsTrackedRowsAndDefersWhenFull() {
+        // Given
+        MediaProcessingQueue queue = queue(3, 1);
+
+        // When
+        boolean first = queue.submit(MediaProcessingQueue.Kind.MUSIC, 1L);
+        boolean again = queue.submit(MediaProcessingQueue.Kind.MUSIC, 1L);
+        boolean overflow = queue.submit(MediaProcessingQueue.Kind.ADVERTISEMENT, 1L);
+
+        // Then
+        assertTrue(first);
+        assertFalse(again);
+        assertFalse(overflow);
+        assertEquals(1, queue.getQueueDepth());
+        assertEquals(1.0, meterRegistry.counter("media.processing.jobs", "outcome", "rejected").count());
+    }
+
+    @Test
+    void testSweepQueuesPendingRows() {
+        // Given
+        MediaProcessingQueue queue = queue(3, 10);
+        when(musicRepository.findIdsByProcessingStatus(eq(ProcessingStatus.PENDING), any())).thenReturn(List.of(1L, 2L));
+        when(advertisementRepository.findIdsByProcessingStatus(eq(ProcessingStatus.PENDING), any())).thenReturn(List.of(7L));
+
+        // When
+        queue.sweep();
+        queue.sweep();
+
+        // Then
+        assertEquals(3, queue.getQueueDepth());
+    }
+
+    @Test
+    void testDisabledQueueLeavesUploadsCompleted() {
+        // Given
+        MediaProcessingQueue queue = new MediaProcessingQueue(musicRepository, advertisementRepository,
+                new LocalFileStorageService(), new MediaProcessingService(tika), new TransactionTemplate(transactionManager),
+                meterRegistry, false, 1, 10, 3, Duration.ZERO, 10, Duration.ofSeconds(1), Duration.ofMinutes(1));
+
+        // When
+        queue.enqueue(MediaProcessingQueue.Kind.ADVERTISEMENT, 1L);
+
+        // Then
+        assertEquals(ProcessingStatus.COMPLETED, queue.initialStatus());
+        assertEquals(0, queue.getQueueDepth());
+        verifyNoInteractions(advertisementRepository);
+    }
+
+    private MediaProcessingQueue queue(int maxAttempts, int capacity) {
+        return new MediaProcessingQueue(musicRepository, advertisementRepository,
+                new LocalFileStorageService(), new MediaProcessingService(tika), new TransactionTemplate(transactionManager),
+                meterRegistry, true, 1, capacity, maxAttempts, Duration.ZERO, 10,
+                Duration.ofSeconds(1), Duration.ofMinutes(1));
+    }
+
+    private Music music(Long id, int size) throws Exception {
+        Path file = storageDir.resolve(id + ".mp3");
+        Files.write(file, new byte[size]);
+        Music row = Music.builder()
+                .id(id)
+                .tenantId(tenantId)
+                .title("Track " + id)
+                .artist("Artist")
+                .filePath(file.toString())
+                .fileSize((long) size)
+                .processingStatus(ProcessingStatus.PENDING)
+                .build();
+        music.add(row);
+        return row;
+    }
+}
@@ -13,6 +13,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import org.apache.tika.Tika;
+import org.apache.tika.metadata.Metadata;
 import java.io.InputStream;
 import java.io.IOException;
 
@@ -130,7 +131,26 @@ class MediaProcessingServiceTest {
         );
 
         Integer duration = mediaProcessingService.getFileDuration(file);
-        // Currently returns null as it's a placeholder implementation
+        // Nothing a parser recognises as audio, so no duration
         assertNull(duration);
     }
+
+    @Test
+    void testGetBitrate_AveragesOverDuration() {
+        assertEquals(128, mediaProcessingService.getBitrate(4_800_000, 300));
+        assertNull(mediaProcessingService.getBitrate(4_800_000, null));
+        assertNull(mediaProcessingService.getBitrate(4_800_000, 0));
+    }
+
+    @Test
+    void testToMetadataJson_EscapesTagValues() {
+        Metadata metadata = new Metadata();
+        metadata.set("dc:title", "The \"Best\" Of\\Live");
+        metadata.set("xmpDM:artist", "Line\nBreak");
+
+        String json = mediaProcessingService.toMetadataJson(metadata);
+
+        assertTrue(json.contains("\"dc:title\":\"The \\\"Best\\\" Of\\\\Live\""));
+        assertTrue(json.contains("\"xmpDM:artist\":\"Line\\nBreak\""));
+    }
 }
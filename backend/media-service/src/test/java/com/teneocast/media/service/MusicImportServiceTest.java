@@ -0,0 +1,296 @@
+package com.teneocast.media.service;
+
+import com.teneocast.media.dto.MusicImportDto;
+import com.teneocast.media.entity.MusicGenre;
+import com.teneocast.media.entity.ProcessingStatus;
+import com.teneocast.media.repository.MusicGenreRepository;
+import com.teneocast.media.repository.MusicRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.tika.Tika;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class MusicImportServiceTest {
+
+    @Mock
+    private MusicRepository musicRepository;
+
+    @Mock
+    private MusicGenreRepository musicGenreRepository;
+
+    @Mock
+    private UploadPipeline uploadPipeline;
+
+    @Mock
+    private ContentStore contentStore;
+
+    @Mock
+    private MediaProcessingQueue mediaProcessingQueue;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Tika tika;
+
+    private MusicImportService importService;
+
+    private final UUID tenantId = UUID.randomUUID();
+
+    private final List<Map<Integer, Object>> inserted = new ArrayList<>();
+
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        importService = importService(10);
+
+        when(musicGenreRepository.findAll()).thenReturn(List.of(
+                MusicGenre.builder().id(1L).name("Pop").build(),
+                MusicGenre.builder().id(3L).name("Jazz").build()));
+        when(musicRepository.findTitlesAndArtistsByTenantId(tenantId))
+                .thenReturn(List.<Object[]>of(new Object[]{"Old Song", "The Band"}));
+        when(mediaProcessingQueue.initialStatus()).thenReturn(ProcessingStatus.PENDING);
+        when(uploadPipeline.upload(any(InputStream.class), anyString(), anyLong(), eq(tenantId), eq("music")))
+                .thenAnswer(invocation -> {
+                    String filename = invocation.getArgument(1);
+                    long size = invocation.<InputStream>getArgument(0).readAllBytes().length;
+                    if (filename.endsWith(".txt")) {
+                        throw new IllegalArgumentException("Invalid file type. Detected: text/plain");
+                    }
+                    return ProcessedUpload.builder()
+                            .filePath(tenantId + "/music/" + filename)
+                            .size(size)
+                            .sha256("sha-" + filename)
+                            .contentType("audio/mpeg")
+                            .build();
+                });
+        doAnswer(invocation -> {
+            Collection<Object> rows = invocation.getArgument(1);
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            List<Map<Integer, Object>> batch = new ArrayList<>();
+            for (Object row : rows) {
+                Map<Integer, Object> values = new HashMap<>();
+                PreparedStatement statement = mock(PreparedStatement.class);
+                doAnswer(set -> values.put(set.getArgument(0), set.getArgument(1))).when(statement).setString(anyInt(), any());
+                doAnswer(set -> values.put(set.getArgument(0), set.getArgument(1))).when(statement).setLong(anyInt(), anyLong());
+                setter.setValues(statement, row);
+                if ("Bad Row".equals(values.get(3))) {
+                    throw new DataIntegrityViolationException("value too long for type character varying(255)");
+                }
+                batch.add(values);
+            }
+            synchronized (inserted) {
+                batchSizes.add(rows.size());
+                inserted.addAll(batch);
+            }
+            return new int[][]{};
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    void testArchiveIsImportedWithManifestTagsAndFileNames() throws Exception {
+        // Given
+        byte[] tagged = fixture("/audio/cbr.mp3");
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("manifest.csv", ("file,title,artist,album,genre\n"
+                + "listed/night.mp3,\"Night Drive, Part 2\",The Band,,jazz\n"
+                + "old.mp3,Old Song,The Band,,\n"
+                + "polka.mp3,Polka Time,The Band,,Polka\n").getBytes(StandardCharsets.UTF_8));
+        entries.put("tagged.mp3", tagged);
+        entries.put("copy-of-tagged.mp3", tagged);
+        entries.put("The Band - Sunrise.mp3", new byte[2048]);
+        entries.put("listed/night.mp3", new byte[2048]);
+        entries.put("old.mp3", new byte[2048]);
+        entries.put("polka.mp3", new byte[2048]);
+        entries.put("notes.txt", new byte[16]);
+        entries.put("__MACOSX/._tagged.mp3", new byte[16]);
+
+        // When
+        MusicImportDto started = importService.startImport(zip(entries), 1L, tenantId);
+        MusicImportDto finished = awaitCompletion(started.getJobId());
+
+        // Then
+        assertEquals(7, started.getTotal());
+        assertEquals("COMPLETED", finished.getStatus());
+        assertEquals(7, finished.getProcessed());
+        assertEquals(3, finished.getImported());
+        assertEquals(2, finished.getDuplicates());
+        assertEquals(2, finished.getFailed());
+        assertNotNull(finished.getFinishedAt());
+        assertEquals(List.of("notes.txt", "polka.mp3"), finished.getErrors().stream()
+                .map(MusicImportDto.EntryError::getFile).sorted().toList());
+
+        // One batch insert; genres and existing tracks each loaded once
+        assertEquals(List.of(3), batchSizes);
+        verify(musicGenreRepository, times(1)).findAll();
+        verify(musicRepository, times(1)).findTitlesAndArtistsByTenantId(tenantId);
+        verify(musicRepository, never()).existsByTenantIdAndTitleAndArtist(any(), any(), any());
+        verify(mediaProcessingQueue).requestSweep();
+
+        Map<Object, Map<Integer, Object>> byTitle = new HashMap<>();
+        inserted.forEach(row -> byTitle.put(row.get(3), row));
+        assertEquals("Studio Band", byTitle.get("Morning Jingle").get(4));
+        assertEquals("Idents", byTitle.get("Morning Jingle").get(5));
+        assertEquals("The Band", byTitle.get("Sunrise").get(4));
+        assertEquals(1L, byTitle.get("Sunrise").get(2));
+        assertEquals(3L, byTitle.get("Night Drive, Part 2").get(2));
+        assertEquals("mp3", byTitle.get("Night Drive, Part 2").get(8));
+        assertEquals("PENDING", byTitle.get("Night Drive, Part 2").get(10));
+    }
+
+    @Test
+    void testFailedBatchFallsBackToRowInsertsAndReleasesContent() throws Exception {
+        // Given
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("manifest.csv", ("file,title,artist\n"
+                + "good.mp3,Good Row,The Band\n"
+                + "bad.mp3,Bad Row,The Band\n").getBytes(StandardCharsets.UTF_8));
+        entries.put("good.mp3", new byte[2048]);
+        entries.put("bad.mp3", new byte[2048]);
+
+        // When
+        MusicImportDto finished = awaitCompletion(importService.startImport(zip(entries), 1L, tenantId).getJobId());
+
+        // Then
+        assertEquals(1, finished.getImported());
+        assertEquals(1, finished.getFailed());
+        assertEquals("bad.mp3", finished.getErrors().get(0).getFile());
+        assertEquals(1, inserted.size());
+        assertEquals("Good Row", inserted.get(0).get(3));
+        verify(contentStore).release(tenantId, tenantId + "/music/bad.mp3", "sha-bad.mp3");
+        verify(contentStore, never()).release(any(), eq(tenantId + "/music/good.mp3"), any());
+    }
+
+    @Test
+    void testRowsAreInsertedInBatchesOfTheConfiguredSize() throws Exception {
+        // Given
+        importService.shutdown();
+        importService = importService(2);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 1; i <= 5; i++) {
+            entries.put("Artist - Track " + i + ".mp3", new byte[1024]);
+        }
+
+        // When
+        MusicImportDto finished = awaitCompletion(importService.startImport(zip(entries), 1L, tenantId).getJobId());
+
+        // Then
+        assertEquals(5, finished.getImported());
+        assertEquals(List.of(1, 2, 2), batchSizes.stream().sorted().toList());
+    }
+
+    @Test
+    void testInvalidArchiveAndGenreAreRejected() {
+        // Given
+        byte[] notZip = {1, 2, 3};
+
+        // When / Then
+        IllegalArgumentException invalidZip = assertThrows(IllegalArgumentException.class,
+                () -> importService.startImport(new ByteArrayInputStream(notZip), 1L, tenantId));
+        assertEquals("Import archive is not a valid ZIP file", invalidZip.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> importService.startImport(new ByteArrayInputStream(notZip), 99L, tenantId));
+        IllegalArgumentException empty = assertThrows(IllegalArgumentException.class,
+                () -> importService.startImport(new ByteArrayInputStream(new byte[0]), 1L, tenantId));
+        assertEquals("Import archive cannot be empty", empty.getMessage());
+        IllegalArgumentException tooLarge = assertThrows(IllegalArgumentException.class,
+                () -> importService.startImport(new ByteArrayInputStream(new byte[(int) DataSize.ofMegabytes(1).toBytes() + 1]),
+                        1L, tenantId));
+        assertTrue(tooLarge.getMessage().startsWith("Import archive exceeds"));
+    }
+
+    @Test
+    void testProgressIsOnlyVisibleToTheImportingTenant() throws Exception {
+        // Given
+        UUID jobId = importService.startImport(zip(Map.of("Artist - Song.mp3", new byte[1024])), 1L, tenantId).getJobId();
+        awaitCompletion(jobId);
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> importService.getImport(jobId, UUID.randomUUID()));
+        assertThrows(IllegalArgumentException.class, () -> importService.getImport(UUID.randomUUID(), tenantId));
+    }
+
+    @Test
+    void testCsvValuesMayBeQuoted() {
+        assertEquals(List.of("a.mp3", "Title, with comma", "Say \"hi\"", ""),
+                MusicImportService.parseCsvLine("a.mp3,\"Title, with comma\",\"Say \"\"hi\"\"\","));
+    }
+
+    private MusicImportService importService(int batchSize) {
+        return new MusicImportService(musicRepository, musicGenreRepository, uploadPipeline, contentStore,
+                new MediaProcessingService(tika), mediaProcessingQueue, jdbcTemplate,
+                new TransactionTemplate(transactionManager), new SimpleMeterRegistry(),
+                4, batchSize, Duration.ofHours(1), DataSize.ofMegabytes(1));
+    }
+
+    private MusicImportDto awaitCompletion(UUID jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        MusicImportDto job = importService.getImport(jobId, tenantId);
+        while ("RUNNING".equals(job.getStatus()) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            job = importService.getImport(jobId, tenantId);
+        }
+        return job;
+    }
+
+    private InputStream zip(Map<String, byte[]> entries) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+
+    private byte[] fixture(String name) throws Exception {
+        try (InputStream in = getClass().getResourceAsStream(name)) {
+            return in.readAllBytes();
+        }
+    }
+}
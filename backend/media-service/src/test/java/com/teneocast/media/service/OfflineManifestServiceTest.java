@@ -0,0 +1,214 @@
+package com.teneocast.media.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teneocast.media.entity.AdType;
+import com.teneocast.media.entity.Advertisement;
+import com.teneocast.media.entity.Music;
+import com.teneocast.media.entity.MusicGenre;
+import com.teneocast.media.entity.ProcessingStatus;
+import com.teneocast.media.repository.AdvertisementRepository;
+import com.teneocast.media.repository.MusicGenreRepository;
+import com.teneocast.media.repository.MusicRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OfflineManifestServiceTest {
+
+    @Mock
+    private CatalogSyncService catalogSyncService;
+
+    @Mock
+    private MusicRepository musicRepository;
+
+    @Mock
+    private AdvertisementRepository advertisementRepository;
+
+    @Mock
+    private MusicGenreRepository musicGenreRepository;
+
+    private OfflineManifestService manifestService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final UUID tenantId = UUID.randomUUID();
+    private final Map<Long, Music> music = new HashMap<>();
+    private final Map<Long, Advertisement> advertisements = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        manifestService = new OfflineManifestService(catalogSyncService, musicRepository, advertisementRepository,
+                musicGenreRepository, objectMapper, new SimpleMeterRegistry(), Duration.ofSeconds(5), Duration.ofHours(1), 100);
+        when(musicRepository.findAllWithGenreByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(music::get).filter(row -> row != null).toList();
+        });
+        when(musicGenreRepository.existsById(10L)).thenReturn(true);
+        when(musicGenreRepository.existsById(20L)).thenReturn(true);
+        when(advertisementRepository.findAllWithAdTypeByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(advertisements::get).filter(row -> row != null).toList();
+        });
+
+        music.put(1L, track(1L, 10L, "Sunrise", ProcessingStatus.COMPLETED));
+        music.put(2L, track(2L, 20L, "Moonlight", ProcessingStatus.COMPLETED));
+        music.put(3L, track(3L, 10L, "Still Analysing", ProcessingStatus.PENDING));
+        advertisements.put(5L, Advertisement.builder().id(5L).tenantId(tenantId).name("Spring Sale")
+                .adType(AdType.builder().id(7L).build()).processingStatus(ProcessingStatus.COMPLETED).build());
+        when(catalogSyncService.changesSince(eq(tenantId), eq(0L), anyInt())).thenReturn(List.of(
+                change(CatalogSearchService.Catalog.MUSIC, 1, 1, false),
+                change(CatalogSearchService.Catalog.MUSIC, 2, 2, false),
+                change(CatalogSearchService.Catalog.MUSIC, 3, 3, false),
+                change(CatalogSearchService.Catalog.ADVERTISEMENT, 5, 4, false)));
+    }
+
+    @Test
+    void testManifestHoldsPlayableItemsAndFiltersByGenre() throws Exception {
+        // When
+        OfflineManifestService.Manifest all = manifestService.getManifest(tenantId, null);
+        OfflineManifestService.Manifest genre = manifestService.getManifest(tenantId, 10L);
+
+        // Then
+        JsonNode body = objectMapper.readTree(all.json());
+        assertEquals(4L, all.version());
+        assertEquals(3, body.get("music").size());
+        assertEquals("/api/media/music/1/stream", body.get("music").get(0).get("path").asText());
+        assertEquals(1, body.get("advertisements").size());
+        assertEquals(7L, body.get("advertisements").get(0).get("adTypeId").asLong());
+        assertEquals("\"" + body.get("contentHash").asText() + "\"", all.etag());
+        assertEquals(body, objectMapper.readTree(new GZIPInputStream(new ByteArrayInputStream(all.gzip()))));
+
+        JsonNode genreBody = objectMapper.readTree(genre.json());
+        assertEquals(2, genreBody.get("music").size());
+        assertEquals("Sunrise", genreBody.get("music").get(0).get("title").asText());
+        assertNotEquals(all.etag(), genre.etag());
+
+        // Served from memory afterwards
+        assertSame(all, manifestService.getManifest(tenantId, null));
+        verify(catalogSyncService, times(1)).changesSince(eq(tenantId), anyLong(), anyInt());
+    }
+
+    @Test
+    void testUnanalysedItemsAreListedWithoutGain() throws Exception {
+        // Given
+        music.get(1L).setGainDb(-3.5);
+        music.get(3L).setGainDb(-7.0);
+        advertisements.get(5L).setProcessingStatus(ProcessingStatus.FAILED);
+        advertisements.get(5L).setGainDb(-2.0);
+
+        // When
+        JsonNode body = objectMapper.readTree(manifestService.getManifest(tenantId, null).json());
+
+        // Then
+        JsonNode pending = body.get("music").get(2);
+        assertEquals("Still Analysing", pending.get("title").asText());
+        assertEquals("/api/media/music/3/stream", pending.get("path").asText());
+        assertFalse(pending.hasNonNull("gainDb"));
+        assertEquals(-3.5, body.get("music").get(0).get("gainDb").asDouble());
+        assertEquals(1, body.get("advertisements").size());
+        assertFalse(body.get("advertisements").get(0).hasNonNull("gainDb"));
+    }
+
+    @Test
+    void testRefreshAppliesOnlyNewChanges() {
+        // Given
+        OfflineManifestService.Manifest before = manifestService.getManifest(tenantId, null);
+        music.remove(2L);
+        music.get(1L).setTitle("Sunrise (Remastered)");
+        when(catalogSyncService.currentVersions()).thenReturn(Map.of(tenantId, 6L));
+        when(catalogSyncService.changesSince(eq(tenantId), eq(4L), anyInt())).thenReturn(List.of(
+                change(CatalogSearchService.Catalog.MUSIC, 2, 5, true),
+                change(CatalogSearchService.Catalog.MUSIC, 1, 6, false)));
+
+        // When
+        manifestService.refresh();
+        OfflineManifestService.Manifest after = manifestService.getManifest(tenantId, null);
+
+        // Then
+        assertNotEquals(before.etag(), after.etag());
+        assertEquals(6L, after.version());
+        String json = new String(after.json());
+        assertTrue(json.contains("Sunrise (Remastered)"));
+        assertFalse(json.contains("Moonlight"));
+        verify(musicRepository).findAllWithGenreByIdIn(Set.of(1L));
+    }
+
+    @Test
+    void testChangeOutsideGenreKeepsItsManifest() {
+        // Given
+        OfflineManifestService.Manifest before = manifestService.getManifest(tenantId, 20L);
+        music.get(1L).setTitle("Sunrise (Live)");
+        when(catalogSyncService.currentVersions()).thenReturn(Map.of(tenantId, 5L));
+        when(catalogSyncService.changesSince(eq(tenantId), eq(4L), anyInt())).thenReturn(List.of(
+                change(CatalogSearchService.Catalog.MUSIC, 1, 5, false)));
+
+        // When
+        manifestService.refresh();
+
+        // Then
+        assertSame(before, manifestService.getManifest(tenantId, 20L));
+    }
+
+    @Test
+    void testUnchangedVersionSkipsRefresh() {
+        // Given
+        manifestService.getManifest(tenantId, null);
+        when(catalogSyncService.currentVersions()).thenReturn(Map.of(tenantId, 4L));
+
+        // When
+        manifestService.refresh();
+
+        // Then
+        verify(catalogSyncService, times(1)).changesSince(eq(tenantId), anyLong(), anyInt());
+    }
+
+    @Test
+    void testUnknownGenreIsRejectedWithoutAManifest() {
+        // When
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> manifestService.getManifest(tenantId, 999L));
+
+        // Then
+        assertEquals("Invalid genre ID: 999", exception.getMessage());
+        assertNotNull(manifestService.getManifest(tenantId, 10L));
+        verify(musicGenreRepository, times(1)).existsById(10L);
+        manifestService.getManifest(tenantId, 10L);
+        verify(musicGenreRepository, times(1)).existsById(10L);
+    }
+
+    private Music track(Long id, Long genreId, String title, ProcessingStatus status) {
+        return Music.builder()
+                .id(id)
+                .tenantId(tenantId)
+                .genre(MusicGenre.builder().id(genreId).build())
+                .title(title)
+                .artist("Artist")
+                .processingStatus(status)
+                .build();
+    }
+
+    private static CatalogSyncService.Change change(CatalogSearchService.Catalog catalog, long id, long version, boolean deleted) {
+        return new CatalogSyncService.Change(catalog, id, version, deleted);
+    }
+}
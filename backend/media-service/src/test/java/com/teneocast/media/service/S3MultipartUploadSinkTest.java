@@ -0,0 +1,109 @@
+package com.teneocast.media.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class S3MultipartUploadSinkTest {
+
+    private static final int PART_SIZE = 1024;
+
+    @Mock
+    private S3Client s3Client;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenAnswer(invocation -> UploadPartResponse.builder()
+                        .eTag("etag-" + invocation.<UploadPartRequest>getArgument(0).partNumber())
+                        .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testLargeUploadIsSentInParts() throws Exception {
+        // Given
+        S3MultipartUploadSink sink = sink();
+
+        // When
+        sink.write(new byte[PART_SIZE * 2 + 100]);
+        String key = sink.complete();
+        sink.close();
+
+        // Then
+        assertEquals("tenant/music/track.mp3", key);
+        ArgumentCaptor<UploadPartRequest> parts = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(s3Client, times(3)).uploadPart(parts.capture(), any(RequestBody.class));
+        assertEquals(List.of(1024L, 1024L, 100L), parts.getAllValues().stream()
+                .sorted((a, b) -> a.partNumber() - b.partNumber())
+                .map(UploadPartRequest::contentLength)
+                .toList());
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(complete.capture());
+        assertEquals(List.of("etag-1", "etag-2", "etag-3"), complete.getValue().multipartUpload().parts().stream()
+                .map(CompletedPart::eTag)
+                .toList());
+        verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testSmallUploadUsesSinglePut() throws Exception {
+        // Given
+        S3MultipartUploadSink sink = sink();
+
+        // When
+        sink.write(new byte[100]);
+        sink.complete();
+
+        // Then
+        verify(s3Client).putObject(argThat((PutObjectRequest request) -> request.contentLength() == 100L), any(RequestBody.class));
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testClosingWithoutCompleteAbortsUpload() throws Exception {
+        // Given
+        S3MultipartUploadSink sink = sink();
+        sink.write(new byte[PART_SIZE + 10]);
+
+        // When
+        sink.close();
+
+        // Then
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    private S3MultipartUploadSink sink() {
+        return new S3MultipartUploadSink(s3Client, "bucket", "tenant/music/track.mp3", "audio/mpeg", PART_SIZE, 2, executor);
+    }
+}
@@ -0,0 +1,105 @@
+package com.teneocast.media.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class S3StorageServiceTest {
+
+    @Mock
+    private S3Client s3Client;
+
+    private S3Presigner s3Presigner;
+
+    private final UUID tenantId = UUID.fromString("6f1c2d3e-4a5b-4c6d-8e7f-9a0b1c2d3e4f");
+
+    @BeforeEach
+    void setUp() {
+        // Presigning is computed locally, so no S3 endpoint has to be reachable
+        s3Presigner = S3Presigner.builder()
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+                .endpointOverride(URI.create("http://localhost:9000"))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Presigner.close();
+    }
+
+    @Test
+    void testPresignedUrlTargetsTenantBucketAndIsReused() {
+        // Given
+        S3StorageService storageService = create("presigned");
+        String key = tenantId + "/advertisements/summer.mp3";
+
+        // When
+        DeliveryUrl first = storageService.getDeliveryUrl(key, tenantId);
+        DeliveryUrl second = storageService.getDeliveryUrl(key, tenantId);
+
+        // Then
+        assertTrue(first.url().startsWith("http://localhost:9000/teneocast-media-" + tenantId + "/" + key + "?"));
+        assertTrue(first.url().contains("X-Amz-Expires=900"));
+        assertTrue(first.expiresAt().isAfter(Instant.now().plus(Duration.ofMinutes(14))));
+        assertSame(first, second);
+    }
+
+    @Test
+    void testProxyModeHasNoDeliveryUrl() {
+        // Given
+        S3StorageService storageService = create("proxy");
+
+        // When & Then
+        assertNull(storageService.getDeliveryUrl(tenantId + "/music/a.mp3", tenantId));
+    }
+
+    @Test
+    void testFileUrlUsesTenantBucket() {
+        // Given
+        S3StorageService storageService = create("presigned");
+
+        // When
+        String url = storageService.getFileUrl(tenantId + "/music/a.mp3");
+
+        // Then
+        assertEquals("http://localhost:9000/teneocast-media-" + tenantId + "/" + tenantId + "/music/a.mp3", url);
+    }
+
+    @Test
+    void testFileUrlRejectsKeyWithoutTenant() {
+        // Given
+        S3StorageService storageService = create("presigned");
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> storageService.getFileUrl("a.mp3"));
+        assertThrows(IllegalArgumentException.class, () -> storageService.getFileUrl("/music/a.mp3"));
+    }
+
+    private S3StorageService create(String deliveryMode) {
+        S3StorageService storageService = new S3StorageService(s3Client, s3Presigner, deliveryMode,
+                Duration.ofMinutes(15), Duration.ofMinutes(2), 1000);
+        ReflectionTestUtils.setField(storageService, "bucketPrefix", "teneocast-media");
+        ReflectionTestUtils.setField(storageService, "endpoint", "http://localhost:9000");
+        return storageService;
+    }
+}
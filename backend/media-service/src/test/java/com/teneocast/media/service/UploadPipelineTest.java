@@ -0,0 +1,131 @@
+package com.teneocast.media.service;
+
+import com.teneocast.media.entity.StoredObject;
+import com.teneocast.media.repository.StoredObjectRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.tika.Tika;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class UploadPipelineTest {
+
+    @Mock
+    private Tika tika;
+
+    @Mock
+    private StoredObjectRepository storedObjectRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path storageDir;
+
+    private UploadPipeline uploadPipeline;
+
+    private final UUID tenantId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MediaProcessingService mediaProcessingService = new MediaProcessingService(tika);
+        ReflectionTestUtils.setField(mediaProcessingService, "allowedAudioFormats", "mp3,wav,ogg,m4a,aac");
+        ReflectionTestUtils.setField(mediaProcessingService, "maxFileSize", "100MB");
+
+        LocalFileStorageService storageService = new LocalFileStorageService();
+        ReflectionTestUtils.setField(storageService, "storagePath", storageDir.toString());
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ContentStore contentStore = new ContentStore(storedObjectRepository, storageService,
+                new TransactionTemplate(transactionManager), meterRegistry);
+        uploadPipeline = new UploadPipeline(storageService, contentStore, mediaProcessingService, meterRegistry);
+
+        when(tika.detect(any(byte[].class), eq("track.mp3"))).thenReturn("audio/mpeg");
+        when(tika.detect(any(byte[].class), eq("notes.txt"))).thenReturn("text/plain");
+        when(storedObjectRepository.findForUpdate(any(), anyString())).thenReturn(Optional.empty());
+        when(storedObjectRepository.save(any(StoredObject.class))).thenAnswer(returnsFirstArg());
+    }
+
+    @Test
+    void testUploadReadsOnceAndStoresEveryByte() throws Exception {
+        // Given
+        byte[] content = new byte[300 * 1024];
+        new Random(7).nextBytes(content);
+        MockMultipartFile file = spy(new MockMultipartFile("file", "track.mp3", "audio/mpeg", content));
+
+        // When
+        ProcessedUpload upload = uploadPipeline.upload(file, tenantId, "music");
+
+        // Then
+        verify(file, times(1)).getInputStream();
+        assertArrayEquals(content, Files.readAllBytes(Path.of(upload.getFilePath())));
+        assertEquals(content.length, upload.getSize());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)), upload.getSha256());
+        assertEquals("audio/mpeg", upload.getContentType());
+        assertFalse(upload.isDeduplicated());
+        verify(tika, never()).getParser();
+    }
+
+    @Test
+    void testInvalidTypeIsRejectedBeforeAnythingIsStored() {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "notes.txt", "text/plain", "hello".getBytes());
+
+        // When
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> uploadPipeline.upload(file, tenantId, "music"));
+
+        // Then
+        assertTrue(exception.getMessage().startsWith("Invalid file type"));
+        assertFalse(Files.exists(storageDir.resolve(tenantId.toString())));
+    }
+
+    @Test
+    void testDuplicateContentIsNotStoredAgain() throws Exception {
+        // Given
+        byte[] content = "ID3 same bytes as before".getBytes();
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        when(storedObjectRepository.findForUpdate(tenantId, sha256)).thenReturn(Optional.of(StoredObject.builder()
+                .tenantId(tenantId)
+                .sha256(sha256)
+                .filePath("existing/track.mp3")
+                .fileSize((long) content.length)
+                .refCount(1)
+                .build()));
+
+        // When
+        ProcessedUpload upload = uploadPipeline.upload(
+                new MockMultipartFile("file", "track.mp3", "audio/mpeg", content), tenantId, "music");
+
+        // Then
+        assertTrue(upload.isDeduplicated());
+        assertEquals("existing/track.mp3", upload.getFilePath());
+        try (var files = Files.list(storageDir.resolve(tenantId.toString()).resolve("music"))) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.teneocast.player.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.dto.WebSocketMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.socket.TextMessage;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding one command for a player with several sessions: the previous
+ * per-session path (build message and payload map, serialize for each session)
+ * against a shared {@link CommandFrame}. Run with the GC profiler to compare
+ * {@code gc.alloc.rate.norm} (bytes allocated per send):
+ *
+ * <pre>./gradlew :player-service:jmh</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandSendBenchmark {
+    
+    @Param({"1", "3", "10"})
+    private int sessions;
+    
+    private ObjectMapper objectMapper;
+    private PlayerMessageCodec codec;
+    private PlayerCommand command;
+    
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        codec = new PlayerMessageCodec(objectMapper);
+        
+        command = PlayerCommand.builder()
+                .messageId("5f0c7a4e-2b7d-4c1e-9a51-0d4b8e6f3a21")
+                .commandType(PlayerCommand.CommandType.PLAY_AD)
+                .payload(Map.of(
+                    "adId", "a1b2c3d4-e5f6-4a7b-8c9d-0e1f2a3b4c5d",
+                    "audioUrl", "https://cdn.teneocast.com/tenants/acme/ads/summer-sale.mp3",
+                    "duration", 30))
+                .priority(2)
+                .build();
+    }
+    
+    @Benchmark
+    public void perSessionSerialization(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < sessions; i++) {
+            WebSocketMessage message = WebSocketMessage.builder()
+                    .messageId(command.getMessageId())
+                    .type(WebSocketMessage.MessageType.COMMAND)
+                    .payload(Map.of(
+                        "commandType", command.getCommandType(),
+                        "payload", command.getPayload(),
+                        "priority", command.getPriority()
+                    ))
+                    .timestamp(LocalDateTime.now())
+                    .playerId("player-1")
+                    .build();
+            blackhole.consume(new TextMessage(objectMapper.writeValueAsString(message)));
+        }
+    }
+    
+    @Benchmark
+    public void sharedCommandFrame(Blackhole blackhole) {
+        CommandFrame frame = codec.commandFrame("player-1", command);
+        for (int i = 0; i < sessions; i++) {
+            blackhole.consume(frame.text());
+        }
+    }
+}
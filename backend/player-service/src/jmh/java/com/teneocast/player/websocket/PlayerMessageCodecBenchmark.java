@@ -0,0 +1,107 @@
+package com.teneocast.player.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.teneocast.player.dto.WebSocketMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Compares the JSON text and CBOR binary player protocols for a typical command
+ * frame. Frame sizes, raw and after permessage-deflate, are printed once at setup.
+ *
+ * <pre>./gradlew :player-service:jmh</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayerMessageCodecBenchmark {
+    
+    private ObjectMapper objectMapper;
+    private PlayerMessageCodec codec;
+    private WebSocketMessage message;
+    private String json;
+    private BinaryMessage cbor;
+    
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        codec = new PlayerMessageCodec(objectMapper);
+        
+        message = WebSocketMessage.builder()
+                .messageId("5f0c7a4e-2b7d-4c1e-9a51-0d4b8e6f3a21")
+                .type(WebSocketMessage.MessageType.COMMAND)
+                .payload(Map.of(
+                    "commandType", "PLAY_AD",
+                    "payload", Map.of(
+                        "adId", "a1b2c3d4-e5f6-4a7b-8c9d-0e1f2a3b4c5d",
+                        "audioUrl", "https://cdn.teneocast.com/tenants/acme/ads/summer-sale.mp3",
+                        "duration", 30,
+                        "tags", List.of("summer", "sale", "retail")),
+                    "priority", 2))
+                .timestamp(LocalDateTime.of(2024, 6, 1, 12, 30, 15))
+                .playerId("9e8d7c6b-5a4f-4e3d-2c1b-0a9f8e7d6c5b")
+                .build();
+        
+        json = objectMapper.writeValueAsString(message);
+        cbor = codec.encodeBinary(message);
+        
+        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        byte[] cborBytes = cbor.getPayload().array();
+        System.out.printf("%nFrame size  json=%d B (deflated %d B)  cbor=%d B (deflated %d B)%n",
+                jsonBytes.length, deflatedSize(jsonBytes), cborBytes.length, deflatedSize(cborBytes));
+    }
+    
+    @Benchmark
+    public TextMessage encodeJson() throws Exception {
+        return codec.encodeText(message);
+    }
+    
+    @Benchmark
+    public BinaryMessage encodeCbor() throws Exception {
+        return codec.encodeBinary(message);
+    }
+    
+    @Benchmark
+    public WebSocketMessage decodeJson() throws Exception {
+        return objectMapper.readValue(json, WebSocketMessage.class);
+    }
+    
+    @Benchmark
+    public WebSocketMessage decodeCbor() throws Exception {
+        return codec.decode(new BinaryMessage(cbor.getPayload().duplicate()));
+    }
+    
+    /** Size of one frame compressed the way permessage-deflate does it (raw deflate, sync flush). */
+    private static int deflatedSize(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(input);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH)) > 0) {
+            out.write(buffer, 0, count);
+        }
+        deflater.end();
+        // The trailing empty block (00 00 ff ff) is stripped on the wire
+        return out.size() - 4;
+    }
+}
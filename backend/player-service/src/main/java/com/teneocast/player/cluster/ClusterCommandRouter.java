@@ -0,0 +1,228 @@
+package com.teneocast.player.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.service.WebSocketSessionManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes commands for players whose WebSocket session lives on another instance.
+ * The command is published to the owning instance's channel and the caller blocks
+ * until that instance reports whether it delivered it, or the route timeout expires.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterCommandRouter {
+    
+    private final StringRedisTemplate stringRedisTemplate;
+    private final WebSocketSessionManager sessionManager;
+    private final InstanceIdentity instanceIdentity;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${player.cluster.enabled:true}")
+    private boolean clusterEnabled;
+    
+    @Value("${player.cluster.route-timeout:2000}")
+    private long routeTimeoutMillis;
+    
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> pendingResults = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, BroadcastCollector> pendingBroadcasts = new ConcurrentHashMap<>();
+    
+    public boolean routeToOwner(String playerId, PlayerCommand command) {
+        if (!clusterEnabled) {
+            log.warn("No active sessions found for player: {}", playerId);
+            return false;
+        }
+        
+        Set<String> owners = sessionManager.getRemoteOwners(playerId);
+        if (owners.isEmpty()) {
+            log.warn("No active sessions found for player: {}", playerId);
+            return false;
+        }
+        
+        Map<String, CompletableFuture<Boolean>> requests = new HashMap<>();
+        for (String owner : owners) {
+            String requestId = UUID.randomUUID().toString();
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            pendingResults.put(requestId, result);
+            requests.put(requestId, result);
+            
+            ClusterMessage message = ClusterMessage.builder()
+                    .requestId(requestId)
+                    .type(ClusterMessage.Type.COMMAND)
+                    .originInstanceId(instanceIdentity.getInstanceId())
+                    .playerId(playerId)
+                    .command(command)
+                    .build();
+            
+            if (!publish(InstanceIdentity.commandChannel(owner), message)) {
+                result.complete(false);
+            }
+        }
+        
+        try {
+            return awaitDelivery(playerId, requests);
+        } finally {
+            requests.keySet().forEach(pendingResults::remove);
+        }
+    }
+    
+    /**
+     * Publishes one broadcast to every other instance and collects the ids of the
+     * players they delivered to, waiting at most the route timeout for all replies.
+     */
+    public Set<String> broadcastToRemote(Collection<String> playerIds, PlayerCommand command) {
+        if (!clusterEnabled || playerIds.isEmpty()) {
+            return Set.of();
+        }
+        
+        String requestId = UUID.randomUUID().toString();
+        BroadcastCollector collector = new BroadcastCollector();
+        pendingBroadcasts.put(requestId, collector);
+        
+        try {
+            ClusterMessage message = ClusterMessage.builder()
+                    .requestId(requestId)
+                    .type(ClusterMessage.Type.BROADCAST)
+                    .originInstanceId(instanceIdentity.getInstanceId())
+                    .playerIds(List.copyOf(playerIds))
+                    .command(command)
+                    .build();
+            
+            Long receivers = stringRedisTemplate.convertAndSend(InstanceIdentity.BROADCAST_CHANNEL,
+                    objectMapper.writeValueAsString(message));
+            // This instance is subscribed to the broadcast channel as well
+            int expectedReplies = receivers != null ? (int) Math.max(receivers - 1, 0) : 0;
+            
+            if (expectedReplies > 0
+                    && !collector.replies.tryAcquire(expectedReplies, routeTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Timed out waiting for broadcast {} results from {} instances", requestId, expectedReplies);
+            }
+            return Set.copyOf(collector.delivered);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Set.copyOf(collector.delivered);
+        } catch (Exception e) {
+            log.error("Failed to publish broadcast {}", requestId, e);
+            return Set.copyOf(collector.delivered);
+        } finally {
+            pendingBroadcasts.remove(requestId);
+        }
+    }
+    
+    public void sendBroadcastResult(String originInstanceId, String requestId, Collection<String> deliveredPlayerIds) {
+        ClusterMessage result = ClusterMessage.builder()
+                .requestId(requestId)
+                .type(ClusterMessage.Type.BROADCAST_RESULT)
+                .originInstanceId(instanceIdentity.getInstanceId())
+                .playerIds(List.copyOf(deliveredPlayerIds))
+                .build();
+        
+        publish(InstanceIdentity.commandChannel(originInstanceId), result);
+    }
+    
+    public void completeBroadcastResult(String requestId, Collection<String> deliveredPlayerIds) {
+        BroadcastCollector collector = pendingBroadcasts.get(requestId);
+        if (collector != null) {
+            if (deliveredPlayerIds != null) {
+                collector.delivered.addAll(deliveredPlayerIds);
+            }
+            collector.replies.release();
+        } else {
+            log.debug("Discarding late broadcast result {}", requestId);
+        }
+    }
+    
+    public boolean isLocalInstance(String instanceId) {
+        return instanceIdentity.getInstanceId().equals(instanceId);
+    }
+    
+    public void sendResult(String originInstanceId, String requestId, boolean delivered) {
+        ClusterMessage result = ClusterMessage.builder()
+                .requestId(requestId)
+                .type(ClusterMessage.Type.COMMAND_RESULT)
+                .originInstanceId(instanceIdentity.getInstanceId())
+                .delivered(delivered)
+                .build();
+        
+        publish(InstanceIdentity.commandChannel(originInstanceId), result);
+    }
+    
+    public void completeResult(String requestId, boolean delivered) {
+        CompletableFuture<Boolean> result = pendingResults.get(requestId);
+        if (result != null) {
+            result.complete(delivered);
+        } else {
+            log.debug("Discarding late routing result {}", requestId);
+        }
+    }
+    
+    /**
+     * Waits for the first owner that delivers, so one silent instance (e.g. one that died
+     * with a stale owner key) does not hide a delivery by another.
+     */
+    private boolean awaitDelivery(String playerId, Map<String, CompletableFuture<Boolean>> requests) {
+        CompletableFuture<Boolean> anyDelivered = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(requests.size());
+        for (CompletableFuture<Boolean> result : requests.values()) {
+            result.whenComplete((delivered, error) -> {
+                if (Boolean.TRUE.equals(delivered)) {
+                    anyDelivered.complete(true);
+                } else if (outstanding.decrementAndGet() == 0) {
+                    anyDelivered.complete(false);
+                }
+            });
+        }
+        
+        try {
+            return anyDelivered.get(routeTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Timed out waiting for routed command delivery to player {}", playerId);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            log.error("Routed command to player {} failed", playerId, e);
+            return false;
+        }
+    }
+    
+    private boolean publish(String channel, ClusterMessage message) {
+        try {
+            stringRedisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(message));
+            return true;
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize cluster message {}", message.getRequestId(), e);
+        } catch (Exception e) {
+            log.error("Failed to publish cluster message {} to {}", message.getRequestId(), channel, e);
+        }
+        return false;
+    }
+    
+    private static class BroadcastCollector {
+        private final Set<String> delivered = ConcurrentHashMap.newKeySet();
+        private final Semaphore replies = new Semaphore(0);
+    }
+}
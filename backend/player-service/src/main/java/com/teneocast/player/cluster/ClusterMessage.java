@@ -0,0 +1,40 @@
+package com.teneocast.player.cluster;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.dto.PlayerPresence;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Envelope exchanged between player-service instances over Redis pub/sub.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ClusterMessage {
+    
+    private String requestId;
+    private Type type;
+    private String originInstanceId;
+    private String playerId;
+    private List<String> playerIds;
+    private PlayerCommand command;
+    private Boolean delivered;
+    private List<PlayerPresence> presence;
+    
+    public enum Type {
+        COMMAND,
+        COMMAND_RESULT,
+        BROADCAST,
+        BROADCAST_RESULT,
+        PRESENCE,
+        PRESENCE_SYNC
+    }
+}
@@ -0,0 +1,76 @@
+package com.teneocast.player.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teneocast.player.dto.BroadcastResult;
+import com.teneocast.player.service.CommandFanoutService;
+import com.teneocast.player.service.PlayerService;
+import com.teneocast.player.service.PresenceIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives cluster messages addressed to this instance: commands for players whose
+ * sessions are connected here, delivery results for commands routed from here, and
+ * presence changes published by the other instances.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterMessageListener implements MessageListener {
+    
+    private final ObjectMapper objectMapper;
+    private final PlayerService playerService;
+    private final CommandFanoutService fanoutService;
+    private final ClusterCommandRouter commandRouter;
+    private final PresenceIndex presenceIndex;
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            ClusterMessage clusterMessage = objectMapper.readValue(message.getBody(), ClusterMessage.class);
+            
+            switch (clusterMessage.getType()) {
+                case COMMAND -> handleCommand(clusterMessage);
+                case COMMAND_RESULT -> commandRouter.completeResult(
+                        clusterMessage.getRequestId(), Boolean.TRUE.equals(clusterMessage.getDelivered()));
+                case BROADCAST -> handleBroadcast(clusterMessage);
+                case BROADCAST_RESULT -> commandRouter.completeBroadcastResult(
+                        clusterMessage.getRequestId(), clusterMessage.getPlayerIds());
+                case PRESENCE, PRESENCE_SYNC -> presenceIndex.applyRemote(clusterMessage);
+                default -> log.warn("Unknown cluster message type: {}", clusterMessage.getType());
+            }
+        } catch (Exception e) {
+            log.error("Error processing cluster message", e);
+        }
+    }
+    
+    private void handleCommand(ClusterMessage message) {
+        boolean delivered = playerService.deliverToLocalSessions(message.getPlayerId(), message.getCommand());
+        
+        log.debug("Routed command {} from instance {} for player {} delivered: {}",
+                 message.getRequestId(), message.getOriginInstanceId(), message.getPlayerId(), delivered);
+        
+        commandRouter.sendResult(message.getOriginInstanceId(), message.getRequestId(), delivered);
+    }
+    
+    private void handleBroadcast(ClusterMessage message) {
+        if (commandRouter.isLocalInstance(message.getOriginInstanceId())) {
+            return;
+        }
+        
+        Map<String, BroadcastResult.DeliveryStatus> results = fanoutService.deliverLocally(
+                message.getPlayerIds() != null ? message.getPlayerIds() : List.of(), message.getCommand());
+        List<String> delivered = results.entrySet().stream()
+                .filter(entry -> entry.getValue() == BroadcastResult.DeliveryStatus.DELIVERED)
+                .map(Map.Entry::getKey)
+                .toList();
+        
+        commandRouter.sendBroadcastResult(message.getOriginInstanceId(), message.getRequestId(), delivered);
+    }
+}
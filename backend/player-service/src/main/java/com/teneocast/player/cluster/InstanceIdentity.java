@@ -0,0 +1,41 @@
+package com.teneocast.player.cluster;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.UUID;
+
+/**
+ * Identifies this player-service replica inside the cluster. Every instance owns the
+ * WebSocket sessions it accepted and listens for routed commands on its own channel.
+ */
+@Component
+@Getter
+@Slf4j
+public class InstanceIdentity {
+    
+    public static final String BROADCAST_CHANNEL = "player:broadcast";
+    public static final String PRESENCE_CHANNEL = "player:presence";
+    
+    private static final String COMMAND_CHANNEL_PREFIX = "player:node:";
+    
+    private final String instanceId;
+    
+    public InstanceIdentity(@Value("${player.cluster.instance-id:}") String configuredInstanceId) {
+        this.instanceId = StringUtils.hasText(configuredInstanceId)
+                ? configuredInstanceId
+                : UUID.randomUUID().toString();
+        log.info("Player service instance id: {}", instanceId);
+    }
+    
+    public String getCommandChannel() {
+        return commandChannel(instanceId);
+    }
+    
+    public static String commandChannel(String instanceId) {
+        return COMMAND_CHANNEL_PREFIX + instanceId;
+    }
+}
@@ -0,0 +1,44 @@
+package com.teneocast.player.config;
+
+import com.teneocast.player.cluster.ClusterMessageListener;
+import com.teneocast.player.cluster.InstanceIdentity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+@ConditionalOnProperty(name = "player.cluster.enabled", havingValue = "true", matchIfMissing = true)
+public class ClusterConfig {
+    
+    @Value("${player.cluster.listener-threads:4}")
+    private int listenerThreads;
+    
+    @Bean
+    public RedisMessageListenerContainer clusterMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                         ClusterMessageListener listener,
+                                                                         InstanceIdentity instanceIdentity) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.setTaskExecutor(listenerExecutor());
+        container.addMessageListener(listener, new ChannelTopic(instanceIdentity.getCommandChannel()));
+        container.addMessageListener(listener, new ChannelTopic(InstanceIdentity.BROADCAST_CHANNEL));
+        container.addMessageListener(listener, new ChannelTopic(InstanceIdentity.PRESENCE_CHANNEL));
+        return container;
+    }
+    
+    private ThreadPoolTaskExecutor listenerExecutor() {
+        // Kept private so it does not replace Spring Boot's default application task executor
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(listenerThreads);
+        executor.setMaxPoolSize(listenerThreads);
+        executor.setThreadNamePrefix("cluster-listener-");
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+}
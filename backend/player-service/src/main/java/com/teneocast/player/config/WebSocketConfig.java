@@ -1,5 +1,6 @@
 package com.teneocast.player.config;
 
+import com.teneocast.player.websocket.PlayerHandshakeHandler;
 import com.teneocast.player.websocket.PlayerWebSocketHandler;
 import com.teneocast.player.websocket.WebSocketAuthInterceptor;
 import lombok.RequiredArgsConstructor;
@@ -16,6 +17,7 @@ public class WebSocketConfig implements WebSocketConfigurer {
     
     private final PlayerWebSocketHandler playerWebSocketHandler;
     private final WebSocketAuthInterceptor webSocketAuthInterceptor;
+    private final PlayerHandshakeHandler playerHandshakeHandler;
     
     @Value("${websocket.allowed-origins}")
     private String[] allowedOrigins;
@@ -23,6 +25,7 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(playerWebSocketHandler, "/ws/player")
+                .setHandshakeHandler(playerHandshakeHandler)
                 .addInterceptors(webSocketAuthInterceptor)
                 .setAllowedOrigins(allowedOrigins);
     }
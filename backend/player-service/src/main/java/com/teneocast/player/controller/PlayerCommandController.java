@@ -1,6 +1,11 @@
 package com.teneocast.player.controller;
 
+import com.teneocast.player.dto.BroadcastResult;
 import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.entity.CommandDelivery;
+import com.teneocast.player.entity.Player;
+import com.teneocast.player.service.CommandDeliveryTracker;
+import com.teneocast.player.service.CommandFanoutService;
 import com.teneocast.player.service.PlayerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -8,7 +13,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 
@@ -19,6 +26,8 @@ import java.util.UUID;
 public class PlayerCommandController {
     
     private final PlayerService playerService;
+    private final CommandFanoutService commandFanoutService;
+    private final CommandDeliveryTracker deliveryTracker;
     
     @PostMapping("/{playerId}/command")
     public ResponseEntity<Map<String, Object>> sendRemoteCommand(
@@ -57,14 +66,27 @@ public class PlayerCommandController {
             @PathVariable String playerId,
             @Valid @RequestBody PlayAdRequest request) {
         
+        if (request.audioUrl() == null || request.audioUrl().isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", "audioUrl is required"));
+        }
+        
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("adId", request.adId());
+        // Usually the presigned URL from media-service, so players fetch the audio from storage directly
+        payload.put("audioUrl", request.audioUrl());
+        if (request.audioUrlExpiresAt() != null) {
+            payload.put("audioUrlExpiresAt", request.audioUrlExpiresAt());
+        }
+        payload.put("duration", request.duration() != null ? request.duration() : 30);
+        if (request.gainDb() != null) {
+            // Loudness normalisation gain measured by media-service, so ads play at the level of the music
+            payload.put("gainDb", request.gainDb());
+        }
+        
         PlayerCommand command = PlayerCommand.builder()
                 .messageId(UUID.randomUUID().toString())
                 .commandType(PlayerCommand.CommandType.PLAY_AD)
-                .payload(Map.of(
-                    "adId", request.adId(),
-                    "audioUrl", request.audioUrl(),
-                    "duration", request.duration() != null ? request.duration() : 30
-                ))
+                .payload(payload)
                 .timestamp(LocalDateTime.now())
                 .priority(2) // Ads have higher priority
                 .build();
@@ -141,6 +163,34 @@ public class PlayerCommandController {
             ResponseEntity.badRequest().body(Map.of("success", false, "error", "Player not connected"));
     }
     
+    @PostMapping("/broadcast")
+    public ResponseEntity<BroadcastResult> broadcast(@Valid @RequestBody BroadcastRequest request) {
+        if (request.tenantId() == null || request.type() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        PlayerCommand command = PlayerCommand.builder()
+                .messageId(UUID.randomUUID().toString())
+                .commandType(request.type())
+                .payload(request.payload() != null ? request.payload() : Map.of())
+                .timestamp(LocalDateTime.now())
+                .priority(request.priority() != null ? request.priority() : 1)
+                .build();
+        
+        BroadcastResult result = commandFanoutService.broadcast(request.tenantId(), request.platform(), command);
+        
+        log.info("Broadcast command {} for tenant {} delivered to {}/{} players",
+                request.type(), request.tenantId(), result.getDelivered(), result.getTargeted());
+        return ResponseEntity.ok(result);
+    }
+    
+    @GetMapping("/commands/{messageId}")
+    public ResponseEntity<CommandDelivery> getCommandDelivery(@PathVariable String messageId) {
+        return deliveryTracker.getDelivery(messageId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
     private ResponseEntity<Map<String, Object>> sendSimpleCommand(String playerId, PlayerCommand.CommandType commandType) {
         PlayerCommand command = PlayerCommand.builder()
                 .messageId(UUID.randomUUID().toString())
@@ -166,7 +216,9 @@ public class PlayerCommandController {
     public record PlayAdRequest(
         String adId,
         String audioUrl,
-        Integer duration
+        Instant audioUrlExpiresAt,
+        Integer duration,
+        Double gainDb
     ) {}
     
     public record PlayTTSRequest(
@@ -176,6 +228,14 @@ public class PlayerCommandController {
         Integer priority
     ) {}
     
+    public record BroadcastRequest(
+        String tenantId,
+        Player.PlayerPlatform platform,
+        PlayerCommand.CommandType type,
+        Map<String, Object> payload,
+        Integer priority
+    ) {}
+    
     public record SetVolumeRequest(
         Integer volume
     ) {}
@@ -1,12 +1,18 @@
 package com.teneocast.player.controller;
 
 import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.dto.PlayerPresence;
 import com.teneocast.player.entity.Player;
 import com.teneocast.player.service.PlayerService;
+import com.teneocast.player.service.PlayerStatusStream;
+import com.teneocast.player.service.PresenceIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 import java.util.*;
@@ -18,6 +24,8 @@ import java.util.*;
 public class PlayerController {
     
     private final PlayerService playerService;
+    private final PresenceIndex presenceIndex;
+    private final PlayerStatusStream playerStatusStream;
     
     @PostMapping
     public ResponseEntity<Player> createPlayer(@Valid @RequestBody CreatePlayerRequest request) {
@@ -47,10 +55,39 @@ public class PlayerController {
     
     @GetMapping("/online")
     public ResponseEntity<List<Player>> getOnlinePlayersByTenant(@RequestParam String tenantId) {
-        List<Player> players = playerService.getOnlinePlayersByTenant(tenantId);
+        List<Player> players = presenceIndex.getOnlinePlayers(tenantId).stream()
+                .map(PlayerPresence::toPlayer)
+                .toList();
         return ResponseEntity.ok(players);
     }
     
+    @GetMapping("/online/presence")
+    public ResponseEntity<List<PlayerPresence>> getOnlinePresenceByTenant(@RequestParam String tenantId) {
+        return ResponseEntity.ok(presenceIndex.getOnlinePlayers(tenantId));
+    }
+    
+    @GetMapping("/online/counts")
+    public ResponseEntity<Map<String, Object>> getOnlineCounts(@RequestParam String tenantId) {
+        return ResponseEntity.ok(Map.of(
+            "tenantId", tenantId,
+            "online", presenceIndex.countOnline(tenantId),
+            "byPlatform", presenceIndex.countByPlatform(tenantId)
+        ));
+    }
+    
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamPlayerStatus(@RequestParam String tenantId) {
+        try {
+            // Proxies must not buffer the stream
+            return ResponseEntity.ok()
+                    .header("X-Accel-Buffering", "no")
+                    .body(playerStatusStream.subscribe(tenantId));
+        } catch (IllegalStateException e) {
+            log.warn("Rejected status stream for tenant {}: {}", tenantId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+    
     @PostMapping("/{playerId}/pairing-code")
     public ResponseEntity<Map<String, String>> generatePairingCode(@PathVariable String playerId) {
         try {
@@ -0,0 +1,27 @@
+package com.teneocast.player.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BroadcastResult {
+    
+    private String messageId;
+    private Integer targeted;
+    private Integer delivered;
+    private Long durationMillis;
+    private Map<String, DeliveryStatus> results;
+    
+    public enum DeliveryStatus {
+        DELIVERED,
+        REJECTED,
+        NOT_CONNECTED
+    }
+}
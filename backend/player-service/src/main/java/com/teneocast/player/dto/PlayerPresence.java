@@ -0,0 +1,50 @@
+package com.teneocast.player.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.teneocast.player.entity.Player;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * What the presence index knows about one online player. Entries are replaced,
+ * never mutated, once they are in the index.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlayerPresence {
+    
+    private String playerId;
+    private String tenantId;
+    private String name;
+    private Player.PlayerPlatform platform;
+    private Player.PlayerStatus status;
+    private String currentTrack;
+    private Integer volume;
+    private LocalDateTime lastSeen;
+    private String instanceId;
+    
+    /**
+     * Maps the entry onto the {@link Player} shape that {@code GET /api/players/online}
+     * has always returned; fields the index does not hold stay null.
+     */
+    public Player toPlayer() {
+        return Player.builder()
+                .id(playerId)
+                .tenantId(tenantId)
+                .name(name)
+                .platform(platform)
+                .status(status)
+                .currentTrack(currentTrack)
+                .volume(volume)
+                .lastSeen(lastSeen)
+                .isOnline(true)
+                .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.teneocast.player.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.teneocast.player.entity.Player;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest known state of one player as streamed to dashboards.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlayerStatusEvent {
+    
+    private String playerId;
+    private boolean online;
+    private Player.PlayerStatus status;
+    private String currentTrack;
+    private Integer volume;
+    private LocalDateTime lastSeen;
+    
+    public static PlayerStatusEvent online(PlayerPresence presence) {
+        return PlayerStatusEvent.builder()
+                .playerId(presence.getPlayerId())
+                .online(true)
+                .status(presence.getStatus())
+                .currentTrack(presence.getCurrentTrack())
+                .volume(presence.getVolume())
+                .lastSeen(presence.getLastSeen())
+                .build();
+    }
+    
+    public static PlayerStatusEvent offline(PlayerPresence presence) {
+        return PlayerStatusEvent.builder()
+                .playerId(presence.getPlayerId())
+                .online(false)
+                .status(Player.PlayerStatus.OFFLINE)
+                .lastSeen(LocalDateTime.now())
+                .build();
+    }
+}
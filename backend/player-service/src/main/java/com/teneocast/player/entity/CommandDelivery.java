@@ -0,0 +1,78 @@
+package com.teneocast.player.entity;
+
+import com.teneocast.player.dto.PlayerCommand;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "player_service_command_deliveries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class CommandDelivery {
+    
+    @Id
+    @EqualsAndHashCode.Include
+    private String messageId;
+    
+    @Column(nullable = false)
+    private String playerId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PlayerCommand.CommandType commandType;
+    
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+    
+    @Column
+    private Integer priority;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DeliveryStatus status;
+    
+    @Column(nullable = false)
+    private Integer attempts;
+    
+    @Column
+    private LocalDateTime lastAttemptAt;
+    
+    @Column
+    private LocalDateTime ackedAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+    
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    void prePersist() {
+        if (status == null) {
+            status = DeliveryStatus.PENDING;
+        }
+        if (attempts == null) {
+            attempts = 0;
+        }
+    }
+    
+    public enum DeliveryStatus {
+        PENDING, SENT, ACKED, FAILED, EXPIRED
+    }
+}
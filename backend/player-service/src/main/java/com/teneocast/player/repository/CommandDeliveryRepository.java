@@ -0,0 +1,54 @@
+package com.teneocast.player.repository;
+
+import com.teneocast.player.entity.CommandDelivery;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CommandDeliveryRepository extends JpaRepository<CommandDelivery, String> {
+    
+    List<CommandDelivery> findByPlayerIdAndStatusInOrderByCreatedAtAsc(String playerId,
+                                                                       Collection<CommandDelivery.DeliveryStatus> statuses);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE CommandDelivery d SET d.status = :status, d.attempts = d.attempts + 1, " +
+           "d.lastAttemptAt = :now, d.updatedAt = :now " +
+           "WHERE d.messageId = :messageId AND d.status IN :openStatuses")
+    int markAttempted(@Param("messageId") String messageId,
+                      @Param("status") CommandDelivery.DeliveryStatus status,
+                      @Param("openStatuses") Collection<CommandDelivery.DeliveryStatus> openStatuses,
+                      @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE CommandDelivery d SET d.status = :status, d.ackedAt = :now, d.updatedAt = :now " +
+           "WHERE d.messageId = :messageId AND d.playerId = :playerId AND d.status IN :openStatuses")
+    int markAcknowledged(@Param("messageId") String messageId,
+                         @Param("playerId") String playerId,
+                         @Param("status") CommandDelivery.DeliveryStatus status,
+                         @Param("openStatuses") Collection<CommandDelivery.DeliveryStatus> openStatuses,
+                         @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE CommandDelivery d SET d.status = :status, d.updatedAt = :now " +
+           "WHERE d.messageId = :messageId AND d.status IN :openStatuses")
+    int closeDelivery(@Param("messageId") String messageId,
+                      @Param("status") CommandDelivery.DeliveryStatus status,
+                      @Param("openStatuses") Collection<CommandDelivery.DeliveryStatus> openStatuses,
+                      @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CommandDelivery d WHERE d.createdAt < :threshold")
+    int deleteCreatedBefore(@Param("threshold") LocalDateTime threshold);
+}
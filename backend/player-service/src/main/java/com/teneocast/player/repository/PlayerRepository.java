@@ -2,11 +2,13 @@ package com.teneocast.player.repository;
 
 import com.teneocast.player.entity.Player;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,7 +34,21 @@ public interface PlayerRepository extends JpaRepository<Player, String> {
     @Query("SELECT COUNT(p) FROM Player p WHERE p.tenantId = :tenantId AND p.isOnline = true")
     Long countOnlinePlayersByTenant(@Param("tenantId") String tenantId);
     
+    @Query("SELECT p.id FROM Player p WHERE p.tenantId = :tenantId")
+    List<String> findIdsByTenantId(@Param("tenantId") String tenantId);
+    
+    @Query("SELECT p.id FROM Player p WHERE p.tenantId = :tenantId AND p.platform = :platform")
+    List<String> findIdsByTenantIdAndPlatform(@Param("tenantId") String tenantId,
+                                              @Param("platform") Player.PlayerPlatform platform);
+    
     @Query("SELECT p FROM Player p WHERE p.tenantId = :tenantId AND p.platform = :platform")
     List<Player> findByTenantIdAndPlatform(@Param("tenantId") String tenantId, 
                                           @Param("platform") Player.PlayerPlatform platform);
-}
\ No newline at end of file
+    
+    @Modifying
+    @Query("UPDATE Player p SET p.isOnline = false, p.status = :status, p.lastSeen = :now, p.updatedAt = :now " +
+           "WHERE p.id IN :ids")
+    int markOffline(@Param("ids") Collection<String> ids,
+                    @Param("status") Player.PlayerStatus status,
+                    @Param("now") LocalDateTime now);
+}
@@ -2,11 +2,13 @@ package com.teneocast.player.repository;
 
 import com.teneocast.player.entity.PlayerSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,4 +32,13 @@ public interface PlayerSessionRepository extends JpaRepository<PlayerSession, St
     Long countActiveSessionsByTenant(@Param("tenantId") String tenantId);
     
     void deleteByPlayerIdAndIsActive(String playerId, Boolean isActive);
-}
\ No newline at end of file
+    
+    @Modifying
+    @Query("UPDATE PlayerSession ps SET ps.lastPingAt = :now WHERE ps.sessionId IN :sessionIds AND ps.isActive = true")
+    int updateLastPingAt(@Param("sessionIds") Collection<String> sessionIds, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE PlayerSession ps SET ps.isActive = false, ps.disconnectedAt = :now " +
+           "WHERE ps.sessionId IN :sessionIds AND ps.isActive = true")
+    int deactivateSessions(@Param("sessionIds") Collection<String> sessionIds, @Param("now") LocalDateTime now);
+}
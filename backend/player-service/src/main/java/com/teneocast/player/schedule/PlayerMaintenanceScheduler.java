@@ -1,6 +1,8 @@
 package com.teneocast.player.schedule;
 
+import com.teneocast.player.service.CommandDeliveryTracker;
 import com.teneocast.player.service.PlayerService;
+import com.teneocast.player.service.SessionReaper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -12,6 +14,8 @@ import org.springframework.stereotype.Component;
 public class PlayerMaintenanceScheduler {
     
     private final PlayerService playerService;
+    private final CommandDeliveryTracker deliveryTracker;
+    private final SessionReaper sessionReaper;
     
     @Scheduled(fixedRate = 300000) // Every 5 minutes
     public void cleanupExpiredPairingCodes() {
@@ -21,4 +25,25 @@ public class PlayerMaintenanceScheduler {
             log.error("Error during pairing code cleanup", e);
         }
     }
-}
\ No newline at end of file
+    
+    @Scheduled(fixedRate = 60000) // Every minute
+    public void reapStaleSessions() {
+        try {
+            sessionReaper.reapStaleSessions();
+        } catch (Exception e) {
+            log.error("Error during stale session cleanup", e);
+        }
+    }
+    
+    @Scheduled(fixedRate = 3600000) // Every hour
+    public void purgeOldCommandDeliveries() {
+        try {
+            int purged = deliveryTracker.purgeOldDeliveries();
+            if (purged > 0) {
+                log.info("Purged {} old command deliveries", purged);
+            }
+        } catch (Exception e) {
+            log.error("Error during command delivery cleanup", e);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.teneocast.player.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.entity.CommandDelivery;
+import com.teneocast.player.repository.CommandDeliveryRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Tracks player commands until the player acknowledges them. Every command is written
+ * to the delivery outbox before it is sent; sent commands wait in an in-memory table
+ * for their ACK and are retried with exponential backoff on a shared scheduler.
+ * Commands still unacknowledged when a player drops are replayed when it reconnects;
+ * a command that reaches no session at all is reported to the caller as not sent and
+ * closed, so it never plays later by surprise.
+ * Delivery is at-least-once, so players must ignore a {@code messageId} they have
+ * already handled.
+ */
+@Service
+@Slf4j
+public class CommandDeliveryTracker {
+    
+    private static final Set<CommandDelivery.DeliveryStatus> OPEN_STATUSES =
+            Set.of(CommandDelivery.DeliveryStatus.PENDING, CommandDelivery.DeliveryStatus.SENT);
+    
+    private final CommandDeliveryRepository deliveryRepository;
+    private final ObjectProvider<PlayerService> playerServiceProvider;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolTaskScheduler scheduler;
+    
+    private final ConcurrentMap<String, ScheduledFuture<?>> pendingAcks = new ConcurrentHashMap<>();
+    
+    @Value("${player.delivery.ack-timeout:5000}")
+    private long ackTimeoutMillis;
+    
+    @Value("${player.delivery.max-backoff:60000}")
+    private long maxBackoffMillis;
+    
+    @Value("${player.delivery.max-attempts:5}")
+    private int maxAttempts;
+    
+    @Value("${player.delivery.ttl:600}")
+    private long ttlSeconds;
+    
+    @Value("${player.delivery.retention:7}")
+    private int retentionDays;
+    
+    public CommandDeliveryTracker(CommandDeliveryRepository deliveryRepository,
+                                  ObjectProvider<PlayerService> playerServiceProvider,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${player.delivery.scheduler-threads:2}") int schedulerThreads) {
+        this.deliveryRepository = deliveryRepository;
+        this.playerServiceProvider = playerServiceProvider;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(schedulerThreads);
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler.setThreadNamePrefix("command-ack-");
+        this.scheduler.initialize();
+        
+        Gauge.builder("player.commands.pending.acks", pendingAcks, Map::size)
+                .description("Sent commands waiting for a player acknowledgment")
+                .register(meterRegistry);
+    }
+    
+    public boolean isTracked(PlayerCommand command) {
+        return command.getMessageId() != null
+                && command.getCommandType() != null
+                && command.getCommandType() != PlayerCommand.CommandType.HEARTBEAT;
+    }
+    
+    public void track(String playerId, PlayerCommand command) {
+        if (!isTracked(command)) {
+            return;
+        }
+        
+        CommandDelivery delivery = CommandDelivery.builder()
+                .messageId(command.getMessageId())
+                .playerId(playerId)
+                .commandType(command.getCommandType())
+                .payload(writePayload(command.getPayload()))
+                .priority(command.getPriority())
+                .status(CommandDelivery.DeliveryStatus.PENDING)
+                .attempts(0)
+                .expiresAt(LocalDateTime.now().plusSeconds(ttlSeconds))
+                .build();
+        
+        deliveryRepository.save(delivery);
+    }
+    
+    public void onDispatched(String playerId, PlayerCommand command, boolean delivered) {
+        if (!isTracked(command)) {
+            return;
+        }
+        
+        if (delivered) {
+            recordAttempt(command.getMessageId(), playerId, 1);
+        } else {
+            // The caller was told the player is not connected, so the command must not be replayed
+            close(command.getMessageId(), CommandDelivery.DeliveryStatus.FAILED);
+            meterRegistry.counter("player.commands.undelivered").increment();
+            log.debug("Command {} for player {} not delivered, closed", command.getMessageId(), playerId);
+        }
+    }
+    
+    public void acknowledge(String playerId, String messageId) {
+        if (messageId == null) {
+            return;
+        }
+        
+        ScheduledFuture<?> timeout = pendingAcks.remove(messageId);
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        
+        int updated = deliveryRepository.markAcknowledged(messageId, playerId,
+                CommandDelivery.DeliveryStatus.ACKED, OPEN_STATUSES, LocalDateTime.now());
+        if (updated > 0) {
+            meterRegistry.counter("player.commands.acked").increment();
+            log.debug("Player {} acknowledged command {}", playerId, messageId);
+        }
+    }
+    
+    /**
+     * Re-sends every open command for a player that just connected to this instance.
+     */
+    public void replayPending(String playerId) {
+        List<CommandDelivery> pending = deliveryRepository
+                .findByPlayerIdAndStatusInOrderByCreatedAtAsc(playerId, OPEN_STATUSES);
+        
+        for (CommandDelivery delivery : pending) {
+            PlayerCommand command = toCommand(delivery);
+            if (isExpired(delivery) || isAudioUrlExpired(command)) {
+                close(delivery.getMessageId(), CommandDelivery.DeliveryStatus.EXPIRED);
+                continue;
+            }
+            
+            if (playerServiceProvider.getObject().deliverToLocalSessions(playerId, command)) {
+                meterRegistry.counter("player.commands.replayed").increment();
+                recordAttempt(delivery.getMessageId(), playerId, delivery.getAttempts() + 1);
+            }
+        }
+        
+        if (!pending.isEmpty()) {
+            log.info("Replayed {} pending commands for player {}", pending.size(), playerId);
+        }
+    }
+    
+    public Optional<CommandDelivery> getDelivery(String messageId) {
+        return deliveryRepository.findById(messageId);
+    }
+    
+    public int purgeOldDeliveries() {
+        return deliveryRepository.deleteCreatedBefore(LocalDateTime.now().minusDays(retentionDays));
+    }
+    
+    private void recordAttempt(String messageId, String playerId, int attempt) {
+        deliveryRepository.markAttempted(messageId, CommandDelivery.DeliveryStatus.SENT,
+                OPEN_STATUSES, LocalDateTime.now());
+        scheduleAckTimeout(messageId, playerId, attempt);
+    }
+    
+    private void scheduleAckTimeout(String messageId, String playerId, int attempt) {
+        long backoff = Math.min(ackTimeoutMillis << Math.min(attempt - 1, 20), maxBackoffMillis);
+        ScheduledFuture<?> timeout = scheduler.schedule(
+                () -> onAckTimeout(messageId, playerId, attempt),
+                Instant.now().plus(Duration.ofMillis(backoff)));
+        
+        ScheduledFuture<?> previous = pendingAcks.put(messageId, timeout);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+    
+    private void onAckTimeout(String messageId, String playerId, int attempt) {
+        pendingAcks.remove(messageId);
+        
+        try {
+            // The ACK may have been received by another instance
+            Optional<CommandDelivery> deliveryOpt = deliveryRepository.findById(messageId);
+            if (deliveryOpt.isEmpty() || !OPEN_STATUSES.contains(deliveryOpt.get().getStatus())) {
+                return;
+            }
+            
+            CommandDelivery delivery = deliveryOpt.get();
+            PlayerCommand command = toCommand(delivery);
+            if (isExpired(delivery) || isAudioUrlExpired(command)) {
+                close(messageId, CommandDelivery.DeliveryStatus.EXPIRED);
+                return;
+            }
+            if (attempt >= maxAttempts) {
+                log.warn("Command {} for player {} not acknowledged after {} attempts", messageId, playerId, attempt);
+                close(messageId, CommandDelivery.DeliveryStatus.FAILED);
+                meterRegistry.counter("player.commands.failed").increment();
+                return;
+            }
+            
+            meterRegistry.counter("player.commands.retried").increment();
+            if (playerServiceProvider.getObject().dispatchCommand(playerId, command)) {
+                recordAttempt(messageId, playerId, attempt + 1);
+            } else {
+                log.debug("Player {} disconnected, command {} waits for replay", playerId, messageId);
+            }
+        } catch (Exception e) {
+            log.error("Error handling ACK timeout for command {}", messageId, e);
+        }
+    }
+    
+    private void close(String messageId, CommandDelivery.DeliveryStatus status) {
+        deliveryRepository.closeDelivery(messageId, status, OPEN_STATUSES, LocalDateTime.now());
+    }
+    
+    private boolean isExpired(CommandDelivery delivery) {
+        return delivery.getExpiresAt() != null && delivery.getExpiresAt().isBefore(LocalDateTime.now());
+    }
+    
+    /**
+     * A PLAY_AD carries a presigned audio URL that outlives the request by only a few minutes,
+     * well short of the delivery TTL; once it has expired the player could not fetch the ad.
+     */
+    private boolean isAudioUrlExpired(PlayerCommand command) {
+        if (command.getCommandType() != PlayerCommand.CommandType.PLAY_AD || command.getPayload() == null) {
+            return false;
+        }
+        Object expiresAt = command.getPayload().get("audioUrlExpiresAt");
+        try {
+            // An Instant before the outbox round trip, its ISO-8601 form after
+            Instant instant = expiresAt instanceof Instant value ? value
+                    : expiresAt instanceof String text ? Instant.parse(text) : null;
+            return instant != null && instant.isBefore(Instant.now());
+        } catch (DateTimeParseException e) {
+            log.warn("Unreadable audioUrlExpiresAt on command {}: {}", command.getMessageId(), expiresAt);
+            return false;
+        }
+    }
+    
+    private PlayerCommand toCommand(CommandDelivery delivery) {
+        return PlayerCommand.builder()
+                .messageId(delivery.getMessageId())
+                .commandType(delivery.getCommandType())
+                .payload(readPayload(delivery.getPayload()))
+                .timestamp(delivery.getCreatedAt())
+                .priority(delivery.getPriority())
+                .build();
+    }
+    
+    private String writePayload(Map<String, Object> payload) {
+        try {
+            return payload != null ? objectMapper.writeValueAsString(payload) : null;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unable to serialize command payload", e);
+        }
+    }
+    
+    private Map<String, Object> readPayload(String payload) {
+        try {
+            return payload != null
+                    ? objectMapper.readValue(payload, new TypeReference<Map<String, Object>>() {})
+                    : Map.of();
+        } catch (Exception e) {
+            log.error("Unable to read stored command payload", e);
+            return Map.of();
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
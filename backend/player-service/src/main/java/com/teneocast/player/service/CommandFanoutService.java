@@ -0,0 +1,151 @@
+package com.teneocast.player.service;
+
+import com.teneocast.player.cluster.ClusterCommandRouter;
+import com.teneocast.player.dto.BroadcastResult;
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.entity.Player;
+import com.teneocast.player.repository.PlayerRepository;
+import com.teneocast.player.websocket.CommandFrame;
+import com.teneocast.player.websocket.OutboundPriority;
+import com.teneocast.player.websocket.OutboundSession;
+import com.teneocast.player.websocket.PlayerMessageCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes one command to many players. The frame is serialized once per wire
+ * protocol and the same immutable message is handed to every target session.
+ * Local sessions are written in parallel chunks on a bounded pool, and the
+ * remaining players are resolved by the other instances in the cluster.
+ */
+@Service
+@Slf4j
+public class CommandFanoutService {
+    
+    private final PlayerRepository playerRepository;
+    private final WebSocketSessionManager sessionManager;
+    private final ClusterCommandRouter commandRouter;
+    private final PlayerMessageCodec messageCodec;
+    private final ThreadPoolTaskExecutor executor;
+    private final int chunkSize;
+    
+    public CommandFanoutService(PlayerRepository playerRepository,
+                                WebSocketSessionManager sessionManager,
+                                ClusterCommandRouter commandRouter,
+                                PlayerMessageCodec messageCodec,
+                                @Value("${player.broadcast.threads:4}") int threads,
+                                @Value("${player.broadcast.chunk-size:500}") int chunkSize) {
+        this.playerRepository = playerRepository;
+        this.sessionManager = sessionManager;
+        this.commandRouter = commandRouter;
+        this.messageCodec = messageCodec;
+        this.chunkSize = chunkSize;
+        
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(threads);
+        this.executor.setMaxPoolSize(threads);
+        this.executor.setThreadNamePrefix("broadcast-");
+        this.executor.initialize();
+    }
+    
+    public BroadcastResult broadcast(String tenantId, Player.PlayerPlatform platform, PlayerCommand command) {
+        List<String> playerIds = platform != null
+                ? playerRepository.findIdsByTenantIdAndPlatform(tenantId, platform)
+                : playerRepository.findIdsByTenantId(tenantId);
+        
+        return fanOut(playerIds, command);
+    }
+    
+    public BroadcastResult fanOut(Collection<String> playerIds, PlayerCommand command) {
+        long started = System.currentTimeMillis();
+        Map<String, BroadcastResult.DeliveryStatus> results = deliverLocally(playerIds, command);
+        
+        List<String> remoteCandidates = results.entrySet().stream()
+                .filter(entry -> entry.getValue() == BroadcastResult.DeliveryStatus.NOT_CONNECTED)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!remoteCandidates.isEmpty()) {
+            Set<String> deliveredRemotely = commandRouter.broadcastToRemote(remoteCandidates, command);
+            deliveredRemotely.forEach(playerId -> results.put(playerId, BroadcastResult.DeliveryStatus.DELIVERED));
+        }
+        
+        int delivered = (int) results.values().stream()
+                .filter(status -> status == BroadcastResult.DeliveryStatus.DELIVERED)
+                .count();
+        long duration = System.currentTimeMillis() - started;
+        
+        log.info("Broadcast command {} delivered to {}/{} players in {} ms",
+                command.getCommandType(), delivered, playerIds.size(), duration);
+        
+        return BroadcastResult.builder()
+                .messageId(command.getMessageId())
+                .targeted(playerIds.size())
+                .delivered(delivered)
+                .durationMillis(duration)
+                .results(results)
+                .build();
+    }
+    
+    /**
+     * Delivers to the players connected to this instance. Players without a local
+     * session are reported as {@code NOT_CONNECTED}.
+     */
+    public Map<String, BroadcastResult.DeliveryStatus> deliverLocally(Collection<String> playerIds, PlayerCommand command) {
+        Map<String, BroadcastResult.DeliveryStatus> results = new ConcurrentHashMap<>();
+        if (playerIds.isEmpty()) {
+            return results;
+        }
+        
+        // Broadcast frames carry no playerId, so one frame serves every target
+        CommandFrame frame = messageCodec.commandFrame(null, command);
+        OutboundPriority priority = OutboundPriority.forCommand(command.getCommandType());
+        
+        List<String> targets = List.copyOf(playerIds);
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < targets.size(); from += chunkSize) {
+            List<String> chunk = targets.subList(from, Math.min(from + chunkSize, targets.size()));
+            chunks.add(CompletableFuture.runAsync(
+                    () -> chunk.forEach(playerId -> results.put(playerId, deliver(playerId, frame, priority))),
+                    executor));
+        }
+        CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+        
+        return results;
+    }
+    
+    private BroadcastResult.DeliveryStatus deliver(String playerId, CommandFrame frame, OutboundPriority priority) {
+        Set<WebSocketSession> sessions = sessionManager.getPlayerSessions(playerId);
+        if (sessions.isEmpty()) {
+            return BroadcastResult.DeliveryStatus.NOT_CONNECTED;
+        }
+        
+        BroadcastResult.DeliveryStatus status = BroadcastResult.DeliveryStatus.REJECTED;
+        for (WebSocketSession session : sessions) {
+            try {
+                if (OutboundSession.send(session, frame.forSession(session), priority)) {
+                    status = BroadcastResult.DeliveryStatus.DELIVERED;
+                }
+            } catch (Exception e) {
+                log.error("Failed to broadcast to player {} via session {}", playerId, session.getId(), e);
+            }
+        }
+        return status;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
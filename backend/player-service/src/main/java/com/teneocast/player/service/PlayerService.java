@@ -1,24 +1,27 @@
 package com.teneocast.player.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teneocast.player.cluster.ClusterCommandRouter;
 import com.teneocast.player.dto.PlayerCommand;
-import com.teneocast.player.dto.WebSocketMessage;
 import com.teneocast.player.entity.Player;
 import com.teneocast.player.entity.PlayerSession;
 import com.teneocast.player.repository.PlayerRepository;
 import com.teneocast.player.repository.PlayerSessionRepository;
+import com.teneocast.player.websocket.CommandFrame;
+import com.teneocast.player.websocket.OutboundPriority;
+import com.teneocast.player.websocket.OutboundSession;
+import com.teneocast.player.websocket.PlayerMessageCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -29,7 +32,10 @@ public class PlayerService {
     private final PlayerSessionRepository playerSessionRepository;
     private final RedisTemplate<String, Object> redisTemplate;
     private final WebSocketSessionManager sessionManager;
-    private final ObjectMapper objectMapper;
+    private final PlayerMessageCodec messageCodec;
+    private final ClusterCommandRouter commandRouter;
+    private final CommandDeliveryTracker deliveryTracker;
+    private final PresenceIndex presenceIndex;
     
     @Value("${player.pairing.code-expiry}")
     private int pairingCodeExpiry;
@@ -37,6 +43,8 @@ public class PlayerService {
     @Value("${player.pairing.code-length}")
     private int pairingCodeLength;
     
+    private static final int BULK_UPDATE_CHUNK = 500;
+    
     private static final String PAIRING_CODE_PREFIX = "pair:";
     
     @Transactional
@@ -124,6 +132,12 @@ public class PlayerService {
             player.setLastSeen(LocalDateTime.now());
             playerRepository.save(player);
             
+            if (isOnline) {
+                presenceIndex.playerOnline(player);
+            } else {
+                presenceIndex.playerOffline(playerId);
+            }
+            
             log.debug("Updated player {} online status to {}", playerId, isOnline);
         }
     }
@@ -189,32 +203,81 @@ public class PlayerService {
         }
     }
     
+    @Transactional
+    public void touchSessions(Collection<String> sessionIds) {
+        LocalDateTime now = LocalDateTime.now();
+        forEachChunk(sessionIds, chunk -> playerSessionRepository.updateLastPingAt(chunk, now));
+    }
+    
+    @Transactional
+    public void closePlayerSessions(Collection<String> sessionIds) {
+        LocalDateTime now = LocalDateTime.now();
+        forEachChunk(sessionIds, chunk -> playerSessionRepository.deactivateSessions(chunk, now));
+        log.debug("Closed {} sessions", sessionIds.size());
+    }
+    
+    @Transactional
+    public void markPlayersOffline(Collection<String> playerIds) {
+        LocalDateTime now = LocalDateTime.now();
+        forEachChunk(playerIds, chunk -> playerRepository.markOffline(chunk, Player.PlayerStatus.OFFLINE, now));
+        presenceIndex.playersOffline(playerIds);
+        log.debug("Marked {} players offline", playerIds.size());
+    }
+    
     public boolean sendCommandToPlayer(String playerId, PlayerCommand command) {
+        if (command.getMessageId() == null) {
+            command.setMessageId(UUID.randomUUID().toString());
+        }
+        
+        // The outbox row references the player, so an unknown ID is rejected before it is written
+        if (!playerRepository.existsById(playerId)) {
+            log.warn("Command {} not sent, player {} not found", command.getCommandType(), playerId);
+            return false;
+        }
+        
+        // Write to the outbox before sending so an early ACK always finds its row
+        deliveryTracker.track(playerId, command);
+        boolean delivered = dispatchCommand(playerId, command);
+        deliveryTracker.onDispatched(playerId, command, delivered);
+        
+        return delivered;
+    }
+    
+    public boolean dispatchCommand(String playerId, PlayerCommand command) {
+        Set<WebSocketSession> sessions = sessionManager.getPlayerSessions(playerId);
+        if (sessions.isEmpty()) {
+            // The player may be connected to another instance
+            return commandRouter.routeToOwner(playerId, command);
+        }
+        
+        return sendToSessions(playerId, command, sessions);
+    }
+    
+    public boolean deliverToLocalSessions(String playerId, PlayerCommand command) {
         Set<WebSocketSession> sessions = sessionManager.getPlayerSessions(playerId);
         if (sessions.isEmpty()) {
-            log.warn("No active sessions found for player: {}", playerId);
+            log.warn("No local sessions found for player: {}", playerId);
             return false;
         }
         
-        WebSocketMessage message = WebSocketMessage.builder()
-                .messageId(command.getMessageId() != null ? command.getMessageId() : UUID.randomUUID().toString())
-                .type(WebSocketMessage.MessageType.COMMAND)
-                .payload(Map.of(
-                    "commandType", command.getCommandType(),
-                    "payload", command.getPayload() != null ? command.getPayload() : Map.of(),
-                    "priority", command.getPriority() != null ? command.getPriority() : 1
-                ))
-                .timestamp(LocalDateTime.now())
-                .playerId(playerId)
-                .build();
+        return sendToSessions(playerId, command, sessions);
+    }
+    
+    private boolean sendToSessions(String playerId, PlayerCommand command, Set<WebSocketSession> sessions) {
+        // Encoded once and shared by all of the player's sessions
+        CommandFrame frame = messageCodec.commandFrame(playerId, command);
+        OutboundPriority priority = OutboundPriority.forCommand(command.getCommandType());
         
         boolean sent = false;
         for (WebSocketSession session : sessions) {
             try {
-                String json = objectMapper.writeValueAsString(message);
-                session.sendMessage(new TextMessage(json));
+                if (!OutboundSession.send(session, frame.forSession(session), priority)) {
+                    log.warn("Outbound queue rejected command {} for player {} via session {}",
+                            command.getCommandType(), playerId, session.getId());
+                    continue;
+                }
                 sent = true;
-                log.debug("Sent command {} to player {} via session {}", 
+                log.debug("Queued command {} to player {} via session {}", 
                          command.getCommandType(), playerId, session.getId());
             } catch (Exception e) {
                 log.error("Failed to send command to player {} via session {}", 
@@ -252,6 +315,13 @@ public class PlayerService {
         }
     }
     
+    private void forEachChunk(Collection<String> ids, Consumer<List<String>> action) {
+        List<String> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += BULK_UPDATE_CHUNK) {
+            action.accept(all.subList(from, Math.min(from + BULK_UPDATE_CHUNK, all.size())));
+        }
+    }
+    
     private String generateRandomCode() {
         StringBuilder code = new StringBuilder();
         for (int i = 0; i < pairingCodeLength; i++) {
@@ -0,0 +1,302 @@
+package com.teneocast.player.service;
+
+import com.teneocast.player.dto.PlayerPresence;
+import com.teneocast.player.dto.PlayerStatusEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams player status changes of one tenant to dashboards over Server-Sent Events.
+ * Changes are coalesced per subscriber: within one window only the latest state of
+ * each player is kept, and the window's changes go out as a single event. Writes run
+ * on a bounded writer pool with at most one in flight per subscriber, so the timer
+ * threads never block on a client; a subscriber whose write stalls past the send
+ * timeout, or whose write cannot be queued, is dropped.
+ */
+@Service
+@Slf4j
+public class PlayerStatusStream implements PresenceListener {
+    
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String STATUS_EVENT = "status";
+    
+    private final PresenceIndex presenceIndex;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final ThreadPoolExecutor writer;
+    private final ConcurrentMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    
+    private final long coalesceWindowMillis;
+    private final long timeoutMillis;
+    private final int maxSubscribers;
+    private final long sendTimeoutNanos;
+    
+    private final Counter eventsSent;
+    private final Counter updatesCoalesced;
+    
+    public PlayerStatusStream(PresenceIndex presenceIndex,
+                              MeterRegistry meterRegistry,
+                              @Value("${player.status-stream.coalesce-window:250}") long coalesceWindowMillis,
+                              @Value("${player.status-stream.timeout:1800000}") long timeoutMillis,
+                              @Value("${player.status-stream.keepalive-interval:15000}") long keepaliveMillis,
+                              @Value("${player.status-stream.max-subscribers:1000}") int maxSubscribers,
+                              @Value("${player.status-stream.writer-threads:8}") int writerThreads,
+                              @Value("${player.status-stream.send-timeout:10000}") long sendTimeoutMillis) {
+        this.presenceIndex = presenceIndex;
+        this.coalesceWindowMillis = coalesceWindowMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        
+        this.eventsSent = meterRegistry.counter("player.status-stream.events");
+        this.updatesCoalesced = meterRegistry.counter("player.status-stream.coalesced");
+        Gauge.builder("player.status-stream.subscribers", subscriberCount, AtomicInteger::get)
+                .register(meterRegistry);
+        
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(2);
+        this.scheduler.setThreadNamePrefix("status-stream-");
+        this.scheduler.initialize();
+        this.scheduler.scheduleAtFixedRate(this::keepAlive,
+                Instant.now().plusMillis(keepaliveMillis), Duration.ofMillis(keepaliveMillis));
+        
+        // Each subscriber queues at most one write, so one slot per subscriber is enough
+        AtomicInteger writerCount = new AtomicInteger();
+        this.writer = new ThreadPoolExecutor(writerThreads, writerThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxSubscribers)), runnable -> {
+                    Thread thread = new Thread(runnable, "status-stream-writer-" + writerCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        
+        presenceIndex.addListener(this);
+    }
+    
+    /**
+     * Opens a stream for one tenant, starting with a snapshot of everyone online.
+     *
+     * @throws IllegalStateException when the subscriber limit is reached
+     */
+    public SseEmitter subscribe(String tenantId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many status stream subscribers");
+        }
+        
+        Subscriber subscriber = new Subscriber(tenantId, createEmitter(timeoutMillis));
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(e -> unsubscribe(subscriber));
+        subscribers.compute(tenantId, (k, tenantSubscribers) -> {
+            Set<Subscriber> updated = tenantSubscribers != null ? tenantSubscribers : ConcurrentHashMap.newKeySet();
+            updated.add(subscriber);
+            return updated;
+        });
+        
+        List<PlayerStatusEvent> snapshot = presenceIndex.getOnlinePlayers(tenantId).stream()
+                .map(PlayerStatusEvent::online)
+                .toList();
+        send(subscriber, SseEmitter.event().name(SNAPSHOT_EVENT).data(snapshot));
+        
+        log.debug("Status stream subscriber added for tenant {}", tenantId);
+        return subscriber.emitter;
+    }
+    
+    @Override
+    public void presenceChanged(PlayerPresence presence) {
+        offer(presence.getTenantId(), PlayerStatusEvent.online(presence));
+    }
+    
+    @Override
+    public void presenceRemoved(PlayerPresence presence) {
+        offer(presence.getTenantId(), PlayerStatusEvent.offline(presence));
+    }
+    
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+    
+    void flush(Subscriber subscriber) {
+        
+        List<PlayerStatusEvent> events = new ArrayList<>(subscriber.pending.size());
+        Iterator<Map.Entry<String, PlayerStatusEvent>> iterator = subscriber.pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            events.add(iterator.next().getValue());
+            iterator.remove();
+        }
+        
+        if (!events.isEmpty()) {
+            send(subscriber, SseEmitter.event().name(STATUS_EVENT).data(events));
+        }
+    }
+    
+    private void offer(String tenantId, PlayerStatusEvent event) {
+        Set<Subscriber> tenantSubscribers = subscribers.get(tenantId);
+        if (tenantSubscribers == null) {
+            return;
+        }
+        
+        for (Subscriber subscriber : tenantSubscribers) {
+            if (subscriber.pending.put(event.getPlayerId(), event) != null) {
+                updatesCoalesced.increment();
+            }
+            if (subscriber.scheduled.compareAndSet(false, true)) {
+                scheduler.schedule(() -> {
+                    // Cleared before draining so a change arriving meanwhile schedules the next flush
+                    subscriber.scheduled.set(false);
+                    dispatch(subscriber);
+                }, Instant.now().plusMillis(coalesceWindowMillis));
+            }
+        }
+    }
+    
+    private void keepAlive() {
+        // Keeps proxies from closing idle streams and finds dead clients
+        subscribers.values().forEach(tenantSubscribers -> tenantSubscribers.forEach(subscriber -> {
+            subscriber.keepAlivePending = true;
+            dispatch(subscriber);
+        }));
+    }
+    
+    /**
+     * Hands the subscriber's pending writes to the writer pool. Runs on the timer threads,
+     * so it never writes itself.
+     */
+    private void dispatch(Subscriber subscriber) {
+        if (!subscriber.queued.compareAndSet(false, true)) {
+            // The write in flight picks up what is pending, unless the client has stalled it
+            long since = subscriber.sendingSince;
+            if (since != 0 && System.nanoTime() - since > sendTimeoutNanos) {
+                drop(subscriber, "send timed out");
+            }
+            return;
+        }
+        
+        try {
+            writer.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.queued.set(false);
+            drop(subscriber, "writer queue full");
+            complete(subscriber, null);
+        }
+    }
+    
+    private void drain(Subscriber subscriber) {
+        try {
+            if (!subscriber.dropped) {
+                flush(subscriber);
+            }
+            if (subscriber.keepAlivePending && !subscriber.dropped) {
+                subscriber.keepAlivePending = false;
+                send(subscriber, SseEmitter.event().comment("keepalive"));
+            }
+        } finally {
+            subscriber.queued.set(false);
+        }
+        
+        if (subscriber.dropped) {
+            // Completed here rather than where it was dropped, since a stalled send holds the emitter
+            complete(subscriber, null);
+        } else if (!subscriber.pending.isEmpty() && !subscriber.scheduled.get()) {
+            // Changes that arrived while writing, whose flush found this write still in flight
+            dispatch(subscriber);
+        }
+    }
+    
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            synchronized (subscriber) {
+                subscriber.sendingSince = System.nanoTime();
+                try {
+                    subscriber.emitter.send(event);
+                } finally {
+                    subscriber.sendingSince = 0;
+                }
+            }
+            eventsSent.increment();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping status stream subscriber for tenant {}: {}", subscriber.tenantId, e.getMessage());
+            unsubscribe(subscriber);
+            complete(subscriber, e);
+        }
+    }
+    
+    private void complete(Subscriber subscriber, Throwable error) {
+        if (subscriber.completed.compareAndSet(false, true)) {
+            if (error != null) {
+                subscriber.emitter.completeWithError(error);
+            } else {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+    
+    private void drop(Subscriber subscriber, String reason) {
+        log.debug("Dropping status stream subscriber for tenant {}: {}", subscriber.tenantId, reason);
+        subscriber.dropped = true;
+        unsubscribe(subscriber);
+    }
+    
+    SseEmitter createEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+    
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.tenantId, (k, tenantSubscribers) -> {
+            if (tenantSubscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return tenantSubscribers.isEmpty() ? null : tenantSubscribers;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        presenceIndex.removeListener(this);
+        scheduler.shutdown();
+        writer.shutdownNow();
+        subscribers.values().forEach(tenantSubscribers -> tenantSubscribers.forEach(subscriber -> complete(subscriber, null)));
+    }
+    
+    static final class Subscriber {
+        
+        private final String tenantId;
+        private final SseEmitter emitter;
+        private final ConcurrentMap<String, PlayerStatusEvent> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean keepAlivePending;
+        private volatile boolean dropped;
+        private volatile long sendingSince;
+        
+        private Subscriber(String tenantId, SseEmitter emitter) {
+            this.tenantId = tenantId;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.teneocast.player.service;
+
+import com.teneocast.player.entity.Player;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces player status reports and last-seen touches in memory and writes
+ * them out periodically: one JDBC batch against {@code player_service} and one
+ * pipelined round trip to Redis. Only the latest value per player survives
+ * between flushes, so the database lags live state by at most one flush
+ * interval (or less when the buffer fills up, in which case a flush is
+ * handed to a background thread rather than run by the reporting caller).
+ */
+@Service
+@Slf4j
+public class PlayerStatusWriteBehind {
+    
+    private static final String UPDATE_SQL =
+            "UPDATE player_service SET " +
+            "status = COALESCE(?, status), " +
+            "volume = COALESCE(?, volume), " +
+            "current_track = CASE WHEN ? THEN ? ELSE current_track END, " +
+            "last_seen = ?, " +
+            "updated_at = ? " +
+            "WHERE id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer flushTimer;
+    
+    private final ConcurrentMap<String, PendingUpdate> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ExecutorService earlyFlushExecutor;
+    private final AtomicBoolean earlyFlushQueued = new AtomicBoolean();
+    
+    private final int maxPending;
+    private final int batchSize;
+    
+    public PlayerStatusWriteBehind(JdbcTemplate jdbcTemplate,
+                                   RedisTemplate<String, Object> redisTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${player.write-behind.max-pending:5000}") int maxPending,
+                                   @Value("${player.write-behind.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        
+        this.earlyFlushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "player-status-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        this.flushTimer = Timer.builder("player.status.flush")
+                .description("Time to write buffered player status to the database and Redis")
+                .register(meterRegistry);
+        Gauge.builder("player.status.pending", pending, Map::size)
+                .description("Players with status changes not yet written")
+                .register(meterRegistry);
+    }
+    
+    public void recordSeen(String playerId) {
+        merge(playerId, update -> { });
+    }
+    
+    public void recordStatus(String playerId, Map<String, Object> statusData) {
+        if (statusData == null) {
+            recordSeen(playerId);
+            return;
+        }
+        
+        Player.PlayerStatus status = null;
+        if (statusData.get("status") instanceof String value) {
+            try {
+                status = Player.PlayerStatus.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid player status: {}", value);
+            }
+        }
+        Integer volume = statusData.get("volume") instanceof Number value ? value.intValue() : null;
+        boolean hasTrack = statusData.containsKey("nowPlaying");
+        String track = hasTrack && statusData.get("nowPlaying") != null
+                ? statusData.get("nowPlaying").toString() : null;
+        
+        Player.PlayerStatus reportedStatus = status;
+        merge(playerId, update -> {
+            if (reportedStatus != null) {
+                update.status = reportedStatus;
+            }
+            if (volume != null) {
+                update.volume = volume;
+            }
+            if (hasTrack) {
+                update.trackChanged = true;
+                update.currentTrack = track;
+            }
+        });
+    }
+    
+    /**
+     * Writes out anything buffered for one player right away, so a following
+     * synchronous update (e.g. going offline) is not overwritten by a later flush.
+     * Waits for a flush in progress, which may hold this player's drained update.
+     */
+    public void flushPlayer(String playerId) {
+        flushLock.lock();
+        try {
+            PendingUpdate update = pending.remove(playerId);
+            if (update != null) {
+                write(List.of(Map.entry(playerId, update)));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${player.write-behind.flush-interval:1000}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Map.Entry<String, PendingUpdate>> drained = new ArrayList<>(pending.size());
+            for (String playerId : pending.keySet()) {
+                PendingUpdate update = pending.remove(playerId);
+                if (update != null) {
+                    drained.add(Map.entry(playerId, update));
+                }
+            }
+            
+            if (!drained.isEmpty()) {
+                flushTimer.record(() -> write(drained));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    private void merge(String playerId, Consumer<PendingUpdate> change) {
+        LocalDateTime now = LocalDateTime.now();
+        pending.compute(playerId, (id, update) -> {
+            PendingUpdate merged = update != null ? update : new PendingUpdate();
+            change.accept(merged);
+            merged.lastSeen = now;
+            return merged;
+        });
+        
+        if (pending.size() >= maxPending && earlyFlushQueued.compareAndSet(false, true)) {
+            // Reports arrive on WebSocket I/O threads, which must not wait on the database
+            try {
+                earlyFlushExecutor.execute(() -> {
+                    earlyFlushQueued.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException e) {
+                earlyFlushQueued.set(false);
+            }
+        }
+    }
+    
+    private void write(List<Map.Entry<String, PendingUpdate>> updates) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        
+        for (int from = 0; from < updates.size(); from += batchSize) {
+            List<Map.Entry<String, PendingUpdate>> chunk = updates.subList(from, Math.min(from + batchSize, updates.size()));
+            List<Object[]> batchArgs = new ArrayList<>(chunk.size());
+            for (Map.Entry<String, PendingUpdate> entry : chunk) {
+                PendingUpdate update = entry.getValue();
+                batchArgs.add(new Object[] {
+                        update.status != null ? update.status.name() : null,
+                        update.volume,
+                        update.trackChanged,
+                        update.currentTrack,
+                        Timestamp.valueOf(update.lastSeen),
+                        now,
+                        entry.getKey()
+                });
+            }
+            
+            try {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batchArgs);
+            } catch (DataAccessException e) {
+                log.error("Failed to write status for {} players", chunk.size(), e);
+            }
+        }
+        
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (Map.Entry<String, PendingUpdate> entry : updates) {
+                        ops.opsForValue().set(WebSocketSessionManager.PLAYER_LAST_SEEN_KEY + entry.getKey(),
+                                entry.getValue().lastSeen.toString());
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to write last-seen for {} players to Redis", updates.size(), e);
+        }
+        
+        meterRegistry.counter("player.status.flushed").increment(updates.size());
+        log.debug("Flushed buffered status for {} players", updates.size());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        earlyFlushExecutor.shutdownNow();
+        flushLock.lock();
+        try {
+            List<Map.Entry<String, PendingUpdate>> drained = new ArrayList<>();
+            pending.forEach((playerId, update) -> drained.add(Map.entry(playerId, update)));
+            pending.clear();
+            if (!drained.isEmpty()) {
+                write(drained);
+                log.info("Flushed buffered status for {} players on shutdown", drained.size());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    private static class PendingUpdate {
+        private Player.PlayerStatus status;
+        private Integer volume;
+        private boolean trackChanged;
+        private String currentTrack;
+        private LocalDateTime lastSeen;
+    }
+}
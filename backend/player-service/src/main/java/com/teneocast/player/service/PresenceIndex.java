@@ -0,0 +1,398 @@
+package com.teneocast.player.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teneocast.player.cluster.ClusterMessage;
+import com.teneocast.player.cluster.InstanceIdentity;
+import com.teneocast.player.dto.PlayerPresence;
+import com.teneocast.player.entity.Player;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Who is online, per tenant, answered from memory. Each instance owns the entries of
+ * the players connected to it and publishes their changes over Redis pub/sub; entries
+ * received from other instances expire unless their owner keeps refreshing them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceIndex {
+    
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final InstanceIdentity instanceIdentity;
+    
+    @Value("${player.cluster.enabled:true}")
+    private boolean clusterEnabled;
+    
+    @Value("${player.presence.remote-ttl:90000}")
+    private long remoteTtlMillis;
+    
+    @Value("${player.presence.publish-batch-size:500}")
+    private int publishBatchSize;
+    
+    private final ConcurrentMap<String, ConcurrentMap<String, PlayerPresence>> tenants = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> playerTenants = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> remoteRefreshedAt = new ConcurrentHashMap<>();
+    
+    // Local changes waiting for the next publish
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private final Set<String> departed = ConcurrentHashMap.newKeySet();
+    
+    private final List<PresenceListener> listeners = new CopyOnWriteArrayList<>();
+    
+    public void addListener(PresenceListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(PresenceListener listener) {
+        listeners.remove(listener);
+    }
+    
+    public void playerOnline(Player player) {
+        PlayerPresence current = get(player.getId()).filter(this::isLocal).orElse(null);
+        PlayerPresence presence = PlayerPresence.builder()
+                .playerId(player.getId())
+                .tenantId(player.getTenantId())
+                .name(player.getName())
+                .platform(player.getPlatform())
+                .status(current != null ? current.getStatus() : Player.PlayerStatus.ONLINE)
+                .currentTrack(current != null ? current.getCurrentTrack() : player.getCurrentTrack())
+                .volume(current != null ? current.getVolume() : player.getVolume())
+                .lastSeen(LocalDateTime.now())
+                .instanceId(instanceIdentity.getInstanceId())
+                .build();
+        
+        put(presence);
+        remoteRefreshedAt.remove(player.getId());
+        departed.remove(player.getId());
+        changed.add(player.getId());
+    }
+    
+    public void playerOffline(String playerId) {
+        removeIf(playerId, this::isLocal);
+        changed.remove(playerId);
+        departed.add(playerId);
+    }
+    
+    public void playersOffline(Collection<String> playerIds) {
+        playerIds.forEach(this::playerOffline);
+    }
+    
+    public void updateStatus(String playerId, Map<String, Object> statusData) {
+        if (statusData == null) {
+            touch(playerId);
+            return;
+        }
+        
+        Player.PlayerStatus status = null;
+        if (statusData.get("status") instanceof String value) {
+            try {
+                status = Player.PlayerStatus.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // Logged by the status write-behind
+            }
+        }
+        Integer volume = statusData.get("volume") instanceof Number value ? value.intValue() : null;
+        boolean hasTrack = statusData.containsKey("nowPlaying");
+        String track = hasTrack && statusData.get("nowPlaying") != null
+                ? statusData.get("nowPlaying").toString() : null;
+        
+        Player.PlayerStatus reportedStatus = status;
+        boolean updated = updateLocal(playerId, presence -> presence.toBuilder()
+                .status(reportedStatus != null ? reportedStatus : presence.getStatus())
+                .volume(volume != null ? volume : presence.getVolume())
+                .currentTrack(hasTrack ? track : presence.getCurrentTrack())
+                .lastSeen(LocalDateTime.now())
+                .build());
+        if (updated) {
+            changed.add(playerId);
+        }
+    }
+    
+    /**
+     * Refreshes last-seen locally; other instances pick it up with the next change or refresh.
+     */
+    public void touch(String playerId) {
+        updateLocal(playerId, presence -> presence.toBuilder().lastSeen(LocalDateTime.now()).build());
+    }
+    
+    public List<PlayerPresence> getOnlinePlayers(String tenantId) {
+        ConcurrentMap<String, PlayerPresence> players = tenants.get(tenantId);
+        return players != null ? List.copyOf(players.values()) : List.of();
+    }
+    
+    public int countOnline(String tenantId) {
+        ConcurrentMap<String, PlayerPresence> players = tenants.get(tenantId);
+        return players != null ? players.size() : 0;
+    }
+    
+    public Map<Player.PlayerPlatform, Long> countByPlatform(String tenantId) {
+        Map<Player.PlayerPlatform, Long> counts = new EnumMap<>(Player.PlayerPlatform.class);
+        ConcurrentMap<String, PlayerPresence> players = tenants.get(tenantId);
+        if (players != null) {
+            for (PlayerPresence presence : players.values()) {
+                if (presence.getPlatform() != null) {
+                    counts.merge(presence.getPlatform(), 1L, Long::sum);
+                }
+            }
+        }
+        return counts;
+    }
+    
+    public Map<String, Integer> countByTenant() {
+        Map<String, Integer> counts = new HashMap<>();
+        tenants.forEach((tenantId, players) -> {
+            if (!players.isEmpty()) {
+                counts.put(tenantId, players.size());
+            }
+        });
+        return counts;
+    }
+    
+    public Optional<PlayerPresence> get(String playerId) {
+        String tenantId = playerTenants.get(playerId);
+        if (tenantId == null) {
+            return Optional.empty();
+        }
+        ConcurrentMap<String, PlayerPresence> players = tenants.get(tenantId);
+        return Optional.ofNullable(players != null ? players.get(playerId) : null);
+    }
+    
+    public boolean isOnline(String playerId) {
+        return get(playerId).isPresent();
+    }
+    
+    public boolean isOnlineElsewhere(String playerId) {
+        return get(playerId).filter(presence -> !isLocal(presence)).isPresent();
+    }
+    
+    public void applyRemote(ClusterMessage message) {
+        String origin = message.getOriginInstanceId();
+        if (origin == null || origin.equals(instanceIdentity.getInstanceId())) {
+            return;
+        }
+        
+        if (message.getType() == ClusterMessage.Type.PRESENCE_SYNC) {
+            changed.addAll(localPlayerIds());
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        if (message.getPresence() != null) {
+            for (PlayerPresence presence : message.getPresence()) {
+                // A player connected here as well keeps its local entry
+                if (get(presence.getPlayerId()).filter(this::isLocal).isPresent()) {
+                    continue;
+                }
+                presence.setInstanceId(origin);
+                put(presence);
+                remoteRefreshedAt.put(presence.getPlayerId(), now);
+            }
+        }
+        if (message.getPlayerIds() != null) {
+            for (String playerId : message.getPlayerIds()) {
+                if (removeIf(playerId, presence -> origin.equals(presence.getInstanceId()))) {
+                    remoteRefreshedAt.remove(playerId);
+                }
+            }
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${player.presence.publish-interval:500}")
+    public void publishChanges() {
+        List<String> changedIds = drain(changed);
+        List<String> departedIds = drain(departed);
+        if (!clusterEnabled || (changedIds.isEmpty() && departedIds.isEmpty())) {
+            return;
+        }
+        
+        List<PlayerPresence> presence = new ArrayList<>(changedIds.size());
+        for (String playerId : changedIds) {
+            get(playerId).filter(this::isLocal).ifPresent(presence::add);
+        }
+        publish(presence, departedIds);
+    }
+    
+    /**
+     * Republishes every local entry so other instances keep them, and expires remote
+     * entries whose owner stopped refreshing them (e.g. it died without saying goodbye).
+     */
+    @Scheduled(fixedRateString = "${player.presence.refresh-interval:30000}")
+    public void refresh() {
+        long threshold = System.currentTimeMillis() - remoteTtlMillis;
+        remoteRefreshedAt.forEach((playerId, refreshedAt) -> {
+            if (refreshedAt < threshold && remoteRefreshedAt.remove(playerId, refreshedAt)) {
+                removeIf(playerId, presence -> !isLocal(presence));
+            }
+        });
+        
+        if (clusterEnabled) {
+            List<PlayerPresence> presence = new ArrayList<>();
+            tenants.values().forEach(players -> players.values().stream().filter(this::isLocal).forEach(presence::add));
+            if (!presence.isEmpty()) {
+                publish(presence, List.of());
+            }
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void requestSync() {
+        if (!clusterEnabled) {
+            return;
+        }
+        
+        send(ClusterMessage.builder()
+                .type(ClusterMessage.Type.PRESENCE_SYNC)
+                .originInstanceId(instanceIdentity.getInstanceId())
+                .build());
+    }
+    
+    private void publish(List<PlayerPresence> presence, List<String> departedIds) {
+        // Departures ride along with the first chunk
+        int from = 0;
+        do {
+            int to = Math.min(from + publishBatchSize, presence.size());
+            send(ClusterMessage.builder()
+                    .type(ClusterMessage.Type.PRESENCE)
+                    .originInstanceId(instanceIdentity.getInstanceId())
+                    .presence(presence.subList(from, to))
+                    .playerIds(from == 0 && !departedIds.isEmpty() ? departedIds : null)
+                    .build());
+            from = to;
+        } while (from < presence.size());
+    }
+    
+    private void send(ClusterMessage message) {
+        try {
+            stringRedisTemplate.convertAndSend(InstanceIdentity.PRESENCE_CHANNEL, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.warn("Failed to publish presence update: {}", e.getMessage());
+        }
+    }
+    
+    private boolean updateLocal(String playerId, UnaryOperator<PlayerPresence> update) {
+        String tenantId = playerTenants.get(playerId);
+        ConcurrentMap<String, PlayerPresence> players = tenantId != null ? tenants.get(tenantId) : null;
+        if (players == null) {
+            return false;
+        }
+        
+        PlayerPresence[] previous = new PlayerPresence[1];
+        PlayerPresence current = players.computeIfPresent(playerId, (id, presence) -> {
+            previous[0] = presence;
+            return isLocal(presence) ? update.apply(presence) : presence;
+        });
+        if (current == null || current == previous[0]) {
+            return false;
+        }
+        notifyChanged(previous[0], current);
+        return true;
+    }
+    
+    private void put(PlayerPresence presence) {
+        String previousTenant = playerTenants.put(presence.getPlayerId(), presence.getTenantId());
+        if (previousTenant != null && !previousTenant.equals(presence.getTenantId())) {
+            ConcurrentMap<String, PlayerPresence> previous = tenants.get(previousTenant);
+            if (previous != null) {
+                previous.remove(presence.getPlayerId());
+            }
+        }
+        PlayerPresence replaced = tenants.computeIfAbsent(presence.getTenantId(), k -> new ConcurrentHashMap<>())
+                .put(presence.getPlayerId(), presence);
+        notifyChanged(replaced, presence);
+    }
+    
+    private boolean removeIf(String playerId, Predicate<PlayerPresence> condition) {
+        String tenantId = playerTenants.get(playerId);
+        ConcurrentMap<String, PlayerPresence> players = tenantId != null ? tenants.get(tenantId) : null;
+        if (players == null) {
+            return false;
+        }
+        
+        PlayerPresence[] removed = new PlayerPresence[1];
+        players.computeIfPresent(playerId, (id, presence) -> {
+            if (condition.test(presence)) {
+                removed[0] = presence;
+                return null;
+            }
+            return presence;
+        });
+        if (removed[0] == null) {
+            return false;
+        }
+        
+        playerTenants.remove(playerId, tenantId);
+        for (PresenceListener listener : listeners) {
+            try {
+                listener.presenceRemoved(removed[0]);
+            } catch (Exception e) {
+                log.warn("Presence listener failed for player {}: {}", playerId, e.getMessage());
+            }
+        }
+        return true;
+    }
+    
+    private void notifyChanged(PlayerPresence previous, PlayerPresence current) {
+        // Last-seen alone is not worth telling anyone about
+        if (listeners.isEmpty() || (previous != null
+                && previous.getStatus() == current.getStatus()
+                && Objects.equals(previous.getVolume(), current.getVolume())
+                && Objects.equals(previous.getCurrentTrack(), current.getCurrentTrack()))) {
+            return;
+        }
+        
+        for (PresenceListener listener : listeners) {
+            try {
+                listener.presenceChanged(current);
+            } catch (Exception e) {
+                log.warn("Presence listener failed for player {}: {}", current.getPlayerId(), e.getMessage());
+            }
+        }
+    }
+    
+    private boolean isLocal(PlayerPresence presence) {
+        return instanceIdentity.getInstanceId().equals(presence.getInstanceId());
+    }
+    
+    private List<String> localPlayerIds() {
+        List<String> playerIds = new ArrayList<>();
+        tenants.values().forEach(players -> players.values().stream()
+                .filter(this::isLocal)
+                .forEach(presence -> playerIds.add(presence.getPlayerId())));
+        return playerIds;
+    }
+    
+    private static List<String> drain(Set<String> source) {
+        List<String> drained = new ArrayList<>();
+        Iterator<String> iterator = source.iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,14 @@
+package com.teneocast.player.service;
+
+import com.teneocast.player.dto.PlayerPresence;
+
+/**
+ * Told about presence changes of any player in the cluster, local or remote. Called
+ * on the thread that made the change, so implementations must not block.
+ */
+public interface PresenceListener {
+    
+    void presenceChanged(PlayerPresence presence);
+    
+    void presenceRemoved(PlayerPresence presence);
+}
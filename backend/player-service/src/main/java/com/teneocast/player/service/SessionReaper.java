@@ -0,0 +1,98 @@
+package com.teneocast.player.service;
+
+import com.teneocast.player.entity.PlayerSession;
+import com.teneocast.player.repository.PlayerSessionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Cleans up dead sessions in bulk: one pipelined Redis round trip for the session
+ * sets and owner keys, and chunked UPDATEs for session rows and players going offline.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SessionReaper {
+    
+    private final WebSocketSessionManager sessionManager;
+    private final PlayerService playerService;
+    private final PlayerSessionRepository playerSessionRepository;
+    private final PlayerStatusWriteBehind statusWriteBehind;
+    private final PresenceIndex presenceIndex;
+    
+    @Value("${websocket.connection-timeout:300000}")
+    private long connectionTimeoutMillis;
+    
+    public void reap(Map<String, String> sessionPlayers) {
+        if (sessionPlayers.isEmpty()) {
+            return;
+        }
+        
+        Set<String> offlinePlayers = sessionManager.removeSessions(sessionPlayers);
+        playerService.closePlayerSessions(sessionPlayers.keySet());
+        
+        // Players still connected elsewhere are no longer this instance's to announce
+        Set<String> locallyGone = new HashSet<>(sessionPlayers.values());
+        locallyGone.removeIf(sessionManager::hasLocalSessions);
+        presenceIndex.playersOffline(locallyGone);
+        
+        if (!offlinePlayers.isEmpty()) {
+            offlinePlayers.forEach(statusWriteBehind::flushPlayer);
+            playerService.markPlayersOffline(offlinePlayers);
+        }
+        
+        log.info("Reaped {} dead sessions, {} players went offline", sessionPlayers.size(), offlinePlayers.size());
+    }
+    
+    /**
+     * Reaps session rows nobody has refreshed within the connection timeout. Sessions
+     * still open on this instance are closed, so the handler's normal close path cleans
+     * them up (heartbeat, outbound queue, Redis, database). Rows are swept directly only
+     * when their owner instance is gone; rows owned by a live instance are left to it.
+     */
+    public int reapStaleSessions() {
+        LocalDateTime threshold = LocalDateTime.now().minus(Duration.ofMillis(connectionTimeoutMillis));
+        List<PlayerSession> stale = playerSessionRepository.findStaleActiveSessions(threshold);
+        
+        Map<String, String> orphaned = new HashMap<>();
+        int closed = 0;
+        for (PlayerSession session : stale) {
+            String sessionId = session.getSessionId();
+            String playerId = session.getPlayer().getId();
+            Optional<WebSocketSession> local = sessionManager.getLocalSession(playerId, sessionId);
+            if (local.isPresent() && close(local.get())) {
+                closed++;
+            } else {
+                orphaned.put(sessionId, playerId);
+            }
+        }
+        
+        orphaned.keySet().removeAll(sessionManager.getSessionsOwnedElsewhere(orphaned.keySet()));
+        reap(orphaned);
+        return closed + orphaned.size();
+    }
+    
+    private boolean close(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to close stale session {}", session.getId(), e);
+            return false;
+        }
+    }
+}
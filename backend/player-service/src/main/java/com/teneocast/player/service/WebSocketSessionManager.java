@@ -1,15 +1,28 @@
 package com.teneocast.player.service;
 
+import com.teneocast.player.cluster.InstanceIdentity;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -17,12 +30,19 @@ import java.util.concurrent.ConcurrentMap;
 public class WebSocketSessionManager {
     
     private final RedisTemplate<String, Object> redisTemplate;
+    private final InstanceIdentity instanceIdentity;
+    private final PresenceIndex presenceIndex;
     
     // Local session storage - sessions are not shared across instances
     private final ConcurrentMap<String, ConcurrentMap<String, WebSocketSession>> playerSessions = new ConcurrentHashMap<>();
     
-    private static final String PLAYER_LAST_SEEN_KEY = "player:lastSeen:";
+    static final String PLAYER_LAST_SEEN_KEY = "player:lastSeen:";
     private static final String PLAYER_SESSIONS_KEY = "player:sessions:";
+    private static final String SESSION_OWNER_KEY = "player:session:owner:";
+    
+    // Owner keys outlive a few heartbeat intervals and lapse on their own if the instance dies
+    @Value("${player.cluster.owner-ttl:150000}")
+    private long ownerTtlMillis;
     
     public void addSession(String playerId, WebSocketSession session) {
         playerSessions.computeIfAbsent(playerId, k -> new ConcurrentHashMap<>())
@@ -30,6 +50,8 @@ public class WebSocketSessionManager {
         
         // Store session info in Redis for cross-instance awareness
         redisTemplate.opsForSet().add(PLAYER_SESSIONS_KEY + playerId, session.getId());
+        redisTemplate.opsForValue().set(SESSION_OWNER_KEY + session.getId(), instanceIdentity.getInstanceId(),
+                ownerTtlMillis, TimeUnit.MILLISECONDS);
         updateLastSeen(playerId);
         
         log.info("Added WebSocket session {} for player {}", session.getId(), playerId);
@@ -46,19 +68,97 @@ public class WebSocketSessionManager {
         
         // Remove from Redis
         redisTemplate.opsForSet().remove(PLAYER_SESSIONS_KEY + playerId, sessionId);
+        redisTemplate.delete(SESSION_OWNER_KEY + sessionId);
         
         log.info("Removed WebSocket session {} for player {}", sessionId, playerId);
     }
     
+    /**
+     * Removes many sessions in one pipelined Redis round trip and returns the players
+     * that are left without a session on any instance.
+     */
+    public Set<String> removeSessions(Map<String, String> sessionPlayers) {
+        if (sessionPlayers.isEmpty()) {
+            return Set.of();
+        }
+        
+        sessionPlayers.forEach((sessionId, playerId) -> {
+            ConcurrentMap<String, WebSocketSession> sessions = playerSessions.get(playerId);
+            if (sessions != null) {
+                sessions.remove(sessionId);
+                if (sessions.isEmpty()) {
+                    playerSessions.remove(playerId, sessions);
+                }
+            }
+        });
+        
+        List<String> players = new ArrayList<>(new HashSet<>(sessionPlayers.values()));
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                sessionPlayers.forEach((sessionId, playerId) -> {
+                    ops.opsForSet().remove(PLAYER_SESSIONS_KEY + playerId, sessionId);
+                    ops.delete(SESSION_OWNER_KEY + sessionId);
+                });
+                players.forEach(playerId -> ops.opsForSet().size(PLAYER_SESSIONS_KEY + playerId));
+                return null;
+            }
+        });
+        
+        // Set sizes follow the two commands issued per removed session
+        int offset = sessionPlayers.size() * 2;
+        Set<String> withoutSessions = new HashSet<>();
+        for (int i = 0; i < players.size(); i++) {
+            Object remaining = results != null && results.size() > offset + i ? results.get(offset + i) : null;
+            if (remaining instanceof Number count && count.longValue() == 0 && !playerSessions.containsKey(players.get(i))) {
+                withoutSessions.add(players.get(i));
+            }
+        }
+        
+        log.info("Removed {} WebSocket sessions for {} players", sessionPlayers.size(), players.size());
+        return withoutSessions;
+    }
+    
+    /**
+     * Extends the owner keys of sessions that answered a heartbeat, in one pipelined
+     * round trip.
+     */
+    public void refreshOwners(Collection<String> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return;
+        }
+        
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                sessionIds.forEach(sessionId ->
+                        ops.expire(SESSION_OWNER_KEY + sessionId, ownerTtlMillis, TimeUnit.MILLISECONDS));
+                return null;
+            }
+        });
+    }
+    
     public boolean hasActiveSessions(String playerId) {
-        // Check both local and Redis for cross-instance awareness
         ConcurrentMap<String, WebSocketSession> localSessions = playerSessions.get(playerId);
-        boolean hasLocalSessions = localSessions != null && !localSessions.isEmpty();
-        
-        Set<Object> redisSessions = redisTemplate.opsForSet().members(PLAYER_SESSIONS_KEY + playerId);
-        boolean hasRedisSessions = redisSessions != null && !redisSessions.isEmpty();
+        if (localSessions != null && !localSessions.isEmpty()) {
+            return true;
+        }
+        if (presenceIndex.isOnlineElsewhere(playerId)) {
+            return true;
+        }
         
-        return hasLocalSessions || hasRedisSessions;
+        // The index may lag a remote connect by one publish interval, so confirm a miss in Redis
+        Long redisSessions = redisTemplate.opsForSet().size(PLAYER_SESSIONS_KEY + playerId);
+        return redisSessions != null && redisSessions > 0;
+    }
+    
+    public boolean hasLocalSessions(String playerId) {
+        ConcurrentMap<String, WebSocketSession> sessions = playerSessions.get(playerId);
+        return sessions != null && !sessions.isEmpty();
     }
     
     public Set<WebSocketSession> getPlayerSessions(String playerId) {
@@ -66,6 +166,59 @@ public class WebSocketSessionManager {
         return sessions != null ? Set.copyOf(sessions.values()) : Set.of();
     }
     
+    public Optional<WebSocketSession> getLocalSession(String playerId, String sessionId) {
+        ConcurrentMap<String, WebSocketSession> sessions = playerSessions.get(playerId);
+        return sessions != null ? Optional.ofNullable(sessions.get(sessionId)) : Optional.empty();
+    }
+    
+    /**
+     * Returns the sessions whose owner key names another instance. Owner keys expire
+     * unless heartbeats refresh them, so these are held by an instance that is still alive.
+     */
+    public Set<String> getSessionsOwnedElsewhere(Collection<String> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return Set.of();
+        }
+        
+        List<String> ids = List.copyOf(sessionIds);
+        List<Object> owners = redisTemplate.opsForValue().multiGet(ids.stream()
+                .map(sessionId -> SESSION_OWNER_KEY + sessionId)
+                .toList());
+        if (owners == null) {
+            return Set.of();
+        }
+        
+        Set<String> ownedElsewhere = new HashSet<>();
+        for (int i = 0; i < ids.size() && i < owners.size(); i++) {
+            Object owner = owners.get(i);
+            if (owner != null && !owner.toString().equals(instanceIdentity.getInstanceId())) {
+                ownedElsewhere.add(ids.get(i));
+            }
+        }
+        return ownedElsewhere;
+    }
+    
+    public Set<String> getRemoteOwners(String playerId) {
+        Set<Object> sessionIds = redisTemplate.opsForSet().members(PLAYER_SESSIONS_KEY + playerId);
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return Set.of();
+        }
+        
+        List<String> ownerKeys = sessionIds.stream()
+                .map(sessionId -> SESSION_OWNER_KEY + sessionId)
+                .toList();
+        List<Object> owners = redisTemplate.opsForValue().multiGet(ownerKeys);
+        if (owners == null) {
+            return Set.of();
+        }
+        
+        return owners.stream()
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .filter(owner -> !owner.equals(instanceIdentity.getInstanceId()))
+                .collect(Collectors.toSet());
+    }
+    
     public void updateLastSeen(String playerId) {
         redisTemplate.opsForValue().set(PLAYER_LAST_SEEN_KEY + playerId, LocalDateTime.now().toString());
     }
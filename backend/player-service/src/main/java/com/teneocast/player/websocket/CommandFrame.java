@@ -0,0 +1,82 @@
+package com.teneocast.player.websocket;
+
+import com.teneocast.player.dto.PlayerCommand;
+import lombok.Getter;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+
+/**
+ * A command encoded at most once per wire protocol. Every session of every target
+ * player receives the same immutable {@link TextMessage}, or a {@link BinaryMessage}
+ * view over the same encoded bytes, so sending to N sessions costs one serialization
+ * instead of N.
+ */
+public final class CommandFrame {
+    
+    private final PlayerMessageCodec codec;
+    @Getter
+    private final String messageId;
+    @Getter
+    private final String playerId;
+    @Getter
+    private final PlayerCommand command;
+    @Getter
+    private final LocalDateTime timestamp;
+    
+    private volatile TextMessage text;
+    private volatile byte[] binary;
+    
+    CommandFrame(PlayerMessageCodec codec, String messageId, String playerId,
+                 PlayerCommand command, LocalDateTime timestamp) {
+        this.codec = codec;
+        this.messageId = messageId;
+        this.playerId = playerId;
+        this.command = command;
+        this.timestamp = timestamp;
+    }
+    
+    public WebSocketMessage<?> forSession(WebSocketSession session) {
+        return PlayerMessageCodec.isBinary(session) ? binary() : text();
+    }
+    
+    public TextMessage text() {
+        TextMessage encoded = text;
+        if (encoded == null) {
+            synchronized (this) {
+                encoded = text;
+                if (encoded == null) {
+                    try {
+                        text = encoded = codec.encodeCommandText(this);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Unable to encode command " + messageId, e);
+                    }
+                }
+            }
+        }
+        return encoded;
+    }
+    
+    public BinaryMessage binary() {
+        byte[] encoded = binary;
+        if (encoded == null) {
+            synchronized (this) {
+                encoded = binary;
+                if (encoded == null) {
+                    try {
+                        binary = encoded = codec.encodeCommandBytes(this);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Unable to encode command " + messageId, e);
+                    }
+                }
+            }
+        }
+        // The container advances the buffer position while writing, so each send gets its own view
+        return new BinaryMessage(encoded);
+    }
+}
@@ -0,0 +1,283 @@
+package com.teneocast.player.websocket;
+
+import com.teneocast.player.dto.WebSocketMessage;
+import com.teneocast.player.service.PlayerService;
+import com.teneocast.player.service.SessionReaper;
+import com.teneocast.player.service.WebSocketSessionManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pings every player session on a jittered interval using a hashed timer wheel:
+ * one ticker advances a ring of slots, and each tick only visits the sessions due
+ * in its slot, so the cost per tick stays flat with hundreds of thousands of
+ * sessions and there is no scheduled task per session. Sessions that miss
+ * {@code websocket.heartbeat-max-missed} pongs in a row are closed and cleaned up
+ * in one batch.
+ */
+@Component
+@Slf4j
+public class HeartbeatScheduler {
+    
+    /** Marks sessions closed by the reap, whose cleanup runs in one batch instead of the handler's close path */
+    public static final String REAPED_ATTRIBUTE = HeartbeatScheduler.class.getName() + ".reaped";
+    
+    private final SessionReaper sessionReaper;
+    private final PlayerService playerService;
+    private final WebSocketSessionManager sessionManager;
+    private final OutboundSessionFactory outboundSessionFactory;
+    private final PlayerMessageCodec messageCodec;
+    private final ThreadPoolTaskScheduler scheduler;
+    
+    private final ConcurrentMap<String, HeartbeatState> states = new ConcurrentHashMap<>();
+    private final Set<String> pongedSessions = ConcurrentHashMap.newKeySet();
+    private final Queue<HeartbeatState>[] wheel;
+    private final AtomicLong currentTick = new AtomicLong();
+    
+    private final long intervalTicks;
+    private final long jitterTicks;
+    private final int maxMissed;
+    
+    private final Timer rttTimer;
+    private final Counter pingCounter;
+    private final Counter missedCounter;
+    private final Counter reapedCounter;
+    
+    @SuppressWarnings("unchecked")
+    public HeartbeatScheduler(SessionReaper sessionReaper,
+                              PlayerService playerService,
+                              WebSocketSessionManager sessionManager,
+                              OutboundSessionFactory outboundSessionFactory,
+                              PlayerMessageCodec messageCodec,
+                              MeterRegistry meterRegistry,
+                              @Value("${websocket.heartbeat-interval:30000}") long intervalMillis,
+                              @Value("${websocket.heartbeat-tick:1000}") long tickMillis,
+                              @Value("${websocket.heartbeat-jitter:0.2}") double jitter,
+                              @Value("${websocket.heartbeat-max-missed:3}") int maxMissed) {
+        this.sessionReaper = sessionReaper;
+        this.playerService = playerService;
+        this.sessionManager = sessionManager;
+        this.outboundSessionFactory = outboundSessionFactory;
+        this.messageCodec = messageCodec;
+        this.intervalTicks = Math.max(1, intervalMillis / tickMillis);
+        this.jitterTicks = Math.round(intervalTicks * jitter);
+        this.maxMissed = maxMissed;
+        
+        this.wheel = new Queue[(int) (intervalTicks + jitterTicks + 1)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        
+        this.rttTimer = Timer.builder("player.websocket.heartbeat.rtt")
+                .description("Round trip between HEARTBEAT_PING and HEARTBEAT_PONG")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.pingCounter = meterRegistry.counter("player.websocket.heartbeat.pings");
+        this.missedCounter = meterRegistry.counter("player.websocket.heartbeat.missed");
+        this.reapedCounter = meterRegistry.counter("player.websocket.heartbeat.reaped");
+        Gauge.builder("player.websocket.heartbeat.sessions", states, Map::size)
+                .register(meterRegistry);
+        
+        // One thread drives the wheel, the other runs batched database/Redis work
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(2);
+        this.scheduler.setThreadNamePrefix("ws-heartbeat-");
+        this.scheduler.initialize();
+        this.scheduler.scheduleAtFixedRate(this::tick, Instant.now().plusMillis(tickMillis), Duration.ofMillis(tickMillis));
+    }
+    
+    public void register(WebSocketSession session, String playerId) {
+        HeartbeatState state = new HeartbeatState(session, playerId);
+        states.put(session.getId(), state);
+        // Spread first pings over the whole interval so reconnect storms do not ping in lockstep
+        schedule(state, 1 + ThreadLocalRandom.current().nextLong(intervalTicks + jitterTicks));
+    }
+    
+    public void unregister(String sessionId) {
+        HeartbeatState state = states.remove(sessionId);
+        if (state != null) {
+            state.cancelled = true;
+        }
+        pongedSessions.remove(sessionId);
+    }
+    
+    public void onPong(String sessionId) {
+        HeartbeatState state = states.get(sessionId);
+        if (state == null) {
+            return;
+        }
+        
+        if (state.awaitingPong) {
+            rttTimer.record(System.nanoTime() - state.pingSentNanos, TimeUnit.NANOSECONDS);
+            state.awaitingPong = false;
+        }
+        state.missed = 0;
+        pongedSessions.add(sessionId);
+    }
+    
+    public int getTrackedSessions() {
+        return states.size();
+    }
+    
+    void tick() {
+        try {
+            long tick = currentTick.incrementAndGet();
+            Queue<HeartbeatState> slot = wheel[(int) (tick % wheel.length)];
+            
+            List<HeartbeatState> dead = new ArrayList<>();
+            for (int remaining = slot.size(); remaining > 0; remaining--) {
+                HeartbeatState state = slot.poll();
+                if (state == null) {
+                    break;
+                }
+                if (state.cancelled) {
+                    continue;
+                }
+                if (state.deadlineTick > tick) {
+                    // Due in a later revolution of the wheel
+                    slot.add(state);
+                    continue;
+                }
+                
+                if (state.awaitingPong) {
+                    state.missed++;
+                    missedCounter.increment();
+                }
+                if (state.missed >= maxMissed || !state.session.isOpen()) {
+                    dead.add(state);
+                    continue;
+                }
+                
+                ping(state);
+                schedule(state, intervalTicks + jitter());
+            }
+            
+            if (!dead.isEmpty()) {
+                scheduler.execute(() -> reap(dead));
+            }
+            if (!pongedSessions.isEmpty()) {
+                scheduler.execute(this::flushPongs);
+            }
+        } catch (Exception e) {
+            log.error("Heartbeat tick failed", e);
+        }
+    }
+    
+    private void ping(HeartbeatState state) {
+        WebSocketMessage ping = WebSocketMessage.builder()
+                .messageId(Long.toString(currentTick.get()))
+                .type(WebSocketMessage.MessageType.HEARTBEAT_PING)
+                .timestamp(LocalDateTime.now())
+                .playerId(state.playerId)
+                .build();
+        
+        try {
+            state.pingSentNanos = System.nanoTime();
+            state.awaitingPong = true;
+            OutboundSession.send(state.session, messageCodec.encode(state.session, ping), OutboundPriority.DROPPABLE);
+            pingCounter.increment();
+        } catch (Exception e) {
+            log.debug("Failed to ping session {}", state.session.getId(), e);
+        }
+    }
+    
+    private void schedule(HeartbeatState state, long delayTicks) {
+        long deadline = currentTick.get() + Math.max(1, delayTicks);
+        state.deadlineTick = deadline;
+        wheel[(int) (deadline % wheel.length)].add(state);
+    }
+    
+    private long jitter() {
+        return jitterTicks > 0 ? ThreadLocalRandom.current().nextLong(-jitterTicks, jitterTicks + 1) : 0;
+    }
+    
+    private void reap(List<HeartbeatState> dead) {
+        Map<String, String> sessionPlayers = new HashMap<>();
+        for (HeartbeatState state : dead) {
+            String sessionId = state.session.getId();
+            if (states.remove(sessionId, state)) {
+                sessionPlayers.put(sessionId, state.playerId);
+                state.session.getAttributes().put(REAPED_ATTRIBUTE, Boolean.TRUE);
+            }
+            outboundSessionFactory.release(state.session);
+            try {
+                state.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (Exception e) {
+                log.debug("Error closing dead session {}", sessionId, e);
+            }
+        }
+        
+        try {
+            sessionReaper.reap(sessionPlayers);
+            reapedCounter.increment(sessionPlayers.size());
+            log.info("Closed {} sessions after {} missed heartbeats", sessionPlayers.size(), maxMissed);
+        } catch (Exception e) {
+            log.error("Failed to clean up {} dead sessions", sessionPlayers.size(), e);
+        }
+    }
+    
+    private void flushPongs() {
+        List<String> sessionIds = new ArrayList<>(pongedSessions);
+        if (sessionIds.isEmpty()) {
+            return;
+        }
+        sessionIds.forEach(pongedSessions::remove);
+        
+        try {
+            playerService.touchSessions(sessionIds);
+        } catch (Exception e) {
+            log.error("Failed to refresh last ping for {} sessions", sessionIds.size(), e);
+        }
+        
+        try {
+            sessionManager.refreshOwners(sessionIds);
+        } catch (Exception e) {
+            log.error("Failed to refresh owner keys for {} sessions", sessionIds.size(), e);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+    
+    private static final class HeartbeatState {
+        private final WebSocketSession session;
+        private final String playerId;
+        private volatile long deadlineTick;
+        private volatile long pingSentNanos;
+        private volatile boolean awaitingPong;
+        private volatile int missed;
+        private volatile boolean cancelled;
+        
+        private HeartbeatState(WebSocketSession session, String playerId) {
+            this.session = session;
+            this.playerId = playerId;
+        }
+    }
+}
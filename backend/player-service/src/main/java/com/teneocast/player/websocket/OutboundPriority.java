@@ -0,0 +1,29 @@
+package com.teneocast.player.websocket;
+
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.dto.WebSocketMessage;
+
+/**
+ * Overflow class of an outbound frame. When a session queue is full, frames of a lower
+ * priority are evicted to make room for higher ones; CRITICAL frames are never dropped.
+ */
+public enum OutboundPriority {
+    DROPPABLE,
+    NORMAL,
+    CRITICAL;
+    
+    public static OutboundPriority forCommand(PlayerCommand.CommandType commandType) {
+        if (commandType == null) {
+            return NORMAL;
+        }
+        return switch (commandType) {
+            case HEARTBEAT -> DROPPABLE;
+            case PLAY_AD, STOP -> CRITICAL;
+            default -> NORMAL;
+        };
+    }
+    
+    public static OutboundPriority forMessage(WebSocketMessage.MessageType messageType) {
+        return messageType == WebSocketMessage.MessageType.HEARTBEAT_PING ? DROPPABLE : NORMAL;
+    }
+}
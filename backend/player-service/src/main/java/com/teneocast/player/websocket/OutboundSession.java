@@ -0,0 +1,276 @@
+package com.teneocast.player.websocket;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Session decorator that queues outbound frames in a bounded buffer and writes them
+ * from a shared executor, so callers never block on a slow player connection and the
+ * underlying session is only ever written by one thread at a time.
+ */
+@Slf4j
+public class OutboundSession extends WebSocketSessionDecorator {
+    
+    public static final String ATTRIBUTE = OutboundSession.class.getName();
+    
+    /** Tomcat's own limit on a blocking write, which otherwise defaults to 20 seconds */
+    static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+    
+    private final Deque<Frame> queue = new ArrayDeque<>();
+    private final int capacity;
+    private final long sendTimeLimitNanos;
+    private final long heartbeatStaleNanos;
+    private final Executor executor;
+    private final MeterRegistry meterRegistry;
+    
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile boolean sending;
+    private volatile long sendStartedAt;
+    private volatile boolean closed;
+    
+    public OutboundSession(WebSocketSession delegate, int capacity, long sendTimeLimitMillis,
+                           long heartbeatStaleMillis, Executor executor, MeterRegistry meterRegistry) {
+        super(delegate);
+        this.capacity = capacity;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMillis);
+        this.heartbeatStaleNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatStaleMillis);
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+        
+        // Writes block, so the limit has to hold inside the container's write, not just between frames
+        if (WebSocketSessionDecorator.unwrap(delegate) instanceof NativeWebSocketSession nativeSession
+                && nativeSession.getNativeSession() instanceof jakarta.websocket.Session container) {
+            container.getUserProperties().put(BLOCKING_SEND_TIMEOUT, sendTimeLimitMillis);
+        }
+    }
+    
+    /**
+     * Sends through the outbound queue when the session has one, or directly otherwise.
+     */
+    public static boolean send(WebSocketSession session, WebSocketMessage<?> message,
+                               OutboundPriority priority) throws IOException {
+        OutboundSession outbound = from(session);
+        if (outbound != null) {
+            return outbound.enqueue(message, priority);
+        }
+        session.sendMessage(message);
+        return true;
+    }
+    
+    public static OutboundSession from(WebSocketSession session) {
+        if (session instanceof OutboundSession outbound) {
+            return outbound;
+        }
+        Map<String, Object> attributes = session.getAttributes();
+        Object attribute = attributes != null ? attributes.get(ATTRIBUTE) : null;
+        return attribute instanceof OutboundSession ? (OutboundSession) attribute : null;
+    }
+    
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (!enqueue(message, OutboundPriority.NORMAL)) {
+            throw new IOException("Outbound queue rejected message for session " + getId());
+        }
+    }
+    
+    public boolean enqueue(WebSocketMessage<?> message, OutboundPriority priority) {
+        if (closed) {
+            recordDrop(priority, "closed");
+            return false;
+        }
+        if (isSendTimeLimitExceeded()) {
+            log.warn("Send to session {} exceeded {} ms, closing slow session",
+                    getId(), TimeUnit.NANOSECONDS.toMillis(sendTimeLimitNanos));
+            closeSlowSession();
+            recordDrop(priority, "slow_session");
+            return false;
+        }
+        
+        boolean overflow = false;
+        synchronized (queue) {
+            if (priority == OutboundPriority.DROPPABLE) {
+                // A newer heartbeat supersedes any still waiting in the queue
+                evictAll(OutboundPriority.DROPPABLE, "superseded");
+            }
+            if (queue.size() >= capacity && !evictBelow(priority)) {
+                overflow = true;
+            } else {
+                queue.addLast(new Frame(message, priority, System.nanoTime()));
+            }
+        }
+        
+        if (overflow) {
+            recordDrop(priority, "overflow");
+            if (priority == OutboundPriority.CRITICAL) {
+                log.warn("Outbound queue for session {} is full of critical frames, closing session", getId());
+                closeSlowSession();
+            }
+            return false;
+        }
+        
+        scheduleDrain();
+        return true;
+    }
+    
+    public int getQueueDepth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+    
+    public boolean isOutboundClosed() {
+        return closed;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        close(CloseStatus.NORMAL);
+    }
+    
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        discard();
+        super.close(status);
+    }
+    
+    void discard() {
+        closed = true;
+        synchronized (queue) {
+            queue.forEach(frame -> recordDrop(frame.priority(), "closed"));
+            queue.clear();
+        }
+    }
+    
+    /**
+     * Close the session if the frame being written has been blocked for longer than the send
+     * time limit. Called periodically by {@link OutboundSessionFactory}, so a stalled write is
+     * caught even when nothing else is queued for the session.
+     */
+    void checkSendTimeLimit() {
+        if (!closed && isSendTimeLimitExceeded()) {
+            log.warn("Write to session {} blocked for more than {} ms, closing slow session",
+                    getId(), TimeUnit.NANOSECONDS.toMillis(sendTimeLimitNanos));
+            closeSlowSession();
+        }
+    }
+    
+    private boolean isSendTimeLimitExceeded() {
+        return sending && System.nanoTime() - sendStartedAt > sendTimeLimitNanos;
+    }
+    
+    private void closeSlowSession() {
+        meterRegistry.counter("player.websocket.outbound.slow.closed").increment();
+        try {
+            close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("Error closing slow session {}", getId(), e);
+        }
+    }
+    
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                log.warn("Outbound executor rejected drain for session {}", getId());
+            }
+        }
+    }
+    
+    private void drain() {
+        try {
+            Frame frame;
+            while (!closed && (frame = poll()) != null) {
+                if (frame.priority() == OutboundPriority.DROPPABLE
+                        && System.nanoTime() - frame.enqueuedAt() > heartbeatStaleNanos) {
+                    recordDrop(frame.priority(), "stale");
+                    continue;
+                }
+                write(frame);
+            }
+        } finally {
+            draining.set(false);
+            if (!closed && getQueueDepth() > 0) {
+                scheduleDrain();
+            }
+        }
+    }
+    
+    private void write(Frame frame) {
+        sendStartedAt = System.nanoTime();
+        sending = true;
+        try {
+            getDelegate().sendMessage(frame.message());
+            meterRegistry.counter("player.websocket.outbound.sent").increment();
+        } catch (Exception e) {
+            recordDrop(frame.priority(), "send_error");
+            if (System.nanoTime() - sendStartedAt > sendTimeLimitNanos) {
+                // The container gave up on a stalled write; the connection cannot be trusted
+                log.warn("Write to session {} timed out, closing slow session", getId());
+                closeSlowSession();
+            } else {
+                log.error("Error sending WebSocket message to session {}", getId(), e);
+            }
+        } finally {
+            sending = false;
+        }
+    }
+    
+    private Frame poll() {
+        synchronized (queue) {
+            return queue.pollFirst();
+        }
+    }
+    
+    private boolean evictBelow(OutboundPriority incoming) {
+        for (OutboundPriority victim : OutboundPriority.values()) {
+            if (victim.compareTo(incoming) >= 0) {
+                return false;
+            }
+            Iterator<Frame> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Frame frame = iterator.next();
+                if (frame.priority() == victim) {
+                    iterator.remove();
+                    recordDrop(victim, "evicted");
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private void evictAll(OutboundPriority priority, String reason) {
+        Iterator<Frame> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().priority() == priority) {
+                iterator.remove();
+                recordDrop(priority, reason);
+            }
+        }
+    }
+    
+    private void recordDrop(OutboundPriority priority, String reason) {
+        meterRegistry.counter("player.websocket.outbound.dropped",
+                "priority", priority.name(), "reason", reason).increment();
+    }
+    
+    private record Frame(WebSocketMessage<?> message, OutboundPriority priority, long enqueuedAt) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.teneocast.player.websocket;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps player sessions in {@link OutboundSession} queues that share one bounded
+ * writer pool, and publishes queue depth across all open sessions. A watchdog closes
+ * sessions whose current write has been blocked past the send time limit, since a
+ * writer thread stuck on one slow player would otherwise only be noticed on the
+ * next enqueue.
+ */
+@Component
+@Slf4j
+public class OutboundSessionFactory {
+    
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolTaskExecutor executor;
+    private final ScheduledExecutorService watchdog;
+    private final Set<OutboundSession> openSessions = ConcurrentHashMap.newKeySet();
+    
+    private final int queueCapacity;
+    private final long sendTimeLimit;
+    private final long heartbeatStaleAfter;
+    
+    public OutboundSessionFactory(MeterRegistry meterRegistry,
+                                  @Value("${websocket.outbound.queue-capacity:64}") int queueCapacity,
+                                  @Value("${websocket.outbound.send-time-limit:10000}") long sendTimeLimit,
+                                  @Value("${websocket.outbound.heartbeat-stale-after:10000}") long heartbeatStaleAfter,
+                                  @Value("${websocket.outbound.writer-threads:16}") int writerThreads) {
+        this.meterRegistry = meterRegistry;
+        this.queueCapacity = queueCapacity;
+        this.sendTimeLimit = sendTimeLimit;
+        this.heartbeatStaleAfter = heartbeatStaleAfter;
+        
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(writerThreads);
+        this.executor.setMaxPoolSize(writerThreads);
+        this.executor.setThreadNamePrefix("ws-outbound-");
+        this.executor.initialize();
+        
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-outbound-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkInterval = Math.max(sendTimeLimit / 4, 100);
+        this.watchdog.scheduleWithFixedDelay(this::checkSendTimeLimits,
+                checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        
+        Gauge.builder("player.websocket.outbound.queue.depth", openSessions,
+                        sessions -> sessions.stream().mapToInt(OutboundSession::getQueueDepth).sum())
+                .description("Frames waiting in player outbound queues")
+                .register(meterRegistry);
+        Gauge.builder("player.websocket.outbound.queue.max", openSessions,
+                        sessions -> sessions.stream().mapToInt(OutboundSession::getQueueDepth).max().orElse(0))
+                .description("Deepest player outbound queue")
+                .register(meterRegistry);
+        Gauge.builder("player.websocket.outbound.sessions", openSessions, Set::size)
+                .register(meterRegistry);
+    }
+    
+    public OutboundSession decorate(WebSocketSession session) {
+        OutboundSession outbound = new OutboundSession(session, queueCapacity, sendTimeLimit,
+                heartbeatStaleAfter, executor, meterRegistry);
+        session.getAttributes().put(OutboundSession.ATTRIBUTE, outbound);
+        openSessions.add(outbound);
+        return outbound;
+    }
+    
+    public void release(WebSocketSession session) {
+        Object outbound = session.getAttributes().remove(OutboundSession.ATTRIBUTE);
+        if (outbound instanceof OutboundSession outboundSession) {
+            outboundSession.discard();
+            openSessions.remove(outboundSession);
+        }
+    }
+    
+    private void checkSendTimeLimits() {
+        for (OutboundSession session : openSessions) {
+            try {
+                session.checkSendTimeLimit();
+            } catch (RuntimeException e) {
+                // A failure must not cancel the watchdog for every other session
+                log.warn("Error checking send time limit for session {}", session.getId(), e);
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,42 @@
+package com.teneocast.player.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
+
+/**
+ * Negotiates the player sub-protocol and the permessage-deflate extension. The
+ * compression itself is done by the servlet container's WebSocket implementation;
+ * this only decides whether the extension offered by the client is accepted.
+ */
+@Component
+@Slf4j
+public class PlayerHandshakeHandler extends DefaultHandshakeHandler {
+    
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    
+    private final boolean compressionEnabled;
+    
+    public PlayerHandshakeHandler(@Value("${websocket.compression.enabled:true}") boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+        setSupportedProtocols(PlayerMessageCodec.SUPPORTED_PROTOCOLS.toArray(String[]::new));
+    }
+    
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requestedExtensions,
+                                                                 List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> accepted = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+        if (compressionEnabled) {
+            return accepted;
+        }
+        return accepted.stream()
+                .filter(extension -> !PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName()))
+                .toList();
+    }
+}
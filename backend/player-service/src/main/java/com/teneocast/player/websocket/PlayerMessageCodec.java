@@ -0,0 +1,125 @@
+package com.teneocast.player.websocket;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.dto.WebSocketMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Encodes and decodes player frames for the sub-protocol negotiated at handshake.
+ * Players that offer {@link #CBOR_PROTOCOL} exchange CBOR binary frames with the same
+ * shape as the JSON messages; everyone else, including clients that offer no
+ * sub-protocol, stays on JSON text frames.
+ */
+@Component
+public class PlayerMessageCodec {
+    
+    public static final String CBOR_PROTOCOL = "teneocast.cbor.v1";
+    public static final String JSON_PROTOCOL = "teneocast.json.v1";
+    
+    /**
+     * Sub-protocols the server accepts. The handshake picks the first protocol in the
+     * client's Sec-WebSocket-Protocol header that is listed here, so the client's order
+     * decides; this order does not.
+     */
+    public static final List<String> SUPPORTED_PROTOCOLS = List.of(CBOR_PROTOCOL, JSON_PROTOCOL);
+    
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+    
+    public PlayerMessageCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Same modules and features as the JSON mapper, CBOR on the wire
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+    }
+    
+    public static boolean isBinary(WebSocketSession session) {
+        return CBOR_PROTOCOL.equals(session.getAcceptedProtocol());
+    }
+    
+    public org.springframework.web.socket.WebSocketMessage<?> encode(WebSocketSession session,
+                                                                     WebSocketMessage message) throws IOException {
+        return isBinary(session) ? encodeBinary(message) : encodeText(message);
+    }
+    
+    public TextMessage encodeText(WebSocketMessage message) throws IOException {
+        return new TextMessage(objectMapper.writeValueAsString(message));
+    }
+    
+    public BinaryMessage encodeBinary(WebSocketMessage message) throws IOException {
+        return new BinaryMessage(cborMapper.writeValueAsBytes(message));
+    }
+    
+    /**
+     * Prepares a command frame that is serialized lazily, once per protocol, and can be
+     * shared by any number of sessions. {@code playerId} may be null for broadcasts.
+     */
+    public CommandFrame commandFrame(String playerId, PlayerCommand command) {
+        String messageId = command.getMessageId() != null ? command.getMessageId() : UUID.randomUUID().toString();
+        return new CommandFrame(this, messageId, playerId, command, LocalDateTime.now());
+    }
+    
+    public WebSocketMessage decode(BinaryMessage message) throws IOException {
+        ByteBuffer payload = message.getPayload();
+        if (payload.hasArray()) {
+            return cborMapper.readValue(payload.array(), payload.arrayOffset() + payload.position(),
+                    payload.remaining(), WebSocketMessage.class);
+        }
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return cborMapper.readValue(bytes, WebSocketMessage.class);
+    }
+    
+    TextMessage encodeCommandText(CommandFrame frame) throws IOException {
+        StringWriter writer = new StringWriter(256);
+        try (JsonGenerator generator = objectMapper.createGenerator(writer)) {
+            writeCommand(generator, frame);
+        }
+        return new TextMessage(writer.toString());
+    }
+    
+    byte[] encodeCommandBytes(CommandFrame frame) throws IOException {
+        try (ByteArrayBuilder bytes = new ByteArrayBuilder(256)) {
+            try (JsonGenerator generator = cborMapper.createGenerator(bytes)) {
+                writeCommand(generator, frame);
+            }
+            return bytes.toByteArray();
+        }
+    }
+    
+    /**
+     * Streams the same document Jackson would produce for a COMMAND {@link WebSocketMessage},
+     * without building the message or its payload map first.
+     */
+    private void writeCommand(JsonGenerator generator, CommandFrame frame) throws IOException {
+        PlayerCommand command = frame.getCommand();
+        
+        generator.writeStartObject();
+        generator.writeStringField("messageId", frame.getMessageId());
+        generator.writeStringField("type", WebSocketMessage.MessageType.COMMAND.name());
+        generator.writeObjectFieldStart("payload");
+        generator.writeObjectField("commandType", command.getCommandType());
+        generator.writeObjectField("payload", command.getPayload() != null ? command.getPayload() : Map.of());
+        generator.writeNumberField("priority", command.getPriority() != null ? command.getPriority() : 1);
+        generator.writeEndObject();
+        generator.writeObjectField("timestamp", frame.getTimestamp());
+        if (frame.getPlayerId() != null) {
+            generator.writeStringField("playerId", frame.getPlayerId());
+        }
+        generator.writeEndObject();
+    }
+}
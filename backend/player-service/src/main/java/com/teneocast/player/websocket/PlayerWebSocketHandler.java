@@ -2,15 +2,19 @@ package com.teneocast.player.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.teneocast.player.dto.WebSocketMessage;
+import com.teneocast.player.service.CommandDeliveryTracker;
 import com.teneocast.player.service.PlayerService;
+import com.teneocast.player.service.PlayerStatusWriteBehind;
+import com.teneocast.player.service.PresenceIndex;
 import com.teneocast.player.service.WebSocketSessionManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -20,11 +24,17 @@ import java.util.UUID;
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class PlayerWebSocketHandler extends TextWebSocketHandler {
+public class PlayerWebSocketHandler extends AbstractWebSocketHandler {
     
     private final ObjectMapper objectMapper;
     private final PlayerService playerService;
     private final WebSocketSessionManager sessionManager;
+    private final OutboundSessionFactory outboundSessionFactory;
+    private final CommandDeliveryTracker deliveryTracker;
+    private final PlayerStatusWriteBehind statusWriteBehind;
+    private final HeartbeatScheduler heartbeatScheduler;
+    private final PlayerMessageCodec messageCodec;
+    private final PresenceIndex presenceIndex;
     
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
@@ -35,8 +45,10 @@ public class PlayerWebSocketHandler extends TextWebSocketHandler {
         log.info("WebSocket connection established for player: {}", playerId);
         
         try {
-            // Register the session
-            sessionManager.addSession(playerId, session);
+            // Register the session behind its outbound queue
+            WebSocketSession outboundSession = outboundSessionFactory.decorate(session);
+            sessionManager.addSession(playerId, outboundSession);
+            heartbeatScheduler.register(outboundSession, playerId);
             
             // Update player status
             playerService.updatePlayerOnlineStatus(playerId, true);
@@ -54,6 +66,9 @@ public class PlayerWebSocketHandler extends TextWebSocketHandler {
             
             sendMessage(session, welcomeMessage);
             
+            // Re-send commands the player has not acknowledged yet
+            deliveryTracker.replayPending(playerId);
+            
         } catch (Exception e) {
             log.error("Error establishing WebSocket connection for player: {}", playerId, e);
             session.close();
@@ -65,37 +80,67 @@ public class PlayerWebSocketHandler extends TextWebSocketHandler {
         String playerId = (String) session.getAttributes().get("playerId");
         
         try {
-            WebSocketMessage wsMessage = objectMapper.readValue(message.getPayload(), WebSocketMessage.class);
-            log.debug("Received message from player {}: {}", playerId, wsMessage.getType());
-            
-            // Update last seen
-            sessionManager.updateLastSeen(playerId);
-            
-            switch (wsMessage.getType()) {
-                case STATUS -> handleStatusMessage(playerId, wsMessage);
-                case ACK -> handleAckMessage(playerId, wsMessage);
-                case HEARTBEAT_PONG -> handleHeartbeatPong(playerId, wsMessage);
-                case ERROR -> handleErrorMessage(playerId, wsMessage);
-                case PAIRING_REQUEST -> handlePairingRequest(session, wsMessage);
-                default -> log.warn("Unknown message type from player {}: {}", playerId, wsMessage.getType());
-            }
-            
+            handleMessage(session, playerId, objectMapper.readValue(message.getPayload(), WebSocketMessage.class));
         } catch (Exception e) {
             log.error("Error processing message from player: {}", playerId, e);
             sendErrorMessage(session, "Invalid message format");
         }
     }
     
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        String playerId = (String) session.getAttributes().get("playerId");
+        
+        try {
+            handleMessage(session, playerId, messageCodec.decode(message));
+        } catch (Exception e) {
+            log.error("Error processing binary message from player: {}", playerId, e);
+            sendErrorMessage(session, "Invalid message format");
+        }
+    }
+    
+    private void handleMessage(WebSocketSession session, String playerId, WebSocketMessage wsMessage) {
+        log.debug("Received message from player {}: {}", playerId, wsMessage.getType());
+        
+        // Update last seen (buffered, written out in batches)
+        statusWriteBehind.recordSeen(playerId);
+        presenceIndex.touch(playerId);
+        
+        switch (wsMessage.getType()) {
+            case STATUS -> handleStatusMessage(playerId, wsMessage);
+            case ACK -> handleAckMessage(playerId, wsMessage);
+            case HEARTBEAT_PONG -> handleHeartbeatPong(session, playerId);
+            case ERROR -> handleErrorMessage(playerId, wsMessage);
+            case PAIRING_REQUEST -> handlePairingRequest(session, wsMessage);
+            default -> log.warn("Unknown message type from player {}: {}", playerId, wsMessage.getType());
+        }
+    }
+    
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         String playerId = (String) session.getAttributes().get("playerId");
         
         log.info("WebSocket connection closed for player: {} with status: {}", playerId, status);
         
+        if (Boolean.TRUE.equals(session.getAttributes().get(HeartbeatScheduler.REAPED_ATTRIBUTE))) {
+            // Already cleaned up in bulk by the heartbeat reap
+            return;
+        }
+        
         try {
             // Remove session
+            heartbeatScheduler.unregister(session.getId());
+            outboundSessionFactory.release(session);
             sessionManager.removeSession(playerId, session.getId());
             
+            // This instance stops vouching for the player even if it is still connected elsewhere
+            if (!sessionManager.hasLocalSessions(playerId)) {
+                presenceIndex.playerOffline(playerId);
+            }
+            
+            // Write out buffered status first so it cannot override going offline
+            statusWriteBehind.flushPlayer(playerId);
+            
             // Update player status if no more active sessions
             if (!sessionManager.hasActiveSessions(playerId)) {
                 playerService.updatePlayerOnlineStatus(playerId, false);
@@ -119,21 +164,26 @@ public class PlayerWebSocketHandler extends TextWebSocketHandler {
     
     private void handleStatusMessage(String playerId, WebSocketMessage message) {
         try {
-            playerService.updatePlayerStatus(playerId, message.getPayload());
+            statusWriteBehind.recordStatus(playerId, message.getPayload());
+            presenceIndex.updateStatus(playerId, message.getPayload());
         } catch (Exception e) {
             log.error("Error handling status message for player: {}", playerId, e);
         }
     }
     
     private void handleAckMessage(String playerId, WebSocketMessage message) {
-        log.debug("Received acknowledgment from player: {} for message: {}", 
-                 playerId, message.getPayload().get("messageId"));
-        // TODO: Handle message acknowledgments for delivery confirmation
+        Object messageId = message.getPayload() != null ? message.getPayload().get("messageId") : null;
+        log.debug("Received acknowledgment from player: {} for message: {}", playerId, messageId);
+        
+        if (messageId != null) {
+            deliveryTracker.acknowledge(playerId, messageId.toString());
+        }
     }
     
-    private void handleHeartbeatPong(String playerId, WebSocketMessage message) {
+    private void handleHeartbeatPong(WebSocketSession session, String playerId) {
+        // Last seen is already recorded for every incoming message
         log.debug("Received heartbeat pong from player: {}", playerId);
-        sessionManager.updateLastSeen(playerId);
+        heartbeatScheduler.onPong(session.getId());
     }
     
     private void handleErrorMessage(String playerId, WebSocketMessage message) {
@@ -172,8 +222,10 @@ public class PlayerWebSocketHandler extends TextWebSocketHandler {
     
     private void sendMessage(WebSocketSession session, WebSocketMessage message) {
         try {
-            String json = objectMapper.writeValueAsString(message);
-            session.sendMessage(new TextMessage(json));
+            org.springframework.web.socket.WebSocketMessage<?> frame = PlayerMessageCodec.isBinary(session)
+                    ? messageCodec.encodeBinary(message)
+                    : new TextMessage(objectMapper.writeValueAsString(message));
+            OutboundSession.send(session, frame, OutboundPriority.forMessage(message.getType()));
         } catch (IOException e) {
             log.error("Error sending WebSocket message", e);
         }
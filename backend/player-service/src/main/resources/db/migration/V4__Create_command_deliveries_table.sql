@@ -0,0 +1,21 @@
+-- Create command delivery outbox table
+CREATE TABLE player_service_command_deliveries (
+    message_id VARCHAR(36) PRIMARY KEY,
+    player_id VARCHAR(36) NOT NULL,
+    command_type VARCHAR(50) NOT NULL,
+    payload TEXT,
+    priority INTEGER,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_attempt_at TIMESTAMP,
+    acked_at TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    
+    FOREIGN KEY (player_id) REFERENCES player_service(id) ON DELETE CASCADE
+);
+
+-- Create indexes
+CREATE INDEX idx_player_service_command_deliveries_player_status ON player_service_command_deliveries(player_id, status);
+CREATE INDEX idx_player_service_command_deliveries_created_at ON player_service_command_deliveries(created_at);
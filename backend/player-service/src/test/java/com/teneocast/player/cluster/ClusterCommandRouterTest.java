@@ -0,0 +1,198 @@
+package com.teneocast.player.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.service.WebSocketSessionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ClusterCommandRouterTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private InstanceIdentity instanceIdentity;
+
+    private ObjectMapper objectMapper;
+
+    private ClusterCommandRouter commandRouter;
+
+    private PlayerCommand command;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        
+        commandRouter = new ClusterCommandRouter(stringRedisTemplate, sessionManager, instanceIdentity, objectMapper);
+        ReflectionTestUtils.setField(commandRouter, "clusterEnabled", true);
+        ReflectionTestUtils.setField(commandRouter, "routeTimeoutMillis", 500L);
+        
+        when(instanceIdentity.getInstanceId()).thenReturn("node-a");
+        
+        command = PlayerCommand.builder()
+                .messageId("msg-id")
+                .commandType(PlayerCommand.CommandType.PLAY_AD)
+                .payload(Map.of("adId", "ad-1"))
+                .timestamp(LocalDateTime.now())
+                .priority(2)
+                .build();
+    }
+
+    @Test
+    void routeToOwner_WhenOwnerDelivers_ShouldReturnTrue() {
+        // Given
+        when(sessionManager.getRemoteOwners("player-1")).thenReturn(Set.of("node-b"));
+        doAnswer(invocation -> {
+            ClusterMessage published = objectMapper.readValue((String) invocation.getArgument(1), ClusterMessage.class);
+            commandRouter.completeResult(published.getRequestId(), true);
+            return 1L;
+        }).when(stringRedisTemplate).convertAndSend(eq("player:node:node-b"), anyString());
+
+        // When
+        boolean result = commandRouter.routeToOwner("player-1", command);
+
+        // Then
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void routeToOwner_ShouldPublishCommandWithOrigin() throws Exception {
+        // Given
+        when(sessionManager.getRemoteOwners("player-1")).thenReturn(Set.of("node-b"));
+        doAnswer(invocation -> {
+            ClusterMessage published = objectMapper.readValue((String) invocation.getArgument(1), ClusterMessage.class);
+            assertThat(published.getType()).isEqualTo(ClusterMessage.Type.COMMAND);
+            assertThat(published.getOriginInstanceId()).isEqualTo("node-a");
+            assertThat(published.getPlayerId()).isEqualTo("player-1");
+            assertThat(published.getCommand().getMessageId()).isEqualTo("msg-id");
+            commandRouter.completeResult(published.getRequestId(), false);
+            return 1L;
+        }).when(stringRedisTemplate).convertAndSend(anyString(), anyString());
+
+        // When
+        boolean result = commandRouter.routeToOwner("player-1", command);
+
+        // Then
+        assertThat(result).isFalse();
+        verify(stringRedisTemplate).convertAndSend(eq("player:node:node-b"), anyString());
+    }
+
+    @Test
+    void routeToOwner_WhenOwnerDoesNotAnswer_ShouldTimeOut() {
+        // Given
+        when(sessionManager.getRemoteOwners("player-1")).thenReturn(Set.of("node-b"));
+
+        // When
+        boolean result = commandRouter.routeToOwner("player-1", command);
+
+        // Then
+        assertThat(result).isFalse();
+    }
+
+    @Test
+    void routeToOwner_WhenOneOwnerIsSilent_ShouldReturnAnotherOwnersDelivery() {
+        // Given
+        when(sessionManager.getRemoteOwners("player-1")).thenReturn(new LinkedHashSet<>(List.of("node-b", "node-c")));
+        doAnswer(invocation -> {
+            ClusterMessage published = objectMapper.readValue((String) invocation.getArgument(1), ClusterMessage.class);
+            commandRouter.completeResult(published.getRequestId(), true);
+            return 1L;
+        }).when(stringRedisTemplate).convertAndSend(eq("player:node:node-c"), anyString());
+
+        // When
+        boolean result = commandRouter.routeToOwner("player-1", command);
+
+        // Then
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    void routeToOwner_WhenNoRemoteOwners_ShouldNotPublish() {
+        // Given
+        when(sessionManager.getRemoteOwners("player-1")).thenReturn(Set.of());
+
+        // When
+        boolean result = commandRouter.routeToOwner("player-1", command);
+
+        // Then
+        assertThat(result).isFalse();
+        verifyNoInteractions(stringRedisTemplate);
+    }
+
+    @Test
+    void routeToOwner_WhenClusterDisabled_ShouldReturnFalse() {
+        // Given
+        ReflectionTestUtils.setField(commandRouter, "clusterEnabled", false);
+
+        // When
+        boolean result = commandRouter.routeToOwner("player-1", command);
+
+        // Then
+        assertThat(result).isFalse();
+        verifyNoInteractions(sessionManager, stringRedisTemplate);
+    }
+
+    @Test
+    void sendResult_ShouldPublishToOriginChannel() {
+        // When
+        commandRouter.sendResult("node-c", "request-1", true);
+
+        // Then
+        verify(stringRedisTemplate).convertAndSend(eq("player:node:node-c"), contains("COMMAND_RESULT"));
+    }
+
+    @Test
+    void broadcastToRemote_ShouldCollectDeliveredPlayersFromOtherInstances() {
+        // Given
+        when(stringRedisTemplate.convertAndSend(eq("player:broadcast"), anyString())).thenAnswer(invocation -> {
+            ClusterMessage published = objectMapper.readValue((String) invocation.getArgument(1), ClusterMessage.class);
+            assertThat(published.getType()).isEqualTo(ClusterMessage.Type.BROADCAST);
+            commandRouter.completeBroadcastResult(published.getRequestId(), List.of("player-2"));
+            commandRouter.completeBroadcastResult(published.getRequestId(), List.of());
+            return 3L;
+        });
+
+        // When
+        Set<String> delivered = commandRouter.broadcastToRemote(List.of("player-2", "player-3"), command);
+
+        // Then
+        assertThat(delivered).containsExactly("player-2");
+    }
+
+    @Test
+    void broadcastToRemote_WhenNoOtherInstances_ShouldReturnImmediately() {
+        // Given
+        when(stringRedisTemplate.convertAndSend(eq("player:broadcast"), anyString())).thenReturn(1L);
+
+        // When
+        Set<String> delivered = commandRouter.broadcastToRemote(List.of("player-2"), command);
+
+        // Then
+        assertThat(delivered).isEmpty();
+    }
+}
@@ -1,6 +1,10 @@
 package com.teneocast.player.controller;
 
+import com.teneocast.player.dto.BroadcastResult;
 import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.entity.CommandDelivery;
+import com.teneocast.player.service.CommandDeliveryTracker;
+import com.teneocast.player.service.CommandFanoutService;
 import com.teneocast.player.service.PlayerService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,11 +13,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 
+import java.time.Instant;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -22,6 +29,12 @@ class PlayerCommandControllerTest {
     @Mock
     private PlayerService playerService;
 
+    @Mock
+    private CommandFanoutService commandFanoutService;
+
+    @Mock
+    private CommandDeliveryTracker deliveryTracker;
+
     @InjectMocks
     private PlayerCommandController playerCommandController;
 
@@ -54,4 +67,116 @@ class PlayerCommandControllerTest {
 
         verify(playerService).sendCommandToPlayer(eq("test-player"), any(PlayerCommand.class));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void playAd_ShouldPassPresignedUrlAndExpiryToPlayer() {
+        // Given
+        Instant expiresAt = Instant.parse("2024-06-01T12:45:00Z");
+        PlayerCommandController.PlayAdRequest request = new PlayerCommandController.PlayAdRequest(
+                "ad-1", "https://s3.example.com/teneocast-media-t1/ad.mp3?X-Amz-Signature=abc", expiresAt, null, -4.5);
+        when(playerService.sendCommandToPlayer(eq("test-player"), any(PlayerCommand.class))).thenReturn(true);
+
+        // When
+        ResponseEntity<Map<String, Object>> response = playerCommandController.playAd("test-player", request);
+
+        // Then
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        verify(playerService).sendCommandToPlayer(eq("test-player"), argThat(command ->
+                command.getCommandType() == PlayerCommand.CommandType.PLAY_AD
+                        && request.audioUrl().equals(command.getPayload().get("audioUrl"))
+                        && expiresAt.equals(command.getPayload().get("audioUrlExpiresAt"))
+                        && Integer.valueOf(30).equals(command.getPayload().get("duration"))
+                        && Double.valueOf(-4.5).equals(command.getPayload().get("gainDb"))));
+    }
+
+    @Test
+    void playAd_WithoutAudioUrl_ShouldBeRejected() {
+        // Given
+        PlayerCommandController.PlayAdRequest request = new PlayerCommandController.PlayAdRequest("ad-1", null, null, 30, null);
+
+        // When
+        ResponseEntity<Map<String, Object>> response = playerCommandController.playAd("test-player", request);
+
+        // Then
+        assertThat(response.getStatusCode().value()).isEqualTo(400);
+        verifyNoInteractions(playerService);
+    }
+
+    @Test
+    void broadcast_ShouldReturnPerPlayerResults() {
+        // Given
+        PlayerCommandController.BroadcastRequest request =
+                new PlayerCommandController.BroadcastRequest(
+                        "test-tenant",
+                        null,
+                        PlayerCommand.CommandType.STOP,
+                        null,
+                        null
+                );
+        
+        BroadcastResult result = BroadcastResult.builder()
+                .messageId("msg-id")
+                .targeted(2)
+                .delivered(1)
+                .results(Map.of(
+                        "player-1", BroadcastResult.DeliveryStatus.DELIVERED,
+                        "player-2", BroadcastResult.DeliveryStatus.NOT_CONNECTED))
+                .build();
+        
+        when(commandFanoutService.broadcast(eq("test-tenant"), isNull(), any(PlayerCommand.class)))
+                .thenReturn(result);
+
+        // When
+        ResponseEntity<BroadcastResult> response = playerCommandController.broadcast(request);
+
+        // Then
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getBody()).isSameAs(result);
+    }
+
+    @Test
+    void broadcast_WithoutTenant_ShouldReturnBadRequest() {
+        // Given
+        PlayerCommandController.BroadcastRequest request =
+                new PlayerCommandController.BroadcastRequest(null, null, PlayerCommand.CommandType.STOP, null, null);
+
+        // When
+        ResponseEntity<BroadcastResult> response = playerCommandController.broadcast(request);
+
+        // Then
+        assertThat(response.getStatusCode().value()).isEqualTo(400);
+        verifyNoInteractions(commandFanoutService);
+    }
+
+    @Test
+    void getCommandDelivery_WhenTracked_ShouldReturnDeliveryState() {
+        // Given
+        CommandDelivery delivery = CommandDelivery.builder()
+                .messageId("msg-1")
+                .playerId("test-player")
+                .commandType(PlayerCommand.CommandType.PLAY_AD)
+                .status(CommandDelivery.DeliveryStatus.ACKED)
+                .attempts(1)
+                .build();
+        when(deliveryTracker.getDelivery("msg-1")).thenReturn(Optional.of(delivery));
+
+        // When
+        ResponseEntity<CommandDelivery> response = playerCommandController.getCommandDelivery("msg-1");
+
+        // Then
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getBody().getStatus()).isEqualTo(CommandDelivery.DeliveryStatus.ACKED);
+    }
+
+    @Test
+    void getCommandDelivery_WhenUnknown_ShouldReturnNotFound() {
+        // Given
+        when(deliveryTracker.getDelivery("missing")).thenReturn(Optional.empty());
+
+        // When
+        ResponseEntity<CommandDelivery> response = playerCommandController.getCommandDelivery("missing");
+
+        // Then
+        assertThat(response.getStatusCode().value()).isEqualTo(404);
+    }
+}
@@ -1,7 +1,10 @@
 package com.teneocast.player.controller;
 
+import com.teneocast.player.dto.PlayerPresence;
 import com.teneocast.player.entity.Player;
 import com.teneocast.player.service.PlayerService;
+import com.teneocast.player.service.PlayerStatusStream;
+import com.teneocast.player.service.PresenceIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,8 +12,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -24,6 +30,12 @@ class PlayerControllerTest {
     @Mock
     private PlayerService playerService;
 
+    @Mock
+    private PresenceIndex presenceIndex;
+
+    @Mock
+    private PlayerStatusStream playerStatusStream;
+
     @InjectMocks
     private PlayerController playerController;
 
@@ -75,4 +87,92 @@ class PlayerControllerTest {
         verify(playerService).createPlayer("test-tenant", "Test Player", 
                 Player.PlayerPlatform.WEB, Set.of(Player.PlayerCapability.AUDIO_PLAYBACK));
     }
-} 
\ No newline at end of file
+
+    @Test
+    void getOnlinePlayersByTenant_ShouldServeFromPresenceIndex() {
+        // Given
+        PlayerPresence presence = PlayerPresence.builder()
+                .playerId("test-player-id")
+                .tenantId("test-tenant")
+                .status(Player.PlayerStatus.PLAYING)
+                .currentTrack("track-1")
+                .build();
+        when(presenceIndex.getOnlinePlayers("test-tenant")).thenReturn(List.of(presence));
+
+        // When
+        ResponseEntity<List<Player>> response = playerController.getOnlinePlayersByTenant("test-tenant");
+
+        // Then
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getBody()).hasSize(1);
+        Player player = response.getBody().get(0);
+        assertThat(player.getId()).isEqualTo("test-player-id");
+        assertThat(player.getTenantId()).isEqualTo("test-tenant");
+        assertThat(player.getStatus()).isEqualTo(Player.PlayerStatus.PLAYING);
+        assertThat(player.getCurrentTrack()).isEqualTo("track-1");
+        assertThat(player.getIsOnline()).isTrue();
+        verifyNoInteractions(playerService);
+    }
+
+    @Test
+    void getOnlinePresenceByTenant_ShouldReturnPresenceEntries() {
+        // Given
+        PlayerPresence presence = PlayerPresence.builder()
+                .playerId("test-player-id")
+                .tenantId("test-tenant")
+                .instanceId("node-a")
+                .build();
+        when(presenceIndex.getOnlinePlayers("test-tenant")).thenReturn(List.of(presence));
+
+        // When
+        ResponseEntity<List<PlayerPresence>> response = playerController.getOnlinePresenceByTenant("test-tenant");
+
+        // Then
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getBody()).containsExactly(presence);
+    }
+
+    @Test
+    void getOnlineCounts_ShouldReturnTotalAndPlatformCounts() {
+        // Given
+        when(presenceIndex.countOnline("test-tenant")).thenReturn(3);
+        when(presenceIndex.countByPlatform("test-tenant"))
+                .thenReturn(Map.of(Player.PlayerPlatform.WEB, 2L, Player.PlayerPlatform.ANDROID, 1L));
+
+        // When
+        ResponseEntity<Map<String, Object>> response = playerController.getOnlineCounts("test-tenant");
+
+        // Then
+        assertThat(response.getBody())
+                .containsEntry("online", 3)
+                .containsEntry("byPlatform", Map.of(Player.PlayerPlatform.WEB, 2L, Player.PlayerPlatform.ANDROID, 1L));
+        verifyNoInteractions(playerService);
+    }
+
+    @Test
+    void streamPlayerStatus_ShouldReturnSubscriberEmitter() {
+        // Given
+        SseEmitter emitter = new SseEmitter();
+        when(playerStatusStream.subscribe("test-tenant")).thenReturn(emitter);
+
+        // When
+        ResponseEntity<SseEmitter> response = playerController.streamPlayerStatus("test-tenant");
+
+        // Then
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getBody()).isSameAs(emitter);
+        assertThat(response.getHeaders().getFirst("X-Accel-Buffering")).isEqualTo("no");
+    }
+
+    @Test
+    void streamPlayerStatus_WhenSubscriberLimitReached_ShouldReturnServiceUnavailable() {
+        // Given
+        when(playerStatusStream.subscribe("test-tenant")).thenThrow(new IllegalStateException("Too many"));
+
+        // When
+        ResponseEntity<SseEmitter> response = playerController.streamPlayerStatus("test-tenant");
+
+        // Then
+        assertThat(response.getStatusCode().value()).isEqualTo(503);
+    }
+}
@@ -0,0 +1,229 @@
+package com.teneocast.player.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.entity.CommandDelivery;
+import com.teneocast.player.repository.CommandDeliveryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CommandDeliveryTrackerTest {
+
+    @Mock
+    private CommandDeliveryRepository deliveryRepository;
+
+    @Mock
+    private ObjectProvider<PlayerService> playerServiceProvider;
+
+    @Mock
+    private PlayerService playerService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CommandDeliveryTracker tracker;
+
+    private PlayerCommand command;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = new CommandDeliveryTracker(deliveryRepository, playerServiceProvider, new ObjectMapper(), meterRegistry, 1);
+        ReflectionTestUtils.setField(tracker, "ackTimeoutMillis", 50L);
+        ReflectionTestUtils.setField(tracker, "maxBackoffMillis", 200L);
+        ReflectionTestUtils.setField(tracker, "maxAttempts", 2);
+        ReflectionTestUtils.setField(tracker, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(tracker, "retentionDays", 7);
+
+        when(playerServiceProvider.getObject()).thenReturn(playerService);
+
+        command = PlayerCommand.builder()
+                .messageId("msg-1")
+                .commandType(PlayerCommand.CommandType.PLAY_AD)
+                .payload(Map.of("adId", "ad-1"))
+                .priority(2)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracker.shutdown();
+    }
+
+    @Test
+    void track_ShouldWritePendingOutboxRow() {
+        // When
+        tracker.track("player-1", command);
+
+        // Then
+        ArgumentCaptor<CommandDelivery> captor = ArgumentCaptor.forClass(CommandDelivery.class);
+        verify(deliveryRepository).save(captor.capture());
+
+        CommandDelivery delivery = captor.getValue();
+        assertThat(delivery.getMessageId()).isEqualTo("msg-1");
+        assertThat(delivery.getStatus()).isEqualTo(CommandDelivery.DeliveryStatus.PENDING);
+        assertThat(delivery.getPayload()).isEqualTo("{\"adId\":\"ad-1\"}");
+        assertThat(delivery.getExpiresAt()).isAfter(LocalDateTime.now());
+    }
+
+    @Test
+    void track_WithHeartbeat_ShouldNotWriteOutbox() {
+        // Given
+        command.setCommandType(PlayerCommand.CommandType.HEARTBEAT);
+
+        // When
+        tracker.track("player-1", command);
+        tracker.onDispatched("player-1", command, true);
+
+        // Then
+        verifyNoInteractions(deliveryRepository);
+    }
+
+    @Test
+    void onDispatched_WhenNotDelivered_ShouldCloseInsteadOfKeepingForReplay() {
+        // When
+        tracker.onDispatched("player-1", command, false);
+
+        // Then
+        verify(deliveryRepository).closeDelivery(eq("msg-1"),
+                eq(CommandDelivery.DeliveryStatus.FAILED), anyCollection(), any());
+        verify(deliveryRepository, never()).markAttempted(any(), any(), anyCollection(), any());
+        assertThat(meterRegistry.counter("player.commands.undelivered").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void acknowledge_ShouldCancelRetryAndMarkAcked() throws Exception {
+        // Given
+        when(deliveryRepository.markAcknowledged(eq("msg-1"), eq("player-1"),
+                eq(CommandDelivery.DeliveryStatus.ACKED), anyCollection(), any())).thenReturn(1);
+        tracker.onDispatched("player-1", command, true);
+
+        // When
+        tracker.acknowledge("player-1", "msg-1");
+        Thread.sleep(150);
+
+        // Then
+        verify(deliveryRepository).markAttempted(eq("msg-1"), eq(CommandDelivery.DeliveryStatus.SENT), anyCollection(), any());
+        verify(deliveryRepository, never()).findById(any());
+        verifyNoInteractions(playerService);
+        assertThat(meterRegistry.counter("player.commands.acked").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void onDispatched_WithoutAck_ShouldRetryThenFail() {
+        // Given
+        CommandDelivery delivery = storedDelivery(CommandDelivery.DeliveryStatus.SENT, LocalDateTime.now().plusMinutes(5));
+        when(deliveryRepository.findById("msg-1")).thenReturn(Optional.of(delivery));
+        when(playerService.dispatchCommand(eq("player-1"), any())).thenReturn(true);
+
+        // When
+        tracker.onDispatched("player-1", command, true);
+
+        // Then
+        verify(playerService, timeout(1000)).dispatchCommand(eq("player-1"), argThat(c -> "msg-1".equals(c.getMessageId())));
+        verify(deliveryRepository, timeout(1000)).closeDelivery(eq("msg-1"),
+                eq(CommandDelivery.DeliveryStatus.FAILED), anyCollection(), any());
+        assertThat(meterRegistry.counter("player.commands.retried").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void onDispatched_WhenAckedElsewhere_ShouldNotRetry() throws Exception {
+        // Given
+        CommandDelivery delivery = storedDelivery(CommandDelivery.DeliveryStatus.ACKED, LocalDateTime.now().plusMinutes(5));
+        when(deliveryRepository.findById("msg-1")).thenReturn(Optional.of(delivery));
+
+        // When
+        tracker.onDispatched("player-1", command, true);
+
+        // Then
+        verify(deliveryRepository, timeout(1000)).findById("msg-1");
+        Thread.sleep(100);
+        verifyNoInteractions(playerService);
+        verify(deliveryRepository, never()).closeDelivery(any(), any(), anyCollection(), any());
+    }
+
+    @Test
+    void replayPending_ShouldResendOpenCommandsAndExpireStaleOnes() {
+        // Given
+        CommandDelivery open = storedDelivery(CommandDelivery.DeliveryStatus.PENDING, LocalDateTime.now().plusMinutes(5));
+        CommandDelivery stale = storedDelivery(CommandDelivery.DeliveryStatus.SENT, LocalDateTime.now().minusMinutes(1))
+                .toBuilder().messageId("msg-old").build();
+        when(deliveryRepository.findByPlayerIdAndStatusInOrderByCreatedAtAsc(eq("player-1"), anyCollection()))
+                .thenReturn(List.of(stale, open));
+        when(playerService.deliverToLocalSessions(eq("player-1"), any())).thenReturn(true);
+
+        // When
+        tracker.replayPending("player-1");
+
+        // Then
+        ArgumentCaptor<PlayerCommand> captor = ArgumentCaptor.forClass(PlayerCommand.class);
+        verify(playerService).deliverToLocalSessions(eq("player-1"), captor.capture());
+        assertThat(captor.getValue().getMessageId()).isEqualTo("msg-1");
+        assertThat(captor.getValue().getPayload()).containsEntry("adId", "ad-1");
+
+        verify(deliveryRepository).closeDelivery(eq("msg-old"), eq(CommandDelivery.DeliveryStatus.EXPIRED), anyCollection(), any());
+        verify(deliveryRepository).markAttempted(eq("msg-1"), eq(CommandDelivery.DeliveryStatus.SENT), anyCollection(), any());
+    }
+
+    @Test
+    void replayPending_WithExpiredAudioUrl_ShouldExpireAdInsteadOfResending() {
+        // Given
+        CommandDelivery expiredUrl = storedDelivery(CommandDelivery.DeliveryStatus.SENT, LocalDateTime.now().plusMinutes(5))
+                .toBuilder()
+                .messageId("msg-old-url")
+                .payload("{\"adId\":\"ad-1\",\"audioUrl\":\"https://s3/ad-1\",\"audioUrlExpiresAt\":\""
+                        + Instant.now().minusSeconds(60) + "\"}")
+                .build();
+        CommandDelivery validUrl = storedDelivery(CommandDelivery.DeliveryStatus.SENT, LocalDateTime.now().plusMinutes(5))
+                .toBuilder()
+                .payload("{\"adId\":\"ad-1\",\"audioUrl\":\"https://s3/ad-1\",\"audioUrlExpiresAt\":\""
+                        + Instant.now().plusSeconds(600) + "\"}")
+                .build();
+        when(deliveryRepository.findByPlayerIdAndStatusInOrderByCreatedAtAsc(eq("player-1"), anyCollection()))
+                .thenReturn(List.of(expiredUrl, validUrl));
+        when(playerService.deliverToLocalSessions(eq("player-1"), any())).thenReturn(true);
+
+        // When
+        tracker.replayPending("player-1");
+
+        // Then
+        verify(playerService).deliverToLocalSessions(eq("player-1"), argThat(c -> "msg-1".equals(c.getMessageId())));
+        verify(playerService, never()).deliverToLocalSessions(eq("player-1"), argThat(c -> "msg-old-url".equals(c.getMessageId())));
+        verify(deliveryRepository).closeDelivery(eq("msg-old-url"), eq(CommandDelivery.DeliveryStatus.EXPIRED), anyCollection(), any());
+    }
+
+    private CommandDelivery storedDelivery(CommandDelivery.DeliveryStatus status, LocalDateTime expiresAt) {
+        return CommandDelivery.builder()
+                .messageId("msg-1")
+                .playerId("player-1")
+                .commandType(PlayerCommand.CommandType.PLAY_AD)
+                .payload("{\"adId\":\"ad-1\"}")
+                .priority(2)
+                .status(status)
+                .attempts(1)
+                .expiresAt(expiresAt)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,155 @@
+package com.teneocast.player.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.teneocast.player.cluster.ClusterCommandRouter;
+import com.teneocast.player.dto.BroadcastResult;
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.entity.Player;
+import com.teneocast.player.repository.PlayerRepository;
+import com.teneocast.player.websocket.PlayerMessageCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CommandFanoutServiceTest {
+
+    @Mock
+    private PlayerRepository playerRepository;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private ClusterCommandRouter commandRouter;
+
+    @Mock
+    private WebSocketSession session1;
+
+    @Mock
+    private WebSocketSession session2;
+
+    private CommandFanoutService fanoutService;
+
+    private PlayerCommand command;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        
+        // Chunk size of 1 forces every player onto its own parallel task
+        fanoutService = new CommandFanoutService(playerRepository, sessionManager, commandRouter,
+                new PlayerMessageCodec(objectMapper), 2, 1);
+        
+        command = PlayerCommand.builder()
+                .messageId("broadcast-1")
+                .commandType(PlayerCommand.CommandType.PLAY_AD)
+                .payload(Map.of("adId", "ad-1"))
+                .priority(2)
+                .build();
+        
+        when(commandRouter.broadcastToRemote(anyCollection(), any())).thenReturn(Set.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        fanoutService.shutdown();
+    }
+
+    @Test
+    void broadcast_ShouldSendSameFrameToEveryConnectedPlayer() throws Exception {
+        // Given
+        when(playerRepository.findIdsByTenantId("tenant-1")).thenReturn(List.of("player-1", "player-2"));
+        when(sessionManager.getPlayerSessions("player-1")).thenReturn(Set.of(session1));
+        when(sessionManager.getPlayerSessions("player-2")).thenReturn(Set.of(session2));
+
+        // When
+        BroadcastResult result = fanoutService.broadcast("tenant-1", null, command);
+
+        // Then
+        assertThat(result.getTargeted()).isEqualTo(2);
+        assertThat(result.getDelivered()).isEqualTo(2);
+        assertThat(result.getMessageId()).isEqualTo("broadcast-1");
+        
+        ArgumentCaptor<TextMessage> frame1 = ArgumentCaptor.forClass(TextMessage.class);
+        ArgumentCaptor<TextMessage> frame2 = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session1).sendMessage(frame1.capture());
+        verify(session2).sendMessage(frame2.capture());
+        assertThat(frame1.getValue()).isSameAs(frame2.getValue());
+        assertThat(frame1.getValue().getPayload()).contains("PLAY_AD").doesNotContain("playerId");
+        
+        verify(commandRouter, never()).broadcastToRemote(anyCollection(), any());
+    }
+
+    @Test
+    void broadcast_WithPlatform_ShouldOnlyTargetThatPlatform() {
+        // Given
+        when(playerRepository.findIdsByTenantIdAndPlatform("tenant-1", Player.PlayerPlatform.ANDROID))
+                .thenReturn(List.of("player-1"));
+        when(sessionManager.getPlayerSessions("player-1")).thenReturn(Set.of(session1));
+
+        // When
+        BroadcastResult result = fanoutService.broadcast("tenant-1", Player.PlayerPlatform.ANDROID, command);
+
+        // Then
+        assertThat(result.getTargeted()).isEqualTo(1);
+        verify(playerRepository, never()).findIdsByTenantId(anyString());
+    }
+
+    @Test
+    void broadcast_ShouldAskClusterForPlayersNotConnectedLocally() {
+        // Given
+        when(playerRepository.findIdsByTenantId("tenant-1")).thenReturn(List.of("player-1", "player-2", "player-3"));
+        when(sessionManager.getPlayerSessions("player-1")).thenReturn(Set.of(session1));
+        when(sessionManager.getPlayerSessions("player-2")).thenReturn(Set.of());
+        when(sessionManager.getPlayerSessions("player-3")).thenReturn(Set.of());
+        when(commandRouter.broadcastToRemote(anyCollection(), eq(command))).thenReturn(Set.of("player-2"));
+
+        // When
+        BroadcastResult result = fanoutService.broadcast("tenant-1", null, command);
+
+        // Then
+        assertThat(result.getDelivered()).isEqualTo(2);
+        assertThat(result.getResults())
+                .containsEntry("player-1", BroadcastResult.DeliveryStatus.DELIVERED)
+                .containsEntry("player-2", BroadcastResult.DeliveryStatus.DELIVERED)
+                .containsEntry("player-3", BroadcastResult.DeliveryStatus.NOT_CONNECTED);
+        
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<java.util.Collection<String>> remote = ArgumentCaptor.forClass(java.util.Collection.class);
+        verify(commandRouter).broadcastToRemote(remote.capture(), eq(command));
+        assertThat(remote.getValue()).containsExactlyInAnyOrder("player-2", "player-3");
+    }
+
+    @Test
+    void deliverLocally_WhenSendFails_ShouldReportRejected() throws Exception {
+        // Given
+        when(sessionManager.getPlayerSessions("player-1")).thenReturn(Set.of(session1));
+        doThrow(new java.io.IOException("broken pipe")).when(session1).sendMessage(any());
+
+        // When
+        Map<String, BroadcastResult.DeliveryStatus> results = fanoutService.deliverLocally(List.of("player-1"), command);
+
+        // Then
+        assertThat(results).containsEntry("player-1", BroadcastResult.DeliveryStatus.REJECTED);
+    }
+}
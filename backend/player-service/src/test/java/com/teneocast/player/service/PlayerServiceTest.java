@@ -1,19 +1,25 @@
 package com.teneocast.player.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.teneocast.player.cluster.ClusterCommandRouter;
 import com.teneocast.player.dto.PlayerCommand;
 import com.teneocast.player.entity.Player;
 import com.teneocast.player.entity.PlayerSession;
 import com.teneocast.player.repository.PlayerRepository;
 import com.teneocast.player.repository.PlayerSessionRepository;
+import com.teneocast.player.websocket.PlayerMessageCodec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.time.LocalDateTime;
@@ -43,8 +49,17 @@ class PlayerServiceTest {
     @Mock
     private WebSocketSessionManager sessionManager;
 
+    @Spy
+    private PlayerMessageCodec messageCodec = new PlayerMessageCodec(new ObjectMapper().registerModule(new JavaTimeModule()));
+
+    @Mock
+    private ClusterCommandRouter commandRouter;
+
     @Mock
-    private ObjectMapper objectMapper;
+    private CommandDeliveryTracker deliveryTracker;
+
+    @Mock
+    private PresenceIndex presenceIndex;
 
     @Mock
     private ValueOperations<String, Object> valueOperations;
@@ -57,6 +72,7 @@ class PlayerServiceTest {
     @BeforeEach
     void setUp() {
         when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(playerRepository.existsById("test-player-id")).thenReturn(true);
         
         testPlayer = Player.builder()
                 .id("test-player-id")
@@ -186,6 +202,20 @@ class PlayerServiceTest {
         // Then
         verify(playerRepository).findById("test-player-id");
         verify(playerRepository).save(any(Player.class));
+        verify(presenceIndex).playerOnline(testPlayer);
+    }
+
+    @Test
+    void updatePlayerOnlineStatus_WhenGoingOffline_ShouldLeavePresenceIndex() {
+        // Given
+        when(playerRepository.findById("test-player-id")).thenReturn(Optional.of(testPlayer));
+
+        // When
+        playerService.updatePlayerOnlineStatus("test-player-id", false);
+
+        // Then
+        verify(presenceIndex).playerOffline("test-player-id");
+        verify(presenceIndex, never()).playerOnline(any());
     }
 
     @Test
@@ -282,7 +312,6 @@ class PlayerServiceTest {
         Set<WebSocketSession> sessions = Set.of(mockSession);
         
         when(sessionManager.getPlayerSessions("test-player-id")).thenReturn(sessions);
-        when(objectMapper.writeValueAsString(any())).thenReturn("{\"test\":\"message\"}");
 
         // When
         boolean result = playerService.sendCommandToPlayer("test-player-id", command);
@@ -291,7 +320,7 @@ class PlayerServiceTest {
         assertThat(result).isTrue();
         
         verify(sessionManager).getPlayerSessions("test-player-id");
-        verify(objectMapper).writeValueAsString(any());
+        verify(messageCodec).commandFrame("test-player-id", command);
         verify(mockSession).sendMessage(any());
     }
 
@@ -311,7 +340,140 @@ class PlayerServiceTest {
         assertThat(result).isFalse();
         
         verify(sessionManager).getPlayerSessions("test-player-id");
-        verifyNoInteractions(objectMapper);
+        verify(messageCodec, never()).commandFrame(any(), any());
+    }
+
+    @Test
+    void sendCommandToPlayer_WithUnknownPlayer_ShouldReturnFalseWithoutTracking() {
+        // Given
+        PlayerCommand command = PlayerCommand.builder()
+                .commandType(PlayerCommand.CommandType.PAUSE)
+                .build();
+        
+        when(playerRepository.existsById("unknown-player")).thenReturn(false);
+
+        // When
+        boolean result = playerService.sendCommandToPlayer("unknown-player", command);
+
+        // Then
+        assertThat(result).isFalse();
+        
+        verifyNoInteractions(deliveryTracker);
+        verify(sessionManager, never()).getPlayerSessions(any());
+        verify(commandRouter, never()).routeToOwner(any(), any());
+    }
+
+    @Test
+    void sendCommandToPlayer_WithRemoteSession_ShouldRouteToOwner() {
+        // Given
+        PlayerCommand command = PlayerCommand.builder()
+                .messageId("msg-id")
+                .commandType(PlayerCommand.CommandType.STOP)
+                .build();
+        
+        when(sessionManager.getPlayerSessions("test-player-id")).thenReturn(Set.of());
+        when(commandRouter.routeToOwner("test-player-id", command)).thenReturn(true);
+
+        // When
+        boolean result = playerService.sendCommandToPlayer("test-player-id", command);
+
+        // Then
+        assertThat(result).isTrue();
+        
+        verify(commandRouter).routeToOwner("test-player-id", command);
+    }
+
+    @Test
+    void sendCommandToPlayer_ShouldTrackDeliveryAroundDispatch() throws Exception {
+        // Given
+        PlayerCommand command = PlayerCommand.builder()
+                .commandType(PlayerCommand.CommandType.PLAY_AD)
+                .payload(Map.of("adId", "ad-1"))
+                .build();
+        
+        WebSocketSession mockSession = mock(WebSocketSession.class);
+        when(sessionManager.getPlayerSessions("test-player-id")).thenReturn(Set.of(mockSession));
+
+        // When
+        boolean result = playerService.sendCommandToPlayer("test-player-id", command);
+
+        // Then
+        assertThat(result).isTrue();
+        assertThat(command.getMessageId()).isNotNull();
+        
+        var inOrder = inOrder(deliveryTracker, mockSession);
+        inOrder.verify(deliveryTracker).track("test-player-id", command);
+        inOrder.verify(mockSession).sendMessage(any());
+        inOrder.verify(deliveryTracker).onDispatched("test-player-id", command, true);
+    }
+
+    @Test
+    void sendCommandToPlayer_WithManySessions_ShouldEncodeOnceAndShareFrame() throws Exception {
+        // Given
+        PlayerCommand command = PlayerCommand.builder()
+                .messageId("msg-id")
+                .commandType(PlayerCommand.CommandType.PLAY_TRACK)
+                .payload(Map.of("trackId", "track-1"))
+                .build();
+        
+        WebSocketSession session1 = mock(WebSocketSession.class);
+        WebSocketSession session2 = mock(WebSocketSession.class);
+        when(session1.getId()).thenReturn("session-1");
+        when(session2.getId()).thenReturn("session-2");
+        when(sessionManager.getPlayerSessions("test-player-id")).thenReturn(Set.of(session1, session2));
+
+        // When
+        boolean result = playerService.sendCommandToPlayer("test-player-id", command);
+
+        // Then
+        assertThat(result).isTrue();
+        verify(messageCodec, times(1)).commandFrame("test-player-id", command);
+        
+        ArgumentCaptor<TextMessage> frame1 = ArgumentCaptor.forClass(TextMessage.class);
+        ArgumentCaptor<TextMessage> frame2 = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session1).sendMessage(frame1.capture());
+        verify(session2).sendMessage(frame2.capture());
+        assertThat(frame1.getValue()).isSameAs(frame2.getValue());
+        assertThat(frame1.getValue().getPayload()).contains("\"messageId\":\"msg-id\"", "\"trackId\":\"track-1\"");
+    }
+
+    @Test
+    void sendCommandToPlayer_WhenNotConnected_ShouldReportUndelivered() {
+        // Given
+        PlayerCommand command = PlayerCommand.builder()
+                .messageId("msg-id")
+                .commandType(PlayerCommand.CommandType.STOP)
+                .build();
+        
+        when(sessionManager.getPlayerSessions("test-player-id")).thenReturn(Set.of());
+        when(commandRouter.routeToOwner("test-player-id", command)).thenReturn(false);
+
+        // When
+        boolean result = playerService.sendCommandToPlayer("test-player-id", command);
+
+        // Then
+        assertThat(result).isFalse();
+        
+        verify(deliveryTracker).track("test-player-id", command);
+        verify(deliveryTracker).onDispatched("test-player-id", command, false);
+    }
+
+    @Test
+    void deliverToLocalSessions_WithNoLocalSessions_ShouldNotRoute() {
+        // Given
+        PlayerCommand command = PlayerCommand.builder()
+                .commandType(PlayerCommand.CommandType.STOP)
+                .build();
+        
+        when(sessionManager.getPlayerSessions("test-player-id")).thenReturn(Set.of());
+
+        // When
+        boolean result = playerService.deliverToLocalSessions("test-player-id", command);
+
+        // Then
+        assertThat(result).isFalse();
+        
+        verifyNoInteractions(commandRouter);
     }
 
     @Test
@@ -0,0 +1,243 @@
+package com.teneocast.player.service;
+
+import com.teneocast.player.dto.PlayerPresence;
+import com.teneocast.player.dto.PlayerStatusEvent;
+import com.teneocast.player.entity.Player;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PlayerStatusStreamTest {
+
+    @Mock
+    private PresenceIndex presenceIndex;
+
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PlayerStatusStream statusStream;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        statusStream = new PlayerStatusStream(presenceIndex, meterRegistry, 100, 60000, 60000, 2, 2, 200) {
+            @Override
+            SseEmitter createEmitter(long timeout) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        statusStream.shutdown();
+    }
+
+    @Test
+    void constructor_ShouldListenToPresenceIndex() {
+        // Then
+        verify(presenceIndex).addListener(statusStream);
+    }
+
+    @Test
+    void subscribe_ShouldStartWithSnapshotOfOnlinePlayers() {
+        // Given
+        when(presenceIndex.getOnlinePlayers("tenant-1")).thenReturn(List.of(presence("player-1", 40)));
+
+        // When
+        statusStream.subscribe("tenant-1");
+
+        // Then
+        List<PlayerStatusEvent> snapshot = emitters.get(0).events().get(0);
+        assertThat(snapshot).extracting(PlayerStatusEvent::getPlayerId).containsExactly("player-1");
+        assertThat(snapshot.get(0).isOnline()).isTrue();
+        assertThat(statusStream.getSubscriberCount()).isEqualTo(1);
+    }
+
+    @Test
+    void presenceChanged_ShouldCoalesceUpdatesWithinWindow() throws Exception {
+        // Given
+        statusStream.subscribe("tenant-1");
+
+        // When
+        statusStream.presenceChanged(presence("player-1", 10));
+        statusStream.presenceChanged(presence("player-1", 20));
+        statusStream.presenceChanged(presence("player-1", 30));
+        statusStream.presenceChanged(presence("player-2", 50));
+
+        // Then
+        RecordingEmitter emitter = emitters.get(0);
+        waitFor(() -> emitter.events().size() == 2);
+        List<PlayerStatusEvent> batch = emitter.events().get(1);
+        assertThat(batch).hasSize(2);
+        assertThat(batch).filteredOn(event -> event.getPlayerId().equals("player-1"))
+                .extracting(PlayerStatusEvent::getVolume).containsExactly(30);
+        assertThat(meterRegistry.counter("player.status-stream.coalesced").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void presenceRemoved_ShouldStreamOfflineEvent() throws Exception {
+        // Given
+        statusStream.subscribe("tenant-1");
+
+        // When
+        statusStream.presenceRemoved(presence("player-1", 10));
+
+        // Then
+        RecordingEmitter emitter = emitters.get(0);
+        waitFor(() -> emitter.events().size() == 2);
+        PlayerStatusEvent event = emitter.events().get(1).get(0);
+        assertThat(event.isOnline()).isFalse();
+        assertThat(event.getStatus()).isEqualTo(Player.PlayerStatus.OFFLINE);
+    }
+
+    @Test
+    void presenceChanged_ForOtherTenant_ShouldNotBeStreamed() throws Exception {
+        // Given
+        statusStream.subscribe("tenant-2");
+
+        // When
+        statusStream.presenceChanged(presence("player-1", 10));
+        Thread.sleep(250);
+
+        // Then
+        assertThat(emitters.get(0).events()).hasSize(1);
+    }
+
+    @Test
+    void subscribe_OverLimit_ShouldBeRejected() {
+        // Given
+        statusStream.subscribe("tenant-1");
+        statusStream.subscribe("tenant-1");
+
+        // When / Then
+        assertThatThrownBy(() -> statusStream.subscribe("tenant-1")).isInstanceOf(IllegalStateException.class);
+        assertThat(statusStream.getSubscriberCount()).isEqualTo(2);
+    }
+
+    @Test
+    void flush_WhenClientIsGone_ShouldDropSubscriber() throws Exception {
+        // Given
+        statusStream.subscribe("tenant-1");
+        emitters.get(0).failing = true;
+
+        // When
+        statusStream.presenceChanged(presence("player-1", 10));
+
+        // Then
+        waitFor(() -> statusStream.getSubscriberCount() == 0);
+    }
+
+    @Test
+    void flush_WhenOneClientStalls_ShouldKeepStreamingToOthersAndDropIt() throws Exception {
+        // Given
+        statusStream.subscribe("tenant-1");
+        statusStream.subscribe("tenant-1");
+        RecordingEmitter stalled = emitters.get(0);
+        RecordingEmitter healthy = emitters.get(1);
+        CountDownLatch release = new CountDownLatch(1);
+        stalled.blocker = release;
+
+        try {
+            // When
+            statusStream.presenceChanged(presence("player-1", 10));
+            waitFor(() -> healthy.events().size() == 2);
+            statusStream.presenceChanged(presence("player-1", 20));
+
+            // Then
+            waitFor(() -> healthy.events().size() == 3);
+            Thread.sleep(250);
+            statusStream.presenceChanged(presence("player-1", 30));
+            waitFor(() -> statusStream.getSubscriberCount() == 1);
+            waitFor(() -> healthy.events().size() == 4);
+        } finally {
+            release.countDown();
+        }
+        waitFor(() -> stalled.completed);
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private PlayerPresence presence(String playerId, int volume) {
+        return PlayerPresence.builder()
+                .playerId(playerId)
+                .tenantId("tenant-1")
+                .status(Player.PlayerStatus.PLAYING)
+                .currentTrack("track-1")
+                .volume(volume)
+                .build();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<Set<DataWithMediaType>> sent = new CopyOnWriteArrayList<>();
+
+        private volatile boolean failing;
+
+        private volatile CountDownLatch blocker;
+
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            if (blocker != null) {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.add(builder.build());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<List<PlayerStatusEvent>> events() {
+            List<List<PlayerStatusEvent>> events = new ArrayList<>();
+            for (Set<DataWithMediaType> event : sent) {
+                event.stream()
+                        .map(DataWithMediaType::getData)
+                        .filter(List.class::isInstance)
+                        .forEach(data -> events.add((List<PlayerStatusEvent>) data));
+            }
+            return events;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.teneocast.player.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PlayerStatusWriteBehindTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisOperations<String, Object> redisOperations;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    private PlayerStatusWriteBehind writeBehind;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        writeBehind = new PlayerStatusWriteBehind(jdbcTemplate, redisTemplate, new SimpleMeterRegistry(), 100, 2);
+        
+        when(redisOperations.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, SessionCallback.class).execute(redisOperations);
+            return List.of();
+        });
+    }
+
+    @Test
+    void recordStatus_ShouldCoalesceLatestValuesPerPlayer() {
+        // Given
+        writeBehind.recordStatus("player-1", Map.of("status", "playing", "volume", 40));
+        writeBehind.recordStatus("player-1", Map.of("volume", 70, "nowPlaying", "track-2"));
+        writeBehind.recordSeen("player-1");
+
+        // When
+        writeBehind.flush();
+
+        // Then
+        List<Object[]> batch = captureBatches().get(0);
+        assertThat(batch).hasSize(1);
+        
+        Object[] row = batch.get(0);
+        assertThat(row[0]).isEqualTo("PLAYING");
+        assertThat(row[1]).isEqualTo(70);
+        assertThat(row[2]).isEqualTo(true);
+        assertThat(row[3]).isEqualTo("track-2");
+        assertThat(row[6]).isEqualTo("player-1");
+        
+        verify(valueOperations).set(eq("player:lastSeen:player-1"), anyString());
+        assertThat(writeBehind.getPendingCount()).isZero();
+    }
+
+    @Test
+    void recordStatus_WithInvalidStatus_ShouldKeepStoredStatus() {
+        // Given
+        writeBehind.recordStatus("player-1", Map.of("status", "dancing"));
+
+        // When
+        writeBehind.flush();
+
+        // Then
+        Object[] row = captureBatches().get(0).get(0);
+        assertThat(row[0]).isNull();
+        assertThat(row[2]).isEqualTo(false);
+    }
+
+    @Test
+    void flush_ShouldSplitIntoJdbcBatchesAndPipelineRedisOnce() {
+        // Given
+        writeBehind.recordSeen("player-1");
+        writeBehind.recordSeen("player-2");
+        writeBehind.recordSeen("player-3");
+
+        // When
+        writeBehind.flush();
+
+        // Then
+        List<List<Object[]>> batches = captureBatches();
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(0).size() + batches.get(1).size()).isEqualTo(3);
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        verify(valueOperations, times(3)).set(startsWith("player:lastSeen:"), anyString());
+    }
+
+    @Test
+    void flush_WithNothingPending_ShouldNotTouchStores() {
+        // When
+        writeBehind.flush();
+
+        // Then
+        verifyNoInteractions(jdbcTemplate, redisTemplate);
+    }
+
+    @Test
+    void recordSeen_WhenBufferFull_ShouldFlushEarly() {
+        // Given
+        writeBehind = new PlayerStatusWriteBehind(jdbcTemplate, redisTemplate, new SimpleMeterRegistry(), 2, 10);
+
+        // When
+        writeBehind.recordSeen("player-1");
+        writeBehind.recordSeen("player-2");
+
+        // Then
+        verify(jdbcTemplate, timeout(1000)).batchUpdate(anyString(), anyList());
+        assertThat(writeBehind.getPendingCount()).isZero();
+    }
+
+    @Test
+    void recordSeen_WhenBufferFull_ShouldNotFlushOnCallerThread() throws Exception {
+        // Given
+        writeBehind = new PlayerStatusWriteBehind(jdbcTemplate, redisTemplate, new SimpleMeterRegistry(), 2, 10);
+        List<Thread> writers = new CopyOnWriteArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            writers.add(Thread.currentThread());
+            return new int[0];
+        });
+
+        // When
+        writeBehind.recordSeen("player-1");
+        writeBehind.recordSeen("player-2");
+
+        // Then
+        verify(jdbcTemplate, timeout(1000)).batchUpdate(anyString(), anyList());
+        assertThat(writers).doesNotContain(Thread.currentThread());
+    }
+
+    @Test
+    void flushPlayer_ShouldWaitForFlushInProgress() throws Exception {
+        // Given
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        List<String> writes = new CopyOnWriteArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            if (flushStarted.getCount() > 0) {
+                flushStarted.countDown();
+                releaseFlush.await(5, TimeUnit.SECONDS);
+            }
+            writes.add((String) batch.get(0)[6]);
+            return new int[0];
+        });
+        writeBehind.recordStatus("player-1", Map.of("status", "online"));
+        Thread flusher = new Thread(writeBehind::flush);
+        flusher.start();
+        assertThat(flushStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        Thread offline = new Thread(() -> {
+            writeBehind.flushPlayer("player-1");
+            writes.add("offline");
+        });
+        offline.start();
+        Thread.sleep(100);
+        boolean waited = offline.isAlive();
+        releaseFlush.countDown();
+        flusher.join(5000);
+        offline.join(5000);
+
+        // Then
+        assertThat(waited).isTrue();
+        assertThat(writes).containsExactly("player-1", "offline");
+    }
+
+    @Test
+    void flushPlayer_ShouldWriteOnlyThatPlayer() {
+        // Given
+        writeBehind.recordSeen("player-1");
+        writeBehind.recordSeen("player-2");
+
+        // When
+        writeBehind.flushPlayer("player-1");
+
+        // Then
+        assertThat(captureBatches().get(0).get(0)[6]).isEqualTo("player-1");
+        assertThat(writeBehind.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shutdown_ShouldFlushPendingUpdates() {
+        // Given
+        writeBehind.recordStatus("player-1", Map.of("volume", 10));
+
+        // When
+        writeBehind.shutdown();
+
+        // Then
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        assertThat(writeBehind.getPendingCount()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Object[]>> captureBatches() {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), captor.capture());
+        return captor.getAllValues();
+    }
+}
@@ -0,0 +1,316 @@
+package com.teneocast.player.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.teneocast.player.cluster.ClusterMessage;
+import com.teneocast.player.cluster.InstanceIdentity;
+import com.teneocast.player.dto.PlayerPresence;
+import com.teneocast.player.entity.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PresenceIndexTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    private ObjectMapper objectMapper;
+
+    private PresenceIndex presenceIndex;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        presenceIndex = new PresenceIndex(stringRedisTemplate, objectMapper, new InstanceIdentity("node-a"));
+        ReflectionTestUtils.setField(presenceIndex, "clusterEnabled", true);
+        ReflectionTestUtils.setField(presenceIndex, "remoteTtlMillis", 90000L);
+        ReflectionTestUtils.setField(presenceIndex, "publishBatchSize", 500);
+    }
+
+    @Test
+    void playerOnline_ShouldIndexPlayerByTenantAndPlatform() {
+        // When
+        presenceIndex.playerOnline(player("player-1", "tenant-1", Player.PlayerPlatform.WEB));
+        presenceIndex.playerOnline(player("player-2", "tenant-1", Player.PlayerPlatform.ANDROID));
+        presenceIndex.playerOnline(player("player-3", "tenant-2", Player.PlayerPlatform.WEB));
+
+        // Then
+        assertThat(presenceIndex.getOnlinePlayers("tenant-1"))
+                .extracting(PlayerPresence::getPlayerId)
+                .containsExactlyInAnyOrder("player-1", "player-2");
+        assertThat(presenceIndex.countOnline("tenant-2")).isEqualTo(1);
+        assertThat(presenceIndex.countByPlatform("tenant-1"))
+                .containsEntry(Player.PlayerPlatform.WEB, 1L)
+                .containsEntry(Player.PlayerPlatform.ANDROID, 1L);
+        assertThat(presenceIndex.countByTenant()).containsEntry("tenant-1", 2).containsEntry("tenant-2", 1);
+        assertThat(presenceIndex.get("player-1")).get()
+                .extracting(PlayerPresence::getStatus).isEqualTo(Player.PlayerStatus.ONLINE);
+    }
+
+    @Test
+    void updateStatus_ShouldReplaceEntryWithReportedFields() {
+        // Given
+        presenceIndex.playerOnline(player("player-1", "tenant-1", Player.PlayerPlatform.WEB));
+
+        // When
+        presenceIndex.updateStatus("player-1", Map.of("status", "playing", "nowPlaying", "track-9", "volume", 30));
+
+        // Then
+        PlayerPresence presence = presenceIndex.get("player-1").orElseThrow();
+        assertThat(presence.getStatus()).isEqualTo(Player.PlayerStatus.PLAYING);
+        assertThat(presence.getCurrentTrack()).isEqualTo("track-9");
+        assertThat(presence.getVolume()).isEqualTo(30);
+    }
+
+    @Test
+    void updateStatus_ForUnknownPlayer_ShouldIgnoreIt() {
+        // When
+        presenceIndex.updateStatus("player-1", Map.of("volume", 30));
+
+        // Then
+        assertThat(presenceIndex.isOnline("player-1")).isFalse();
+    }
+
+    @Test
+    void playerOffline_ShouldRemoveEntryAndPublishDeparture() throws Exception {
+        // Given
+        presenceIndex.playerOnline(player("player-1", "tenant-1", Player.PlayerPlatform.WEB));
+        presenceIndex.publishChanges();
+        clearInvocations(stringRedisTemplate);
+
+        // When
+        presenceIndex.playerOffline("player-1");
+        presenceIndex.publishChanges();
+
+        // Then
+        assertThat(presenceIndex.getOnlinePlayers("tenant-1")).isEmpty();
+        ClusterMessage message = publishedMessage();
+        assertThat(message.getType()).isEqualTo(ClusterMessage.Type.PRESENCE);
+        assertThat(message.getOriginInstanceId()).isEqualTo("node-a");
+        assertThat(message.getPlayerIds()).containsExactly("player-1");
+    }
+
+    @Test
+    void publishChanges_ShouldCoalesceUpdatesIntoOneMessage() throws Exception {
+        // Given
+        presenceIndex.playerOnline(player("player-1", "tenant-1", Player.PlayerPlatform.WEB));
+        presenceIndex.updateStatus("player-1", Map.of("volume", 10));
+        presenceIndex.updateStatus("player-1", Map.of("volume", 20));
+
+        // When
+        presenceIndex.publishChanges();
+        presenceIndex.publishChanges();
+
+        // Then
+        ClusterMessage message = publishedMessage();
+        assertThat(message.getPresence()).hasSize(1);
+        assertThat(message.getPresence().get(0).getVolume()).isEqualTo(20);
+    }
+
+    @Test
+    void publishChanges_WhenClusterDisabled_ShouldNotPublish() {
+        // Given
+        ReflectionTestUtils.setField(presenceIndex, "clusterEnabled", false);
+        presenceIndex.playerOnline(player("player-1", "tenant-1", Player.PlayerPlatform.WEB));
+
+        // When
+        presenceIndex.publishChanges();
+
+        // Then
+        verifyNoInteractions(stringRedisTemplate);
+        assertThat(presenceIndex.isOnline("player-1")).isTrue();
+    }
+
+    @Test
+    void applyRemote_ShouldMergeOtherInstancesAndHonourOwnership() {
+        // Given
+        PlayerPresence remote = PlayerPresence.builder()
+                .playerId("player-2")
+                .tenantId("tenant-1")
+                .platform(Player.PlayerPlatform.IOS)
+                .status(Player.PlayerStatus.PLAYING)
+                .build();
+
+        // When
+        presenceIndex.applyRemote(ClusterMessage.builder()
+                .type(ClusterMessage.Type.PRESENCE)
+                .originInstanceId("node-b")
+                .presence(List.of(remote))
+                .build());
+
+        // Then
+        assertThat(presenceIndex.isOnlineElsewhere("player-2")).isTrue();
+        assertThat(presenceIndex.get("player-2")).get()
+                .extracting(PlayerPresence::getInstanceId).isEqualTo("node-b");
+
+        // A departure from an instance that does not own the entry is ignored
+        presenceIndex.applyRemote(ClusterMessage.builder()
+                .type(ClusterMessage.Type.PRESENCE)
+                .originInstanceId("node-c")
+                .playerIds(List.of("player-2"))
+                .build());
+        assertThat(presenceIndex.isOnline("player-2")).isTrue();
+
+        presenceIndex.applyRemote(ClusterMessage.builder()
+                .type(ClusterMessage.Type.PRESENCE)
+                .originInstanceId("node-b")
+                .playerIds(List.of("player-2"))
+                .build());
+        assertThat(presenceIndex.isOnline("player-2")).isFalse();
+    }
+
+    @Test
+    void applyRemote_ShouldNotOverrideLocalEntry() {
+        // Given
+        presenceIndex.playerOnline(player("player-1", "tenant-1", Player.PlayerPlatform.WEB));
+
+        // When
+        presenceIndex.applyRemote(ClusterMessage.builder()
+                .type(ClusterMessage.Type.PRESENCE)
+                .originInstanceId("node-b")
+                .presence(List.of(PlayerPresence.builder().playerId("player-1").tenantId("tenant-1").build()))
+                .build());
+
+        // Then
+        assertThat(presenceIndex.isOnlineElsewhere("player-1")).isFalse();
+    }
+
+    @Test
+    void refresh_ShouldExpireRemoteEntriesThatStoppedRefreshing() {
+        // Given
+        ReflectionTestUtils.setField(presenceIndex, "remoteTtlMillis", -1L);
+        presenceIndex.applyRemote(ClusterMessage.builder()
+                .type(ClusterMessage.Type.PRESENCE)
+                .originInstanceId("node-b")
+                .presence(List.of(PlayerPresence.builder().playerId("player-2").tenantId("tenant-1").build()))
+                .build());
+
+        // When
+        presenceIndex.refresh();
+
+        // Then
+        assertThat(presenceIndex.isOnline("player-2")).isFalse();
+    }
+
+    @Test
+    void applyRemote_WithSyncRequest_ShouldRepublishLocalEntries() throws Exception {
+        // Given
+        presenceIndex.playerOnline(player("player-1", "tenant-1", Player.PlayerPlatform.WEB));
+        presenceIndex.publishChanges();
+        clearInvocations(stringRedisTemplate);
+
+        // When
+        presenceIndex.applyRemote(ClusterMessage.builder()
+                .type(ClusterMessage.Type.PRESENCE_SYNC)
+                .originInstanceId("node-b")
+                .build());
+        presenceIndex.publishChanges();
+
+        // Then
+        assertThat(publishedMessage().getPresence())
+                .extracting(PlayerPresence::getPlayerId)
+                .containsExactly("player-1");
+    }
+
+    @Test
+    void playerMovingBetweenInstances_ShouldGoOfflineEverywhereOnceItLeaves() {
+        // Given: node-a, node-b and an observer node-c sharing one presence channel
+        StringRedisTemplate bus = mock(StringRedisTemplate.class);
+        List<PresenceIndex> instances = new ArrayList<>();
+        doAnswer(invocation -> {
+            ClusterMessage message = objectMapper.readValue((String) invocation.getArgument(1), ClusterMessage.class);
+            instances.forEach(instance -> instance.applyRemote(message));
+            return 1L;
+        }).when(bus).convertAndSend(eq(InstanceIdentity.PRESENCE_CHANNEL), anyString());
+        PresenceIndex nodeA = instance(bus, "node-a");
+        PresenceIndex nodeB = instance(bus, "node-b");
+        PresenceIndex nodeC = instance(bus, "node-c");
+        instances.addAll(List.of(nodeA, nodeB, nodeC));
+
+        nodeA.playerOnline(player("player-1", "tenant-1", Player.PlayerPlatform.WEB));
+        nodeA.publishChanges();
+        nodeB.playerOnline(player("player-1", "tenant-1", Player.PlayerPlatform.WEB));
+        nodeB.publishChanges();
+
+        // When: the last session on node-a closes while the player stays on node-b
+        nodeA.playerOffline("player-1");
+        nodeA.publishChanges();
+        nodeA.refresh();
+        nodeB.refresh();
+
+        // Then
+        assertThat(nodeA.isOnlineElsewhere("player-1")).isTrue();
+        assertThat(nodeC.get("player-1")).get()
+                .extracting(PlayerPresence::getInstanceId).isEqualTo("node-b");
+
+        // When: the player leaves node-b as well
+        nodeB.playerOffline("player-1");
+        nodeB.publishChanges();
+        nodeA.refresh();
+
+        // Then
+        assertThat(nodeA.isOnline("player-1")).isFalse();
+        assertThat(nodeB.isOnline("player-1")).isFalse();
+        assertThat(nodeC.isOnline("player-1")).isFalse();
+    }
+
+    @Test
+    void listeners_ShouldHearStatusChangesButNotLastSeenTouches() {
+        // Given
+        PresenceListener listener = mock(PresenceListener.class);
+        presenceIndex.addListener(listener);
+        presenceIndex.playerOnline(player("player-1", "tenant-1", Player.PlayerPlatform.WEB));
+
+        // When
+        presenceIndex.touch("player-1");
+        presenceIndex.updateStatus("player-1", Map.of("nowPlaying", "track-2"));
+        presenceIndex.playerOffline("player-1");
+
+        // Then
+        verify(listener, times(2)).presenceChanged(any());
+        verify(listener).presenceRemoved(argThat(presence -> presence.getPlayerId().equals("player-1")));
+    }
+
+    private ClusterMessage publishedMessage() throws Exception {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(stringRedisTemplate).convertAndSend(eq(InstanceIdentity.PRESENCE_CHANNEL), captor.capture());
+        return objectMapper.readValue(captor.getValue(), ClusterMessage.class);
+    }
+
+    private PresenceIndex instance(StringRedisTemplate bus, String instanceId) {
+        PresenceIndex instance = new PresenceIndex(bus, objectMapper, new InstanceIdentity(instanceId));
+        ReflectionTestUtils.setField(instance, "clusterEnabled", true);
+        ReflectionTestUtils.setField(instance, "remoteTtlMillis", 90000L);
+        ReflectionTestUtils.setField(instance, "publishBatchSize", 500);
+        return instance;
+    }
+
+    private Player player(String id, String tenantId, Player.PlayerPlatform platform) {
+        return Player.builder()
+                .id(id)
+                .name("Player " + id)
+                .tenantId(tenantId)
+                .platform(platform)
+                .status(Player.PlayerStatus.ONLINE)
+                .volume(50)
+                .build();
+    }
+}
@@ -0,0 +1,157 @@
+package com.teneocast.player.service;
+
+import com.teneocast.player.entity.Player;
+import com.teneocast.player.entity.PlayerSession;
+import com.teneocast.player.repository.PlayerSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SessionReaperTest {
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private PlayerService playerService;
+
+    @Mock
+    private PlayerSessionRepository playerSessionRepository;
+
+    @Mock
+    private PlayerStatusWriteBehind statusWriteBehind;
+
+    @Mock
+    private PresenceIndex presenceIndex;
+
+    @Mock
+    private WebSocketSession webSocketSession;
+
+    @InjectMocks
+    private SessionReaper sessionReaper;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sessionReaper, "connectionTimeoutMillis", 300000L);
+    }
+
+    @Test
+    void reap_ShouldCleanUpSessionsAndMarkOrphanedPlayersOffline() {
+        // Given
+        Map<String, String> sessions = Map.of("session-1", "player-1", "session-2", "player-2");
+        when(sessionManager.removeSessions(sessions)).thenReturn(Set.of("player-2"));
+
+        // When
+        sessionReaper.reap(sessions);
+
+        // Then
+        verify(playerService).closePlayerSessions(sessions.keySet());
+        var inOrder = inOrder(statusWriteBehind, playerService);
+        inOrder.verify(statusWriteBehind).flushPlayer("player-2");
+        inOrder.verify(playerService).markPlayersOffline(Set.of("player-2"));
+    }
+
+    @Test
+    void reap_ShouldDropLocalPresenceOfPlayersWithoutLocalSessions() {
+        // Given
+        Map<String, String> sessions = Map.of("session-1", "player-1", "session-2", "player-2");
+        when(sessionManager.removeSessions(sessions)).thenReturn(Set.of());
+        when(sessionManager.hasLocalSessions("player-2")).thenReturn(true);
+
+        // When
+        sessionReaper.reap(sessions);
+
+        // Then
+        verify(presenceIndex).playersOffline(Set.of("player-1"));
+        verify(playerService, never()).markPlayersOffline(any());
+    }
+
+    @Test
+    void reap_WithNoSessions_ShouldDoNothing() {
+        // When
+        sessionReaper.reap(Map.of());
+
+        // Then
+        verifyNoInteractions(sessionManager, playerService, statusWriteBehind, presenceIndex);
+    }
+
+    @Test
+    void reapStaleSessions_ShouldReapRowsPastConnectionTimeout() {
+        // Given
+        PlayerSession stale = PlayerSession.builder()
+                .sessionId("session-1")
+                .player(Player.builder().id("player-1").build())
+                .isActive(true)
+                .build();
+        when(playerSessionRepository.findStaleActiveSessions(any())).thenReturn(List.of(stale));
+        when(sessionManager.removeSessions(any())).thenReturn(Set.of("player-1"));
+
+        // When
+        int reaped = sessionReaper.reapStaleSessions();
+
+        // Then
+        assertThat(reaped).isEqualTo(1);
+        verify(sessionManager).removeSessions(Map.of("session-1", "player-1"));
+        verify(playerService).markPlayersOffline(Set.of("player-1"));
+    }
+
+    @Test
+    void reapStaleSessions_WhenSessionIsLocal_ShouldCloseItInsteadOfSweeping() throws Exception {
+        // Given
+        when(playerSessionRepository.findStaleActiveSessions(any())).thenReturn(List.of(staleSession("session-1", "player-1")));
+        when(sessionManager.getLocalSession("player-1", "session-1")).thenReturn(Optional.of(webSocketSession));
+
+        // When
+        int reaped = sessionReaper.reapStaleSessions();
+
+        // Then
+        assertThat(reaped).isEqualTo(1);
+        verify(webSocketSession).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(sessionManager, never()).removeSessions(any());
+        verify(playerService, never()).closePlayerSessions(any());
+    }
+
+    @Test
+    void reapStaleSessions_WhenOwnerInstanceIsAlive_ShouldLeaveSessionToIt() {
+        // Given
+        when(playerSessionRepository.findStaleActiveSessions(any()))
+                .thenReturn(List.of(staleSession("session-1", "player-1"), staleSession("session-2", "player-2")));
+        when(sessionManager.getSessionsOwnedElsewhere(any())).thenReturn(Set.of("session-1"));
+        when(sessionManager.removeSessions(any())).thenReturn(Set.of("player-2"));
+
+        // When
+        int reaped = sessionReaper.reapStaleSessions();
+
+        // Then
+        assertThat(reaped).isEqualTo(1);
+        verify(sessionManager).removeSessions(Map.of("session-2", "player-2"));
+        verify(playerService).markPlayersOffline(Set.of("player-2"));
+    }
+
+    private PlayerSession staleSession(String sessionId, String playerId) {
+        return PlayerSession.builder()
+                .sessionId(sessionId)
+                .player(Player.builder().id(playerId).build())
+                .isActive(true)
+                .build();
+    }
+}
@@ -1,19 +1,27 @@
 package com.teneocast.player.service;
 
+import com.teneocast.player.cluster.InstanceIdentity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.SetOperations;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -35,6 +43,12 @@ class WebSocketSessionManagerTest {
     @Mock
     private ValueOperations<String, Object> valueOperations;
 
+    @Mock
+    private InstanceIdentity instanceIdentity;
+
+    @Mock
+    private PresenceIndex presenceIndex;
+
     @Mock
     private WebSocketSession webSocketSession1;
 
@@ -46,8 +60,10 @@ class WebSocketSessionManagerTest {
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(sessionManager, "ownerTtlMillis", 150_000L);
         when(redisTemplate.opsForSet()).thenReturn(setOperations);
         when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(instanceIdentity.getInstanceId()).thenReturn("node-a");
         when(webSocketSession1.getId()).thenReturn("session-1");
         when(webSocketSession2.getId()).thenReturn("session-2");
     }
@@ -59,6 +75,7 @@ class WebSocketSessionManagerTest {
 
         // Then
         verify(setOperations).add("player:sessions:player-1", "session-1");
+        verify(valueOperations).set("player:session:owner:session-1", "node-a", 150_000L, TimeUnit.MILLISECONDS);
         verify(valueOperations).set(eq("player:lastSeen:player-1"), anyString());
         
         // Verify local storage
@@ -77,6 +94,7 @@ class WebSocketSessionManagerTest {
 
         // Then
         verify(setOperations).remove("player:sessions:player-1", "session-1");
+        verify(redisTemplate).delete("player:session:owner:session-1");
         
         // Verify local storage
         Set<WebSocketSession> sessions = sessionManager.getPlayerSessions("player-1");
@@ -96,6 +114,94 @@ class WebSocketSessionManagerTest {
         assertThat(sessions).isEmpty();
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void removeSessions_ShouldPipelineRemovalsAndReturnPlayersWithoutSessions() {
+        // Given
+        sessionManager.addSession("player-1", webSocketSession1);
+        sessionManager.addSession("player-2", webSocketSession2);
+        // Two removals (SREM + DEL each) followed by the remaining set size per player
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(1L, true, 1L, true, 0L, 0L));
+
+        // When
+        Set<String> offline = sessionManager.removeSessions(Map.of("session-1", "player-1", "session-2", "player-2"));
+
+        // Then
+        assertThat(offline).containsExactlyInAnyOrder("player-1", "player-2");
+        assertThat(sessionManager.getPlayerSessions("player-1")).isEmpty();
+        assertThat(sessionManager.getPlayerSessions("player-2")).isEmpty();
+        verify(redisTemplate).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void removeSessions_WhenPlayerStillConnectedElsewhere_ShouldKeepPlayerOnline() {
+        // Given
+        sessionManager.addSession("player-1", webSocketSession1);
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(List.of(1L, true, 1L));
+
+        // When
+        Set<String> offline = sessionManager.removeSessions(Map.of("session-1", "player-1"));
+
+        // Then
+        assertThat(offline).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refreshOwners_ShouldExtendOwnerKeysInOnePipeline() {
+        // Given
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.<SessionCallback<Object>>getArgument(0).execute(operations);
+            return List.of(true, true);
+        });
+
+        // When
+        sessionManager.refreshOwners(List.of("session-1", "session-2"));
+
+        // Then
+        verify(redisTemplate).executePipelined(any(SessionCallback.class));
+        verify(operations).expire("player:session:owner:session-1", 150_000L, TimeUnit.MILLISECONDS);
+        verify(operations).expire("player:session:owner:session-2", 150_000L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void refreshOwners_WithNoSessions_ShouldNotTouchRedis() {
+        // When
+        sessionManager.refreshOwners(List.of());
+
+        // Then
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    void getLocalSession_ShouldFindOnlySessionsHeldByThisInstance() {
+        // Given
+        sessionManager.addSession("player-1", webSocketSession1);
+
+        // When & Then
+        assertThat(sessionManager.getLocalSession("player-1", "session-1")).contains(webSocketSession1);
+        assertThat(sessionManager.getLocalSession("player-1", "session-2")).isEmpty();
+        assertThat(sessionManager.getLocalSession("player-2", "session-1")).isEmpty();
+    }
+
+    @Test
+    void getSessionsOwnedElsewhere_ShouldSkipExpiredAndLocalOwners() {
+        // Given
+        when(valueOperations.multiGet(List.of("player:session:owner:session-1",
+                "player:session:owner:session-2", "player:session:owner:session-3")))
+                .thenReturn(Arrays.asList("node-b", null, "node-a"));
+
+        // When
+        Set<String> ownedElsewhere = sessionManager.getSessionsOwnedElsewhere(List.of("session-1", "session-2", "session-3"));
+
+        // Then
+        assertThat(ownedElsewhere).containsExactly("session-1");
+    }
+
     @Test
     void hasActiveSessions_WithLocalSessions_ShouldReturnTrue() {
         // Given
@@ -108,25 +214,37 @@ class WebSocketSessionManagerTest {
         assertThat(result).isTrue();
     }
 
+    @Test
+    void hasActiveSessions_WhenOnlineElsewhere_ShouldNotQueryRedis() {
+        // Given
+        when(presenceIndex.isOnlineElsewhere("player-1")).thenReturn(true);
+
+        // When
+        boolean result = sessionManager.hasActiveSessions("player-1");
+
+        // Then
+        assertThat(result).isTrue();
+        verifyNoInteractions(setOperations);
+    }
+
     @Test
     void hasActiveSessions_WithRedisSessions_ShouldReturnTrue() {
         // Given
-        when(setOperations.members("player:sessions:player-1"))
-                .thenReturn(Set.of("session-1"));
+        when(setOperations.size("player:sessions:player-1")).thenReturn(1L);
 
         // When
         boolean result = sessionManager.hasActiveSessions("player-1");
 
         // Then
         assertThat(result).isTrue();
-        verify(setOperations).members("player:sessions:player-1");
+        verify(setOperations).size("player:sessions:player-1");
+        verify(setOperations, never()).members(anyString());
     }
 
     @Test
     void hasActiveSessions_WithNoSessions_ShouldReturnFalse() {
         // Given
-        when(setOperations.members("player:sessions:player-1"))
-                .thenReturn(Set.of());
+        when(setOperations.size("player:sessions:player-1")).thenReturn(0L);
 
         // When
         boolean result = sessionManager.hasActiveSessions("player-1");
@@ -157,6 +275,49 @@ class WebSocketSessionManagerTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    void getRemoteOwners_ShouldReturnOtherInstancesOnly() {
+        // Given
+        when(setOperations.members("player:sessions:player-1"))
+                .thenReturn(Set.of("session-1"));
+        when(valueOperations.multiGet(List.of("player:session:owner:session-1")))
+                .thenReturn(List.of("node-b"));
+
+        // When
+        Set<String> result = sessionManager.getRemoteOwners("player-1");
+
+        // Then
+        assertThat(result).containsExactly("node-b");
+    }
+
+    @Test
+    void getRemoteOwners_ShouldIgnoreLocalAndMissingOwners() {
+        // Given
+        when(setOperations.members("player:sessions:player-1"))
+                .thenReturn(Set.of("session-1"));
+        when(valueOperations.multiGet(anyList()))
+                .thenReturn(Arrays.asList("node-a", null));
+
+        // When
+        Set<String> result = sessionManager.getRemoteOwners("player-1");
+
+        // Then
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void getRemoteOwners_WhenNoSessions_ShouldReturnEmptySet() {
+        // Given
+        when(setOperations.members("player:sessions:player-1")).thenReturn(Set.of());
+
+        // When
+        Set<String> result = sessionManager.getRemoteOwners("player-1");
+
+        // Then
+        assertThat(result).isEmpty();
+        verify(valueOperations, never()).multiGet(anyList());
+    }
+
     @Test
     void updateLastSeen_ShouldUpdateRedis() {
         // When
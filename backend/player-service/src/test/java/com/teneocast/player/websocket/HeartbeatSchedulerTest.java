@@ -0,0 +1,153 @@
+package com.teneocast.player.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.teneocast.player.service.PlayerService;
+import com.teneocast.player.service.SessionReaper;
+import com.teneocast.player.service.WebSocketSessionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class HeartbeatSchedulerTest {
+
+    @Mock
+    private SessionReaper sessionReaper;
+
+    @Mock
+    private PlayerService playerService;
+
+    @Mock
+    private WebSocketSessionManager sessionManager;
+
+    @Mock
+    private OutboundSessionFactory outboundSessionFactory;
+
+    @Mock
+    private WebSocketSession session;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private HeartbeatScheduler heartbeatScheduler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        
+        // Long tick so the background ticker never fires; ticks are driven by the test
+        heartbeatScheduler = new HeartbeatScheduler(sessionReaper, playerService, sessionManager, outboundSessionFactory,
+                new PlayerMessageCodec(objectMapper), meterRegistry, 240_000, 60_000, 0.0, 2);
+        
+        Map<String, Object> attributes = new HashMap<>();
+        when(session.getId()).thenReturn("session-1");
+        when(session.getAttributes()).thenReturn(attributes);
+        when(session.isOpen()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        heartbeatScheduler.shutdown();
+    }
+
+    @Test
+    void tick_ShouldPingEachSessionOncePerInterval() throws Exception {
+        // Given
+        heartbeatScheduler.register(session, "player-1");
+
+        // When - a full interval of 4 ticks plus the initial spread
+        for (int i = 0; i < 8; i++) {
+            heartbeatScheduler.tick();
+            heartbeatScheduler.onPong("session-1");
+        }
+
+        // Then
+        verify(session, times(2)).sendMessage(any(TextMessage.class));
+        assertThat(meterRegistry.counter("player.websocket.heartbeat.pings").count()).isEqualTo(2.0);
+        assertThat(meterRegistry.timer("player.websocket.heartbeat.rtt").count()).isEqualTo(2);
+    }
+
+    @Test
+    void tick_WhenPongsMissed_ShouldCloseAndReapSession() throws Exception {
+        // Given
+        heartbeatScheduler.register(session, "player-1");
+
+        // When - no pongs for three intervals
+        for (int i = 0; i < 13; i++) {
+            heartbeatScheduler.tick();
+        }
+
+        // Then
+        verify(sessionReaper, timeout(1000)).reap(Map.of("session-1", "player-1"));
+        verify(session, timeout(1000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(outboundSessionFactory, timeout(1000)).release(session);
+        assertThat(heartbeatScheduler.getTrackedSessions()).isZero();
+        assertThat(session.getAttributes()).containsEntry(HeartbeatScheduler.REAPED_ATTRIBUTE, true);
+    }
+
+    @Test
+    void tick_WhenSessionAlreadyClosed_ShouldReapWithoutPinging() throws Exception {
+        // Given
+        when(session.isOpen()).thenReturn(false);
+        heartbeatScheduler.register(session, "player-1");
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            heartbeatScheduler.tick();
+        }
+
+        // Then
+        verify(sessionReaper, timeout(1000)).reap(Map.of("session-1", "player-1"));
+        verify(session, never()).sendMessage(any());
+    }
+
+    @Test
+    void unregister_ShouldStopPinging() throws Exception {
+        // Given
+        heartbeatScheduler.register(session, "player-1");
+
+        // When
+        heartbeatScheduler.unregister("session-1");
+        for (int i = 0; i < 10; i++) {
+            heartbeatScheduler.tick();
+        }
+
+        // Then
+        verify(session, never()).sendMessage(any());
+        verifyNoInteractions(sessionReaper);
+    }
+
+    @Test
+    void onPong_ShouldBatchLastPingRefresh() {
+        // Given
+        heartbeatScheduler.register(session, "player-1");
+
+        // When
+        heartbeatScheduler.onPong("session-1");
+        heartbeatScheduler.tick();
+
+        // Then
+        verify(playerService, timeout(1000)).touchSessions(List.of("session-1"));
+        verify(sessionManager, timeout(1000)).refreshOwners(List.of("session-1"));
+    }
+}
@@ -0,0 +1,169 @@
+package com.teneocast.player.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class OutboundSessionTest {
+
+    @Mock
+    private WebSocketSession delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private List<Runnable> pendingDrains;
+
+    private OutboundSession outboundSession;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pendingDrains = new ArrayList<>();
+        
+        when(delegate.getId()).thenReturn("session-1");
+        when(delegate.getAttributes()).thenReturn(new HashMap<>());
+        
+        // Drains are collected instead of executed so the queue can fill up
+        outboundSession = new OutboundSession(delegate, 2, 10000, 10000, pendingDrains::add, meterRegistry);
+    }
+
+    @Test
+    void enqueue_ShouldWriteFromExecutorNotCaller() throws Exception {
+        // When
+        boolean accepted = outboundSession.enqueue(new TextMessage("a"), OutboundPriority.NORMAL);
+
+        // Then
+        assertThat(accepted).isTrue();
+        verify(delegate, never()).sendMessage(any());
+        
+        runDrains();
+        verify(delegate).sendMessage(new TextMessage("a"));
+        assertThat(outboundSession.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void enqueue_WhenFull_ShouldRejectNormalFrame() {
+        // Given
+        outboundSession.enqueue(new TextMessage("a"), OutboundPriority.NORMAL);
+        outboundSession.enqueue(new TextMessage("b"), OutboundPriority.NORMAL);
+
+        // When
+        boolean accepted = outboundSession.enqueue(new TextMessage("c"), OutboundPriority.NORMAL);
+
+        // Then
+        assertThat(accepted).isFalse();
+        assertThat(outboundSession.getQueueDepth()).isEqualTo(2);
+        assertThat(meterRegistry.counter("player.websocket.outbound.dropped",
+                "priority", "NORMAL", "reason", "overflow").count()).isEqualTo(1);
+    }
+
+    @Test
+    void enqueue_WhenFull_CriticalFrameShouldEvictLowerPriority() throws Exception {
+        // Given
+        outboundSession.enqueue(new TextMessage("ping"), OutboundPriority.DROPPABLE);
+        outboundSession.enqueue(new TextMessage("pause"), OutboundPriority.NORMAL);
+
+        // When
+        boolean accepted = outboundSession.enqueue(new TextMessage("play-ad"), OutboundPriority.CRITICAL);
+
+        // Then
+        assertThat(accepted).isTrue();
+        runDrains();
+        verify(delegate, never()).sendMessage(new TextMessage("ping"));
+        verify(delegate).sendMessage(new TextMessage("pause"));
+        verify(delegate).sendMessage(new TextMessage("play-ad"));
+    }
+
+    @Test
+    void enqueue_WhenFullOfCriticalFrames_ShouldCloseSession() throws Exception {
+        // Given
+        outboundSession.enqueue(new TextMessage("ad-1"), OutboundPriority.CRITICAL);
+        outboundSession.enqueue(new TextMessage("ad-2"), OutboundPriority.CRITICAL);
+
+        // When
+        boolean accepted = outboundSession.enqueue(new TextMessage("stop"), OutboundPriority.CRITICAL);
+
+        // Then
+        assertThat(accepted).isFalse();
+        assertThat(outboundSession.isOutboundClosed()).isTrue();
+        verify(delegate).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Test
+    void enqueue_NewHeartbeatShouldReplaceQueuedHeartbeat() throws Exception {
+        // Given
+        outboundSession.enqueue(new TextMessage("ping-1"), OutboundPriority.DROPPABLE);
+
+        // When
+        outboundSession.enqueue(new TextMessage("ping-2"), OutboundPriority.DROPPABLE);
+
+        // Then
+        assertThat(outboundSession.getQueueDepth()).isEqualTo(1);
+        runDrains();
+        verify(delegate, never()).sendMessage(new TextMessage("ping-1"));
+        verify(delegate).sendMessage(new TextMessage("ping-2"));
+    }
+
+    @Test
+    void checkSendTimeLimit_WhenWriteIsBlocked_ShouldCloseSession() throws Exception {
+        // Given
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writeStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(delegate).sendMessage(any());
+        OutboundSession slowSession = new OutboundSession(delegate, 2, 50, 10000,
+                runnable -> new Thread(runnable).start(), meterRegistry);
+        slowSession.enqueue(new TextMessage("a"), OutboundPriority.NORMAL);
+        assertThat(writeStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        slowSession.checkSendTimeLimit();
+        Thread.sleep(100);
+        slowSession.checkSendTimeLimit();
+
+        // Then
+        verify(delegate, times(1)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(slowSession.isOutboundClosed()).isTrue();
+        assertThat(meterRegistry.counter("player.websocket.outbound.slow.closed").count()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void send_WithoutOutboundQueue_ShouldWriteDirectly() throws Exception {
+        // When
+        boolean sent = OutboundSession.send(delegate, new TextMessage("a"), OutboundPriority.NORMAL);
+
+        // Then
+        assertThat(sent).isTrue();
+        verify(delegate).sendMessage(new TextMessage("a"));
+    }
+
+    private void runDrains() {
+        while (!pendingDrains.isEmpty()) {
+            pendingDrains.remove(0).run();
+        }
+    }
+}
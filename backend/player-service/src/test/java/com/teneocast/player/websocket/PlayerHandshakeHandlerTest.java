@@ -0,0 +1,51 @@
+package com.teneocast.player.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class PlayerHandshakeHandlerTest {
+
+    private final List<WebSocketExtension> extensions = List.of(new WebSocketExtension("permessage-deflate"));
+
+    @Test
+    void filterRequestedExtensions_WhenCompressionEnabled_ShouldAcceptDeflate() {
+        // Given
+        PlayerHandshakeHandler handler = new PlayerHandshakeHandler(true);
+
+        // When
+        List<WebSocketExtension> accepted = handler.filterRequestedExtensions(
+                mock(ServerHttpRequest.class), extensions, extensions);
+
+        // Then
+        assertThat(accepted).extracting(WebSocketExtension::getName).containsExactly("permessage-deflate");
+    }
+
+    @Test
+    void filterRequestedExtensions_WhenCompressionDisabled_ShouldDropDeflate() {
+        // Given
+        PlayerHandshakeHandler handler = new PlayerHandshakeHandler(false);
+
+        // When
+        List<WebSocketExtension> accepted = handler.filterRequestedExtensions(
+                mock(ServerHttpRequest.class), extensions, extensions);
+
+        // Then
+        assertThat(accepted).isEmpty();
+    }
+
+    @Test
+    void supportedProtocols_ShouldPreferCborAndOfferJson() {
+        // When
+        PlayerHandshakeHandler handler = new PlayerHandshakeHandler(true);
+
+        // Then
+        assertThat(handler.getSupportedProtocols())
+                .containsExactly(PlayerMessageCodec.CBOR_PROTOCOL, PlayerMessageCodec.JSON_PROTOCOL);
+    }
+}
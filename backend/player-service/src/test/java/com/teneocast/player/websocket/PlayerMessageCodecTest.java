@@ -0,0 +1,130 @@
+package com.teneocast.player.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.teneocast.player.dto.PlayerCommand;
+import com.teneocast.player.dto.WebSocketMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PlayerMessageCodecTest {
+
+    private ObjectMapper objectMapper;
+
+    private PlayerMessageCodec codec;
+
+    private WebSocketMessage message;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        codec = new PlayerMessageCodec(objectMapper);
+        
+        message = WebSocketMessage.builder()
+                .messageId("msg-1")
+                .type(WebSocketMessage.MessageType.COMMAND)
+                .payload(Map.of("commandType", "PLAY_AD", "payload", Map.of("adId", "ad-1"), "priority", 2))
+                .timestamp(LocalDateTime.of(2024, 6, 1, 12, 30))
+                .playerId("player-1")
+                .build();
+    }
+
+    @Test
+    void encodeBinary_ShouldRoundTripAndBeSmallerThanJson() throws Exception {
+        // When
+        BinaryMessage binary = codec.encodeBinary(message);
+        WebSocketMessage decoded = codec.decode(binary);
+
+        // Then
+        assertThat(decoded).isEqualTo(message);
+        assertThat(binary.getPayloadLength()).isLessThan(codec.encodeText(message).getPayloadLength());
+    }
+
+    @Test
+    void encode_WithCborProtocol_ShouldUseBinaryFrame() throws Exception {
+        // Given
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getAcceptedProtocol()).thenReturn(PlayerMessageCodec.CBOR_PROTOCOL);
+
+        // When / Then
+        assertThat(codec.encode(session, message)).isInstanceOf(BinaryMessage.class);
+    }
+
+    @Test
+    void encode_WithoutNegotiatedProtocol_ShouldFallBackToJson() throws Exception {
+        // Given
+        WebSocketSession session = mock(WebSocketSession.class);
+
+        // When
+        Object frame = codec.encode(session, message);
+
+        // Then
+        assertThat(frame).isInstanceOf(TextMessage.class);
+        assertThat(((TextMessage) frame).getPayload()).isEqualTo(objectMapper.writeValueAsString(message));
+    }
+
+    @Test
+    void commandFrame_ShouldMatchGenericEncodingInBothProtocols() throws Exception {
+        // Given
+        PlayerCommand command = PlayerCommand.builder()
+                .messageId("msg-1")
+                .commandType(PlayerCommand.CommandType.PLAY_AD)
+                .payload(Map.of("adId", "ad-1"))
+                .priority(2)
+                .build();
+
+        // When
+        CommandFrame frame = codec.commandFrame("player-1", command);
+        WebSocketMessage fromText = objectMapper.readValue(frame.text().getPayload(), WebSocketMessage.class);
+        WebSocketMessage fromBinary = codec.decode(frame.binary());
+
+        // Then
+        WebSocketMessage expected = WebSocketMessage.builder()
+                .messageId("msg-1")
+                .type(WebSocketMessage.MessageType.COMMAND)
+                .payload(Map.of("commandType", "PLAY_AD", "payload", Map.of("adId", "ad-1"), "priority", 2))
+                .timestamp(frame.getTimestamp())
+                .playerId("player-1")
+                .build();
+        assertThat(fromText).isEqualTo(expected);
+        assertThat(fromBinary).isEqualTo(expected);
+    }
+
+    @Test
+    void commandFrame_ShouldEncodeOncePerProtocol() throws Exception {
+        // Given
+        WebSocketSession cborSession = mock(WebSocketSession.class);
+        when(cborSession.getAcceptedProtocol()).thenReturn(PlayerMessageCodec.CBOR_PROTOCOL);
+        WebSocketSession jsonSession = mock(WebSocketSession.class);
+        PlayerCommand command = PlayerCommand.builder()
+                .commandType(PlayerCommand.CommandType.STOP)
+                .build();
+
+        // When
+        CommandFrame frame = codec.commandFrame(null, command);
+        Object text1 = frame.forSession(jsonSession);
+        Object text2 = frame.forSession(jsonSession);
+        BinaryMessage binary1 = (BinaryMessage) frame.forSession(cborSession);
+        BinaryMessage binary2 = (BinaryMessage) frame.forSession(cborSession);
+
+        // Then
+        assertThat(frame.getMessageId()).isNotNull();
+        assertThat(text1).isSameAs(text2);
+        assertThat(binary1.getPayload().array()).isSameAs(binary2.getPayload().array());
+        assertThat(binary1.getPayload()).isNotSameAs(binary2.getPayload());
+        assertThat(((TextMessage) text1).getPayload()).doesNotContain("playerId");
+    }
+}
@@ -2,7 +2,10 @@ package com.teneocast.player.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.teneocast.player.dto.WebSocketMessage;
+import com.teneocast.player.service.CommandDeliveryTracker;
 import com.teneocast.player.service.PlayerService;
+import com.teneocast.player.service.PlayerStatusWriteBehind;
+import com.teneocast.player.service.PresenceIndex;
 import com.teneocast.player.service.WebSocketSessionManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
@@ -37,6 +41,24 @@ class PlayerWebSocketHandlerTest {
     @Mock
     private WebSocketSessionManager sessionManager;
 
+    @Mock
+    private OutboundSessionFactory outboundSessionFactory;
+
+    @Mock
+    private CommandDeliveryTracker deliveryTracker;
+
+    @Mock
+    private PlayerStatusWriteBehind statusWriteBehind;
+
+    @Mock
+    private HeartbeatScheduler heartbeatScheduler;
+
+    @Mock
+    private PlayerMessageCodec messageCodec;
+
+    @Mock
+    private PresenceIndex presenceIndex;
+
     @Mock
     private WebSocketSession webSocketSession;
 
@@ -45,6 +67,8 @@ class PlayerWebSocketHandlerTest {
 
     private Map<String, Object> sessionAttributes;
 
+    private OutboundSession outboundSession;
+
     @BeforeEach
     void setUp() {
         sessionAttributes = new HashMap<>();
@@ -54,6 +78,8 @@ class PlayerWebSocketHandlerTest {
         
         when(webSocketSession.getAttributes()).thenReturn(sessionAttributes);
         when(webSocketSession.getId()).thenReturn("session-123");
+        outboundSession = mock(OutboundSession.class);
+        when(outboundSessionFactory.decorate(any())).thenReturn(outboundSession);
         
         // Mock objectMapper to return a valid JSON string
         try {
@@ -69,11 +95,14 @@ class PlayerWebSocketHandlerTest {
         webSocketHandler.afterConnectionEstablished(webSocketSession);
 
         // Then
-        verify(sessionManager).addSession("test-player", webSocketSession);
+        verify(outboundSessionFactory).decorate(webSocketSession);
+        verify(sessionManager).addSession("test-player", outboundSession);
+        verify(heartbeatScheduler).register(outboundSession, "test-player");
         verify(playerService).updatePlayerOnlineStatus("test-player", true);
         verify(playerService).createPlayerSession("test-player", "session-123", "127.0.0.1", "test-agent");
         verify(objectMapper).writeValueAsString(any(WebSocketMessage.class));
         verify(webSocketSession).sendMessage(any(TextMessage.class));
+        verify(deliveryTracker).replayPending("test-player");
     }
 
     @Test
@@ -105,12 +134,47 @@ class PlayerWebSocketHandlerTest {
         webSocketHandler.handleTextMessage(webSocketSession, textMessage);
 
         // Then
-        verify(sessionManager).updateLastSeen("test-player");
-        verify(playerService).updatePlayerStatus("test-player", Map.of("nowPlaying", "test-track"));
+        verify(statusWriteBehind).recordSeen("test-player");
+        verify(statusWriteBehind).recordStatus("test-player", Map.of("nowPlaying", "test-track"));
+        verify(presenceIndex).updateStatus("test-player", Map.of("nowPlaying", "test-track"));
+        verify(playerService, never()).updatePlayerStatus(anyString(), any());
     }
 
     @Test
-    void handleTextMessage_WithAckMessage_ShouldLogAcknowledgment() throws Exception {
+    void handleBinaryMessage_WithCborStatus_ShouldDecodeAndDispatch() throws Exception {
+        // Given
+        WebSocketMessage statusMessage = WebSocketMessage.builder()
+                .type(WebSocketMessage.MessageType.STATUS)
+                .payload(Map.of("volume", 40))
+                .build();
+        BinaryMessage binaryMessage = new BinaryMessage(new byte[] {1, 2, 3});
+        when(messageCodec.decode(binaryMessage)).thenReturn(statusMessage);
+
+        // When
+        webSocketHandler.handleBinaryMessage(webSocketSession, binaryMessage);
+
+        // Then
+        verify(statusWriteBehind).recordStatus("test-player", Map.of("volume", 40));
+        verify(objectMapper, never()).readValue(anyString(), eq(WebSocketMessage.class));
+    }
+
+    @Test
+    void sendMessage_WithCborSession_ShouldSendBinaryFrame() throws Exception {
+        // Given
+        when(webSocketSession.getAcceptedProtocol()).thenReturn(PlayerMessageCodec.CBOR_PROTOCOL);
+        BinaryMessage frame = new BinaryMessage(new byte[] {1});
+        when(messageCodec.encodeBinary(any())).thenReturn(frame);
+
+        // When
+        webSocketHandler.afterConnectionEstablished(webSocketSession);
+
+        // Then
+        verify(webSocketSession).sendMessage(frame);
+        verify(objectMapper, never()).writeValueAsString(any());
+    }
+
+    @Test
+    void handleTextMessage_WithAckMessage_ShouldAcknowledgeDelivery() throws Exception {
         // Given
         WebSocketMessage ackMessage = WebSocketMessage.builder()
                 .type(WebSocketMessage.MessageType.ACK)
@@ -126,8 +190,8 @@ class PlayerWebSocketHandlerTest {
         webSocketHandler.handleTextMessage(webSocketSession, textMessage);
 
         // Then
-        verify(sessionManager).updateLastSeen("test-player");
-        // ACK messages are just logged, no further processing needed
+        verify(statusWriteBehind).recordSeen("test-player");
+        verify(deliveryTracker).acknowledge("test-player", "msg-123");
     }
 
     @Test
@@ -147,7 +211,9 @@ class PlayerWebSocketHandlerTest {
         webSocketHandler.handleTextMessage(webSocketSession, textMessage);
 
         // Then
-        verify(sessionManager, times(2)).updateLastSeen("test-player"); // Once in main handler, once in pong handler
+        verify(statusWriteBehind).recordSeen("test-player");
+        verify(sessionManager, never()).updateLastSeen(anyString());
+        verify(heartbeatScheduler).onPong("session-123");
     }
 
     @Test
@@ -167,7 +233,7 @@ class PlayerWebSocketHandlerTest {
         webSocketHandler.handleTextMessage(webSocketSession, textMessage);
 
         // Then
-        verify(sessionManager).updateLastSeen("test-player");
+        verify(statusWriteBehind).recordSeen("test-player");
         // Error messages are just logged
     }
 
@@ -241,7 +307,7 @@ class PlayerWebSocketHandlerTest {
         webSocketHandler.handleTextMessage(webSocketSession, textMessage);
 
         // Then
-        verify(sessionManager).updateLastSeen("test-player");
+        verify(statusWriteBehind).recordSeen("test-player");
         // Unknown message types are just logged as warnings
     }
 
@@ -271,6 +337,8 @@ class PlayerWebSocketHandlerTest {
         webSocketHandler.afterConnectionClosed(webSocketSession, closeStatus);
 
         // Then
+        verify(heartbeatScheduler).unregister("session-123");
+        verify(outboundSessionFactory).release(webSocketSession);
         verify(sessionManager).removeSession("test-player", "session-123");
         verify(sessionManager).hasActiveSessions("test-player");
         verify(playerService).closePlayerSession("session-123");
@@ -287,10 +355,52 @@ class PlayerWebSocketHandlerTest {
 
         // Then
         verify(sessionManager).removeSession("test-player", "session-123");
-        verify(playerService).updatePlayerOnlineStatus("test-player", false);
+        var inOrder = inOrder(statusWriteBehind, playerService);
+        inOrder.verify(statusWriteBehind).flushPlayer("test-player");
+        inOrder.verify(playerService).updatePlayerOnlineStatus("test-player", false);
         verify(playerService).closePlayerSession("session-123");
     }
 
+    @Test
+    void afterConnectionClosed_WhenPlayerIsStillConnectedElsewhere_ShouldDropOnlyLocalPresence() throws Exception {
+        // Given
+        when(sessionManager.hasLocalSessions("test-player")).thenReturn(false);
+        when(sessionManager.hasActiveSessions("test-player")).thenReturn(true);
+
+        // When
+        webSocketHandler.afterConnectionClosed(webSocketSession, CloseStatus.NORMAL);
+
+        // Then
+        verify(presenceIndex).playerOffline("test-player");
+        verify(playerService, never()).updatePlayerOnlineStatus("test-player", false);
+    }
+
+    @Test
+    void afterConnectionClosed_WhenPlayerKeepsALocalSession_ShouldKeepPresence() throws Exception {
+        // Given
+        when(sessionManager.hasLocalSessions("test-player")).thenReturn(true);
+        when(sessionManager.hasActiveSessions("test-player")).thenReturn(true);
+
+        // When
+        webSocketHandler.afterConnectionClosed(webSocketSession, CloseStatus.NORMAL);
+
+        // Then
+        verify(presenceIndex, never()).playerOffline(anyString());
+    }
+
+    @Test
+    void afterConnectionClosed_WhenReapedByHeartbeat_ShouldLeaveCleanupToTheBatch() throws Exception {
+        // Given
+        sessionAttributes.put(HeartbeatScheduler.REAPED_ATTRIBUTE, true);
+
+        // When
+        webSocketHandler.afterConnectionClosed(webSocketSession, CloseStatus.SESSION_NOT_RELIABLE);
+
+        // Then
+        verifyNoInteractions(sessionManager, playerService, statusWriteBehind, presenceIndex, outboundSessionFactory);
+        verify(heartbeatScheduler, never()).unregister(anyString());
+    }
+
     @Test
     void afterConnectionClosed_WhenExceptionOccurs_ShouldContinueExecution() throws Exception {
         // Given